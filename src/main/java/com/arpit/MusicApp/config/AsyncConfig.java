@@ -0,0 +1,34 @@
+package com.arpit.MusicApp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Background processing of uploaded media (thumbnails and other derived data)
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+    
+    /**
+     * Small bounded pool so media work never competes with request threads for long.
+     * When the queue is full the submitting thread does the work itself.
+     */
+    @Bean(name = "mediaTaskExecutor")
+    public ThreadPoolTaskExecutor mediaTaskExecutor(@Value("${media.executor.threads:2}") int threads,
+                                                    @Value("${media.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -32,7 +32,9 @@ public class CorsConfig {
             "Authorization",
             "Content-Type",
             "Content-Length",
-            "Content-Disposition"
+            "Content-Disposition",
+            "Link",
+            "X-Next-Cursor"
         ));
         
         // Cache preflight response for 1 hour
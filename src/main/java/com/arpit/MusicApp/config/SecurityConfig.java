@@ -2,7 +2,9 @@ package com.arpit.MusicApp.config;
 
 import com.arpit.MusicApp.security.JwtAuthenticationEntryPoint;
 import com.arpit.MusicApp.security.JwtAuthenticationFilter;
+import com.arpit.MusicApp.security.SignedMediaUrlFilter;
 import com.arpit.MusicApp.service.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,6 +34,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     
+    @Autowired
+    private SignedMediaUrlFilter signedMediaUrlFilter;
+    
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -58,14 +63,18 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(jwtAuthenticationEntryPoint))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // Completes a streamed response whose request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/api/files/**").permitAll()  // Allow public access to audio/image streaming
+                        .requestMatchers("/api/files/**").authenticated()  // Signed URL (see SongDto) or JWT
                         .requestMatchers("/api/songs/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 );
         
         http.authenticationProvider(authenticationProvider());
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(signedMediaUrlFilter, JwtAuthenticationFilter.class);
         
         return http.build();
     }
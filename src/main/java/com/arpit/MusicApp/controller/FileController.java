@@ -1,13 +1,20 @@
 package com.arpit.MusicApp.controller;
 
-import com.arpit.MusicApp.entity.Song;
-import com.arpit.MusicApp.service.SongService;
+import com.arpit.MusicApp.service.media.AudioSegmentService;
+import com.arpit.MusicApp.service.media.MediaSource;
+import com.arpit.MusicApp.service.media.MediaStreamingService;
+import com.arpit.MusicApp.service.media.SongMediaService;
+import com.arpit.MusicApp.util.MediaUrlSigner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
@@ -15,64 +22,101 @@ import org.springframework.web.bind.annotation.*;
 public class FileController {
 
     @Autowired
-    private SongService songService;
+    private SongMediaService songMediaService;
+
+    @Autowired
+    private MediaStreamingService mediaStreamingService;
+
+    @Autowired
+    private AudioSegmentService audioSegmentService;
+
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
 
     /**
-     * Stream audio file from database BLOB
-     * This endpoint serves audio files for playback
+     * Stream audio file from the media store
+     * This endpoint serves audio files for playback and honors Range / If-Range
+     * so that seeking only transfers the requested bytes.
+     * Content is piped from the store and never loaded into memory as a whole.
+     * With ?t=seconds playback starts at the frame containing that position;
+     * X-Start-Time tells the player the exact time of the first frame sent.
      */
     @GetMapping("/audio/{songId}")
-    public ResponseEntity<byte[]> streamAudio(@PathVariable Long songId) {
-        try {
-            Song song = songService.getSongEntityById(songId);
-            
-            if (song.getAudioData() == null || song.getAudioData().length == 0) {
-                return ResponseEntity.notFound().build();
-            }
+    public ResponseEntity<StreamingResponseBody> streamAudio(@PathVariable Long songId,
+                                                             @RequestParam(value = "t", required = false) Double t,
+                                                             @RequestHeader HttpHeaders headers) {
+        boolean seeking = t != null && t > 0;
+        Optional<MediaSource> source = seeking ? songMediaService.openAudio(songId, t) : songMediaService.openAudio(songId);
+        if (source.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
 
-            String contentType = song.getAudioContentType();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
+        ResponseEntity<StreamingResponseBody> response = mediaStreamingService.stream(source.get(), headers, "no-cache");
+        if (!seeking) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header("X-Start-Time", String.format(Locale.ROOT, "%.3f", source.get().startSeconds()))
+                .body(response.getBody());
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + song.getAudioFilename() + "\"")
-                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
-                    .body(song.getAudioData());
+    /**
+     * HLS media playlist of a song's audio, for players that fetch fixed-duration segments
+     * Returns 404 for formats other than MP3 and while the audio is being indexed; play the file itself then
+     */
+    @GetMapping("/audio/{songId}/playlist.m3u8")
+    public ResponseEntity<String> audioPlaylist(@PathVariable Long songId) {
+        Optional<String> digest = songMediaService.findAudioDigest(songId);
+        if (digest.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // One signature covers all segments, so players fetch them without the JWT
+        String segmentQuery = mediaUrlSigner.signatureQuery(
+                "/api/files/segments/" + digest.get() + "/", mediaUrlSigner.currentExpiry());
+        Optional<String> playlist = audioSegmentService.playlist(
+                digest.get(), "../../segments/" + digest.get() + "/", segmentQuery);
+        if (playlist.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .cacheControl(CacheControl.noCache())
+                .eTag(audioSegmentService.playlistETag(digest.get(), segmentQuery))
+                .body(playlist.get());
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    /**
+     * Stream one segment listed in a playlist
+     * Segment URLs name the audio content, so segments never change and may be cached for good
+     */
+    @GetMapping("/segments/{digest}/{index}.mp3")
+    public ResponseEntity<StreamingResponseBody> streamSegment(@PathVariable String digest,
+                                                               @PathVariable int index,
+                                                               @RequestHeader HttpHeaders headers) {
+        Optional<MediaSource> source = audioSegmentService.openSegment(digest, index);
+        if (source.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+
+        return mediaStreamingService.stream(source.get(), headers, "public, max-age=31536000, immutable");
     }
 
     /**
-     * Stream cover image from database BLOB
+     * Stream cover image from the media store
      * This endpoint serves cover images
+     * With ?size=N a precomputed JPEG variant at least N pixels on its longest side is served instead
      */
     @GetMapping("/cover/{songId}")
-    public ResponseEntity<byte[]> streamCover(@PathVariable Long songId) {
-        try {
-            Song song = songService.getSongEntityById(songId);
-            
-            if (song.getCoverImageData() == null || song.getCoverImageData().length == 0) {
-                return ResponseEntity.notFound().build();
-            }
-
-            String contentType = song.getCoverImageContentType();
-            if (contentType == null) {
-                contentType = "image/jpeg";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + song.getCoverImageFilename() + "\"")
-                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600")
-                    .body(song.getCoverImageData());
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    public ResponseEntity<StreamingResponseBody> streamCover(@PathVariable Long songId,
+                                                             @RequestParam(value = "size", required = false) Integer size,
+                                                             @RequestHeader HttpHeaders headers) {
+        Optional<MediaSource> source = songMediaService.openCover(songId, size);
+        if (source.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+
+        return mediaStreamingService.stream(source.get(), headers, "max-age=3600");
     }
 }
@@ -0,0 +1,107 @@
+package com.arpit.MusicApp.controller;
+
+import com.arpit.MusicApp.dto.MediaCacheStatsDto;
+import com.arpit.MusicApp.dto.MediaMigrationStatusDto;
+import com.arpit.MusicApp.dto.MediaScrubStatsDto;
+import com.arpit.MusicApp.dto.PacingStatsDto;
+import com.arpit.MusicApp.service.media.BandwidthScheduler;
+import com.arpit.MusicApp.service.media.LegacyMediaMigrationService;
+import com.arpit.MusicApp.service.media.MediaCache;
+import com.arpit.MusicApp.service.media.MediaScrubService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Operational endpoints for media storage (Admin only)
+ */
+@RestController
+@RequestMapping("/api/admin/media")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class MediaAdminController {
+    
+    @Autowired
+    private MediaCache mediaCache;
+    
+    @Autowired
+    private BandwidthScheduler bandwidthScheduler;
+    
+    @Autowired
+    private LegacyMediaMigrationService legacyMediaMigrationService;
+    
+    @Autowired
+    private MediaScrubService mediaScrubService;
+    
+    /**
+     * Media cache metrics: size, hits, misses, evictions and rejected admissions
+     */
+    @GetMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(mediaCache.getStats());
+    }
+    
+    /**
+     * Stream pacing metrics: active paced streams, bytes sent and time spent throttled
+     */
+    @GetMapping("/pacing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PacingStatsDto> getPacingStats() {
+        return ResponseEntity.ok(bandwidthScheduler.getStats());
+    }
+    
+    /**
+     * Progress of the migration of media out of the legacy songs BLOB columns
+     */
+    @GetMapping("/migration")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaMigrationStatusDto> getMigrationStatus() {
+        return ResponseEntity.ok(legacyMediaMigrationService.getStatus());
+    }
+    
+    /**
+     * Start migrating legacy BLOBs into the media store in the background
+     * Returns 409 if a run is already in progress
+     */
+    @PostMapping("/migration")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaMigrationStatusDto> startMigration(
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun) {
+        boolean started = legacyMediaMigrationService.start(dryRun);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(legacyMediaMigrationService.getStatus());
+    }
+    
+    /**
+     * Stop a running migration after the payload in progress; starting again resumes it
+     */
+    @DeleteMapping("/migration")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaMigrationStatusDto> stopMigration() {
+        legacyMediaMigrationService.stop();
+        return ResponseEntity.ok(legacyMediaMigrationService.getStatus());
+    }
+    
+    /**
+     * Results of the orphan collector and integrity scrubber since startup
+     */
+    @GetMapping("/scrub")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaScrubStatsDto> getScrubStats() {
+        return ResponseEntity.ok(mediaScrubService.getStats());
+    }
+    
+    /**
+     * Run the scrubber now instead of waiting for its schedule
+     * Returns 409 if a run is already in progress
+     */
+    @PostMapping("/scrub")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MediaScrubStatsDto> startScrub() {
+        boolean started = mediaScrubService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(mediaScrubService.getStats());
+    }
+}
@@ -2,11 +2,17 @@ package com.arpit.MusicApp.controller;
 
 import com.arpit.MusicApp.dto.PlaylistDto;
 import com.arpit.MusicApp.service.PlaylistService;
+import com.arpit.MusicApp.service.media.MediaSource;
+import com.arpit.MusicApp.service.media.MediaStreamingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +24,9 @@ public class PlaylistController {
     @Autowired
     private PlaylistService playlistService;
     
+    @Autowired
+    private MediaStreamingService mediaStreamingService;
+    
     /**
      * Create a new playlist for the authenticated user
      * User is extracted from security context
@@ -50,6 +59,27 @@ public class PlaylistController {
         return ResponseEntity.ok(playlist);
     }
     
+    /**
+     * Download the audio of a playlist as a ZIP archive
+     * The archive is built while it is sent and supports Range / If-Range,
+     * so an interrupted download can be resumed where it stopped
+     */
+    @GetMapping("/{id}/download")
+    public ResponseEntity<StreamingResponseBody> downloadPlaylist(@PathVariable Long id,
+                                                                  @RequestHeader HttpHeaders headers) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        MediaSource archive = playlistService.openDownload(id, username);
+        
+        ResponseEntity<StreamingResponseBody> response = mediaStreamingService.stream(archive, headers, "private, no-cache");
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.putAll(response.getHeaders());
+        responseHeaders.setContentDisposition(ContentDisposition.attachment().filename(archive.filename(),
+                StandardCharsets.UTF_8).build());
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(responseHeaders)
+                .body(response.getBody());
+    }
+    
     /**
      * Add a song to a playlist
      * Verifies user owns the playlist
@@ -1,13 +1,21 @@
 package com.arpit.MusicApp.controller;
 
+import com.arpit.MusicApp.dto.SongCacheStatsDto;
 import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.SongFacetsDto;
+import com.arpit.MusicApp.dto.SongPageDto;
+import com.arpit.MusicApp.dto.SuggestionDto;
 import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.exception.MusicAppException;
 import com.arpit.MusicApp.service.SongService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -19,38 +27,116 @@ public class SongController {
     @Autowired
     private SongService songService;
     
+    /**
+     * Get all songs, one page at a time
+     * limit (default 50, max 200), sort = id | title | artist | createdAt, direction = asc | desc
+     * The body stays a plain array; when more songs follow, the Link (rel="next") and X-Next-Cursor
+     * headers carry an opaque cursor to pass back as ?cursor= with the same sort
+     * Carries an ETag so clients revalidate with If-None-Match and get a 304 when nothing changed
+     * No Last-Modified: deleting a song does not move any timestamp forward
+     */
     @GetMapping
-    public ResponseEntity<List<SongDto>> getAllSongs() {
-        List<SongDto> songs = songService.getAllSongs();
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDto>> getAllSongs(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
+        SongPageDto page = songService.getAllSongs(limit, sort, direction, cursor);
+        return pageResponse(page)
+                .cacheControl(CacheControl.noCache())
+                .eTag(songService.songListETag(page.getSongs()))
+                .body(page.getSongs());
     }
     
     /**
      * Get a specific song by ID
-     * Returns 404 if song not found
+     * Returns 404 if song not found, 304 if If-None-Match shows the client copy is current
+     * No Last-Modified: the signed media URLs expire while updatedAt stays put, so
+     * If-Modified-Since would keep a copy whose URLs no longer work
      */
     @GetMapping("/{id}")
     public ResponseEntity<SongDto> getSongById(@PathVariable Long id) {
         SongDto song = songService.getSongById(id);
-        return ResponseEntity.ok(song);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (song.getUpdatedAt() != null) {
+            response.eTag(songService.songETag(song));
+        }
+        return response.body(song);
     }
     
+    /**
+     * Search title, artist and album, best match first by default; paged like GET /api/songs
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<SongDto>> searchSongs(@RequestParam String q) {
-        List<SongDto> songs = songService.searchSongs(q);
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDto>> searchSongs(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
+        SongPageDto page = songService.searchSongs(q, limit, sort, direction, cursor);
+        return pageResponse(page).body(page.getSongs());
+    }
+    
+    /**
+     * Type-ahead suggestions: titles, artists and albums where the value or a word in it
+     * starts with the prefix, most popular first (limit default and max 10)
+     * Answered from memory, never reaches the database
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(songService.suggest(prefix, limit));
+    }
+    
+    /**
+     * Song counts per genre, artist and album for browse pages, over the whole catalogue
+     * or the matches of a search (q); artists and albums most common first (limit default 20, max 100)
+     * Answered from counters kept in memory, never a GROUP BY
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<SongFacetsDto> getFacets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(songService.getFacets(q, limit));
+    }
+    
+    /**
+     * Songs matching a filter expression over genre, duration, media and decade added,
+     * e.g. where=(genre:ROCK OR genre:METAL) AND duration:180-300 AND has:audio
+     * Paged in id order like the other listings; matched on in-memory bitmaps
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<List<SongDto>> filterSongs(
+            @RequestParam String where,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
+        SongPageDto page = songService.filterSongs(where, limit, direction, cursor);
+        return pageResponse(page).body(page.getSongs());
     }
     
     @GetMapping("/genre/{genre}")
-    public ResponseEntity<List<SongDto>> getSongsByGenre(@PathVariable Song.Genre genre) {
-        List<SongDto> songs = songService.getSongsByGenre(genre);
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDto>> getSongsByGenre(
+            @PathVariable Song.Genre genre,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
+        SongPageDto page = songService.getSongsByGenre(genre, limit, sort, direction, cursor);
+        return pageResponse(page).body(page.getSongs());
     }
     
     @GetMapping("/artist")
-    public ResponseEntity<List<SongDto>> getSongsByArtist(@RequestParam String artist) {
-        List<SongDto> songs = songService.getSongsByArtist(artist);
-        return ResponseEntity.ok(songs);
+    public ResponseEntity<List<SongDto>> getSongsByArtist(
+            @RequestParam String artist,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor) {
+        SongPageDto page = songService.getSongsByArtist(artist, limit, sort, direction, cursor);
+        return pageResponse(page).body(page.getSongs());
     }
     
     /**
@@ -66,7 +152,9 @@ public class SongController {
     
     /**
      * Upload song with audio file and optional cover image (Admin only)
-     * Stores files as BLOBs in database
+     * Files are spooled to disk, validated by their magic bytes and stored in the
+     * configured media store (database BLOBs or files on disk)
+     * Duration is read from the audio when omitted
      * Requires ADMIN role
      */
     @PostMapping("/admin/upload")
@@ -76,7 +164,7 @@ public class SongController {
             @RequestParam("artist") String artist,
             @RequestParam("album") String album,
             @RequestParam("genre") Song.Genre genre,
-            @RequestParam("duration") Integer duration,
+            @RequestParam(value = "duration", required = false) Integer duration,
             @RequestParam("audioFile") MultipartFile audioFile,
             @RequestParam(value = "coverImage", required = false) MultipartFile coverImage) {
         
@@ -89,22 +177,19 @@ public class SongController {
             song.setGenre(genre);
             song.setDuration(duration);
             
-            // Store audio file as BLOB
-            song.setAudioData(audioFile.getBytes());
-            song.setAudioContentType(audioFile.getContentType());
+            // File names as uploaded; content types come from the detected format
             song.setAudioFilename(audioFile.getOriginalFilename());
-            
-            // Store cover image as BLOB if provided
             if (coverImage != null && !coverImage.isEmpty()) {
-                song.setCoverImageData(coverImage.getBytes());
-                song.setCoverImageContentType(coverImage.getContentType());
                 song.setCoverImageFilename(coverImage.getOriginalFilename());
             }
             
-            // Save song to database
-            Song savedSong = songService.saveSongWithBlob(song);
+            // Save song and stream its files to the media store
+            Song savedSong = songService.saveSongWithMedia(song, audioFile, coverImage);
             return ResponseEntity.ok(songService.convertToDto(savedSong));
             
+        } catch (MusicAppException e) {
+            // Validation failures keep their own status code
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to upload song: " + e.getMessage(), e);
         }
@@ -121,6 +206,16 @@ public class SongController {
         return ResponseEntity.ok(updatedSong);
     }
     
+    /**
+     * Catalog cache metrics: cached songs and pages, hits and misses per layer,
+     * evictions, invalidations and the overall hit rate (Admin only)
+     */
+    @GetMapping("/admin/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SongCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(songService.getCacheStats());
+    }
+    
     /**
      * Delete a song (Admin only)
      * Requires ADMIN role
@@ -131,4 +226,21 @@ public class SongController {
         songService.deleteSong(id);
         return ResponseEntity.ok("Song deleted successfully");
     }
+    
+    /**
+     * Start a 200 response for a page, linking the next page when there is one
+     * The link repeats the current query with the cursor replaced
+     */
+    private ResponseEntity.BodyBuilder pageResponse(SongPageDto page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .build(true)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                    .header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response;
+    }
 }
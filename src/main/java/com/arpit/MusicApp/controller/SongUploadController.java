@@ -0,0 +1,106 @@
+package com.arpit.MusicApp.controller;
+
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.UploadSessionDto;
+import com.arpit.MusicApp.dto.UploadSessionRequestDto;
+import com.arpit.MusicApp.service.media.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Resumable uploads for large audio files (Admin only)
+ *
+ * 1. POST   /api/songs/admin/uploads                  create a session with the song metadata and total size
+ * 2. PUT    /api/songs/admin/uploads/{id}?offset=N    send the next chunk as the raw request body
+ * 3. GET    /api/songs/admin/uploads/{id}             query the offset to resume from after a failure
+ * 4. POST   /api/songs/admin/uploads/{id}/complete    create the song, optionally with a duration and a coverImage part
+ *
+ * DELETE /api/songs/admin/uploads/{id} abandons an upload.
+ */
+@RestController
+@RequestMapping("/api/songs/admin/uploads")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class SongUploadController {
+    
+    private static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+    
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+    
+    /**
+     * Start a resumable upload
+     * Returns 201 with the session id and offset 0
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadSessionDto> createSession(@RequestBody UploadSessionRequestDto request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        UploadSessionDto session = resumableUploadService.createSession(username, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+    
+    /**
+     * Get upload progress
+     * The offset is where the next chunk has to start
+     */
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadSessionDto> getSession(@PathVariable String id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        UploadSessionDto session = resumableUploadService.getSession(id, username);
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+    
+    /**
+     * Append a chunk sent as the raw request body
+     * Returns 409 if the offset is not the current upload offset
+     */
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadSessionDto> uploadChunk(@PathVariable String id,
+                                                        @RequestParam("offset") long offset,
+                                                        HttpServletRequest request) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        UploadSessionDto session = resumableUploadService.appendChunk(
+                id, username, offset, request.getContentLengthLong(), request.getInputStream());
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+    
+    /**
+     * Finish an upload and create the song
+     * Returns 409 if bytes are still missing; a duration given here overrides the one given at creation
+     */
+    @PostMapping("/{id}/complete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SongDto> completeUpload(
+            @PathVariable String id,
+            @RequestParam(value = "duration", required = false) Integer duration,
+            @RequestParam(value = "coverImage", required = false) MultipartFile coverImage) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        SongDto song = resumableUploadService.complete(id, username, duration, coverImage);
+        return ResponseEntity.status(HttpStatus.CREATED).body(song);
+    }
+    
+    /**
+     * Abandon an upload and delete the received bytes
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> abortUpload(@PathVariable String id) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        resumableUploadService.abort(id, username);
+        return ResponseEntity.ok("Upload cancelled");
+    }
+}
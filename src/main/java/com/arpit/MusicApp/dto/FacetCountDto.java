@@ -0,0 +1,13 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDto {
+    private String value; // genre name, artist or album
+    private int count;
+}
@@ -0,0 +1,21 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaCacheStatsDto {
+    private boolean enabled;
+    private boolean offHeap;
+    private long maxBytes;
+    private long usedBytes;
+    private int segments; // number of cached segments
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections; // misses not admitted because the segment was less popular than what it would displace
+    private double hitRate;
+}
@@ -0,0 +1,25 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaMigrationStatusDto {
+    private boolean running;
+    private boolean dryRun; // content is read and checked, nothing is written
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long lastSongId; // keyset position, songs up to this id have been visited
+    private long songsScanned;
+    private long blobsMigrated; // in a dry run: blobs that would be migrated
+    private long bytesMigrated;
+    private long blobsSuperseded; // legacy copies dropped because the song already has newer media
+    private long failures;
+    private String lastError;
+    private long throttledMillis; // time spent waiting for the I/O budget
+}
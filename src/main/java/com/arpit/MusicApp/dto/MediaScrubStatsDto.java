@@ -0,0 +1,28 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaScrubStatsDto {
+    private boolean running;
+    private long runs;
+    private LocalDateTime lastStartedAt;
+    private LocalDateTime lastFinishedAt;
+    private long filesScanned;
+    private long orphansFound; // unreferenced files past the grace period
+    private long orphansDeleted;
+    private long bytesReclaimed;
+    private long blobsVerified;
+    private long bytesVerified;
+    private long verifyPasses; // completed passes over all blobs
+    private long throttledMillis; // time spent waiting for the I/O budget
+    private List<String> missingBlobs; // kind:digest of blobs whose content is gone
+    private List<String> corruptBlobs; // kind:digest of blobs whose content no longer matches the digest
+}
@@ -0,0 +1,18 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacingStatsDto {
+    private boolean enabled;
+    private int activeStreams; // responses currently sending paced bytes
+    private double rateFactor; // per-stream rate as a multiple of the track bitrate
+    private long maxStreamRate; // bytes per second, 0 = unlimited
+    private long totalRate; // bytes per second shared by all streams, 0 = unlimited
+    private long bytesSent;
+    private long throttledMillis; // total time streams spent waiting for budget
+}
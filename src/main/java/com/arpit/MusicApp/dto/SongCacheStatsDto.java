@@ -0,0 +1,23 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongCacheStatsDto {
+    private boolean enabled;
+    private int songs; // cached songs, by id
+    private int maxSongs;
+    private int pages; // cached listing pages
+    private int maxPages;
+    private long songHits;
+    private long songMisses;
+    private long pageHits;
+    private long pageMisses;
+    private long evictions; // dropped for size or age
+    private long invalidations; // dropped because a song they hold or could hold changed
+    private double hitRate; // songs and pages together
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +23,13 @@ public class SongDto {
     private String audioContentType;
     private String coverImageFilename;
     private String coverImageContentType;
+    private Long audioSize; // in bytes
+    private Long coverImageSize; // in bytes
     private boolean hasAudioData;
     private boolean hasCoverImage;
+    private LocalDateTime updatedAt; // version of the song, basis for the ETag
+    private String audioUrl; // signed, usable without the JWT until mediaUrlsExpireAt
+    private String coverUrl; // signed, ?size= may be appended
+    private String playlistUrl; // signed HLS playlist, MP3 audio only
+    private LocalDateTime mediaUrlsExpireAt;
 }
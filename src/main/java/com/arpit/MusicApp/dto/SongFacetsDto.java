@@ -0,0 +1,17 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongFacetsDto {
+    private int total; // songs counted: the whole catalogue or the matches of the query
+    private List<FacetCountDto> genres;
+    private List<FacetCountDto> artists; // most common first, at most the requested limit
+    private List<FacetCountDto> albums;
+}
@@ -0,0 +1,15 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongPageDto {
+    private List<SongDto> songs;
+    private String nextCursor; // opaque position after the last song, null on the last page
+}
@@ -0,0 +1,18 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+    private String text;
+    private Field field;
+    private int songCount; // songs with this title, by this artist or on this album
+    
+    public enum Field {
+        TITLE, ARTIST, ALBUM
+    }
+}
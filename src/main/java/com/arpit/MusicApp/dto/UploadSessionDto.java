@@ -0,0 +1,19 @@
+package com.arpit.MusicApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String id;
+    private String filename;
+    private Long offset; // bytes received so far, the next chunk must start here
+    private Long totalSize; // in bytes
+    private boolean complete; // all bytes received, ready to be finalized
+    private LocalDateTime expiresAt; // session is discarded if idle until then
+}
@@ -0,0 +1,20 @@
+package com.arpit.MusicApp.dto;
+
+import com.arpit.MusicApp.entity.Song;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionRequestDto {
+    private String title;
+    private String artist;
+    private String album;
+    private Song.Genre genre;
+    private Integer duration; // optional, probed from the audio when omitted
+    private String filename;
+    private Long totalSize; // in bytes
+    private String sha256; // optional, verified when the upload is completed
+}
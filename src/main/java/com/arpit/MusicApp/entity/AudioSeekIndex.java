@@ -0,0 +1,73 @@
+package com.arpit.MusicApp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Maps playback time to byte offsets in an audio file, so playback can start
+ * at any position without reading the file from the beginning.
+ *
+ * The index belongs to the audio content (its digest), so songs sharing an
+ * upload share its index. Audio is seen as a sequence of frames of
+ * samplesPerFrame samples each: MPEG frames for MP3, whose variable offsets
+ * are listed in frameOffsets, and sample blocks of blockAlign bytes for WAV,
+ * whose offsets follow from dataOffset.
+ */
+@Entity
+@Table(name = "audio_seek_indexes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioSeekIndex {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "audio_digest", nullable = false, unique = true, length = 64)
+    private String audioDigest;
+    
+    @Column(nullable = false, length = 8)
+    private String format; // MP3 or WAV
+    
+    @Column(name = "sample_rate", nullable = false)
+    private Integer sampleRate;
+    
+    @Column(name = "samples_per_frame", nullable = false)
+    private Integer samplesPerFrame;
+    
+    @Column(name = "frame_count", nullable = false)
+    private Long frameCount;
+    
+    @Column(name = "data_offset", nullable = false)
+    private Long dataOffset; // first audio frame, or start of the WAV data chunk
+    
+    @Column(name = "data_length", nullable = false)
+    private Long dataLength; // bytes of audio frames from dataOffset on
+    
+    @Column(name = "block_align")
+    private Integer blockAlign; // WAV only
+    
+    @Column(name = "format_chunk", length = 64)
+    @ToString.Exclude
+    private byte[] formatChunk; // WAV only, body of the "fmt " chunk
+    
+    // MP3 only: distance of each frame from the previous one, as unsigned LEB128 varints
+    @Lob
+    @Column(name = "frame_offsets", columnDefinition = "BLOB")
+    @ToString.Exclude
+    private byte[] frameOffsets;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,51 @@
+package com.arpit.MusicApp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A precomputed, downscaled JPEG of a cover image.
+ *
+ * Variants belong to the cover content (its digest), not to a song, so songs
+ * sharing a cover share its thumbnails. The JPEG itself is a THUMBNAIL media
+ * blob holding one reference per variant row.
+ */
+@Entity
+@Table(name = "cover_variants", uniqueConstraints = @UniqueConstraint(columnNames = {"cover_digest", "max_dimension"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverVariant {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "cover_digest", nullable = false, length = 64)
+    private String coverDigest; // digest of the original cover blob
+    
+    @Column(name = "max_dimension", nullable = false)
+    private Integer maxDimension; // bounding box in pixels, e.g. 64, 256 or 640
+    
+    @Column(nullable = false, length = 64)
+    private String digest; // digest of the THUMBNAIL blob
+    
+    @Column(name = "byte_size", nullable = false)
+    private Long byteSize;
+    
+    private Integer width;
+    
+    private Integer height;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
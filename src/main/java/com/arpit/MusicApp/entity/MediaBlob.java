@@ -0,0 +1,51 @@
+package com.arpit.MusicApp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A distinct piece of stored media, identified by the SHA-256 digest of its bytes.
+ *
+ * Songs point at blobs by digest, so uploading the same file twice stores it
+ * once and only bumps the reference count. The bytes themselves live in the
+ * active MediaStore under the digest.
+ */
+@Entity
+@Table(name = "media_blobs", uniqueConstraints = @UniqueConstraint(columnNames = {"kind", "digest"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaBlob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MediaKind kind;
+    
+    @Column(nullable = false, length = 64)
+    private String digest; // lowercase hex SHA-256
+    
+    @Column(nullable = false)
+    private Long size; // in bytes
+    
+    @Column(name = "crc32")
+    private Long crc32; // recorded at upload, computed on first use for older blobs
+    
+    @Column(name = "reference_count", nullable = false)
+    private Integer referenceCount;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
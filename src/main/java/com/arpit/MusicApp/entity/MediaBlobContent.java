@@ -0,0 +1,36 @@
+package com.arpit.MusicApp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Bytes of a MediaBlob when the database MediaStore is active.
+ * Kept in its own table so blob bookkeeping never reads BLOB columns;
+ * content is read and written through JDBC streams, not through this entity.
+ */
+@Entity
+@Table(name = "media_blob_content")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaBlobContent {
+    
+    @Id
+    private Long id;
+    
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "blob_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private MediaBlob blob;
+    
+    @Lob
+    @Column(name = "data", columnDefinition = "BLOB")
+    @ToString.Exclude
+    private byte[] data;
+}
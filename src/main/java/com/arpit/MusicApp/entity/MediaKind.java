@@ -0,0 +1,8 @@
+package com.arpit.MusicApp.entity;
+
+/**
+ * The kinds of binary payload a song can have
+ */
+public enum MediaKind {
+    AUDIO, COVER, THUMBNAIL // thumbnails are downscaled variants of covers, see CoverVariant
+}
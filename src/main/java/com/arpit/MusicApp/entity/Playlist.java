@@ -34,6 +34,7 @@ public class Playlist {
         joinColumns = @JoinColumn(name = "playlist_id"),
         inverseJoinColumns = @JoinColumn(name = "song_id")
     )
+    @OrderColumn(name = "song_order") // songs keep the order they were added in
     private List<Song> songs;
     
     @Column(name = "created_at")
@@ -36,10 +36,12 @@ public class Song {
     
     private String coverImagePath; // path to cover image (deprecated, kept for backward compatibility)
     
-    // Store actual audio file data
-    @Lob
-    @Column(name = "audio_data", columnDefinition = "BLOB")
-    private byte[] audioData;
+    // Audio bytes live in the MediaStore (media_blob_content table or disk) so catalog queries never read BLOB columns
+    @Column(name = "audio_size")
+    private Long audioSize; // in bytes, null when no audio has been uploaded
+    
+    @Column(name = "audio_digest", length = 64)
+    private String audioDigest; // SHA-256 of the audio, points at a MediaBlob
     
     @Column(name = "audio_content_type")
     private String audioContentType; // e.g., "audio/mpeg", "audio/wav"
@@ -47,10 +49,12 @@ public class Song {
     @Column(name = "audio_filename")
     private String audioFilename; // original filename
     
-    // Store actual cover image data
-    @Lob
-    @Column(name = "cover_image_data", columnDefinition = "BLOB")
-    private byte[] coverImageData;
+    // Cover image bytes live in the MediaStore as well
+    @Column(name = "cover_image_size")
+    private Long coverImageSize; // in bytes, null when no cover has been uploaded
+    
+    @Column(name = "cover_image_digest", length = 64)
+    private String coverImageDigest; // SHA-256 of the cover image, points at a MediaBlob
     
     @Column(name = "cover_image_content_type")
     private String coverImageContentType; // e.g., "image/jpeg", "image/png"
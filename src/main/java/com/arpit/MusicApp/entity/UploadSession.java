@@ -0,0 +1,59 @@
+package com.arpit.MusicApp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resumable audio upload in progress.
+ *
+ * Received bytes are appended to a spool file named after the session id;
+ * the file length is the upload offset, so writing a chunk never touches
+ * this row. The row only carries what is needed to create the song at the end.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    
+    @Id
+    @Column(length = 36)
+    private String id; // random UUID, also names the spool file
+    
+    @Column(nullable = false)
+    private String username; // admin who created the session
+    
+    @Column(nullable = false)
+    private String title;
+    
+    @Column(nullable = false)
+    private String artist;
+    
+    private String album;
+    
+    @Enumerated(EnumType.STRING)
+    private Song.Genre genre;
+    
+    private Integer duration; // in seconds, probed from the audio when null
+    
+    private String filename;
+    
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize; // in bytes, declared by the client
+    
+    @Column(name = "expected_digest", length = 64)
+    private String expectedDigest; // optional lowercase hex SHA-256 checked on completion
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,38 @@
+package com.arpit.MusicApp.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a request conflicts with the current state of a resource.
+ * Follows Single Responsibility Principle - handles only state conflicts.
+ * 
+ * Examples: Upload chunk sent at the wrong offset,
+ * Completing an upload before all bytes have arrived
+ */
+public class ResourceConflictException extends MusicAppException {
+    
+    private static final String ERROR_CODE_PREFIX = "CONFLICT";
+    
+    /**
+     * Constructor with custom message
+     * 
+     * @param message Description of the conflict
+     */
+    public ResourceConflictException(String message) {
+        super(message, ERROR_CODE_PREFIX, HttpStatus.CONFLICT.value());
+    }
+    
+    /**
+     * Constructor with custom message and specific error code
+     * 
+     * @param message Description of the conflict
+     * @param specificCode Specific error code for this conflict
+     */
+    public ResourceConflictException(String message, String specificCode) {
+        super(
+            message, 
+            String.format("%s_%s", ERROR_CODE_PREFIX, specificCode),
+            HttpStatus.CONFLICT.value()
+        );
+    }
+}
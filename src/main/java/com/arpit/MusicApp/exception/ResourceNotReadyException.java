@@ -0,0 +1,32 @@
+package com.arpit.MusicApp.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a resource is still being prepared in the background.
+ * Follows Single Responsibility Principle - handles only temporary unavailability.
+ * 
+ * Examples: Downloading a playlist archive while checksums of older
+ * audio are still being computed
+ */
+public class ResourceNotReadyException extends MusicAppException {
+    
+    private static final String ERROR_CODE_PREFIX = "NOT_READY";
+    
+    private final long retryAfterSeconds;
+    
+    /**
+     * Constructor with custom message
+     * 
+     * @param message Description of what is being prepared
+     * @param retryAfterSeconds Suggested wait before the client tries again
+     */
+    public ResourceNotReadyException(String message, long retryAfterSeconds) {
+        super(message, ERROR_CODE_PREFIX, HttpStatus.SERVICE_UNAVAILABLE.value());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -109,6 +110,35 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.valueOf(ex.getHttpStatus()));
     }
     
+    /**
+     * Handles ResourceNotReadyException - when a resource is still being prepared.
+     * Returns 503 Service Unavailable status with Retry-After.
+     * 
+     * @param ex The exception thrown
+     * @param request The HTTP request
+     * @return ResponseEntity with error details
+     */
+    @ExceptionHandler(ResourceNotReadyException.class)
+    public ResponseEntity<ErrorResponse> handleResourceNotReadyException(
+            ResourceNotReadyException ex,
+            HttpServletRequest request) {
+        
+        // Log at INFO level, the client is expected to retry
+        logger.info("Resource not ready: {} | Path: {}", ex.getMessage(), request.getRequestURI());
+        
+        ErrorResponse errorResponse = errorResponseBuilder.buildErrorResponse(
+                ex.getHttpStatus(),
+                ex.getErrorCode(),
+                ex.getMessage(),
+                "The resource is being prepared, please try again shortly",
+                request
+        );
+        
+        return ResponseEntity.status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+    
     /**
      * Handles BusinessValidationException - when business rules are violated.
      * Returns 400 Bad Request status.
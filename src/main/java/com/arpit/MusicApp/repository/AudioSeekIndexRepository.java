@@ -0,0 +1,14 @@
+package com.arpit.MusicApp.repository;
+
+import com.arpit.MusicApp.entity.AudioSeekIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AudioSeekIndexRepository extends JpaRepository<AudioSeekIndex, Long> {
+    Optional<AudioSeekIndex> findByAudioDigest(String audioDigest);
+
+    void deleteByAudioDigest(String audioDigest);
+}
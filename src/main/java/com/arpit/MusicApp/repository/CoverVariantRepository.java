@@ -0,0 +1,12 @@
+package com.arpit.MusicApp.repository;
+
+import com.arpit.MusicApp.entity.CoverVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CoverVariantRepository extends JpaRepository<CoverVariant, Long> {
+    List<CoverVariant> findByCoverDigestOrderByMaxDimensionAsc(String coverDigest);
+}
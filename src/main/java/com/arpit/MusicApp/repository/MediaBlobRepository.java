@@ -0,0 +1,46 @@
+package com.arpit.MusicApp.repository;
+
+import com.arpit.MusicApp.entity.MediaBlob;
+import com.arpit.MusicApp.entity.MediaKind;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, Long> {
+    Optional<MediaBlob> findByKindAndDigest(MediaKind kind, String digest);
+    
+    List<MediaBlob> findByKindAndDigestIn(MediaKind kind, Collection<String> digests);
+    
+    boolean existsByKindAndDigest(MediaKind kind, String digest);
+    
+    List<MediaBlob> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    @Query("SELECT b.referenceCount FROM MediaBlob b WHERE b.kind = :kind AND b.digest = :digest")
+    Optional<Integer> findReferenceCount(@Param("kind") MediaKind kind, @Param("digest") String digest);
+    
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.referenceCount = b.referenceCount + 1 WHERE b.kind = :kind AND b.digest = :digest")
+    int incrementReferenceCount(@Param("kind") MediaKind kind, @Param("digest") String digest);
+    
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.referenceCount = b.referenceCount - 1 WHERE b.kind = :kind AND b.digest = :digest")
+    int decrementReferenceCount(@Param("kind") MediaKind kind, @Param("digest") String digest);
+    
+    @Modifying
+    @Query("DELETE FROM MediaBlob b WHERE b.kind = :kind AND b.digest = :digest AND b.referenceCount <= 0")
+    int deleteIfUnreferenced(@Param("kind") MediaKind kind, @Param("digest") String digest);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.crc32 = :crc32 WHERE b.kind = :kind AND b.digest = :digest AND b.crc32 IS NULL")
+    int updateCrc32IfMissing(@Param("kind") MediaKind kind, @Param("digest") String digest, @Param("crc32") long crc32);
+}
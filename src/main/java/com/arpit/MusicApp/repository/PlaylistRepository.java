@@ -3,6 +3,7 @@ package com.arpit.MusicApp.repository;
 import com.arpit.MusicApp.entity.Playlist;
 import com.arpit.MusicApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +12,10 @@ import java.util.List;
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     List<Playlist> findByUser(User user);
     List<Playlist> findByUserOrderByCreatedAtDesc(User user);
+    
+    /**
+     * Rows of [song id, number of playlists containing it] for songs in at least one playlist
+     */
+    @Query("SELECT s.id, COUNT(p) FROM Playlist p JOIN p.songs s GROUP BY s.id")
+    List<Object[]> countPlaylistsPerSong();
 }
@@ -1,18 +1,18 @@
 package com.arpit.MusicApp.repository;
 
 import com.arpit.MusicApp.entity.Song;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface SongRepository extends JpaRepository<Song, Long> {
-    List<Song> findByTitleContainingIgnoreCase(String title);
-    List<Song> findByArtistContainingIgnoreCase(String artist);
-    List<Song> findByGenre(Song.Genre genre);
+public interface SongRepository extends JpaRepository<Song, Long>, JpaSpecificationExecutor<Song> {
     List<Song> findByAlbumContainingIgnoreCase(String album);
     
     @Query("SELECT s FROM Song s WHERE " +
@@ -20,4 +20,24 @@ public interface SongRepository extends JpaRepository<Song, Long> {
            "LOWER(s.artist) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(s.album) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Song> searchSongs(@Param("searchTerm") String searchTerm);
+    
+    List<Song> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    List<Song> findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(LocalDateTime updatedAt, Long id, Pageable pageable);
+    
+    @Query("SELECT s.id FROM Song s WHERE s.id > :id ORDER BY s.id")
+    List<Long> findIdsGreaterThan(@Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT s.id, s.genre, s.artist, s.album FROM Song s WHERE s.id > :id ORDER BY s.id")
+    List<Object[]> findFacetValuesGreaterThan(@Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT s.id, s.genre, s.duration, s.audioSize, s.coverImageSize, s.createdAt FROM Song s "
+            + "WHERE s.id > :id ORDER BY s.id")
+    List<Object[]> findFilterValuesGreaterThan(@Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT s.filePath FROM Song s WHERE s.filePath IS NOT NULL")
+    List<String> findAllFilePaths();
+    
+    @Query("SELECT s.coverImagePath FROM Song s WHERE s.coverImagePath IS NOT NULL")
+    List<String> findAllCoverImagePaths();
 }
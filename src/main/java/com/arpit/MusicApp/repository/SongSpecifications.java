@@ -0,0 +1,76 @@
+package com.arpit.MusicApp.repository;
+
+import com.arpit.MusicApp.entity.Song;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Song filters for listings that are scrolled with a keyset position.
+ * Each mirrors one of the list queries in {@link SongRepository}.
+ */
+public final class SongSpecifications {
+
+    private SongSpecifications() {
+    }
+
+    public static Specification<Song> all() {
+        return (root, query, cb) -> cb.conjunction();
+    }
+
+    /**
+     * Same match as {@link SongRepository#searchSongs(String)}: title, artist or album contains the term
+     */
+    public static Specification<Song> search(String searchTerm) {
+        return (root, query, cb) -> {
+            String pattern = "%" + searchTerm.toLowerCase() + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("title")), pattern),
+                    cb.like(cb.lower(root.get("artist")), pattern),
+                    cb.like(cb.lower(root.get("album")), pattern));
+        };
+    }
+
+    /**
+     * Songs without a genre never match, also under NOT
+     */
+    public static Specification<Song> hasGenre(Song.Genre genre) {
+        return (root, query, cb) -> cb.and(cb.isNotNull(root.get("genre")), cb.equal(root.get("genre"), genre));
+    }
+
+    /**
+     * Duration within bounds in seconds, both inclusive and either null for open.
+     * Songs without a duration never match, also under NOT.
+     */
+    public static Specification<Song> durationBetween(Integer min, Integer max) {
+        return (root, query, cb) -> cb.and(
+                cb.isNotNull(root.get("duration")),
+                min == null ? cb.conjunction() : cb.greaterThanOrEqualTo(root.get("duration"), min),
+                max == null ? cb.conjunction() : cb.lessThanOrEqualTo(root.get("duration"), max));
+    }
+
+    /**
+     * Has uploaded audio, as SongDto.hasAudioData
+     */
+    public static Specification<Song> hasAudio() {
+        return (root, query, cb) -> cb.greaterThan(cb.coalesce(root.get("audioSize"), 0L), 0L);
+    }
+
+    /**
+     * Has an uploaded cover, as SongDto.hasCoverImage
+     */
+    public static Specification<Song> hasCoverImage() {
+        return (root, query, cb) -> cb.greaterThan(cb.coalesce(root.get("coverImageSize"), 0L), 0L);
+    }
+
+    public static Specification<Song> createdBetween(LocalDateTime from, LocalDateTime until) {
+        return (root, query, cb) -> cb.and(
+                cb.isNotNull(root.get("createdAt")),
+                cb.greaterThanOrEqualTo(root.get("createdAt"), from),
+                cb.lessThan(root.get("createdAt"), until));
+    }
+
+    public static Specification<Song> artistContains(String artist) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("artist")), "%" + artist.toLowerCase() + "%");
+    }
+}
@@ -0,0 +1,9 @@
+package com.arpit.MusicApp.repository;
+
+import com.arpit.MusicApp.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+}
@@ -0,0 +1,60 @@
+package com.arpit.MusicApp.security;
+
+import com.arpit.MusicApp.util.MediaUrlSigner;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates media requests carrying a signed URL.
+ *
+ * Verification is a single HMAC with no database access, so streaming stays
+ * off the user lookup done for JWTs. Requests without a signature go on to
+ * JWT authentication; requests with an invalid or expired one are refused.
+ */
+@Component
+public class SignedMediaUrlFilter extends OncePerRequestFilter {
+
+    public static final String MEDIA_AUTHORITY = "MEDIA_URL";
+
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith("/api/files/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String signature = request.getParameter(MediaUrlSigner.SIGNATURE_PARAM);
+        if (signature != null) {
+            String expires = request.getParameter(MediaUrlSigner.EXPIRES_PARAM);
+            if (!mediaUrlSigner.verify(path(request), expires, signature)) {
+                // Answered here rather than with sendError, whose error dispatch would be unauthenticated (401)
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                response.setContentType("text/plain");
+                response.getWriter().write("Invalid or expired media URL");
+                return;
+            }
+            PreAuthenticatedAuthenticationToken authentication = new PreAuthenticatedAuthenticationToken(
+                    "signed-url", null, AuthorityUtils.createAuthorityList(MEDIA_AUTHORITY));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
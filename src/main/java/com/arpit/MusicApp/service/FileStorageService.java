@@ -4,93 +4,81 @@ import com.arpit.MusicApp.exception.FileStorageException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
 
 @Service
 public class FileStorageService {
 
     private final Path fileStorageLocation;
     private final Path coverStorageLocation;
+    private final Path spoolLocation;
 
     public FileStorageService(@Value("${file.upload-dir:uploads/songs}") String uploadDir,
-                             @Value("${file.cover-dir:uploads/covers}") String coverDir) {
+                             @Value("${file.cover-dir:uploads/covers}") String coverDir,
+                             @Value("${file.spool-dir:uploads/tmp}") String spoolDir) {
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
         this.coverStorageLocation = Paths.get(coverDir).toAbsolutePath().normalize();
+        this.spoolLocation = Paths.get(spoolDir).toAbsolutePath().normalize();
 
         try {
             Files.createDirectories(this.fileStorageLocation);
             Files.createDirectories(this.coverStorageLocation);
+            Files.createDirectories(this.spoolLocation);
         } catch (Exception ex) {
             throw new FileStorageException("Could not create the directory where the uploaded files will be stored.", ex);
         }
     }
 
-    /**
-     * Store an audio file
-     */
-    public String storeAudioFile(MultipartFile file) {
-        return storeFile(file, fileStorageLocation, "audio");
+    public Path getFileStorageLocation() {
+        return fileStorageLocation;
     }
 
-    /**
-     * Store a cover image file
-     */
-    public String storeCoverImage(MultipartFile file) {
-        return storeFile(file, coverStorageLocation, "cover");
+    public Path getCoverStorageLocation() {
+        return coverStorageLocation;
+    }
+
+    public Path getSpoolLocation() {
+        return spoolLocation;
     }
 
     /**
-     * Generic file storage method
+     * Create an empty temporary file for spooling an upload.
+     * Lives next to the storage directories so it can be moved into place with a rename.
      */
-    private String storeFile(MultipartFile file, Path location, String type) {
-        // Normalize file name
-        String originalFileName = file.getOriginalFilename();
-        if (originalFileName == null || originalFileName.isEmpty()) {
-            throw new FileStorageException("File name is empty");
-        }
-        originalFileName = StringUtils.cleanPath(originalFileName);
-
+    public Path createSpoolFile() {
         try {
-            // Check if the file's name contains invalid characters
-            if (originalFileName.contains("..")) {
-                throw new FileStorageException("Sorry! Filename contains invalid path sequence " + originalFileName);
-            }
-
-            // Generate unique filename to avoid conflicts
-            String fileExtension = "";
-            if (originalFileName.contains(".")) {
-                fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-            }
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
-            // Copy file to the target location (Replacing existing file with the same name)
-            Path targetLocation = location.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
-            // Return relative path
-            return "/" + location.getFileName() + "/" + uniqueFileName;
+            return Files.createTempFile(spoolLocation, "upload-", ".part");
         } catch (IOException ex) {
-            throw new FileStorageException("Could not store " + type + " file " + originalFileName + ". Please try again!", ex);
+            throw new FileStorageException("Could not create a temporary file for the upload", ex);
         }
     }
 
     /**
-     * Delete a file
+     * Resolve a path stored by the original path-based uploads (e.g. "/songs/uuid.mp3")
+     * to the absolute location on disk
      */
-    public void deleteFile(String filePath) {
-        try {
-            Path path = Paths.get(filePath);
-            Files.deleteIfExists(path);
-        } catch (IOException ex) {
-            // Log the error but don't throw exception
-            System.err.println("Could not delete file: " + filePath);
+    public Path resolveStoredPath(String storedPath) {
+        String cleanPath = StringUtils.cleanPath(storedPath);
+        if (cleanPath.startsWith("/")) {
+            cleanPath = cleanPath.substring(1);
+        }
+        int separator = cleanPath.indexOf('/');
+        if (separator < 0 || cleanPath.contains("..")) {
+            throw new FileStorageException("Invalid stored file path " + storedPath);
+        }
+
+        String directory = cleanPath.substring(0, separator);
+        String fileName = cleanPath.substring(separator + 1);
+        if (directory.equals(fileStorageLocation.getFileName().toString())) {
+            return fileStorageLocation.resolve(fileName).normalize();
+        }
+        if (directory.equals(coverStorageLocation.getFileName().toString())) {
+            return coverStorageLocation.resolve(fileName).normalize();
         }
+        throw new FileStorageException("Unknown storage directory in path " + storedPath);
     }
 }
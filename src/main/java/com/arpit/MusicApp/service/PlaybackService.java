@@ -1,7 +1,6 @@
 package com.arpit.MusicApp.service;
 
 import com.arpit.MusicApp.dto.PlaybackSessionDto;
-import com.arpit.MusicApp.dto.SongDto;
 import com.arpit.MusicApp.entity.PlaybackSession;
 import com.arpit.MusicApp.entity.Song;
 import com.arpit.MusicApp.entity.User;
@@ -23,6 +22,9 @@ public class PlaybackService {
     @Autowired
     private SongRepository songRepository;
     
+    @Autowired
+    private SongService songService;
+    
     public PlaybackSessionDto playSong(String username, Long songId) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
@@ -123,16 +125,7 @@ public class PlaybackService {
         dto.setCurrentPosition(session.getCurrentPosition());
         
         if (session.getCurrentSong() != null) {
-            SongDto songDto = new SongDto();
-            songDto.setId(session.getCurrentSong().getId());
-            songDto.setTitle(session.getCurrentSong().getTitle());
-            songDto.setArtist(session.getCurrentSong().getArtist());
-            songDto.setAlbum(session.getCurrentSong().getAlbum());
-            songDto.setGenre(session.getCurrentSong().getGenre());
-            songDto.setDuration(session.getCurrentSong().getDuration());
-            songDto.setFilePath(session.getCurrentSong().getFilePath());
-            songDto.setCoverImagePath(session.getCurrentSong().getCoverImagePath());
-            dto.setCurrentSong(songDto);
+            dto.setCurrentSong(songService.convertToDto(session.getCurrentSong()));
         }
         
         return dto;
@@ -1,16 +1,22 @@
 package com.arpit.MusicApp.service;
 
 import com.arpit.MusicApp.dto.PlaylistDto;
-import com.arpit.MusicApp.dto.SongDto;
 import com.arpit.MusicApp.entity.Playlist;
 import com.arpit.MusicApp.entity.Song;
 import com.arpit.MusicApp.entity.User;
 import com.arpit.MusicApp.repository.PlaylistRepository;
 import com.arpit.MusicApp.repository.SongRepository;
 import com.arpit.MusicApp.repository.UserRepository;
+import com.arpit.MusicApp.service.media.MediaSource;
+import com.arpit.MusicApp.service.media.PlaylistArchiveService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +33,33 @@ public class PlaylistService {
     @Autowired
     private SongRepository songRepository;
     
+    @Autowired
+    private SongService songService;
+    
+    @Autowired
+    private PlaylistArchiveService playlistArchiveService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Give playlists created before songs were kept in order an order column.
+     * Schema update cannot add the NOT NULL column to a table with rows, so it
+     * is added here, existing songs are numbered in song id order and only
+     * then is the column made NOT NULL. Does nothing on an up-to-date schema.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void numberUnorderedPlaylistSongs() {
+        jdbcTemplate.execute("ALTER TABLE playlist_songs ADD COLUMN IF NOT EXISTS song_order INTEGER");
+        jdbcTemplate.update("UPDATE playlist_songs ps SET song_order = (SELECT COUNT(*) FROM playlist_songs other "
+                + "WHERE other.playlist_id = ps.playlist_id AND other.song_id < ps.song_id) "
+                + "WHERE song_order IS NULL");
+        jdbcTemplate.execute("ALTER TABLE playlist_songs ALTER COLUMN song_order SET NOT NULL");
+    }
+    
     public PlaylistDto createPlaylist(String username, String name, String description) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
@@ -83,7 +116,10 @@ public class PlaylistService {
         
         if (!playlist.getSongs().contains(song)) {
             playlist.getSongs().add(song);
+            // Changes to the join table alone do not trigger @PreUpdate
+            playlist.setUpdatedAt(LocalDateTime.now());
             playlistRepository.save(playlist);
+            eventPublisher.publishEvent(new PlaylistSongsChangedEvent(List.of(songId), List.of()));
         }
         
         return convertToDto(playlist);
@@ -104,12 +140,32 @@ public class PlaylistService {
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
                     "Song", "id", songId));
         
-        playlist.getSongs().remove(song);
-        playlistRepository.save(playlist);
+        if (playlist.getSongs().remove(song)) {
+            playlist.setUpdatedAt(LocalDateTime.now());
+            playlistRepository.save(playlist);
+            eventPublisher.publishEvent(new PlaylistSongsChangedEvent(List.of(), List.of(songId)));
+        }
         
         return convertToDto(playlist);
     }
     
+    /**
+     * Open the ZIP archive of a playlist's audio for download
+     * Verifies user owns the playlist
+     */
+    public MediaSource openDownload(Long id, String username) {
+        Playlist playlist = playlistRepository.findById(id)
+                .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
+                    "Playlist", "id", id));
+        
+        if (!playlist.getUser().getUsername().equals(username)) {
+            throw new com.arpit.MusicApp.exception.UnauthorizedAccessException(
+                "You don't have permission to access this playlist");
+        }
+        
+        return playlistArchiveService.open(playlist);
+    }
+    
     public void deletePlaylist(Long id, String username) {
         Playlist playlist = playlistRepository.findById(id)
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
@@ -121,7 +177,9 @@ public class PlaylistService {
                 "You don't have permission to delete this playlist");
         }
         
+        List<Long> songIds = playlist.getSongs().stream().map(Song::getId).toList();
         playlistRepository.delete(playlist);
+        eventPublisher.publishEvent(new PlaylistSongsChangedEvent(List.of(), songIds));
     }
     
     private PlaylistDto convertToDto(Playlist playlist) {
@@ -134,23 +192,10 @@ public class PlaylistService {
         
         if (playlist.getSongs() != null) {
             dto.setSongs(playlist.getSongs().stream()
-                    .map(this::convertSongToDto)
+                    .map(songService::convertToDto)
                     .collect(Collectors.toList()));
         }
         
         return dto;
     }
-    
-    private SongDto convertSongToDto(Song song) {
-        SongDto dto = new SongDto();
-        dto.setId(song.getId());
-        dto.setTitle(song.getTitle());
-        dto.setArtist(song.getArtist());
-        dto.setAlbum(song.getAlbum());
-        dto.setGenre(song.getGenre());
-        dto.setDuration(song.getDuration());
-        dto.setFilePath(song.getFilePath());
-        dto.setCoverImagePath(song.getCoverImagePath());
-        return dto;
-    }
 }
@@ -0,0 +1,10 @@
+package com.arpit.MusicApp.service;
+
+import java.util.List;
+
+/**
+ * Published when songs are added to or removed from a playlist, including
+ * when a whole playlist is deleted. Inside a transaction listeners see it after commit.
+ */
+public record PlaylistSongsChangedEvent(List<Long> addedSongIds, List<Long> removedSongIds) {
+}
@@ -0,0 +1,248 @@
+package com.arpit.MusicApp.service;
+
+import com.arpit.MusicApp.dto.SongCacheStatsDto;
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.entity.Song;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Read-through cache of the catalogue in two layers: song DTOs by id, and the
+ * pages of the id, genre and artist listings as lists of ids. A cached page is
+ * served from the song layer, so a song edited in place is reloaded once and
+ * not once per page showing it.
+ *
+ * Entries are dropped after commit of every song save or delete, precisely:
+ * the song's own entry, every page holding it, and every page of a listing the
+ * saved song belongs to whose key range takes in its position. Positions in
+ * title and artist order depend on the database collation, so those listings
+ * are dropped whole instead. A read that raced a write does not put what it
+ * loaded, and a TTL bounds staleness from writes that publish no event, such
+ * as those of other nodes. Both layers are LRU with a size bound.
+ *
+ * Song DTOs are cached without their signed media URLs, which expire; callers
+ * add fresh ones to a copy.
+ */
+@Component
+public class SongCatalogCache {
+
+    private final boolean enabled;
+    private final int maxSongs;
+    private final int maxPages;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Long, Entry<SongDto>> songs = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<PageKey, Entry<CachedPage>> pages = new LinkedHashMap<>(64, 0.75f, true);
+    private long generation;
+
+    private final AtomicLong songHits = new AtomicLong();
+    private final AtomicLong songMisses = new AtomicLong();
+    private final AtomicLong pageHits = new AtomicLong();
+    private final AtomicLong pageMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SongCatalogCache(@Value("${song.cache.enabled:true}") boolean enabled,
+                            @Value("${song.cache.max-songs:10000}") int maxSongs,
+                            @Value("${song.cache.max-pages:1000}") int maxPages,
+                            @Value("${song.cache.ttl:PT5M}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxSongs = maxSongs;
+        this.maxPages = maxPages;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * A song listing: the whole catalogue, one genre, or artists containing a string
+     */
+    public record Listing(Kind kind, Object value) {
+
+        public enum Kind {
+            ALL, GENRE, ARTIST
+        }
+
+        public static Listing all() {
+            return new Listing(Kind.ALL, null);
+        }
+
+        public static Listing genre(Song.Genre genre) {
+            return new Listing(Kind.GENRE, genre);
+        }
+
+        public static Listing artist(String artist) {
+            return new Listing(Kind.ARTIST, artist);
+        }
+
+        /**
+         * Whether a song is in the listing, as SongSpecifications decides it. An
+         * artist string with LIKE wildcards in it is taken to match anything.
+         */
+        boolean contains(Song song) {
+            return switch (kind) {
+                case ALL -> true;
+                case GENRE -> song.getGenre() == value;
+                case ARTIST -> {
+                    String artist = ((String) value).toLowerCase();
+                    yield artist.contains("%") || artist.contains("_") || artist.contains("\\")
+                            || (song.getArtist() != null && song.getArtist().toLowerCase().contains(artist));
+                }
+            };
+        }
+    }
+
+    /**
+     * One page of a listing: its order and size and the (key, id) it starts after,
+     * both null for the first page
+     */
+    public record PageKey(Listing listing, String sort, boolean descending, int size, Object afterKey, Long afterId) {
+    }
+
+    /**
+     * The ids on a page and the (key, id) of its last row, both null when it is the last page
+     */
+    public record CachedPage(List<Long> songIds, String nextCursor, Object endKey, Long endId) {
+    }
+
+    private record Entry<T>(T value, long expiresAt) {
+    }
+
+    /**
+     * Changes with every invalidation. Take it before loading from the database
+     * and hand it to put, which drops the load if songs changed meanwhile.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @return the song without media URLs, not to be modified, or null
+     */
+    public synchronized SongDto getSong(long id) {
+        SongDto song = enabled ? get(songs, id) : null;
+        (song != null ? songHits : songMisses).incrementAndGet();
+        return song;
+    }
+
+    public synchronized void putSong(SongDto song, long loadedAt) {
+        if (enabled && loadedAt == generation) {
+            put(songs, song.getId(), song, maxSongs);
+        }
+    }
+
+    public synchronized CachedPage getPage(PageKey key) {
+        CachedPage page = enabled ? get(pages, key) : null;
+        (page != null ? pageHits : pageMisses).incrementAndGet();
+        return page;
+    }
+
+    public synchronized void putPage(PageKey key, CachedPage page, long loadedAt) {
+        if (enabled && loadedAt == generation) {
+            put(pages, key, page, maxPages);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSongSaved(SongSavedEvent event) {
+        Song song = event.song();
+        invalidate(song.getId(), (key, page) -> key.listing().contains(song) && inRange(key, page, song));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSongDeleted(SongDeletedEvent event) {
+        invalidate(event.songId(), (key, page) -> false);
+    }
+
+    public synchronized SongCacheStatsDto getStats() {
+        long hits = songHits.get() + pageHits.get();
+        long requests = hits + songMisses.get() + pageMisses.get();
+        return new SongCacheStatsDto(enabled, songs.size(), maxSongs, pages.size(), maxPages, songHits.get(),
+                songMisses.get(), pageHits.get(), pageMisses.get(), evictions.get(), invalidations.get(),
+                requests == 0 ? 0 : (double) hits / requests);
+    }
+
+    /**
+     * Drop a song, the pages holding it and the pages picked by the predicate
+     */
+    private void invalidate(long songId, BiPredicate<PageKey, CachedPage> affected) {
+        generation++;
+        if (songs.remove(songId) != null) {
+            invalidations.incrementAndGet();
+        }
+        Iterator<Map.Entry<PageKey, Entry<CachedPage>>> iterator = pages.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<PageKey, Entry<CachedPage>> entry = iterator.next();
+            CachedPage page = entry.getValue().value();
+            if (page.songIds().contains(songId) || affected.test(entry.getKey(), page)) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Whether a song sorts onto a page: after its start and up to its last row,
+     * in the page's direction. Title and artist order follow the database
+     * collation, so there, and wherever a key is missing, the answer is yes.
+     */
+    private static boolean inRange(PageKey key, CachedPage page, Song song) {
+        LocalDateTime songKey = null;
+        if (key.sort().equals("createdAt")) {
+            songKey = song.getCreatedAt();
+            if (songKey == null || (key.afterId() != null && key.afterKey() == null)
+                    || (page.endId() != null && page.endKey() == null)) {
+                return true;
+            }
+        } else if (!key.sort().equals("id")) {
+            return true;
+        }
+        int direction = key.descending() ? -1 : 1;
+        boolean afterStart = key.afterId() == null
+                || direction * compare(songKey, song.getId(), key.afterKey(), key.afterId()) > 0;
+        boolean upToEnd = page.endId() == null
+                || direction * compare(songKey, song.getId(), page.endKey(), page.endId()) <= 0;
+        return afterStart && upToEnd;
+    }
+
+    private static int compare(LocalDateTime key, long id, Object otherKey, long otherId) {
+        if (key != null) {
+            int order = key.compareTo((LocalDateTime) otherKey);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Long.compare(id, otherId);
+    }
+
+    private <K, V> V get(LinkedHashMap<K, Entry<V>> map, K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            map.remove(key);
+            evictions.incrementAndGet();
+            return null;
+        }
+        return entry.value();
+    }
+
+    private <K, V> void put(LinkedHashMap<K, Entry<V>> map, K key, V value, int maxSize) {
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        Iterator<Entry<V>> eldest = map.values().iterator();
+        while (map.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
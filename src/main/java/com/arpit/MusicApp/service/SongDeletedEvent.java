@@ -0,0 +1,7 @@
+package com.arpit.MusicApp.service;
+
+/**
+ * Published when a song is deleted. Inside a transaction listeners see it after commit.
+ */
+public record SongDeletedEvent(Long songId) {
+}
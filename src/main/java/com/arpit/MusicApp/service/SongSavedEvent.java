@@ -0,0 +1,10 @@
+package com.arpit.MusicApp.service;
+
+import com.arpit.MusicApp.entity.Song;
+
+/**
+ * Published when a song is created or its metadata or media change.
+ * Inside a transaction listeners see it after commit.
+ */
+public record SongSavedEvent(Song song) {
+}
@@ -1,12 +1,61 @@
 package com.arpit.MusicApp.service;
 
+import com.arpit.MusicApp.dto.SongCacheStatsDto;
 import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.SongFacetsDto;
+import com.arpit.MusicApp.dto.SongPageDto;
+import com.arpit.MusicApp.dto.SuggestionDto;
+import com.arpit.MusicApp.entity.MediaKind;
 import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.exception.BusinessValidationException;
 import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.repository.SongSpecifications;
+import com.arpit.MusicApp.service.media.IngestedMedia;
+import com.arpit.MusicApp.service.media.MediaIngestService;
+import com.arpit.MusicApp.service.media.SongMediaService;
+import com.arpit.MusicApp.service.search.IndexedSong;
+import com.arpit.MusicApp.service.search.RankedSong;
+import com.arpit.MusicApp.service.search.SongFacetService;
+import com.arpit.MusicApp.service.search.SongFilter;
+import com.arpit.MusicApp.service.search.SongFilterIndex;
+import com.arpit.MusicApp.service.search.SongSearchIndex;
+import com.arpit.MusicApp.service.search.SongSuggestionService;
+import com.arpit.MusicApp.util.MediaUrlSigner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,35 +64,152 @@ public class SongService {
     @Autowired
     private SongRepository songRepository;
     
-    public List<SongDto> getAllSongs() {
-        return songRepository.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Autowired
+    private SongMediaService songMediaService;
+    
+    @Autowired
+    private MediaIngestService mediaIngestService;
+    
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
+    
+    @Autowired
+    private SongSearchIndex songSearchIndex;
+    
+    @Autowired
+    private SongSuggestionService songSuggestionService;
+    
+    @Autowired
+    private SongFacetService songFacetService;
+    
+    @Autowired
+    private SongFilterIndex songFilterIndex;
+    
+    @Autowired
+    private SongCatalogCache songCatalogCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Value("${song.page.default-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${song.page.max-size:200}")
+    private int maxPageSize;
+    
+    private static final byte CURSOR_VERSION = 1;
+    
+    /**
+     * One page of the catalogue in a stable order, see {@link #page}
+     */
+    public SongPageDto getAllSongs(Integer limit, String sort, String direction, String cursor) {
+        return cachedPage(SongCatalogCache.Listing.all(), SongSpecifications.all(),
+                pageRequest(limit, sort, direction, cursor, SongSort.ID));
     }
     
+    /**
+     * A song, from the catalog cache when it holds it
+     */
     public SongDto getSongById(Long id) {
+        SongDto cached = songCatalogCache.getSong(id);
+        if (cached != null) {
+            return withMediaUrls(cached);
+        }
+        long generation = songCatalogCache.generation();
         Song song = songRepository.findById(id)
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
                     "Song", "id", id));
-        return convertToDto(song);
+        SongDto dto = catalogDto(song);
+        songCatalogCache.putSong(dto, generation);
+        return withMediaUrls(dto);
     }
     
-    public List<SongDto> searchSongs(String searchTerm) {
-        return songRepository.searchSongs(searchTerm).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Substring search over title, artist and album, most relevant first unless another sort is given.
+     * Matches come from the in-memory index, only the page served is read from
+     * the database. Until the index is built the LIKE query is used and a first
+     * page by relevance is served in id order instead.
+     */
+    public SongPageDto searchSongs(String searchTerm, Integer limit, String sort, String direction, String cursor) {
+        SongPageRequest request = pageRequest(limit, sort, direction, cursor, SongSort.RELEVANCE);
+        if (!songSearchIndex.isReady()) {
+            if (request.sort() != SongSort.RELEVANCE) {
+                return page(SongSpecifications.search(searchTerm), request);
+            }
+            if (request.position().getKeys().isEmpty()) {
+                return page(SongSpecifications.search(searchTerm),
+                        new SongPageRequest(SongSort.ID, Sort.Direction.ASC, request.size(), request.position()));
+            }
+        }
+        List<RankedSong> matches = request.sort() == SongSort.RELEVANCE
+                ? songSearchIndex.rank(searchTerm, order(request), after(request), request.size() + 1)
+                : songSearchIndex.search(searchTerm).stream().map(song -> new RankedSong(song, 0)).toList();
+        return page(matches, request);
     }
     
-    public List<SongDto> getSongsByGenre(Song.Genre genre) {
-        return songRepository.findByGenre(genre).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Type-ahead suggestions for titles, artists and albums, served from memory
+     */
+    public List<SuggestionDto> suggest(String prefix, Integer limit) {
+        int size = limit == null ? SongSuggestionService.MAX_SUGGESTIONS : limit;
+        if (size < 1 || size > SongSuggestionService.MAX_SUGGESTIONS) {
+            throw new BusinessValidationException(
+                    "limit must be between 1 and " + SongSuggestionService.MAX_SUGGESTIONS, "INVALID_PAGE_SIZE");
+        }
+        return songSuggestionService.suggest(prefix, size);
     }
     
-    public List<SongDto> getSongsByArtist(String artist) {
-        return songRepository.findByArtistContainingIgnoreCase(artist).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Song counts per genre, artist and album, over the catalogue or the matches of a search
+     */
+    public SongFacetsDto getFacets(String query, Integer limit) {
+        int size = limit == null ? SongFacetService.DEFAULT_FACET_VALUES : limit;
+        if (size < 1 || size > SongFacetService.MAX_FACET_VALUES) {
+            throw new BusinessValidationException(
+                    "limit must be between 1 and " + SongFacetService.MAX_FACET_VALUES, "INVALID_PAGE_SIZE");
+        }
+        return songFacetService.facets(query, size);
+    }
+    
+    /**
+     * Songs matching a filter expression, see {@link SongFilter}, in id order.
+     * Matching runs on the in-memory bitmap index and only the songs on the page
+     * are read from the database; until the index is built the expression runs
+     * as a query instead.
+     */
+    public SongPageDto filterSongs(String expression, Integer limit, String direction, String cursor) {
+        SongFilter filter;
+        try {
+            filter = SongFilter.parse(expression);
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessValidationException(ex.getMessage(), "INVALID_FILTER");
+        }
+        SongPageRequest request = pageRequest(limit, SongSort.ID.property, direction, cursor, SongSort.ID);
+        if (!songFilterIndex.isReady()) {
+            return page(specification(filter), request);
+        }
+        List<Long> ids = songFilterIndex.filter(filter, (Long) request.position().getKeys().get("id"),
+                request.direction().isDescending(), request.size() + 1);
+        boolean hasNext = ids.size() > request.size();
+        if (hasNext) {
+            ids = ids.subList(0, request.size());
+        }
+        String nextCursor = hasNext ? encodeCursor(request, null, ids.get(ids.size() - 1)) : null;
+        return new SongPageDto(loadInOrder(ids), nextCursor);
+    }
+    
+    public SongCacheStatsDto getCacheStats() {
+        return songCatalogCache.getStats();
+    }
+    
+    public SongPageDto getSongsByGenre(Song.Genre genre, Integer limit, String sort, String direction, String cursor) {
+        return cachedPage(SongCatalogCache.Listing.genre(genre), SongSpecifications.hasGenre(genre),
+                pageRequest(limit, sort, direction, cursor, SongSort.ID));
+    }
+    
+    public SongPageDto getSongsByArtist(String artist, Integer limit, String sort, String direction, String cursor) {
+        return cachedPage(SongCatalogCache.Listing.artist(artist), SongSpecifications.artistContains(artist),
+                pageRequest(limit, sort, direction, cursor, SongSort.ID));
     }
     
     public SongDto addSong(SongDto songDto) {
@@ -57,6 +223,7 @@ public class SongService {
         song.setCoverImagePath(songDto.getCoverImagePath());
         
         Song savedSong = songRepository.save(song);
+        eventPublisher.publishEvent(new SongSavedEvent(savedSong));
         return convertToDto(savedSong);
     }
     
@@ -74,18 +241,71 @@ public class SongService {
         song.setCoverImagePath(songDto.getCoverImagePath());
         
         Song updatedSong = songRepository.save(song);
+        eventPublisher.publishEvent(new SongSavedEvent(updatedSong));
         return convertToDto(updatedSong);
     }
     
+    @Transactional
     public void deleteSong(Long id) {
         Song song = songRepository.findById(id)
                 .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
                     "Song", "id", id));
+        songMediaService.deleteMedia(song);
         songRepository.delete(song);
+        eventPublisher.publishEvent(new SongDeletedEvent(id));
     }
     
-    public Song saveSongWithBlob(Song song) {
-        return songRepository.save(song);
+    /**
+     * Save a song together with its uploaded audio file and optional cover image.
+     * Uploads are spooled to disk and inspected in one pass: the detected format
+     * replaces the client-supplied content type and the probed duration is used
+     * when none was given. Metadata goes to the songs table (including payload
+     * sizes and digests), bytes are stored once per distinct content in the
+     * active MediaStore.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public Song saveSongWithMedia(Song song, MultipartFile audioFile, MultipartFile coverImage) throws IOException {
+        IngestedMedia audio = null;
+        IngestedMedia cover = null;
+        try {
+            audio = mediaIngestService.ingest(MediaKind.AUDIO, audioFile);
+            if (coverImage != null && !coverImage.isEmpty()) {
+                cover = mediaIngestService.ingest(MediaKind.COVER, coverImage);
+            }
+            return saveSongWithMedia(song, audio, cover);
+        } finally {
+            deleteSpooledFile(audio);
+            deleteSpooledFile(cover);
+        }
+    }
+    
+    /**
+     * Save a song with already ingested media. The cover is optional.
+     * Spooled files are consumed or left in place; the caller deletes leftovers.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public Song saveSongWithMedia(Song song, IngestedMedia audio, IngestedMedia cover) throws IOException {
+        if (song.getDuration() == null) {
+            song.setDuration(audio.getMetadata().getDurationSeconds());
+        }
+        if (song.getDuration() == null) {
+            throw new BusinessValidationException(
+                "Duration could not be determined from the audio file, please provide it", "DURATION_REQUIRED");
+        }
+        
+        songMediaService.store(song, audio);
+        if (cover != null) {
+            songMediaService.store(song, cover);
+        }
+        Song savedSong = songRepository.save(song);
+        eventPublisher.publishEvent(new SongSavedEvent(savedSong));
+        return savedSong;
+    }
+    
+    private void deleteSpooledFile(IngestedMedia media) throws IOException {
+        if (media != null) {
+            Files.deleteIfExists(media.getSpooledFile());
+        }
     }
     
     public Song getSongEntityById(Long id) {
@@ -95,6 +315,13 @@ public class SongService {
     }
     
     public SongDto convertToDto(Song song) {
+        return withMediaUrls(catalogDto(song));
+    }
+    
+    /**
+     * The song as cached: everything but the signed media URLs
+     */
+    private SongDto catalogDto(Song song) {
         SongDto dto = new SongDto();
         dto.setId(song.getId());
         dto.setTitle(song.getTitle());
@@ -108,8 +335,485 @@ public class SongService {
         dto.setAudioContentType(song.getAudioContentType());
         dto.setCoverImageFilename(song.getCoverImageFilename());
         dto.setCoverImageContentType(song.getCoverImageContentType());
-        dto.setHasAudioData(song.getAudioData() != null && song.getAudioData().length > 0);
-        dto.setHasCoverImage(song.getCoverImageData() != null && song.getCoverImageData().length > 0);
+        dto.setAudioSize(song.getAudioSize());
+        dto.setCoverImageSize(song.getCoverImageSize());
+        dto.setHasAudioData(song.getAudioSize() != null && song.getAudioSize() > 0);
+        dto.setHasCoverImage(song.getCoverImageSize() != null && song.getCoverImageSize() > 0);
+        dto.setUpdatedAt(song.getUpdatedAt());
         return dto;
     }
+    
+    /**
+     * A copy of a cached song with media URLs signed now
+     */
+    private SongDto withMediaUrls(SongDto song) {
+        SongDto dto = new SongDto();
+        dto.setId(song.getId());
+        dto.setTitle(song.getTitle());
+        dto.setArtist(song.getArtist());
+        dto.setAlbum(song.getAlbum());
+        dto.setGenre(song.getGenre());
+        dto.setDuration(song.getDuration());
+        dto.setFilePath(song.getFilePath());
+        dto.setCoverImagePath(song.getCoverImagePath());
+        dto.setAudioFilename(song.getAudioFilename());
+        dto.setAudioContentType(song.getAudioContentType());
+        dto.setCoverImageFilename(song.getCoverImageFilename());
+        dto.setCoverImageContentType(song.getCoverImageContentType());
+        dto.setAudioSize(song.getAudioSize());
+        dto.setCoverImageSize(song.getCoverImageSize());
+        dto.setHasAudioData(song.isHasAudioData());
+        dto.setHasCoverImage(song.isHasCoverImage());
+        dto.setUpdatedAt(song.getUpdatedAt());
+        addMediaUrls(dto);
+        return dto;
+    }
+    
+    /**
+     * Issue signed URLs for the media of a song, so players can fetch it
+     * without sending the JWT
+     */
+    private void addMediaUrls(SongDto dto) {
+        if (!dto.isHasAudioData() && !dto.isHasCoverImage()) {
+            return;
+        }
+        long expires = mediaUrlSigner.currentExpiry();
+        if (dto.isHasAudioData()) {
+            dto.setAudioUrl(signedUrl("/api/files/audio/" + dto.getId(), expires));
+            if ("audio/mpeg".equals(dto.getAudioContentType())) {
+                dto.setPlaylistUrl(signedUrl("/api/files/audio/" + dto.getId() + "/playlist.m3u8", expires));
+            }
+        }
+        if (dto.isHasCoverImage()) {
+            dto.setCoverUrl(signedUrl("/api/files/cover/" + dto.getId(), expires));
+        }
+        dto.setMediaUrlsExpireAt(LocalDateTime.ofInstant(Instant.ofEpochSecond(expires), ZoneId.systemDefault()));
+    }
+    
+    private String signedUrl(String path, long expires) {
+        return path + "?" + mediaUrlSigner.signatureQuery(path, expires);
+    }
+    
+    /**
+     * Strong entity tag of a song representation.
+     * Every change to a song bumps updatedAt, so id + updatedAt identify its content,
+     * along with the expiry of its signed media URLs.
+     * 
+     * @return The quoted tag, or null if the song has no version yet
+     */
+    public String songETag(SongDto song) {
+        if (song.getUpdatedAt() == null) {
+            return null;
+        }
+        String tag = song.getId() + "-" + toEpochMillis(song.getUpdatedAt());
+        if (song.getMediaUrlsExpireAt() != null) {
+            tag += "-" + toEpochMillis(song.getMediaUrlsExpireAt());
+        }
+        return "\"" + tag + "\"";
+    }
+    
+    /**
+     * Strong entity tag of a list of songs, derived from the ids, versions and URL expiries in order.
+     * Adding, removing, reordering or changing any song changes the tag.
+     */
+    public String songListETag(List<SongDto> songs) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        for (SongDto song : songs) {
+            long version = song.getUpdatedAt() != null ? toEpochMillis(song.getUpdatedAt()) : 0;
+            long urlExpiry = song.getMediaUrlsExpireAt() != null ? toEpochMillis(song.getMediaUrlsExpireAt()) : 0;
+            sha256.update((song.getId() + ":" + version + ":" + urlExpiry + ";").getBytes(StandardCharsets.US_ASCII));
+        }
+        return "\"" + HexFormat.of().formatHex(sha256.digest(), 0, 16) + "\"";
+    }
+    
+    private long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * Keyset pagination over songs matching a filter.
+     * Rows are ordered by the sort key with the id as tie-breaker and the next
+     * page starts strictly after the (key, id) of the last row served, so every
+     * page is an index range scan of limit + 1 rows no matter how deep the client
+     * has scrolled, and inserts or deletes never shift rows between pages.
+     */
+    private SongPageDto page(Specification<Song> filter, SongPageRequest request) {
+        Window<Song> window = scroll(filter, request);
+        List<SongDto> songs = window.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            Song last = window.getContent().get(window.size() - 1);
+            nextCursor = encodeCursor(request, request.sort().key(last), last.getId());
+        }
+        return new SongPageDto(songs, nextCursor);
+    }
+    
+    /**
+     * {@link #page} through the catalog cache. A cached page is served from the
+     * ids it holds, each song from the cache too where possible; a page loaded
+     * from the database fills both.
+     */
+    private SongPageDto cachedPage(SongCatalogCache.Listing listing, Specification<Song> filter,
+                                   SongPageRequest request) {
+        Map<String, Object> cursorKeys = request.position().getKeys();
+        SongCatalogCache.PageKey key = new SongCatalogCache.PageKey(listing, request.sort().property,
+                request.direction().isDescending(), request.size(), cursorKeys.get(request.sort().property),
+                (Long) cursorKeys.get("id"));
+        SongCatalogCache.CachedPage cached = songCatalogCache.getPage(key);
+        if (cached != null) {
+            return new SongPageDto(loadInOrder(cached.songIds()), cached.nextCursor());
+        }
+        
+        long generation = songCatalogCache.generation();
+        Window<Song> window = scroll(filter, request);
+        List<SongDto> songs = new ArrayList<>(window.size());
+        for (Song song : window) {
+            SongDto dto = catalogDto(song);
+            songCatalogCache.putSong(dto, generation);
+            songs.add(withMediaUrls(dto));
+        }
+        String nextCursor = null;
+        Object endKey = null;
+        Long endId = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            Song last = window.getContent().get(window.size() - 1);
+            endKey = request.sort().key(last);
+            endId = last.getId();
+            nextCursor = encodeCursor(request, endKey, endId);
+        }
+        songCatalogCache.putPage(key, new SongCatalogCache.CachedPage(
+                songs.stream().map(SongDto::getId).toList(), nextCursor, endKey, endId), generation);
+        return new SongPageDto(songs, nextCursor);
+    }
+    
+    /**
+     * Rows of a page plus one to tell whether another follows, ordered by the
+     * sort key with the id as tie-breaker
+     */
+    private Window<Song> scroll(Specification<Song> filter, SongPageRequest request) {
+        Sort.Direction direction = request.direction();
+        Sort order = request.sort() == SongSort.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, request.sort().property).and(Sort.by(direction, "id"));
+        return songRepository.findBy(filter,
+                query -> query.sortBy(order).limit(request.size()).scroll(request.position()));
+    }
+    
+    /**
+     * The same keyset pagination over matches found in memory. Only matches after
+     * the cursor are considered and the first limit + 1 of them are picked with a
+     * bounded heap, so the full match set is never sorted. Just the songs on the
+     * page are loaded; any deleted since the match are skipped.
+     */
+    private SongPageDto page(List<RankedSong> matches, SongPageRequest request) {
+        Comparator<RankedSong> order = order(request);
+        RankedSong after = after(request);
+        
+        PriorityQueue<RankedSong> firstRows = new PriorityQueue<>(request.size() + 1, order.reversed());
+        for (RankedSong match : matches) {
+            if (after != null && order.compare(match, after) <= 0) {
+                continue;
+            }
+            firstRows.add(match);
+            if (firstRows.size() > request.size() + 1) {
+                firstRows.poll();
+            }
+        }
+        List<RankedSong> rows = new ArrayList<>(firstRows);
+        rows.sort(order);
+        boolean hasNext = rows.size() > request.size();
+        if (hasNext) {
+            rows = rows.subList(0, request.size());
+        }
+        
+        List<SongDto> songs = loadInOrder(rows.stream().map(row -> row.song().id()).toList());
+        String nextCursor = null;
+        if (hasNext) {
+            RankedSong last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(request, request.sort().key(last), last.song().id());
+        }
+        return new SongPageDto(songs, nextCursor);
+    }
+    
+    private static Comparator<RankedSong> order(SongPageRequest request) {
+        Comparator<RankedSong> order = request.sort().comparator();
+        return request.direction().isDescending() ? order.reversed() : order;
+    }
+    
+    /**
+     * The cursor position as a match to compare with, null on the first page
+     */
+    private static RankedSong after(SongPageRequest request) {
+        Map<String, Object> cursorKeys = request.position().getKeys();
+        return cursorKeys.isEmpty()
+                ? null
+                : request.sort().probe(cursorKeys.get(request.sort().property), (Long) cursorKeys.get("id"));
+    }
+    
+    /**
+     * The songs with these ids in the same order, skipping any deleted since they
+     * were matched. Songs in the catalog cache are taken from it, the rest are
+     * loaded in one query and cached.
+     */
+    private List<SongDto> loadInOrder(List<Long> ids) {
+        Map<Long, SongDto> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            SongDto cached = songCatalogCache.getSong(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = songCatalogCache.generation();
+            for (Song song : songRepository.findAllById(missing)) {
+                SongDto dto = catalogDto(song);
+                songCatalogCache.putSong(dto, generation);
+                found.put(song.getId(), dto);
+            }
+        }
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .map(this::withMediaUrls)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * The query equivalent of a filter, used until the filter index is built
+     */
+    private static Specification<Song> specification(SongFilter filter) {
+        if (filter instanceof SongFilter.GenreIs genre) {
+            return SongSpecifications.hasGenre(genre.genre());
+        }
+        if (filter instanceof SongFilter.DurationBetween range) {
+            return SongSpecifications.durationBetween(range.min(), range.max());
+        }
+        if (filter instanceof SongFilter.HasMedia has) {
+            return has.media() == SongFilter.Media.AUDIO
+                    ? SongSpecifications.hasAudio()
+                    : SongSpecifications.hasCoverImage();
+        }
+        if (filter instanceof SongFilter.AddedInDecade decade) {
+            return SongSpecifications.createdBetween(LocalDateTime.of(decade.decade(), 1, 1, 0, 0),
+                    LocalDateTime.of(decade.decade() + 10, 1, 1, 0, 0));
+        }
+        if (filter instanceof SongFilter.Not not) {
+            return Specification.not(specification(not.filter()));
+        }
+        if (filter instanceof SongFilter.And and) {
+            return and.filters().stream().map(SongService::specification).reduce(Specification::and).orElseThrow();
+        }
+        SongFilter.Or or = (SongFilter.Or) filter;
+        return or.filters().stream().map(SongService::specification).reduce(Specification::or).orElseThrow();
+    }
+    
+    /**
+     * Page size, order and position of a listing. A cursor carries its own order,
+     * so sort and direction may be left out when following one. Only search,
+     * whose default it is, can be ordered by relevance.
+     */
+    private SongPageRequest pageRequest(Integer limit, String sortParameter, String directionParameter,
+                                        String cursor, SongSort defaultSort) {
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new BusinessValidationException(
+                    "limit must be between 1 and " + maxPageSize, "INVALID_PAGE_SIZE");
+        }
+        SongSort sort = sortParameter == null || sortParameter.isBlank() ? null : SongSort.fromParameter(sortParameter);
+        Sort.Direction direction = parseDirection(directionParameter);
+        SongPageRequest request;
+        if (cursor != null && !cursor.isBlank()) {
+            request = decodeCursor(cursor, sort, direction, pageSize);
+        } else {
+            SongSort order = sort != null ? sort : defaultSort;
+            request = new SongPageRequest(order, direction != null ? direction : order.defaultDirection(), pageSize,
+                    ScrollPosition.keyset());
+        }
+        if (request.sort() == SongSort.RELEVANCE && defaultSort != SongSort.RELEVANCE) {
+            throw new BusinessValidationException("sort=relevance is only available for search", "INVALID_SORT");
+        }
+        return request;
+    }
+    
+    private static Sort.Direction parseDirection(String direction) {
+        if (direction == null || direction.isBlank()) {
+            return null;
+        }
+        return Sort.Direction.fromOptionalString(direction)
+                .orElseThrow(() -> new BusinessValidationException(
+                        "direction must be asc or desc", "INVALID_SORT"));
+    }
+    
+    /**
+     * Cursor: base64url of the sort it was issued for and the (key, id) of the last row.
+     * Carrying the sort lets a cursor replayed against another order fail loudly
+     * instead of silently skipping rows.
+     */
+    private static String encodeCursor(SongPageRequest request, Object key, long lastId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(CURSOR_VERSION);
+            out.writeUTF(request.sort().property);
+            out.writeBoolean(request.direction().isDescending());
+            out.writeLong(lastId);
+            if (request.sort() != SongSort.ID) {
+                out.writeBoolean(key != null);
+                if (key != null) {
+                    out.writeUTF(key.toString());
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode cursor", ex);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+    
+    /**
+     * Continue from a cursor; a sort or direction given as well must match the one it was issued for
+     */
+    private static SongPageRequest decodeCursor(String cursor, SongSort requestedSort,
+                                                Sort.Direction requestedDirection, int pageSize) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        SongSort sort;
+        boolean descending;
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != CURSOR_VERSION) {
+                throw invalidCursor();
+            }
+            sort = SongSort.fromProperty(in.readUTF());
+            descending = in.readBoolean();
+            if ((requestedSort != null && requestedSort != sort)
+                    || (requestedDirection != null && requestedDirection.isDescending() != descending)) {
+                throw new BusinessValidationException(
+                        "Cursor was issued for a different sort order", "CURSOR_SORT_MISMATCH");
+            }
+            long id = in.readLong();
+            if (sort != SongSort.ID) {
+                keys.put(sort.property, in.readBoolean() ? sort.parseKey(in.readUTF()) : null);
+            }
+            keys.put("id", id);
+        } catch (IOException | IllegalArgumentException | DateTimeParseException ex) {
+            throw invalidCursor();
+        }
+        return new SongPageRequest(sort, descending ? Sort.Direction.DESC : Sort.Direction.ASC, pageSize,
+                ScrollPosition.forward(keys));
+    }
+    
+    private static BusinessValidationException invalidCursor() {
+        return new BusinessValidationException("Invalid cursor", "INVALID_CURSOR");
+    }
+    
+    private record SongPageRequest(SongSort sort, Sort.Direction direction, int size, KeysetScrollPosition position) {
+    }
+    
+    /**
+     * Orders a song listing can be scrolled in
+     */
+    private enum SongSort {
+        ID("id"),
+        TITLE("title"),
+        ARTIST("artist"),
+        CREATED_AT("createdAt"),
+        RELEVANCE("relevance"); // search only, in memory
+        
+        private final String property;
+        
+        SongSort(String property) {
+            this.property = property;
+        }
+        
+        static SongSort fromParameter(String value) {
+            for (SongSort sort : values()) {
+                if (sort.property.equalsIgnoreCase(value)) {
+                    return sort;
+                }
+            }
+            throw new BusinessValidationException(
+                    "sort must be one of id, title, artist, createdAt, relevance", "INVALID_SORT");
+        }
+        
+        static SongSort fromProperty(String property) {
+            for (SongSort sort : values()) {
+                if (sort.property.equals(property)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unknown sort " + property);
+        }
+        
+        /**
+         * Best matches first for relevance, otherwise ascending
+         */
+        Sort.Direction defaultDirection() {
+            return this == RELEVANCE ? Sort.Direction.DESC : Sort.Direction.ASC;
+        }
+        
+        Object key(Song song) {
+            return switch (this) {
+                case ID, RELEVANCE -> null;
+                case TITLE -> song.getTitle();
+                case ARTIST -> song.getArtist();
+                case CREATED_AT -> song.getCreatedAt();
+            };
+        }
+        
+        Object key(RankedSong match) {
+            return switch (this) {
+                case ID -> null;
+                case TITLE -> match.song().title();
+                case ARTIST -> match.song().artist();
+                case CREATED_AT -> match.song().createdAt();
+                case RELEVANCE -> match.score();
+            };
+        }
+        
+        /**
+         * Ascending order of indexed songs, nulls first, ties broken by id
+         */
+        Comparator<RankedSong> comparator() {
+            Comparator<RankedSong> byId = Comparator.comparingLong(match -> match.song().id());
+            return switch (this) {
+                case ID -> byId;
+                case TITLE -> Comparator.comparing((RankedSong match) -> match.song().title(),
+                        Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(byId);
+                case ARTIST -> Comparator.comparing((RankedSong match) -> match.song().artist(),
+                        Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(byId);
+                case CREATED_AT -> Comparator.comparing((RankedSong match) -> match.song().createdAt(),
+                        Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())).thenComparing(byId);
+                case RELEVANCE -> Comparator.comparingDouble(RankedSong::score).thenComparing(byId);
+            };
+        }
+        
+        /**
+         * A stand-in carrying just the sort key and id, to compare matches with a cursor
+         */
+        RankedSong probe(Object key, long id) {
+            return switch (this) {
+                case ID -> new RankedSong(new IndexedSong(id, null, null, null, null), 0);
+                case TITLE -> new RankedSong(new IndexedSong(id, (String) key, null, null, null), 0);
+                case ARTIST -> new RankedSong(new IndexedSong(id, null, (String) key, null, null), 0);
+                case CREATED_AT -> new RankedSong(new IndexedSong(id, null, null, null, (LocalDateTime) key), 0);
+                case RELEVANCE -> new RankedSong(new IndexedSong(id, null, null, null, null), key == null ? 0 : (Double) key);
+            };
+        }
+        
+        Object parseKey(String value) {
+            return switch (this) {
+                case CREATED_AT -> LocalDateTime.parse(value);
+                case RELEVANCE -> Double.parseDouble(value);
+                default -> value;
+            };
+        }
+    }
 }
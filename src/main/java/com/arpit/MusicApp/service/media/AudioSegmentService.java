@@ -0,0 +1,209 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.AudioSeekIndex;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.exception.FileStorageException;
+import com.arpit.MusicApp.repository.AudioSeekIndexRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Segmented delivery of MP3 audio with an HLS media playlist.
+ *
+ * Segments are runs of whole frames of a fixed duration, cut at the frame
+ * boundaries of the seek index, so no transcoding or extra storage is needed:
+ * a segment is a byte slice of the stored blob. Segment URLs contain the
+ * audio digest, so their content never changes and they can be cached
+ * forever by browsers, proxies and the MediaCache alike.
+ *
+ * Each segment starts with the ID3 timestamp tag HLS requires for packed
+ * audio, telling the player where the segment sits on the timeline.
+ */
+@Service
+public class AudioSegmentService {
+
+    private static final int MAX_CACHED_TABLES = 1024;
+    private static final String TIMESTAMP_OWNER = "com.apple.streaming.transportStreamTimestamp";
+
+    @Autowired
+    private SeekIndexService seekIndexService;
+
+    @Autowired
+    private AudioSeekIndexRepository audioSeekIndexRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private BandwidthScheduler bandwidthScheduler;
+
+    @Value("${media.segment.duration:6s}")
+    private Duration segmentDuration;
+
+    // Segment boundaries per audio digest; content addressed, so entries only go away with the audio
+    private final Map<String, SegmentTable> tables = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SegmentTable> eldest) {
+            return size() > MAX_CACHED_TABLES;
+        }
+    };
+
+    /**
+     * The HLS media playlist of audio
+     *
+     * @param segmentPath Path of the segment URIs relative to the playlist, ending with a slash
+     * @param segmentQuery Query string appended to every segment URI, may be empty
+     * @return The playlist, or empty if the audio is not MP3 or not indexed yet
+     */
+    public Optional<String> playlist(String audioDigest, String segmentPath, String segmentQuery) {
+        String query = segmentQuery.isEmpty() ? "" : "?" + segmentQuery;
+        return findTable(audioDigest, true).map(table -> {
+            StringBuilder playlist = new StringBuilder()
+                    .append("#EXTM3U\n")
+                    .append("#EXT-X-VERSION:3\n")
+                    .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                    .append("#EXT-X-TARGETDURATION:").append(Math.round(table.duration(0))).append('\n')
+                    .append("#EXT-X-MEDIA-SEQUENCE:0\n");
+            for (int i = 0; i < table.segmentCount(); i++) {
+                playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,%n", table.duration(i)))
+                        .append(segmentPath).append(i).append(".mp3").append(query).append('\n');
+            }
+            return playlist.append("#EXT-X-ENDLIST\n").toString();
+        });
+    }
+
+    /**
+     * ETag of the playlist of audio, which only depends on the content, the
+     * segment duration and the query of the segment URIs
+     */
+    public String playlistETag(String audioDigest, String segmentQuery) {
+        return "\"" + audioDigest + "-" + segmentDuration.toMillis() + "-"
+                + Integer.toHexString(segmentQuery.hashCode()) + "\"";
+    }
+
+    /**
+     * Open one segment of audio. Segment URLs come from a playlist, so
+     * unknown digests are not indexed on demand here.
+     *
+     * @return The segment, or empty if there is no such segment
+     */
+    public Optional<MediaSource> openSegment(String audioDigest, int index) {
+        return findTable(audioDigest, false)
+                .filter(table -> index >= 0 && index < table.segmentCount())
+                .map(table -> {
+                    MediaSource audio = new StoredMediaSource(mediaStore, mediaCache, MediaKind.AUDIO, audioDigest,
+                            table.blobLength(), "audio/mpeg", index + ".mp3", null);
+                    SeekPoint slice = new SeekPoint(table.boundaries()[index], table.boundaries()[index + 1],
+                            table.startSeconds(index), timestampTag(table.startSeconds(index)));
+                    long segmentBytes = slice.end() - slice.offset();
+                    return bandwidthScheduler.pace(new SeekMediaSource(audio, slice), segmentBytes / table.duration(index));
+                });
+    }
+
+    @EventListener
+    public void onBlobDeleted(MediaBlobDeletedEvent event) {
+        if (event.kind() == MediaKind.AUDIO) {
+            synchronized (tables) {
+                tables.remove(event.digest());
+            }
+        }
+    }
+
+    /**
+     * @param build Whether to start indexing audio that has no index yet
+     */
+    private Optional<SegmentTable> findTable(String audioDigest, boolean build) {
+        synchronized (tables) {
+            SegmentTable table = tables.get(audioDigest);
+            if (table != null) {
+                return Optional.of(table);
+            }
+        }
+        Optional<SegmentTable> table = (build
+                ? seekIndexService.findIndex(audioDigest)
+                : audioSeekIndexRepository.findByAudioDigest(audioDigest))
+                .filter(index -> MediaFormat.MP3.name().equals(index.getFormat()))
+                .map(this::segment);
+        table.ifPresent(found -> {
+            synchronized (tables) {
+                tables.put(audioDigest, found);
+            }
+        });
+        return table;
+    }
+
+    private SegmentTable segment(AudioSeekIndex index) {
+        double frameSeconds = (double) index.getSamplesPerFrame() / index.getSampleRate();
+        int framesPerSegment = (int) Math.max(1, Math.round(segmentDuration.toMillis() / 1000.0 / frameSeconds));
+        long[] offsets = SeekIndexService.frameOffsets(index);
+        int segmentCount = (offsets.length + framesPerSegment - 1) / framesPerSegment;
+
+        long[] boundaries = new long[segmentCount + 1];
+        for (int i = 0; i < segmentCount; i++) {
+            boundaries[i] = offsets[i * framesPerSegment];
+        }
+        boundaries[segmentCount] = index.getDataOffset() + index.getDataLength();
+        try {
+            return new SegmentTable(boundaries, framesPerSegment, offsets.length, frameSeconds,
+                    mediaStore.size(MediaKind.AUDIO, index.getAudioDigest()));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the size of audio " + index.getAudioDigest(), ex);
+        }
+    }
+
+    /**
+     * An ID3v2.4 tag with the PRIV frame giving the 33-bit, 90 kHz MPEG-2
+     * timestamp of the first sample in the segment
+     */
+    static byte[] timestampTag(double startSeconds) {
+        byte[] owner = TIMESTAMP_OWNER.getBytes(StandardCharsets.US_ASCII);
+        int frameBodyLength = owner.length + 1 + 8;
+        int tagBodyLength = 10 + frameBodyLength;
+        ByteBuffer tag = ByteBuffer.allocate(10 + tagBodyLength);
+        tag.put("ID3".getBytes(StandardCharsets.US_ASCII)).put((byte) 4).put((byte) 0).put((byte) 0);
+        tag.putInt(syncsafe(tagBodyLength));
+        tag.put("PRIV".getBytes(StandardCharsets.US_ASCII)).putInt(syncsafe(frameBodyLength)).putShort((short) 0);
+        tag.put(owner).put((byte) 0);
+        tag.putLong(Math.round(startSeconds * 90_000) & 0x1FFFFFFFFL);
+        return tag.array();
+    }
+
+    private static int syncsafe(int value) {
+        return (value & 0x7F) | (value & 0x3F80) << 1 | (value & 0x1FC000) << 2 | (value & 0xFE00000) << 3;
+    }
+
+    /**
+     * Byte boundaries of the segments of one audio blob
+     *
+     * @param boundaries Start offset of every segment, followed by the end of the last one
+     */
+    private record SegmentTable(long[] boundaries, int framesPerSegment, int frameCount, double frameSeconds,
+                                long blobLength) {
+
+        int segmentCount() {
+            return boundaries.length - 1;
+        }
+
+        double startSeconds(int segment) {
+            return (double) segment * framesPerSegment * frameSeconds;
+        }
+
+        double duration(int segment) {
+            return Math.min(framesPerSegment, frameCount - segment * framesPerSegment) * frameSeconds;
+        }
+    }
+}
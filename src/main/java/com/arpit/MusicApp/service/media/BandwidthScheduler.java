@@ -0,0 +1,156 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.PacingStatsDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces media responses so a few fast downloads cannot starve playback.
+ *
+ * Every response may send an initial burst (media.pacing.initial-burst worth
+ * of audio) so playback starts at once, and is then held to the bitrate of its
+ * content times media.pacing.rate-factor, within media.pacing.max-stream-rate.
+ * The budget belongs to the response: clients are not told apart, since behind
+ * a reverse proxy or CDN they all share its address.
+ *
+ * On top of that all streams share media.pacing.total-rate, reserved one small
+ * chunk at a time in arrival order, so streams waiting for bandwidth are served
+ * round robin; streams held back by their own limit or a slow client reserve
+ * nothing, leaving their share to the others.
+ *
+ * Waiting costs no thread: paced bodies are written by {@link PacedResponseWriter}
+ * from a few timer threads (media.pacing.threads), and a client that accepts no
+ * data for media.pacing.stall-timeout is dropped.
+ */
+@Component
+public class BandwidthScheduler {
+
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    private static final long SWEEP_INTERVAL_SECONDS = 5;
+
+    private final boolean enabled;
+    private final Duration initialBurst;
+    private final double rateFactor;
+    private final long maxStreamRate;
+    private final long totalRate;
+    private final long stallTimeoutNanos;
+
+    private final TokenBucket sharedBucket;
+    private final Set<PacedResponseWriter> activeStreams = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public BandwidthScheduler(@Value("${media.pacing.enabled:false}") boolean enabled,
+                              @Value("${media.pacing.initial-burst:10s}") Duration initialBurst,
+                              @Value("${media.pacing.rate-factor:1.5}") double rateFactor,
+                              @Value("${media.pacing.max-stream-rate:0B}") DataSize maxStreamRate,
+                              @Value("${media.pacing.total-rate:0B}") DataSize totalRate,
+                              @Value("${media.pacing.stall-timeout:60s}") Duration stallTimeout,
+                              @Value("${media.pacing.threads:2}") int threads) {
+        this.enabled = enabled;
+        this.initialBurst = initialBurst;
+        this.rateFactor = rateFactor;
+        this.maxStreamRate = maxStreamRate.toBytes();
+        this.totalRate = totalRate.toBytes();
+        this.stallTimeoutNanos = stallTimeout.toNanos();
+        // A tenth of a second of the shared budget may be spent at once
+        this.sharedBucket = this.totalRate > 0
+                ? new TokenBucket(this.totalRate, Math.max(CHUNK_SIZE, this.totalRate / 10.0), 0)
+                : null;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("media-pacing-");
+        threadFactory.setDaemon(true);
+        this.timer = new ScheduledThreadPoolExecutor(threads, threadFactory);
+        this.timer.setRemoveOnCancelPolicy(true);
+        if (enabled) {
+            timer.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Wrap a source for pacing
+     *
+     * @param bytesPerSecond Average rate at which the content plays, 0 if unknown
+     * @return The paced source, or the source itself when pacing is disabled or no limit applies
+     */
+    public MediaSource pace(MediaSource source, double bytesPerSecond) {
+        if (!enabled) {
+            return source;
+        }
+        double rate = bytesPerSecond * rateFactor;
+        if (maxStreamRate > 0) {
+            rate = rate > 0 ? Math.min(rate, maxStreamRate) : maxStreamRate;
+        }
+        TokenBucket streamBucket = null;
+        if (rate > 0) {
+            double burst = Math.max(CHUNK_SIZE, bytesPerSecond * initialBurst.toMillis() / 1000.0);
+            streamBucket = new TokenBucket(rate, burst, burst);
+        } else if (sharedBucket == null) {
+            return source; // nothing to enforce
+        }
+        return new PacedMediaSource(source, this, streamBucket);
+    }
+
+    /**
+     * Reserve bytes from the shared budget
+     *
+     * @return Nanoseconds until they may be sent
+     */
+    long reserveShared(int bytes) {
+        return sharedBucket != null ? sharedBucket.reserve(bytes) : 0;
+    }
+
+    void execute(Runnable task) {
+        timer.execute(task);
+    }
+
+    void schedule(Runnable task, long delayNanos) {
+        timer.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void streamStarted(PacedResponseWriter stream) {
+        activeStreams.add(stream);
+    }
+
+    void streamFinished(PacedResponseWriter stream) {
+        activeStreams.remove(stream);
+    }
+
+    void recordSent(int bytes, long waitedNanos) {
+        bytesSent.addAndGet(bytes);
+        waitNanos.addAndGet(waitedNanos);
+    }
+
+    public PacingStatsDto getStats() {
+        return new PacingStatsDto(enabled, activeStreams.size(), rateFactor, maxStreamRate, totalRate,
+                bytesSent.get(), TimeUnit.NANOSECONDS.toMillis(waitNanos.get()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Drop stalled clients
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (PacedResponseWriter stream : activeStreams) {
+            stream.dropIfStalled(now, stallTimeoutNanos);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+
+/**
+ * MediaStore keeping payloads as BLOBs in the media_blob_content table.
+ *
+ * Kept for deployments that want all state in the database. Content is
+ * written with {@code setBinaryStream} and read back from
+ * {@link Blob#getBinaryStream(long, long)} through a fixed-size buffer, so
+ * neither direction materializes a whole track on the heap.
+ */
+@Component
+@ConditionalOnProperty(name = "media.store.type", havingValue = "database", matchIfMissing = true)
+public class DatabaseMediaStore implements MediaStore {
+
+    private static final String BLOB_ID_QUERY = "SELECT id FROM media_blobs WHERE kind = ? AND digest = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int bufferSize;
+
+    public DatabaseMediaStore(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${media.stream.buffer-size:8192}") int bufferSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Expects the media_blobs row to exist already, in the caller's transaction
+     */
+    @Override
+    public void save(MediaKind kind, String digest, Path spooledFile) throws IOException {
+        try (InputStream in = Files.newInputStream(spooledFile)) {
+            jdbcTemplate.update("INSERT INTO media_blob_content (blob_id, data) VALUES ((" + BLOB_ID_QUERY + "), ?)", ps -> {
+                ps.setString(1, kind.name());
+                ps.setString(2, digest);
+                ps.setBinaryStream(3, in);
+            });
+        } finally {
+            Files.deleteIfExists(spooledFile);
+        }
+    }
+
+    @Override
+    public long size(MediaKind kind, String digest) {
+        Long size = jdbcTemplate.queryForObject("SELECT OCTET_LENGTH(data) FROM media_blob_content "
+                + "WHERE blob_id = (" + BLOB_ID_QUERY + ")", Long.class, kind.name(), digest);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * Runs in its own read-only transaction since it is invoked after the
+     * request thread has returned, while the response body is being written.
+     */
+    @Override
+    public void copyTo(MediaKind kind, String digest, OutputStream out, long offset, long count) throws IOException {
+        String sql = "SELECT data FROM media_blob_content WHERE blob_id = (" + BLOB_ID_QUERY + ")";
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+                Blob blob = rs.getBlob(1);
+                if (blob == null) {
+                    return;
+                }
+                try (InputStream in = blob.getBinaryStream(offset + 1, count)) {
+                    byte[] buffer = new byte[(int) Math.min(bufferSize, Math.max(count, 1))];
+                    long remaining = count;
+                    while (remaining > 0) {
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read == -1) {
+                            break;
+                        }
+                        out.write(buffer, 0, read);
+                        remaining -= read;
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } finally {
+                    blob.free();
+                }
+            }, kind.name(), digest));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public void delete(MediaKind kind, String digest) {
+        jdbcTemplate.update("DELETE FROM media_blob_content WHERE blob_id = (" + BLOB_ID_QUERY + ")", kind.name(), digest);
+    }
+}
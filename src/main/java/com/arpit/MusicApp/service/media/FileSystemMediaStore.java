@@ -0,0 +1,108 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.service.FileStorageService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * MediaStore keeping payloads as files under the FileStorageService
+ * directories ({@code file.upload-dir} and {@code file.cover-dir}), named by
+ * digest and fanned out by its first two characters (e.g. songs/3f/3fa1...).
+ * Cover thumbnails go to a thumbnails directory inside the cover directory.
+ *
+ * Because the files are exposed via {@link #localFile}, single-range and full
+ * responses can be handed to the servlet container's sendfile support without
+ * the JVM ever copying the bytes. {@link #copyTo} is the fallback for everything
+ * else and is an ordinary copy through a user-space buffer: the target is a
+ * servlet output stream, not a socket channel the kernel could transfer into.
+ */
+@Component
+@ConditionalOnProperty(name = "media.store.type", havingValue = "filesystem")
+public class FileSystemMediaStore implements MediaStore {
+
+    private static final Logger logger = LogManager.getLogger(FileSystemMediaStore.class);
+
+    private final FileStorageService fileStorageService;
+
+    public FileSystemMediaStore(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @Override
+    public void save(MediaKind kind, String digest, Path spooledFile) throws IOException {
+        Path target = resolve(kind, digest);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(spooledFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(spooledFile, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException ex) {
+            // Same digest means same bytes, the existing file is as good as ours
+            Files.deleteIfExists(spooledFile);
+        }
+    }
+
+    @Override
+    public long size(MediaKind kind, String digest) throws IOException {
+        return Files.size(resolve(kind, digest));
+    }
+
+    @Override
+    public void copyTo(MediaKind kind, String digest, OutputStream out, long offset, long count) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(kind, digest), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> localFile(MediaKind kind, String digest) {
+        return Optional.of(resolve(kind, digest));
+    }
+
+    @Override
+    public void delete(MediaKind kind, String digest) {
+        try {
+            Files.deleteIfExists(resolve(kind, digest));
+        } catch (IOException ex) {
+            logger.warn("Could not delete {} blob {}", kind, digest, ex);
+        }
+    }
+
+    private Path resolve(MediaKind kind, String digest) {
+        if (!digest.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid media digest " + digest);
+        }
+        Path location = switch (kind) {
+            case AUDIO -> fileStorageService.getFileStorageLocation();
+            case COVER -> fileStorageService.getCoverStorageLocation();
+            case THUMBNAIL -> fileStorageService.getCoverStorageLocation().resolve("thumbnails");
+        };
+        return location.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+}
@@ -0,0 +1,100 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+/**
+ * InputStream computing the SHA-256, CRC-32 and length of everything read through it.
+ *
+ * Unlike {@link java.security.DigestInputStream}, skipped bytes are read and
+ * hashed too, so parsers layered on top may skip freely without corrupting
+ * the digest.
+ */
+public class HashingInputStream extends FilterInputStream {
+
+    private final MessageDigest digest;
+    private final CRC32 crc32 = new CRC32();
+    private final byte[] skipBuffer = new byte[8192];
+    private long byteCount;
+
+    public HashingInputStream(InputStream in) {
+        super(in);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            crc32.update(b);
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            digest.update(b, off, read);
+            crc32.update(b, off, read);
+            byteCount += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Read and hash whatever is left of the stream
+     */
+    public void drain() throws IOException {
+        while (skip(Long.MAX_VALUE) > 0) {
+            // keep reading until end of stream
+        }
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * CRC-32 of the bytes read so far, as recorded in ZIP entries
+     */
+    public long getCrc32() {
+        return crc32.getValue();
+    }
+
+    /**
+     * Lowercase hex SHA-256 of the bytes read so far; only call once
+     */
+    public String getDigestHex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,27 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Result of ingesting an upload: the spooled file plus everything learned
+ * about it during the single pass over its bytes.
+ * The caller owns the spooled file and must delete it when done.
+ */
+@Data
+@AllArgsConstructor
+public class IngestedMedia {
+    private MediaKind kind;
+    private String digest; // lowercase hex SHA-256
+    private long size;
+    private long crc32;
+    private MediaMetadata metadata;
+    private Path spooledFile;
+
+    public String getContentType() {
+        return metadata.getFormat().getContentType();
+    }
+}
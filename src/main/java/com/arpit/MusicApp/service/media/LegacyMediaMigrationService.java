@@ -0,0 +1,399 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.MediaMigrationStatusDto;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.exception.FileStorageException;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves media left in the legacy songs.audio_data / songs.cover_image_data
+ * columns into the active MediaStore.
+ *
+ * Those columns are no longer mapped, but databases created before media
+ * moved out of the songs table still have them, filled. The migration walks
+ * songs with legacy content in id order, one keyset batch at a time, and for
+ * each payload:
+ * <ol>
+ *   <li>streams the BLOB to a spool file, hashing and probing it on the way,</li>
+ *   <li>stores it content addressed like a new upload and reads it back to
+ *       verify the SHA-256,</li>
+ *   <li>points the song at the blob and nulls the legacy column, in one transaction.</li>
+ * </ol>
+ * Songs that got new media since keep it; their legacy copy is just dropped.
+ *
+ * Progress lives in the data itself, so a stopped or crashed run is resumed
+ * by starting again. Reads are throttled to media.migration.rate and the job
+ * pauses between batches so it can run next to normal traffic. A dry run does
+ * everything up to storing and reports what would be migrated.
+ */
+@Service
+public class LegacyMediaMigrationService {
+
+    private static final Logger logger = LogManager.getLogger(LegacyMediaMigrationService.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private record LegacyColumn(MediaKind kind, String name) {
+    }
+
+    private static final List<LegacyColumn> LEGACY_COLUMNS = List.of(
+            new LegacyColumn(MediaKind.AUDIO, "audio_data"),
+            new LegacyColumn(MediaKind.COVER, "cover_image_data"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private MediaIngestService mediaIngestService;
+
+    @Autowired
+    private SongMediaService songMediaService;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${media.migration.batch-size:50}")
+    private int batchSize;
+
+    @Value("${media.migration.batch-pause:1s}")
+    private Duration batchPause;
+
+    @Value("${media.migration.rate:8MB}")
+    private DataSize rate;
+
+    @Value("${media.migration.auto-start:false}")
+    private boolean autoStart;
+
+    // Its own thread, a migration can take hours and must not hold up thumbnails or seek indexes
+    private final SimpleAsyncTaskExecutor migrationExecutor = new SimpleAsyncTaskExecutor("media-migration-");
+
+    private volatile boolean stopRequested;
+    private TokenBucket ioBudget;
+
+    // Guarded by this
+    private MediaMigrationStatusDto status = new MediaMigrationStatusDto();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (autoStart) {
+            start(false);
+        }
+    }
+
+    /**
+     * Start a migration run in the background
+     *
+     * @param dryRun Only read and check legacy content, change nothing
+     * @return false if a run is already in progress
+     */
+    public synchronized boolean start(boolean dryRun) {
+        if (status.isRunning()) {
+            return false;
+        }
+        status = new MediaMigrationStatusDto();
+        status.setRunning(true);
+        status.setDryRun(dryRun);
+        status.setStartedAt(LocalDateTime.now());
+        stopRequested = false;
+        ioBudget = rate.toBytes() > 0 ? new TokenBucket(rate.toBytes(), rate.toBytes(), 0) : null;
+        migrationExecutor.execute(() -> run(dryRun));
+        return true;
+    }
+
+    /**
+     * Ask a running migration to stop after the payload in progress
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public synchronized MediaMigrationStatusDto getStatus() {
+        MediaMigrationStatusDto copy = new MediaMigrationStatusDto();
+        copy.setRunning(status.isRunning());
+        copy.setDryRun(status.isDryRun());
+        copy.setStartedAt(status.getStartedAt());
+        copy.setFinishedAt(status.getFinishedAt());
+        copy.setLastSongId(status.getLastSongId());
+        copy.setSongsScanned(status.getSongsScanned());
+        copy.setBlobsMigrated(status.getBlobsMigrated());
+        copy.setBytesMigrated(status.getBytesMigrated());
+        copy.setBlobsSuperseded(status.getBlobsSuperseded());
+        copy.setFailures(status.getFailures());
+        copy.setLastError(status.getLastError());
+        copy.setThrottledMillis(status.getThrottledMillis());
+        return copy;
+    }
+
+    private void run(boolean dryRun) {
+        try {
+            List<LegacyColumn> columns = LEGACY_COLUMNS.stream().filter(this::columnExists).toList();
+            if (columns.isEmpty()) {
+                logger.info("No legacy media columns in the songs table, nothing to migrate");
+                return;
+            }
+            logger.info("Migrating legacy media from songs.{}{}",
+                    columns.stream().map(LegacyColumn::name).collect(Collectors.joining(", songs.")),
+                    dryRun ? " (dry run)" : "");
+
+            String pending = columns.stream().map(column -> column.name() + " IS NOT NULL")
+                    .collect(Collectors.joining(" OR ", "(", ")"));
+            long lastId = 0;
+            while (!stopRequested) {
+                List<Long> songIds = jdbcTemplate.queryForList("SELECT id FROM songs WHERE id > ? AND " + pending
+                        + " ORDER BY id LIMIT ?", Long.class, lastId, batchSize);
+                if (songIds.isEmpty()) {
+                    break;
+                }
+                for (Long songId : songIds) {
+                    if (stopRequested) {
+                        break;
+                    }
+                    for (LegacyColumn column : columns) {
+                        migrate(songId, column, dryRun);
+                    }
+                    lastId = songId;
+                    synchronized (this) {
+                        status.setLastSongId(songId);
+                        status.setSongsScanned(status.getSongsScanned() + 1);
+                    }
+                }
+                TimeUnit.MILLISECONDS.sleep(batchPause.toMillis());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            logger.error("Legacy media migration aborted", ex);
+            recordFailure(ex);
+        } finally {
+            synchronized (this) {
+                status.setRunning(false);
+                status.setFinishedAt(LocalDateTime.now());
+                logger.info("Legacy media migration finished: {}", status);
+            }
+        }
+    }
+
+    /**
+     * Migrate one legacy payload. Failures are recorded and leave the legacy
+     * content in place, so the next run retries it.
+     */
+    private void migrate(Long songId, LegacyColumn column, boolean dryRun) {
+        Path spooledFile = fileStorageService.createSpoolFile();
+        try {
+            if (!readLegacyContent(songId, column, spooledFile)) {
+                return;
+            }
+            IngestedMedia media = mediaIngestService.ingest(column.kind(), spooledFile);
+            if (dryRun) {
+                Song song = songRepository.findById(songId).orElse(null);
+                if (song != null && currentDigest(song, column) == null) {
+                    recordMigrated(media.getSize());
+                } else {
+                    recordSuperseded();
+                }
+                return;
+            }
+
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            boolean migrated = Boolean.TRUE.equals(transaction.execute(transactionStatus -> {
+                try {
+                    return repoint(songId, column, media);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+            if (migrated) {
+                recordMigrated(media.getSize());
+            } else {
+                recordSuperseded();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not migrate songs.{} of song {}", column.name(), songId, ex);
+            recordFailure(ex);
+        } finally {
+            deleteQuietly(spooledFile);
+        }
+    }
+
+    /**
+     * Copy a legacy BLOB to the spool file through the I/O budget
+     *
+     * @return false if the column is empty (migrated or cleared meanwhile)
+     */
+    private boolean readLegacyContent(Long songId, LegacyColumn column, Path spooledFile) throws IOException {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        try {
+            return Boolean.TRUE.equals(readOnlyTransaction.execute(transactionStatus -> jdbcTemplate.query(
+                    "SELECT " + column.name() + " FROM songs WHERE id = ?", rs -> {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        Blob blob = rs.getBlob(1);
+                        if (blob == null) {
+                            return false;
+                        }
+                        try (InputStream in = blob.getBinaryStream();
+                             OutputStream out = Files.newOutputStream(spooledFile)) {
+                            copyThrottled(in, out);
+                            return true;
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        } finally {
+                            blob.free();
+                        }
+                    }, songId)));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Store the content, verify it, point the song at it and clear the legacy column
+     *
+     * @return false if the song already had newer media and only the legacy copy was dropped
+     */
+    private boolean repoint(Long songId, LegacyColumn column, IngestedMedia media) throws IOException {
+        Song song = songRepository.findById(songId).orElse(null);
+        if (song == null) {
+            return false;
+        }
+        boolean migrated = currentDigest(song, column) == null;
+        if (migrated) {
+            songMediaService.store(song, media);
+            verify(media);
+            if (column.kind() == MediaKind.AUDIO && song.getDuration() == null) {
+                song.setDuration(media.getMetadata().getDurationSeconds());
+            }
+            songRepository.save(song);
+            eventPublisher.publishEvent(new SongSavedEvent(song));
+        }
+        jdbcTemplate.update("UPDATE songs SET " + column.name() + " = NULL WHERE id = ?", songId);
+        return migrated;
+    }
+
+    /**
+     * Read stored content back and compare it with the digest of the legacy bytes
+     */
+    private void verify(IngestedMedia media) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        long size = mediaStore.size(media.getKind(), media.getDigest());
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), sha256)) {
+            mediaStore.copyTo(media.getKind(), media.getDigest(), out, 0, size);
+        }
+        throttle(size);
+        String storedDigest = HexFormat.of().formatHex(sha256.digest());
+        if (size != media.getSize() || !storedDigest.equals(media.getDigest())) {
+            throw new FileStorageException("Stored " + media.getKind() + " " + media.getDigest()
+                    + " does not match the legacy content (got " + storedDigest + ", " + size + " bytes)");
+        }
+    }
+
+    private void copyThrottled(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            throttle(read);
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private void throttle(long bytes) throws InterruptedIOException {
+        if (ioBudget == null) {
+            return;
+        }
+        long waited = ioBudget.acquire(bytes);
+        if (waited > 0) {
+            synchronized (this) {
+                status.setThrottledMillis(status.getThrottledMillis() + waited / 1_000_000);
+            }
+        }
+    }
+
+    private static String currentDigest(Song song, LegacyColumn column) {
+        return column.kind() == MediaKind.AUDIO ? song.getAudioDigest() : song.getCoverImageDigest();
+    }
+
+    private boolean columnExists(LegacyColumn column) {
+        try {
+            jdbcTemplate.queryForList("SELECT " + column.name() + " FROM songs WHERE 1 = 0");
+            return true;
+        } catch (BadSqlGrammarException ex) {
+            return false;
+        }
+    }
+
+    private synchronized void recordMigrated(long size) {
+        status.setBlobsMigrated(status.getBlobsMigrated() + 1);
+        status.setBytesMigrated(status.getBytesMigrated() + size);
+    }
+
+    private synchronized void recordSuperseded() {
+        status.setBlobsSuperseded(status.getBlobsSuperseded() + 1);
+    }
+
+    private synchronized void recordFailure(Exception ex) {
+        status.setFailures(status.getFailures() + 1);
+        status.setLastError(ex.getMessage());
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("Could not delete temporary file {}", file);
+        }
+    }
+}
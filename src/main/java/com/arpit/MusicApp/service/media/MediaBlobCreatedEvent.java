@@ -0,0 +1,10 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+
+/**
+ * Published inside the storing transaction when content is stored for the
+ * first time (not when an identical blob is reused)
+ */
+public record MediaBlobCreatedEvent(MediaKind kind, String digest) {
+}
@@ -0,0 +1,10 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+
+/**
+ * Published inside the releasing transaction when the last reference to a
+ * blob is dropped, so that derived data can be released with it
+ */
+public record MediaBlobDeletedEvent(MediaKind kind, String digest) {
+}
@@ -0,0 +1,292 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaBlob;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.exception.FileStorageException;
+import com.arpit.MusicApp.repository.MediaBlobRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Content-addressed, reference-counted storage of media blobs.
+ *
+ * Uploads are hashed with SHA-256 while they are spooled to disk; if a blob
+ * with the same kind and digest already exists only its reference count is
+ * incremented, otherwise the spooled file is handed to the MediaStore.
+ *
+ * Concurrent uploads of the same new content race to insert the blob row; the
+ * loser's insert is rolled back to a savepoint and it takes a reference on the
+ * winner's row instead. Content of stores outside the transaction is deleted
+ * after commit, but only if no blob row exists by then and no acquire of the
+ * same digest is in flight, so a re-upload racing the last release keeps its file.
+ *
+ * Listeners can derive data from new content with {@link MediaBlobCreatedEvent}
+ * and clean it up with {@link MediaBlobDeletedEvent}.
+ */
+@Service
+public class MediaBlobService {
+
+    private static final Logger logger = LogManager.getLogger(MediaBlobService.class);
+
+    @Autowired
+    private MediaBlobRepository mediaBlobRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Acquires in progress per blob, until their transaction completes. Guarded
+    // by its own monitor together with the deletes of non-transactional content.
+    private final Map<BlobKey, Integer> pendingAcquires = new HashMap<>();
+
+    // Blobs whose missing CRC-32 is being computed, and the single thread doing it
+    private final Set<BlobKey> pendingCrc32s = ConcurrentHashMap.newKeySet();
+    private final ExecutorService crc32Executor = Executors.newSingleThreadExecutor(crc32ThreadFactory());
+
+    private record BlobKey(MediaKind kind, String digest) {
+    }
+
+    /**
+     * Store content, or reuse an identical blob, and take one reference on it
+     *
+     * @param kind Audio or cover image
+     * @param content The payload, read to the end but not closed
+     * @return The blob now referenced by the caller
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public MediaBlob store(MediaKind kind, InputStream content) throws IOException {
+        Path spooledFile = fileStorageService.createSpoolFile();
+        try {
+            MessageDigest sha256 = sha256();
+            try (InputStream in = new DigestInputStream(content, sha256)) {
+                Files.copy(in, spooledFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return acquire(kind, HexFormat.of().formatHex(sha256.digest()), spooledFile);
+        } finally {
+            Files.deleteIfExists(spooledFile);
+        }
+    }
+
+    /**
+     * Take one reference on the blob with this digest, saving the spooled
+     * file as its content if the blob is new
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public MediaBlob acquire(MediaKind kind, String digest, Path spooledFile) throws IOException {
+        holdUntilCompletion(new BlobKey(kind, digest));
+        while (true) {
+            if (mediaBlobRepository.incrementReferenceCount(kind, digest) > 0) {
+                return mediaBlobRepository.findByKindAndDigest(kind, digest)
+                        .orElseThrow(() -> new FileStorageException("Media blob vanished while being referenced: " + digest));
+            }
+            if (insertIfAbsent(kind, digest, Files.size(spooledFile))) {
+                mediaStore.save(kind, digest, spooledFile);
+                eventPublisher.publishEvent(new MediaBlobCreatedEvent(kind, digest));
+                return mediaBlobRepository.findByKindAndDigest(kind, digest)
+                        .orElseThrow(() -> new FileStorageException("Media blob vanished after insert: " + digest));
+            }
+            // A concurrent upload of the same content inserted the row first;
+            // take a reference on it, or insert again if it was released meanwhile
+        }
+    }
+
+    /**
+     * Drop one reference on a blob and delete it once nothing points at it.
+     * Content is only removed from the store after the transaction commits.
+     */
+    @Transactional
+    public void release(MediaKind kind, String digest) {
+        mediaBlobRepository.decrementReferenceCount(kind, digest);
+        Integer referenceCount = mediaBlobRepository.findReferenceCount(kind, digest).orElse(null);
+        if (referenceCount == null || referenceCount > 0) {
+            return;
+        }
+
+        if (mediaStore.isTransactional()) {
+            // Content rows reference the blob row, so they have to go first
+            mediaStore.delete(kind, digest);
+            mediaBlobRepository.deleteIfUnreferenced(kind, digest);
+            evictAfterCommit(kind, digest);
+            eventPublisher.publishEvent(new MediaBlobDeletedEvent(kind, digest));
+            return;
+        }
+        if (mediaBlobRepository.deleteIfUnreferenced(kind, digest) > 0) {
+            eventPublisher.publishEvent(new MediaBlobDeletedEvent(kind, digest));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteIfStillUnreferenced(new BlobKey(kind, digest));
+                    mediaCache.invalidate(kind, digest);
+                }
+            });
+        }
+    }
+
+    /**
+     * Record the CRC-32 of a blob, computed while its content was read anyway
+     */
+    public void recordCrc32(MediaBlob blob, long crc32) {
+        if (blob.getCrc32() == null) {
+            mediaBlobRepository.updateCrc32IfMissing(blob.getKind(), blob.getDigest(), crc32);
+            blob.setCrc32(crc32);
+        }
+    }
+
+    /**
+     * CRC-32 of blobs by digest. Blobs stored before checksums were recorded
+     * map to null; their content is read on a background thread and the
+     * checksum saved, so a later call finds it. Digests without a blob are
+     * left out.
+     */
+    public Map<String, Long> findCrc32s(MediaKind kind, Collection<String> digests) {
+        Map<String, Long> checksums = new HashMap<>();
+        for (MediaBlob blob : mediaBlobRepository.findByKindAndDigestIn(kind, digests)) {
+            checksums.put(blob.getDigest(), blob.getCrc32());
+            if (blob.getCrc32() == null && pendingCrc32s.add(new BlobKey(kind, blob.getDigest()))) {
+                crc32Executor.execute(() -> computeCrc32(blob));
+            }
+        }
+        return checksums;
+    }
+
+    private void computeCrc32(MediaBlob blob) {
+        try {
+            CRC32 crc32 = new CRC32();
+            try (OutputStream out = new CheckedOutputStream(OutputStream.nullOutputStream(), crc32)) {
+                mediaStore.copyTo(blob.getKind(), blob.getDigest(), out, 0, blob.getSize());
+            }
+            recordCrc32(blob, crc32.getValue());
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not compute the CRC-32 of {} blob {}", blob.getKind(), blob.getDigest(), ex);
+        } finally {
+            pendingCrc32s.remove(new BlobKey(blob.getKind(), blob.getDigest()));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        crc32Executor.shutdownNow();
+    }
+
+    /**
+     * Insert a blob row with one reference, in a savepoint so that losing the
+     * race on the (kind, digest) constraint leaves the transaction usable
+     *
+     * @return false when a row for the digest was committed by someone else
+     */
+    private boolean insertIfAbsent(MediaKind kind, String digest, long size) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                jdbcTemplate.update("INSERT INTO media_blobs (kind, digest, size, reference_count, created_at) "
+                        + "VALUES (?, ?, ?, 1, ?)", kind.name(), digest, size, LocalDateTime.now());
+            } catch (DataIntegrityViolationException ex) {
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+
+    /**
+     * Count an acquire as in flight until its transaction completes
+     */
+    private void holdUntilCompletion(BlobKey key) {
+        synchronized (pendingAcquires) {
+            pendingAcquires.merge(key, 1, Integer::sum);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (pendingAcquires) {
+                    pendingAcquires.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete content outside the database unless the digest was referenced
+     * again since its row was deleted. An acquire that starts after this
+     * returns finds no row and saves the content afresh.
+     */
+    private void deleteIfStillUnreferenced(BlobKey key) {
+        synchronized (pendingAcquires) {
+            if (pendingAcquires.containsKey(key)
+                    || mediaBlobRepository.existsByKindAndDigest(key.kind(), key.digest())) {
+                return;
+            }
+            mediaStore.delete(key.kind(), key.digest());
+        }
+    }
+
+    private static ThreadFactory crc32ThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("media-crc32-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private void evictAfterCommit(MediaKind kind, String digest) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mediaCache.invalidate(kind, digest);
+            }
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.MediaCacheStatsDto;
+import com.arpit.MusicApp.entity.MediaKind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of media content in fixed-size segments, bounded by bytes.
+ *
+ * Blobs are content addressed, so a cached segment can never go stale; it is
+ * only dropped by eviction or when its blob is deleted. Segments let range
+ * requests and seeks warm only the parts of a track that are actually played.
+ *
+ * Admission is TinyLFU-style: every access is counted in a small count-min
+ * sketch, and when the cache is full a new segment only gets in if it has
+ * been requested more often than each least recently used segment it would
+ * displace. A one-off scan through the catalog therefore cannot flush the
+ * trending tracks. Segments can be kept off-heap (direct buffers) so a large
+ * cache adds almost nothing to GC work.
+ *
+ * Concurrent misses on the same segment share one load from the store.
+ * Content that the store can hand to sendfile is never cached, the OS page
+ * cache already serves it without copies.
+ */
+@Component
+public class MediaCache {
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int segmentSize;
+    private final boolean offHeap;
+
+    private final LinkedHashMap<SegmentKey, ByteBuffer> segments = new LinkedHashMap<>(256, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long usedBytes;
+    // Segments being loaded, for misses on them to wait for rather than load again
+    private final Map<SegmentKey, CompletableFuture<ByteBuffer>> loading = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public MediaCache(@Value("${media.cache.enabled:true}") boolean enabled,
+                      @Value("${media.cache.max-size:256MB}") DataSize maxSize,
+                      @Value("${media.cache.segment-size:1MB}") DataSize segmentSize,
+                      @Value("${media.cache.off-heap:false}") boolean offHeap) {
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+        this.offHeap = offHeap;
+        this.sketch = new FrequencySketch(Math.max(1, maxBytes / this.segmentSize));
+    }
+
+    /**
+     * Copy a slice of a blob to the output stream, serving cached segments
+     * from memory and loading missing ones from the store
+     *
+     * @param length Total length of the blob
+     */
+    public void copyTo(MediaStore store, MediaKind kind, String digest, long length,
+                       OutputStream out, long offset, long count) throws IOException {
+        if (!enabled || store.localFile(kind, digest).isPresent()) {
+            store.copyTo(kind, digest, out, offset, count);
+            return;
+        }
+
+        WritableByteChannel channel = Channels.newChannel(out);
+        long end = offset + count;
+        long position = offset;
+        while (position < end) {
+            long index = position / segmentSize;
+            long segmentStart = index * segmentSize;
+            int segmentLength = (int) Math.min(segmentSize, length - segmentStart);
+            int from = (int) (position - segmentStart);
+            int sliceLength = (int) Math.min(segmentLength - from, end - position);
+
+            SegmentKey key = new SegmentKey(kind, digest, index);
+            ByteBuffer segment = get(key);
+            if (segment == null) {
+                segment = loadShared(store, key, segmentStart, segmentLength);
+            }
+
+            if (segment != null) {
+                ByteBuffer slice = segment.duplicate();
+                slice.position(from).limit(from + sliceLength);
+                while (slice.hasRemaining()) {
+                    channel.write(slice);
+                }
+            } else {
+                store.copyTo(kind, digest, out, position, sliceLength);
+            }
+            position += sliceLength;
+        }
+    }
+
+    /**
+     * Drop every cached segment of a blob, called when the blob is deleted
+     */
+    public synchronized void invalidate(MediaKind kind, String digest) {
+        Iterator<Map.Entry<SegmentKey, ByteBuffer>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<SegmentKey, ByteBuffer> entry = iterator.next();
+            if (entry.getKey().kind() == kind && entry.getKey().digest().equals(digest)) {
+                usedBytes -= entry.getValue().capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized MediaCacheStatsDto getStats() {
+        long hitCount = hits.get();
+        long requestCount = hitCount + misses.get();
+        return new MediaCacheStatsDto(enabled, offHeap, maxBytes, usedBytes, segments.size(), hitCount,
+                misses.get(), evictions.get(), rejections.get(),
+                requestCount == 0 ? 0 : (double) hitCount / requestCount);
+    }
+
+    private synchronized ByteBuffer get(SegmentKey key) {
+        sketch.increment(key);
+        ByteBuffer segment = segments.get(key);
+        if (segment != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return segment;
+    }
+
+    /**
+     * Decide whether a missing segment is worth caching, evicting the least
+     * recently used segments it displaces if so
+     */
+    private synchronized boolean admit(SegmentKey key, int weight) {
+        if (weight > maxBytes) {
+            rejections.incrementAndGet();
+            return false;
+        }
+        if (usedBytes + weight <= maxBytes) {
+            return true;
+        }
+
+        int candidateFrequency = sketch.frequency(key);
+        List<SegmentKey> victims = new ArrayList<>();
+        long freed = 0;
+        for (Map.Entry<SegmentKey, ByteBuffer> entry : segments.entrySet()) {
+            if (sketch.frequency(entry.getKey()) >= candidateFrequency) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            victims.add(entry.getKey());
+            freed += entry.getValue().capacity();
+            if (usedBytes - freed + weight <= maxBytes) {
+                break;
+            }
+        }
+        for (SegmentKey victim : victims) {
+            usedBytes -= segments.remove(victim).capacity();
+            evictions.incrementAndGet();
+        }
+        return true;
+    }
+
+    private synchronized void put(SegmentKey key, ByteBuffer segment) {
+        ByteBuffer previous = segments.put(key, segment);
+        if (previous != null) {
+            usedBytes -= previous.capacity();
+        }
+        usedBytes += segment.capacity();
+
+        // Concurrent loads may have overshot the reservation made by admit()
+        Iterator<ByteBuffer> iterator = segments.values().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().capacity();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Load and cache a missing segment if it is admitted, or wait for a
+     * concurrent miss that is already loading it
+     *
+     * @return The segment, or null to read the slice from the store instead
+     */
+    private ByteBuffer loadShared(MediaStore store, SegmentKey key, long start, int length) throws IOException {
+        CompletableFuture<ByteBuffer> pending;
+        CompletableFuture<ByteBuffer> load = new CompletableFuture<>();
+        synchronized (this) {
+            pending = loading.get(key);
+            if (pending == null) {
+                if (!admit(key, length)) {
+                    return null;
+                }
+                loading.put(key, load);
+            }
+        }
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException ex) {
+                // The other load failed; this request reads the store and reports its own error
+                return null;
+            }
+        }
+
+        try {
+            ByteBuffer segment = load(store, key, start, length);
+            put(key, segment);
+            load.complete(segment);
+            return segment;
+        } catch (IOException | RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            synchronized (this) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    private ByteBuffer load(MediaStore store, SegmentKey key, long start, int length) throws IOException {
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        store.copyTo(key.kind(), key.digest(), new ByteBufferOutputStream(buffer), start, length);
+        if (buffer.position() != length) {
+            // Caching it would serve the missing bytes as a shorter segment forever
+            throw new IOException("Media blob " + key.digest() + " ended " + (length - buffer.position())
+                    + " bytes early in segment " + key.index());
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private record SegmentKey(MediaKind kind, String digest, long index) {
+    }
+
+    /**
+     * OutputStream filling a pre-sized buffer
+     */
+    private static class ByteBufferOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.put(b, off, len);
+        }
+    }
+
+    /**
+     * Count-min sketch of access frequencies with counters saturating at 15.
+     * All counters are halved after a sample period so that popularity decays
+     * and yesterday's hits do not block today's.
+     */
+    static class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final int[][] table;
+        private final int mask;
+        private final long samplePeriod;
+        private long additions;
+
+        FrequencySketch(long expectedEntries) {
+            int width = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64, expectedEntries * 8)) - 1) << 1;
+            this.table = new int[DEPTH][width];
+            this.mask = width - 1;
+            this.samplePeriod = 10L * width;
+        }
+
+        void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (table[row][index] < MAX_COUNT) {
+                    table[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= samplePeriod) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, table[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+
+        private void reset() {
+            for (int[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Media container formats accepted for upload, recognized by their magic bytes
+ * rather than by the client-supplied Content-Type or file extension.
+ */
+public enum MediaFormat {
+    MP3(MediaKind.AUDIO, "audio/mpeg"),
+    WAV(MediaKind.AUDIO, "audio/wav"),
+    FLAC(MediaKind.AUDIO, "audio/flac"),
+    OGG(MediaKind.AUDIO, "audio/ogg"),
+    MP4_AUDIO(MediaKind.AUDIO, "audio/mp4"),
+    JPEG(MediaKind.COVER, "image/jpeg"),
+    PNG(MediaKind.COVER, "image/png"),
+    GIF(MediaKind.COVER, "image/gif"),
+    WEBP(MediaKind.COVER, "image/webp");
+
+    /**
+     * Number of leading bytes needed to tell the formats apart
+     */
+    public static final int SNIFF_LENGTH = 12;
+
+    private final MediaKind kind;
+    private final String contentType;
+
+    MediaFormat(MediaKind kind, String contentType) {
+        this.kind = kind;
+        this.contentType = contentType;
+    }
+
+    public MediaKind getKind() {
+        return kind;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Identify the format from the first bytes of the content
+     *
+     * @param header Leading bytes of the content
+     * @param length Number of valid bytes in the header, may be below SNIFF_LENGTH for tiny files
+     */
+    public static Optional<MediaFormat> detect(byte[] header, int length) {
+        if (startsWith(header, length, 0, "ID3")) {
+            return Optional.of(MP3);
+        }
+        // MPEG audio frame sync; a zero layer field would be AAC (ADTS) instead
+        if (length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0 && (header[1] & 0x06) != 0) {
+            return Optional.of(MP3);
+        }
+        if (startsWith(header, length, 0, "RIFF") && startsWith(header, length, 8, "WAVE")) {
+            return Optional.of(WAV);
+        }
+        if (startsWith(header, length, 0, "RIFF") && startsWith(header, length, 8, "WEBP")) {
+            return Optional.of(WEBP);
+        }
+        if (startsWith(header, length, 0, "fLaC")) {
+            return Optional.of(FLAC);
+        }
+        if (startsWith(header, length, 0, "OggS")) {
+            return Optional.of(OGG);
+        }
+        if (startsWith(header, length, 4, "ftyp")) {
+            return Optional.of(MP4_AUDIO);
+        }
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return Optional.of(JPEG);
+        }
+        if (length >= 8 && (header[0] & 0xFF) == 0x89 && startsWith(header, length, 1, "PNG\r\n\u001a\n")) {
+            return Optional.of(PNG);
+        }
+        if (startsWith(header, length, 0, "GIF87a") || startsWith(header, length, 0, "GIF89a")) {
+            return Optional.of(GIF);
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, String magic) {
+        byte[] expected = magic.getBytes(StandardCharsets.ISO_8859_1);
+        if (length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (header[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,103 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.exception.BusinessValidationException;
+import com.arpit.MusicApp.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming ingestion of uploaded media.
+ *
+ * The multipart part is moved to the spool directory (a rename when the
+ * container already buffered it to disk), then read exactly once through a
+ * small buffer to compute its SHA-256, detect the format from magic bytes and
+ * extract duration or dimensions. Memory use is constant regardless of the
+ * upload size, so parallel bulk uploads do not pressure the heap.
+ */
+@Service
+public class MediaIngestService {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${media.upload.max-image-pixels:40000000}")
+    private long maxImagePixels;
+
+    /**
+     * Spool and inspect a multipart upload
+     *
+     * @param kind What the upload is expected to contain
+     * @param file The uploaded part
+     * @return The inspected upload; its spooled file belongs to the caller
+     * @throws BusinessValidationException if the content is not a supported format of the expected kind
+     */
+    public IngestedMedia ingest(MediaKind kind, MultipartFile file) throws IOException {
+        Path spooledFile = fileStorageService.createSpoolFile();
+        try {
+            file.transferTo(spooledFile);
+            return ingest(kind, spooledFile);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(spooledFile);
+            throw ex;
+        }
+    }
+
+    /**
+     * Inspect content that is already on disk. The file is not moved or deleted.
+     */
+    public IngestedMedia ingest(MediaKind kind, Path spooledFile) throws IOException {
+        try (HashingInputStream hashing = new HashingInputStream(Files.newInputStream(spooledFile))) {
+            // Hash below the buffer so read-ahead is accounted for, probe above it for mark/reset
+            InputStream in = new BufferedInputStream(hashing, READ_BUFFER_SIZE);
+
+            in.mark(MediaFormat.SNIFF_LENGTH);
+            byte[] header = in.readNBytes(MediaFormat.SNIFF_LENGTH);
+            in.reset();
+
+            MediaFormat format = MediaFormat.detect(header, header.length)
+                    .filter(detected -> detected.getKind() == kind)
+                    .orElseThrow(() -> new BusinessValidationException(
+                            "Unsupported " + describe(kind) + " format", "INVALID_MEDIA"));
+
+            MediaMetadata metadata;
+            try {
+                metadata = MediaProbe.probe(format, in);
+            } catch (IOException ex) {
+                // Truncated or odd headers only cost us the metadata, not the upload
+                metadata = new MediaMetadata(format, null, null, null);
+            }
+            validateDimensions(metadata);
+
+            hashing.drain();
+            return new IngestedMedia(kind, hashing.getDigestHex(), hashing.getByteCount(), hashing.getCrc32(),
+                    metadata, spooledFile);
+        }
+    }
+
+    private void validateDimensions(MediaMetadata metadata) {
+        if (metadata.getWidth() == null || metadata.getHeight() == null) {
+            return;
+        }
+        long pixels = (long) metadata.getWidth() * metadata.getHeight();
+        if (metadata.getWidth() <= 0 || metadata.getHeight() <= 0 || pixels > maxImagePixels) {
+            throw new BusinessValidationException(
+                    "Cover image dimensions " + metadata.getWidth() + "x" + metadata.getHeight() + " are not allowed",
+                    "INVALID_MEDIA");
+        }
+    }
+
+    private static String describe(MediaKind kind) {
+        return kind == MediaKind.AUDIO ? "audio" : "cover image";
+    }
+}
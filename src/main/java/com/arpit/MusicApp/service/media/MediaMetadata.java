@@ -0,0 +1,19 @@
+package com.arpit.MusicApp.service.media;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Technical metadata extracted from uploaded content.
+ * Fields that could not be determined for a format are null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaMetadata {
+    private MediaFormat format;
+    private Integer durationSeconds; // audio only
+    private Integer width; // images only, in pixels
+    private Integer height; // images only, in pixels
+}
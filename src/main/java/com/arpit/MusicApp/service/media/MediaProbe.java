@@ -0,0 +1,135 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extracts duration and dimensions from media content in a single forward pass.
+ *
+ * Parsers read only headers and skip everything else, so memory use does not
+ * depend on the size of the content. Formats without a cheap way to get a
+ * value simply leave it null.
+ */
+public final class MediaProbe {
+
+    private MediaProbe() {
+    }
+
+    /**
+     * Probe content of a known format. The stream is positioned at the start
+     * of the content and may be left anywhere before its end.
+     */
+    public static MediaMetadata probe(MediaFormat format, InputStream in) throws IOException {
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setFormat(format);
+        DataInputStream data = new DataInputStream(in);
+
+        switch (format) {
+            case MP3 -> {
+                Mp3FrameScanner.Result result = new Mp3FrameScanner().scan(in);
+                if (result.getFrameCount() > 0) {
+                    metadata.setDurationSeconds((int) Math.round(result.getDurationSeconds()));
+                }
+            }
+            case WAV -> probeWav(data, metadata);
+            case FLAC -> probeFlac(data, metadata);
+            case PNG -> {
+                // Signature (8) + IHDR length (4) + "IHDR" (4), then width and height
+                data.skipNBytes(16);
+                metadata.setWidth(data.readInt());
+                metadata.setHeight(data.readInt());
+            }
+            case GIF -> {
+                data.skipNBytes(6);
+                metadata.setWidth(readLittleEndianShort(data));
+                metadata.setHeight(readLittleEndianShort(data));
+            }
+            case JPEG -> probeJpeg(data, metadata);
+            default -> {
+                // OGG, MP4 and WebP need full demuxing to get anything useful
+            }
+        }
+        return metadata;
+    }
+
+    private static void probeWav(DataInputStream data, MediaMetadata metadata) throws IOException {
+        data.skipNBytes(12); // "RIFF", size, "WAVE"
+        long byteRate = 0;
+        while (true) {
+            byte[] chunkId = data.readNBytes(4);
+            if (chunkId.length < 4) {
+                return;
+            }
+            long chunkSize = readLittleEndianInt(data) & 0xFFFFFFFFL;
+            String id = new String(chunkId, StandardCharsets.US_ASCII);
+            if (id.equals("fmt ")) {
+                data.skipNBytes(8); // format tag, channels, sample rate
+                byteRate = readLittleEndianInt(data) & 0xFFFFFFFFL;
+                data.skipNBytes(chunkSize - 12 + (chunkSize & 1));
+            } else if (id.equals("data")) {
+                if (byteRate > 0) {
+                    metadata.setDurationSeconds((int) Math.round((double) chunkSize / byteRate));
+                }
+                return;
+            } else {
+                data.skipNBytes(chunkSize + (chunkSize & 1));
+            }
+        }
+    }
+
+    private static void probeFlac(DataInputStream data, MediaMetadata metadata) throws IOException {
+        // "fLaC", metadata block header (4), min/max block size (4), min/max frame size (6)
+        data.skipNBytes(18);
+        // 20 bits sample rate, 3 bits channels, 5 bits bits-per-sample, 36 bits total samples
+        long packed = data.readLong();
+        long sampleRate = packed >>> 44;
+        long totalSamples = packed & 0xFFFFFFFFFL;
+        if (sampleRate > 0 && totalSamples > 0) {
+            metadata.setDurationSeconds((int) Math.round((double) totalSamples / sampleRate));
+        }
+    }
+
+    private static void probeJpeg(DataInputStream data, MediaMetadata metadata) throws IOException {
+        data.skipNBytes(2); // SOI
+        while (true) {
+            int b = data.read();
+            if (b == -1) {
+                return;
+            }
+            if (b != 0xFF) {
+                continue;
+            }
+            int marker = data.read();
+            while (marker == 0xFF) {
+                marker = data.read();
+            }
+            if (marker == -1 || marker == 0xDA || marker == 0xD9) {
+                return; // start of scan or end of image without a frame header
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                continue; // standalone markers carry no length
+            }
+            int length = data.readUnsignedShort();
+            boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (startOfFrame) {
+                data.skipNBytes(1); // sample precision
+                metadata.setHeight(data.readUnsignedShort());
+                metadata.setWidth(data.readUnsignedShort());
+                return;
+            }
+            data.skipNBytes(length - 2);
+        }
+    }
+
+    private static int readLittleEndianShort(DataInputStream data) throws IOException {
+        return data.readUnsignedByte() | data.readUnsignedByte() << 8;
+    }
+
+    static int readLittleEndianInt(DataInputStream data) throws IOException {
+        return data.readUnsignedByte() | data.readUnsignedByte() << 8
+                | data.readUnsignedByte() << 16 | data.readUnsignedByte() << 24;
+    }
+}
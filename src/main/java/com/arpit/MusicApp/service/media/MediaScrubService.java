@@ -0,0 +1,365 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.MediaScrubStatsDto;
+import com.arpit.MusicApp.entity.MediaBlob;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.exception.FileStorageException;
+import com.arpit.MusicApp.repository.MediaBlobRepository;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.repository.UploadSessionRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the upload directories and the media store consistent with the database.
+ *
+ * Each run has two parts:
+ * <ul>
+ *   <li>Orphan collection: every file under the song, cover and spool
+ *       directories must belong to a media blob, a song's legacy file path or
+ *       a live upload session. Anything else (content of rolled-back uploads,
+ *       files of deleted songs from before content addressing, abandoned
+ *       spool files) is deleted once it is older than the grace period, which
+ *       keeps in-flight uploads safe.</li>
+ *   <li>Integrity scrub: blob content is read back from the store and hashed,
+ *       since the digest is the checksum. Mismatches (bit rot) and missing
+ *       content are reported, never repaired automatically. Intact blobs
+ *       stored before CRC-32s were recorded get theirs saved on the way. A
+ *       run verifies up to media.scrub.verify-bytes-per-run and the next run
+ *       continues from there, so large libraries are covered over several
+ *       runs.</li>
+ * </ul>
+ * All reads share one token bucket (media.scrub.rate) so the scrubber never
+ * competes with playback for disk bandwidth.
+ */
+@Service
+public class MediaScrubService {
+
+    private static final Logger logger = LogManager.getLogger(MediaScrubService.class);
+
+    private static final int VERIFY_PAGE_SIZE = 100;
+    private static final int MAX_REPORTED_PROBLEMS = 100;
+
+    private static final Pattern CONTENT_PATH = Pattern.compile("(?:(thumbnails)/)?[0-9a-f]{2}/([0-9a-f]{64})");
+    private static final Pattern SESSION_SPOOL_FILE = Pattern.compile("session-(.+)\\.part");
+
+    @Autowired
+    private MediaBlobRepository mediaBlobRepository;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private MediaBlobService mediaBlobService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${media.scrub.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.scrub.grace-period:48h}")
+    private Duration gracePeriod;
+
+    @Value("${media.scrub.delete-orphans:true}")
+    private boolean deleteOrphans;
+
+    @Value("${media.scrub.rate:16MB}")
+    private DataSize rate;
+
+    @Value("${media.scrub.verify-bytes-per-run:10GB}")
+    private DataSize verifyBytesPerRun;
+
+    // Its own thread, a run can take hours and must not hold up the scheduler or other media work
+    private final SimpleAsyncTaskExecutor scrubExecutor = new SimpleAsyncTaskExecutor("media-scrub-");
+    private final AtomicBoolean running = new AtomicBoolean();
+    private TokenBucket ioBudget;
+    private long verifyCursor; // id of the last blob verified, 0 to start a new pass
+
+    // Guarded by this
+    private final MediaScrubStatsDto stats = new MediaScrubStatsDto();
+    private final Set<String> missingBlobs = new LinkedHashSet<>();
+    private final Set<String> corruptBlobs = new LinkedHashSet<>();
+
+    @Scheduled(fixedDelayString = "${media.scrub.interval:PT24H}", initialDelayString = "${media.scrub.initial-delay:PT1H}")
+    public void scheduledScrub() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Start a run in the background
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        scrubExecutor.execute(() -> {
+            try {
+                scrub();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public synchronized MediaScrubStatsDto getStats() {
+        return new MediaScrubStatsDto(running.get(), stats.getRuns(), stats.getLastStartedAt(), stats.getLastFinishedAt(),
+                stats.getFilesScanned(), stats.getOrphansFound(), stats.getOrphansDeleted(), stats.getBytesReclaimed(),
+                stats.getBlobsVerified(), stats.getBytesVerified(), stats.getVerifyPasses(), stats.getThrottledMillis(),
+                new ArrayList<>(missingBlobs), new ArrayList<>(corruptBlobs));
+    }
+
+    private void scrub() {
+        synchronized (this) {
+            stats.setRuns(stats.getRuns() + 1);
+            stats.setLastStartedAt(LocalDateTime.now());
+        }
+        ioBudget = rate.toBytes() > 0 ? new TokenBucket(rate.toBytes(), rate.toBytes(), 0) : null;
+        try {
+            collectOrphans();
+            verifyBlobs();
+        } catch (InterruptedIOException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Media scrub aborted", ex);
+        } finally {
+            synchronized (this) {
+                stats.setLastFinishedAt(LocalDateTime.now());
+                logger.info("Media scrub finished: {} orphans deleted ({} bytes), {} missing and {} corrupt blobs known",
+                        stats.getOrphansDeleted(), stats.getBytesReclaimed(), missingBlobs.size(), corruptBlobs.size());
+            }
+        }
+    }
+
+    private void collectOrphans() throws IOException {
+        Set<Path> legacyFiles = new HashSet<>();
+        Stream.concat(songRepository.findAllFilePaths().stream(), songRepository.findAllCoverImagePaths().stream())
+                .forEach(storedPath -> {
+                    try {
+                        legacyFiles.add(fileStorageService.resolveStoredPath(storedPath));
+                    } catch (FileStorageException ex) {
+                        // Not a path of ours, e.g. an external URL
+                    }
+                });
+
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        collectOrphans(fileStorageService.getFileStorageLocation(), cutoff,
+                file -> isReferenced(fileStorageService.getFileStorageLocation(), file, MediaKind.AUDIO, legacyFiles));
+        collectOrphans(fileStorageService.getCoverStorageLocation(), cutoff,
+                file -> isReferenced(fileStorageService.getCoverStorageLocation(), file, MediaKind.COVER, legacyFiles));
+        collectOrphans(fileStorageService.getSpoolLocation(), cutoff, this::isLiveSpoolFile);
+    }
+
+    private void collectOrphans(Path root, Instant cutoff, Predicate<Path> isReferenced) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException ex) {
+                continue; // deleted since the walk
+            }
+            synchronized (this) {
+                stats.setFilesScanned(stats.getFilesScanned() + 1);
+            }
+            if (attributes.lastModifiedTime().toInstant().isAfter(cutoff) || isReferenced.test(file)) {
+                continue;
+            }
+            synchronized (this) {
+                stats.setOrphansFound(stats.getOrphansFound() + 1);
+            }
+            // Checked again right before deleting, content may have been claimed meanwhile
+            if (deleteOrphans && !isReferenced.test(file) && Files.deleteIfExists(file)) {
+                logger.info("Deleted orphaned media file {} ({} bytes)", file, attributes.size());
+                synchronized (this) {
+                    stats.setOrphansDeleted(stats.getOrphansDeleted() + 1);
+                    stats.setBytesReclaimed(stats.getBytesReclaimed() + attributes.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Content-addressed files belong to their blob, anything else must be
+     * the legacy file path of a song
+     */
+    private boolean isReferenced(Path root, Path file, MediaKind kind, Set<Path> legacyFiles) {
+        Matcher contentPath = CONTENT_PATH.matcher(root.relativize(file).toString().replace('\\', '/'));
+        if (contentPath.matches()) {
+            MediaKind contentKind = contentPath.group(1) != null ? MediaKind.THUMBNAIL : kind;
+            return mediaBlobRepository.existsByKindAndDigest(contentKind, contentPath.group(2));
+        }
+        return legacyFiles.contains(file.normalize());
+    }
+
+    /**
+     * Spool files of resumable uploads live as long as their session; other
+     * spool files are temporary and only protected by the grace period
+     */
+    private boolean isLiveSpoolFile(Path file) {
+        Matcher sessionFile = SESSION_SPOOL_FILE.matcher(file.getFileName().toString());
+        return sessionFile.matches() && uploadSessionRepository.existsById(sessionFile.group(1));
+    }
+
+    /**
+     * Hash blobs from where the previous run stopped until the byte budget of
+     * this run is spent, wrapping around once every blob has been checked
+     */
+    private void verifyBlobs() throws IOException {
+        long budget = verifyBytesPerRun.toBytes();
+        long verified = 0;
+        while (verified < budget) {
+            List<MediaBlob> blobs = mediaBlobRepository.findByIdGreaterThanOrderByIdAsc(verifyCursor,
+                    PageRequest.of(0, VERIFY_PAGE_SIZE));
+            if (blobs.isEmpty()) {
+                if (verifyCursor == 0) {
+                    return; // no blobs at all
+                }
+                verifyCursor = 0;
+                synchronized (this) {
+                    stats.setVerifyPasses(stats.getVerifyPasses() + 1);
+                }
+                return;
+            }
+            for (MediaBlob blob : blobs) {
+                verify(blob);
+                verifyCursor = blob.getId();
+                verified += blob.getSize();
+                if (verified >= budget) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void verify(MediaBlob blob) throws InterruptedIOException {
+        String key = blob.getKind() + ":" + blob.getDigest();
+        MessageDigest sha256 = sha256();
+        CRC32 crc32 = new CRC32();
+        long[] length = {0};
+        try {
+            long size = mediaStore.size(blob.getKind(), blob.getDigest());
+            mediaStore.copyTo(blob.getKind(), blob.getDigest(), new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    throttle(len);
+                    sha256.update(b, off, len);
+                    crc32.update(b, off, len);
+                    length[0] += len;
+                }
+            }, 0, size);
+        } catch (InterruptedIOException ex) {
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
+            if (!mediaBlobRepository.existsByKindAndDigest(blob.getKind(), blob.getDigest())) {
+                return; // deleted while being verified
+            }
+            logger.error("Content of {} blob {} is missing or unreadable", blob.getKind(), blob.getDigest(), ex);
+            synchronized (this) {
+                report(missingBlobs, key);
+            }
+            return;
+        }
+
+        String digest = HexFormat.of().formatHex(sha256.digest());
+        boolean intact = digest.equals(blob.getDigest()) && length[0] == blob.getSize();
+        if (!intact) {
+            logger.error("Content of {} blob {} is corrupt: {} bytes hashing to {}, expected {} bytes",
+                    blob.getKind(), blob.getDigest(), length[0], digest, blob.getSize());
+            mediaCache.invalidate(blob.getKind(), blob.getDigest());
+        } else {
+            mediaBlobService.recordCrc32(blob, crc32.getValue());
+        }
+        synchronized (this) {
+            missingBlobs.remove(key);
+            if (intact) {
+                corruptBlobs.remove(key);
+            } else {
+                report(corruptBlobs, key);
+            }
+            stats.setBlobsVerified(stats.getBlobsVerified() + 1);
+            stats.setBytesVerified(stats.getBytesVerified() + length[0]);
+        }
+    }
+
+    private void report(Set<String> problems, String key) {
+        if (problems.size() < MAX_REPORTED_PROBLEMS) {
+            problems.add(key);
+        }
+    }
+
+    private void throttle(long bytes) throws InterruptedIOException {
+        if (ioBudget == null) {
+            return;
+        }
+        long waited = ioBudget.acquire(bytes);
+        if (waited > 0) {
+            synchronized (this) {
+                stats.setThrottledMillis(stats.getThrottledMillis() + waited / 1_000_000);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * A readable piece of media (audio track or cover image) that can be served
+ * in whole or in byte ranges without the caller knowing where it is stored.
+ */
+public interface MediaSource {
+
+    /**
+     * Total size of the media in bytes
+     */
+    long length();
+
+    /**
+     * MIME type to send as Content-Type, never null
+     */
+    String contentType();
+
+    /**
+     * Original filename used for Content-Disposition, may be null
+     */
+    String filename();
+
+    /**
+     * Last modification time used for Last-Modified / If-Range, may be null
+     */
+    LocalDateTime lastModified();
+
+    /**
+     * Strong entity tag identifying this exact content (quoted), may be null
+     */
+    default String eTag() {
+        return null;
+    }
+
+    /**
+     * Playback time in seconds at which the content starts, 0 unless it was cut for a seek
+     */
+    default double startSeconds() {
+        return 0;
+    }
+
+    /**
+     * Copy {@code count} bytes starting at {@code offset} to the given stream.
+     * Implementations must only read the requested slice from storage.
+     */
+    void writeTo(OutputStream out, long offset, long count) throws IOException;
+
+    /**
+     * File on local disk holding exactly this content, if any.
+     * When present the response may be sent with zero-copy sendfile.
+     */
+    default Optional<Path> localFile() {
+        return Optional.empty();
+    }
+}
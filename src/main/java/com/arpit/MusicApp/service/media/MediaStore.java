@@ -0,0 +1,60 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Content-addressed storage backend for song payloads.
+ *
+ * Exactly one implementation is active, selected with the
+ * {@code media.store.type} property ({@code database} or {@code filesystem}).
+ * Content is keyed by kind and the SHA-256 digest of its bytes; bookkeeping
+ * (sizes, reference counts) lives in {@link com.arpit.MusicApp.entity.MediaBlob}.
+ */
+public interface MediaStore {
+
+    /**
+     * Persist the content of a spooled file under its digest.
+     * The store takes ownership of the file and may move it into place.
+     *
+     * @param kind Audio or cover image
+     * @param digest Hex SHA-256 of the file content
+     * @param spooledFile Temporary file holding the complete content
+     */
+    void save(MediaKind kind, String digest, Path spooledFile) throws IOException;
+
+    /**
+     * Size in bytes of stored content
+     */
+    long size(MediaKind kind, String digest) throws IOException;
+
+    /**
+     * Copy {@code count} bytes starting at {@code offset} to the output stream
+     */
+    void copyTo(MediaKind kind, String digest, OutputStream out, long offset, long count) throws IOException;
+
+    /**
+     * Local file holding the content, if the store keeps content on disk.
+     * Lets the web layer hand the file to the container's sendfile support.
+     */
+    default Optional<Path> localFile(MediaKind kind, String digest) {
+        return Optional.empty();
+    }
+
+    /**
+     * Whether writes take part in the surrounding database transaction.
+     * Non-transactional stores only get deletes after the transaction commits.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+
+    /**
+     * Remove stored content; missing content is ignored
+     */
+    void delete(MediaKind kind, String digest);
+}
@@ -0,0 +1,348 @@
+package com.arpit.MusicApp.service.media;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds HTTP responses for media content with RFC 9110 byte range support.
+ *
+ * Handles single ranges (206 + Content-Range), multiple ranges
+ * (206 multipart/byteranges), unsatisfiable ranges (416) and If-Range
+ * validation. Only the requested slices are read from the MediaSource.
+ *
+ * Conditional requests (If-None-Match, If-Modified-Since) are answered with
+ * 304 from the source's validators alone, without reading any content.
+ *
+ * When the source is a local file and the container supports it (Tomcat's
+ * NIO connector does by default), full and single-range GET responses are
+ * delegated to sendfile so the bytes go from page cache to socket without
+ * passing through the JVM.
+ *
+ * GET responses of a {@link PacedMediaSource} are written by a
+ * {@link PacedResponseWriter} in non-blocking mode, so a paced stream holds no
+ * thread while it waits for budget or for the client. Other bodies are
+ * written by a StreamingResponseBody, exempt from the async request timeout
+ * since a large body takes as long as the client needs to read it; a client
+ * that stops reading is cut off by the connector's write timeout instead.
+ */
+@Service
+public class MediaStreamingService {
+
+    private static final String CRLF = "\r\n";
+
+    // Request attributes understood by Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Build a streaming response for the given media, honoring conditional
+     * request headers, Range and If-Range
+     *
+     * @param source The media to serve
+     * @param requestHeaders Headers of the incoming request
+     * @param cacheControl Value for the Cache-Control header
+     * @return 304 if the client copy is current, 200 with the whole body, 206 with the requested ranges or 416
+     */
+    public ResponseEntity<StreamingResponseBody> stream(MediaSource source, HttpHeaders requestHeaders, String cacheControl) {
+        long length = source.length();
+        HttpHeaders headers = baseHeaders(source, cacheControl);
+
+        // Preconditions are evaluated before Range, a 304 never carries a body
+        if (isNotModified(requestHeaders, source)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(requestHeaders, source)) {
+            return fullResponse(source, headers);
+        }
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            // A malformed Range header must be ignored, not rejected
+            return fullResponse(source, headers);
+        }
+
+        List<long[]> ranges = resolveRanges(httpRanges, length);
+        if (ranges.isEmpty()) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            long count = end - start + 1;
+            headers.setContentType(MediaType.parseMediaType(source.contentType()));
+            headers.setContentLength(count);
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            if (trySendfile(source, start, count)
+                    || tryPaced(source, HttpStatus.PARTIAL_CONTENT, List.of(PacedResponseWriter.Part.slice(start, count)))) {
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+            disableAsyncTimeout();
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(out -> source.writeTo(out, start, count));
+        }
+
+        return multipartResponse(source, headers, ranges, length);
+    }
+
+    private HttpHeaders baseHeaders(MediaSource source, String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(cacheControl);
+        if (source.filename() != null) {
+            headers.setContentDisposition(ContentDisposition.inline().filename(source.filename()).build());
+        }
+        if (source.lastModified() != null) {
+            headers.setLastModified(toEpochMillis(source.lastModified()));
+        }
+        if (source.eTag() != null) {
+            headers.setETag(source.eTag());
+        }
+        return headers;
+    }
+
+    private ResponseEntity<StreamingResponseBody> fullResponse(MediaSource source, HttpHeaders headers) {
+        long length = source.length();
+        headers.setContentType(MediaType.parseMediaType(source.contentType()));
+        headers.setContentLength(length);
+        if (trySendfile(source, 0, length)
+                || tryPaced(source, HttpStatus.OK, List.of(PacedResponseWriter.Part.slice(0, length)))) {
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        disableAsyncTimeout();
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(out -> source.writeTo(out, 0, length));
+    }
+
+    /**
+     * Ask the container to send the file region itself once the headers are
+     * written. Only GET is eligible since HEAD must not carry a body.
+     *
+     * @return true if the response body will be produced by sendfile
+     */
+    private boolean trySendfile(MediaSource source, long start, long count) {
+        if (count == 0 || source.localFile().isEmpty()
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (!"GET".equals(request.getMethod()) || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            return false;
+        }
+        Path file = source.localFile().get();
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, start + count);
+        return true;
+    }
+
+    /**
+     * Hand the body of a paced source to a non-blocking writer, which starts
+     * once the handler has returned and the headers are written. Only GET is
+     * eligible since HEAD must not carry a body.
+     *
+     * @return true if the response body will be produced by the writer
+     */
+    private boolean tryPaced(MediaSource source, HttpStatus status, List<PacedResponseWriter.Part> parts) {
+        if (!(source instanceof PacedMediaSource paced)
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (!"GET".equals(request.getMethod()) || !request.isAsyncSupported()) {
+            return false;
+        }
+        try {
+            new PacedResponseWriter(paced, request.startAsync(), status.value(), parts).start();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Lift the async request timeout of the current request, before its
+     * StreamingResponseBody starts
+     */
+    private static void disableAsyncTimeout() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(attributes.getRequest()).getAsyncWebRequest();
+            if (asyncWebRequest != null) {
+                asyncWebRequest.setTimeout(-1L);
+            }
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> multipartResponse(MediaSource source, HttpHeaders headers,
+                                                                   List<long[]> ranges, long length) {
+        String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            String partHeader = CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + source.contentType() + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range[0], range[1], length) + CRLF
+                    + CRLF;
+            byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + (range[1] - range[0] + 1);
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        headers.setContentLength(contentLength);
+
+        List<PacedResponseWriter.Part> parts = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            parts.add(PacedResponseWriter.Part.literal(partHeaders.get(i)));
+            parts.add(PacedResponseWriter.Part.slice(ranges.get(i)[0], ranges.get(i)[1] - ranges.get(i)[0] + 1));
+        }
+        parts.add(PacedResponseWriter.Part.literal(closing));
+        if (tryPaced(source, HttpStatus.PARTIAL_CONTENT, parts)) {
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+        }
+
+        StreamingResponseBody body = out -> {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                source.writeTo(out, range[0], range[1] - range[0] + 1);
+            }
+            out.write(closing);
+        };
+        disableAsyncTimeout();
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
+    }
+
+    /**
+     * Resolve parsed ranges against the content length, dropping unsatisfiable
+     * ones and coalescing overlapping or adjacent ranges.
+     *
+     * @return inclusive [start, end] pairs in ascending order, empty if none is satisfiable
+     */
+    static List<long[]> resolveRanges(List<HttpRange> httpRanges, long length) {
+        List<long[]> resolved = new ArrayList<>();
+        for (HttpRange httpRange : httpRanges) {
+            long start;
+            long end;
+            try {
+                start = httpRange.getRangeStart(length);
+                end = httpRange.getRangeEnd(length);
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+            if (start < length && start <= end) {
+                resolved.add(new long[]{start, end});
+            }
+        }
+        resolved.sort(Comparator.comparingLong(range -> range[0]));
+
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : resolved) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * If-None-Match uses the weak comparison and takes precedence;
+     * If-Modified-Since is only consulted when no entity tags were sent.
+     */
+    private boolean isNotModified(HttpHeaders requestHeaders, MediaSource source) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            if (ifNoneMatch.contains("*")) {
+                return true;
+            }
+            if (source.eTag() == null) {
+                return false;
+            }
+            String current = opaqueTag(source.eTag());
+            return ifNoneMatch.stream().anyMatch(tag -> opaqueTag(tag).equals(current));
+        }
+
+        if (source.lastModified() == null) {
+            return false;
+        }
+        try {
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            return ifModifiedSince != -1 && toEpochMillis(source.lastModified()) / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException ex) {
+            // An invalid date is ignored
+            return false;
+        }
+    }
+
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * If-Range only allows a partial response when the validator still matches
+     * the current representation; otherwise the whole body must be sent.
+     */
+    private boolean ifRangeMatches(HttpHeaders requestHeaders, MediaSource source) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison, weak tags never match
+            return source.eTag() != null && ifRange.equals(source.eTag());
+        }
+        if (source.lastModified() == null) {
+            return false;
+        }
+        try {
+            long ifRangeDate = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            return ifRangeDate / 1000 == toEpochMillis(source.lastModified()) / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
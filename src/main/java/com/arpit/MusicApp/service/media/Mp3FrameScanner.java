@@ -0,0 +1,283 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Walks the MPEG audio frames of an MP3 stream in a single forward pass.
+ *
+ * Only the 4-byte frame headers are parsed; frame bodies are skipped, so the
+ * cost is one read of the stream with constant memory. A leading ID3v2 tag is
+ * skipped and garbage between frames is resynchronized byte by byte.
+ *
+ * Encoders of VBR files put a Xing, Info or VBRI header in the body of the
+ * first frame. That frame carries no audio, so it is recognized and left out
+ * of the frame count and duration.
+ */
+public class Mp3FrameScanner {
+
+    private static final int[][] BITRATES_MPEG1 = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},  // Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},     // Layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}       // Layer III
+    };
+    private static final int[][] BITRATES_MPEG2 = {
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},     // Layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},          // Layer II
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}           // Layer III
+    };
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},   // MPEG 2.5
+            {0, 0, 0},              // reserved
+            {22050, 24000, 16000},  // MPEG 2
+            {44100, 48000, 32000}   // MPEG 1
+    };
+
+    /**
+     * Summary of a scanned stream
+     */
+    public static class Result {
+        private long frameCount;
+        private long totalSamples;
+        private int sampleRate;
+        private long firstFrameOffset = -1;
+        private long endOffset;
+
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        public long getTotalSamples() {
+            return totalSamples;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public long getFirstFrameOffset() {
+            return firstFrameOffset;
+        }
+
+        /**
+         * Position just past the last audio frame, before any trailing tag
+         */
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        public double getDurationSeconds() {
+            return sampleRate > 0 ? (double) totalSamples / sampleRate : 0;
+        }
+    }
+
+    /**
+     * A parsed frame header
+     */
+    static class FrameHeader {
+        final int version;      // index into SAMPLE_RATES: 0 = MPEG 2.5, 2 = MPEG 2, 3 = MPEG 1
+        final int layer;        // 1, 2 or 3
+        final int bitrate;      // bits per second
+        final int sampleRate;
+        final boolean mono;
+        final int frameLength;  // bytes including the header
+        final int samples;      // samples per channel in this frame
+
+        FrameHeader(int version, int layer, int bitrate, int sampleRate, boolean mono, int frameLength, int samples) {
+            this.version = version;
+            this.layer = layer;
+            this.bitrate = bitrate;
+            this.sampleRate = sampleRate;
+            this.mono = mono;
+            this.frameLength = frameLength;
+            this.samples = samples;
+        }
+    }
+
+    /**
+     * Receives every audio frame found by a scan, in stream order
+     */
+    interface FrameListener {
+        void onFrame(long offset, FrameHeader header);
+    }
+
+    /**
+     * Scan the stream to its end
+     */
+    public Result scan(InputStream in) throws IOException {
+        return scan(in, null);
+    }
+
+    /**
+     * Scan the stream to its end, reporting each audio frame to the listener
+     *
+     * @param listener May be null
+     */
+    Result scan(InputStream in, FrameListener listener) throws IOException {
+        Result result = new Result();
+        long position = skipId3v2(in);
+        int window = 0;
+        int buffered = 0;
+        boolean firstFrame = true;
+
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                break;
+            }
+            window = (window << 8) | b;
+            position++;
+            if (++buffered < 4) {
+                continue;
+            }
+
+            FrameHeader header = parseHeader(window);
+            if (header == null) {
+                continue;
+            }
+
+            long frameOffset = position - 4;
+            long bodyLength = header.frameLength - 4;
+            long consumed;
+            boolean audio = true;
+            if (firstFrame) {
+                byte[] body = in.readNBytes((int) bodyLength);
+                consumed = body.length;
+                audio = !isVbrHeader(header, body);
+                firstFrame = false;
+            } else {
+                consumed = skipFully(in, bodyLength);
+            }
+            position += consumed;
+
+            if (audio) {
+                if (result.firstFrameOffset < 0) {
+                    result.firstFrameOffset = frameOffset;
+                    result.sampleRate = header.sampleRate;
+                }
+                result.frameCount++;
+                result.totalSamples += header.samples;
+                result.endOffset = position;
+                if (listener != null) {
+                    listener.onFrame(frameOffset, header);
+                }
+            }
+            if (consumed < bodyLength) {
+                break;
+            }
+            buffered = 0;
+            window = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Check whether a frame body holds a Xing/Info header (right after the
+     * side information) or a VBRI header (at a fixed position) instead of audio
+     */
+    private static boolean isVbrHeader(FrameHeader header, byte[] body) {
+        if (header.layer != 3) {
+            return false;
+        }
+        int sideInfoLength = header.version == 3 ? (header.mono ? 17 : 32) : (header.mono ? 9 : 17);
+        return hasTag(body, sideInfoLength, "Xing") || hasTag(body, sideInfoLength, "Info") || hasTag(body, 32, "VBRI");
+    }
+
+    private static boolean hasTag(byte[] body, int offset, String tag) {
+        if (body.length < offset + tag.length()) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (body[offset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skip an ID3v2 tag at the start of the stream
+     *
+     * @return the number of bytes consumed
+     */
+    private static long skipId3v2(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            return 0;
+        }
+        in.mark(10);
+        byte[] tag = in.readNBytes(10);
+        if (tag.length < 10 || tag[0] != 'I' || tag[1] != 'D' || tag[2] != '3') {
+            in.reset();
+            return 0;
+        }
+        // Tag size is a 28-bit syncsafe integer; bit 4 of the flags signals a 10-byte footer
+        long size = ((tag[6] & 0x7F) << 21) | ((tag[7] & 0x7F) << 14) | ((tag[8] & 0x7F) << 7) | (tag[9] & 0x7F);
+        if ((tag[5] & 0x10) != 0) {
+            size += 10;
+        }
+        return 10 + skipFully(in, size);
+    }
+
+    /**
+     * Skip n bytes, or up to the end of the stream. InputStream.skip may stop
+     * short (BufferedInputStream only skips what it has buffered), so loop.
+     *
+     * @return the number of bytes actually skipped
+     */
+    private static long skipFully(InputStream in, long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            long step = in.skip(n - skipped);
+            if (step <= 0) {
+                if (in.read() == -1) {
+                    break;
+                }
+                step = 1;
+            }
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    /**
+     * Parse a 4-byte MPEG audio frame header
+     *
+     * @return the header, or null if the bytes are not a valid header
+     */
+    static FrameHeader parseHeader(int header) {
+        if ((header >>> 21 & 0x7FF) != 0x7FF) {
+            return null;
+        }
+        int version = header >>> 19 & 0x3;
+        int layerBits = header >>> 17 & 0x3;
+        int bitrateIndex = header >>> 12 & 0xF;
+        int sampleRateIndex = header >>> 10 & 0x3;
+        if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return null;
+        }
+
+        int layer = 4 - layerBits;
+        boolean mpeg1 = version == 3;
+        int bitrate = (mpeg1 ? BITRATES_MPEG1 : BITRATES_MPEG2)[layer - 1][bitrateIndex] * 1000;
+        int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+        int padding = header >>> 9 & 0x1;
+        boolean mono = (header >>> 6 & 0x3) == 3;
+
+        int frameLength;
+        int samples;
+        if (layer == 1) {
+            frameLength = (12 * bitrate / sampleRate + padding) * 4;
+            samples = 384;
+        } else if (layer == 2 || mpeg1) {
+            frameLength = 144 * bitrate / sampleRate + padding;
+            samples = 1152;
+        } else {
+            frameLength = 72 * bitrate / sampleRate + padding;
+            samples = 576;
+        }
+        if (frameLength < 4) {
+            return null;
+        }
+        return new FrameHeader(version, layer, bitrate, sampleRate, mono, frameLength, samples);
+    }
+}
@@ -0,0 +1,78 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * A MediaSource whose bytes are to be released at a limited rate.
+ *
+ * The source carries the token bucket of its response, and
+ * {@link MediaStreamingService} hands GET responses of it to a
+ * {@link PacedResponseWriter}. No local file is exposed, so paced responses are
+ * never handed to sendfile, which would bypass the pacing. {@link #writeTo}
+ * itself does not pace; it serves what has no paced writer, such as HEAD.
+ */
+public class PacedMediaSource implements MediaSource {
+
+    private final MediaSource source;
+    private final BandwidthScheduler scheduler;
+    private final TokenBucket streamBucket;
+
+    /**
+     * @param streamBucket Budget of the response, null for no per-stream limit
+     */
+    PacedMediaSource(MediaSource source, BandwidthScheduler scheduler, TokenBucket streamBucket) {
+        this.source = source;
+        this.scheduler = scheduler;
+        this.streamBucket = streamBucket;
+    }
+
+    @Override
+    public long length() {
+        return source.length();
+    }
+
+    @Override
+    public String contentType() {
+        return source.contentType();
+    }
+
+    @Override
+    public String filename() {
+        return source.filename();
+    }
+
+    @Override
+    public LocalDateTime lastModified() {
+        return source.lastModified();
+    }
+
+    @Override
+    public String eTag() {
+        return source.eTag();
+    }
+
+    @Override
+    public double startSeconds() {
+        return source.startSeconds();
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long count) throws IOException {
+        source.writeTo(out, offset, count);
+    }
+
+    BandwidthScheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Reserve bytes from the budget of the response
+     *
+     * @return Nanoseconds until they may be sent
+     */
+    long reserve(int bytes) {
+        return streamBucket != null ? streamBucket.reserve(bytes) : 0;
+    }
+}
@@ -0,0 +1,268 @@
+package com.arpit.MusicApp.service.media;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the body of a paced response without holding a thread while it waits.
+ *
+ * The response is put in non-blocking mode. Each chunk is paid for from the
+ * response's own budget and then from the shared budget; when either
+ * asks for a wait the next step is put on the scheduler's timer. A chunk is
+ * taken once paid for and written only while the container reports the
+ * connection ready, so a slow reader is held back by TCP backpressure. Chunks
+ * are cut from a read-ahead of {@value #READ_AHEAD_SIZE} bytes, so the store is
+ * read in a few large slices rather than once per chunk; that read-ahead is
+ * what a response holds in memory. Steps run on the timer threads,
+ * one at a time per response. A connection that fails is completed here rather
+ * than left to the container's error page.
+ */
+class PacedResponseWriter implements WriteListener, AsyncListener {
+
+    private static final Logger logger = LogManager.getLogger(PacedResponseWriter.class);
+
+    static final int READ_AHEAD_SIZE = 16 * BandwidthScheduler.CHUNK_SIZE;
+
+    /**
+     * A piece of the body: literal bytes such as multipart headers, or a slice of the source
+     */
+    record Part(byte[] bytes, long offset, long count) {
+
+        static Part literal(byte[] bytes) {
+            return new Part(bytes, 0, bytes.length);
+        }
+
+        static Part slice(long offset, long count) {
+            return new Part(null, offset, count);
+        }
+    }
+
+    private final PacedMediaSource source;
+    private final BandwidthScheduler scheduler;
+    private final AsyncContext asyncContext;
+    private final int status;
+    private final List<Part> parts;
+    private final ArrayBuffer chunk = new ArrayBuffer(BandwidthScheduler.CHUNK_SIZE);
+    private ServletOutputStream out;
+
+    // Guarded by this
+    private int partIndex;
+    private long partPosition;
+    private ArrayBuffer readAhead; // allocated on the first slice
+    private long readAheadOffset; // source offset of readAhead's first byte
+    private boolean started;
+    private boolean streamPaid;
+    private boolean sharedPaid;
+    private long waited;
+    private long stalledSince; // System.nanoTime() when the client stopped accepting data, 0 while it does
+    private boolean finished;
+
+    /**
+     * @param asyncContext Started on the request, with headers still to be written by the handler
+     * @param status Status the handler answers with; anything else means the body must not be sent
+     */
+    PacedResponseWriter(PacedMediaSource source, AsyncContext asyncContext, int status, List<Part> parts) {
+        this.source = source;
+        this.scheduler = source.scheduler();
+        this.asyncContext = asyncContext;
+        this.status = status;
+        this.parts = parts;
+    }
+
+    /**
+     * Switch the response to non-blocking output. The container calls back
+     * once the dispatch that started it has returned, so the handler commits
+     * the status and headers before the first byte of body.
+     */
+    void start() throws IOException {
+        asyncContext.setTimeout(0); // stalled clients are dropped by the scheduler instead
+        out = asyncContext.getResponse().getOutputStream();
+        asyncContext.addListener(this);
+        scheduler.streamStarted(this);
+        out.setWriteListener(this);
+    }
+
+    @Override
+    public void onWritePossible() {
+        scheduler.execute(this::step);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.debug("Paced response aborted: {}", t.toString());
+        synchronized (this) {
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized void onError(AsyncEvent event) {
+        finish();
+        // Complete again even if already finished: the container only skips its
+        // error page when a listener completes the request from here
+        complete();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        scheduler.streamFinished(this);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        // No timeout is set
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    /**
+     * Drop the client if it has accepted no data for the timeout
+     */
+    synchronized void dropIfStalled(long now, long timeoutNanos) {
+        if (!finished && stalledSince != 0 && now - stalledSince > timeoutNanos) {
+            logger.info("Dropping paced response stalled for {} s", (now - stalledSince) / 1_000_000_000L);
+            finish();
+        }
+    }
+
+    private synchronized void step() {
+        if (finished) {
+            return;
+        }
+        try {
+            if (!started) {
+                started = true;
+                if (((HttpServletResponse) asyncContext.getResponse()).getStatus() != status) {
+                    finish(); // the handler answered otherwise, e.g. 412 on a failed precondition
+                    return;
+                }
+            }
+            while (true) {
+                if (chunk.size() > 0) {
+                    if (!out.isReady()) {
+                        stalledSince = System.nanoTime(); // onWritePossible follows once the client reads
+                        return;
+                    }
+                    stalledSince = 0;
+                    out.write(chunk.array(), 0, chunk.size());
+                    scheduler.recordSent(chunk.size(), waited);
+                    chunk.reset();
+                    waited = 0;
+                }
+                if (partIndex == parts.size()) {
+                    finish();
+                    return;
+                }
+                Part part = parts.get(partIndex);
+                if (part.bytes() != null) {
+                    chunk.write(part.bytes());
+                    partIndex++;
+                    continue;
+                }
+                int size = (int) Math.min(BandwidthScheduler.CHUNK_SIZE, part.count() - partPosition);
+                if (!streamPaid) {
+                    streamPaid = true;
+                    if (waitFor(source.reserve(size))) {
+                        return;
+                    }
+                }
+                if (!sharedPaid) {
+                    sharedPaid = true;
+                    if (waitFor(scheduler.reserveShared(size))) {
+                        return;
+                    }
+                }
+                copyChunk(part, size);
+                streamPaid = false;
+                sharedPaid = false;
+                partPosition += size;
+                if (partPosition == part.count()) {
+                    partIndex++;
+                    partPosition = 0;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Paced response aborted: {}", ex.toString());
+            finish();
+        }
+    }
+
+    /**
+     * Append the next size bytes of a slice to the chunk, reading ahead from the
+     * source as far as the slice goes when they are not buffered yet
+     */
+    private void copyChunk(Part part, int size) throws IOException {
+        long offset = part.offset() + partPosition;
+        if (readAhead == null) {
+            readAhead = new ArrayBuffer(READ_AHEAD_SIZE);
+        }
+        if (offset < readAheadOffset || offset + size > readAheadOffset + readAhead.size()) {
+            int count = (int) Math.min(READ_AHEAD_SIZE, part.count() - partPosition);
+            readAhead.reset();
+            source.writeTo(readAhead, offset, count);
+            readAheadOffset = offset;
+            if (readAhead.size() < size) {
+                throw new IOException("Media source ended " + (count - readAhead.size()) + " bytes early");
+            }
+        }
+        chunk.write(readAhead.array(), (int) (offset - readAheadOffset), size);
+    }
+
+    /**
+     * @return Whether the next step has been put on the timer
+     */
+    private boolean waitFor(long nanos) {
+        if (nanos <= 0) {
+            return false;
+        }
+        waited += nanos;
+        scheduler.schedule(this::step, nanos);
+        return true;
+    }
+
+    /**
+     * Complete the response; a body cut short makes the container close the connection
+     */
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        scheduler.streamFinished(this);
+        complete();
+    }
+
+    private void complete() {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException ex) {
+            // Already completed
+        }
+    }
+
+    /**
+     * Buffer whose array is read directly
+     */
+    private static class ArrayBuffer extends ByteArrayOutputStream {
+
+        ArrayBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
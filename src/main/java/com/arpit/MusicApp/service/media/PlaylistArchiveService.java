@@ -0,0 +1,124 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.entity.Playlist;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.exception.ResourceNotReadyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Builds downloadable ZIP archives of the audio in a playlist.
+ *
+ * Audio is already compressed, so entries are STORED and the archive is
+ * little more than the blobs back to back. Entry names and order follow the
+ * playlist, and timestamps come from the songs, so the same playlist always
+ * yields the same bytes and an interrupted download can resume with a range.
+ *
+ * The local headers need the CRC-32 of every song up front. It is recorded at
+ * upload; for audio stored before that it is computed in the background, and
+ * the download is answered with 503 and Retry-After until it is known.
+ */
+@Service
+public class PlaylistArchiveService {
+
+    private static final Pattern UNSAFE_NAME_CHARACTERS = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]+");
+    private static final Pattern EXTENSION = Pattern.compile("[A-Za-z0-9]{1,5}");
+    private static final int MAX_NAME_PART_LENGTH = 80;
+    private static final long CHECKSUM_RETRY_AFTER_SECONDS = 10;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private MediaBlobService mediaBlobService;
+
+    @Autowired
+    private BandwidthScheduler bandwidthScheduler;
+
+    /**
+     * Open the archive of a playlist. Songs without audio are left out.
+     * Downloads take part in the shared bandwidth budget but are not held to
+     * a playback bitrate.
+     */
+    public MediaSource open(Playlist playlist) {
+        List<Song> songs = playlist.getSongs() != null ? playlist.getSongs() : List.of();
+        List<String> digests = songs.stream().map(Song::getAudioDigest).filter(Objects::nonNull).toList();
+        Map<String, Long> checksums = mediaBlobService.findCrc32s(MediaKind.AUDIO, digests);
+        if (checksums.containsValue(null)) {
+            throw new ResourceNotReadyException("The archive of playlist " + playlist.getId()
+                    + " is being prepared", CHECKSUM_RETRY_AFTER_SECONDS);
+        }
+
+        int numberWidth = Math.max(2, String.valueOf(songs.size()).length());
+        List<ZipArchiveSource.Entry> entries = new ArrayList<>();
+        LocalDateTime lastModified = playlist.getUpdatedAt();
+        for (Song song : songs) {
+            Long crc32 = song.getAudioDigest() != null ? checksums.get(song.getAudioDigest()) : null;
+            if (crc32 == null || song.getAudioSize() == null || song.getAudioSize() == 0) {
+                continue;
+            }
+            String name = String.format("%0" + numberWidth + "d - %s - %s.%s", entries.size() + 1,
+                    sanitize(song.getArtist()), sanitize(song.getTitle()), extension(song));
+            MediaSource audio = new StoredMediaSource(mediaStore, mediaCache, MediaKind.AUDIO, song.getAudioDigest(),
+                    song.getAudioSize(), song.getAudioContentType(), name, song.getUpdatedAt());
+            entries.add(new ZipArchiveSource.Entry(name, audio, crc32, song.getUpdatedAt()));
+            if (lastModified == null || (song.getUpdatedAt() != null && song.getUpdatedAt().isAfter(lastModified))) {
+                lastModified = song.getUpdatedAt();
+            }
+        }
+
+        String filename = sanitize(playlist.getName()) + ".zip";
+        return bandwidthScheduler.pace(new ZipArchiveSource(entries, filename, lastModified), 0);
+    }
+
+    /**
+     * Make a metadata value safe as part of a file name on common file systems
+     */
+    static String sanitize(String value) {
+        String safe = UNSAFE_NAME_CHARACTERS.matcher(value == null ? "" : value).replaceAll("_").strip();
+        if (safe.length() > MAX_NAME_PART_LENGTH) {
+            safe = safe.substring(0, MAX_NAME_PART_LENGTH).strip();
+        }
+        while (safe.endsWith(".")) {
+            safe = safe.substring(0, safe.length() - 1);
+        }
+        return safe.isEmpty() ? "Untitled" : safe;
+    }
+
+    /**
+     * Extension of the uploaded file, or one matching the detected format
+     */
+    private static String extension(Song song) {
+        String filename = song.getAudioFilename();
+        if (filename != null && filename.lastIndexOf('.') > 0) {
+            String extension = filename.substring(filename.lastIndexOf('.') + 1);
+            if (EXTENSION.matcher(extension).matches()) {
+                return extension.toLowerCase();
+            }
+        }
+        Optional<MediaFormat> format = Arrays.stream(MediaFormat.values())
+                .filter(candidate -> candidate.getContentType().equals(song.getAudioContentType()))
+                .findFirst();
+        return format.map(found -> switch (found) {
+            case MP3 -> "mp3";
+            case WAV -> "wav";
+            case FLAC -> "flac";
+            case OGG -> "ogg";
+            case MP4_AUDIO -> "m4a";
+            default -> "bin";
+        }).orElse("bin");
+    }
+}
@@ -0,0 +1,369 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.UploadSessionDto;
+import com.arpit.MusicApp.dto.UploadSessionRequestDto;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.entity.UploadSession;
+import com.arpit.MusicApp.exception.BusinessValidationException;
+import com.arpit.MusicApp.exception.FileStorageException;
+import com.arpit.MusicApp.exception.ResourceConflictException;
+import com.arpit.MusicApp.exception.ResourceNotFoundException;
+import com.arpit.MusicApp.exception.UnauthorizedAccessException;
+import com.arpit.MusicApp.repository.UploadSessionRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import com.arpit.MusicApp.service.SongService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads of large audio files.
+ *
+ * A session is created with the song metadata and the total size, then the
+ * bytes arrive as chunks at explicit offsets and are appended to a spool
+ * file. The spool file length is the upload offset, so a client that lost
+ * its connection asks for the offset and resends only what is missing; no
+ * database row is written per chunk. Completing the session runs the usual
+ * ingest pipeline on a link to the spool file and creates the song.
+ *
+ * Sessions idle for longer than media.upload.session-ttl are reaped.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LogManager.getLogger(ResumableUploadService.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MediaIngestService mediaIngestService;
+
+    @Autowired
+    private SongService songService;
+
+    @Value("${media.upload.max-size:1GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${media.upload.max-chunk-size:16MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${media.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    // Sessions with a chunk write, completion or reap in progress; one operation per session at a time
+    private final Set<String> busySessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Start a resumable upload
+     *
+     * @param username Admin creating the session, the only one allowed to use it
+     * @param request Song metadata, file name, total size and optional SHA-256
+     */
+    public UploadSessionDto createSession(String username, UploadSessionRequestDto request) {
+        if (!StringUtils.hasText(request.getTitle()) || !StringUtils.hasText(request.getArtist())) {
+            throw new BusinessValidationException("Title and artist are required");
+        }
+        if (request.getTotalSize() == null || request.getTotalSize() <= 0) {
+            throw new BusinessValidationException("Total size must be a positive number of bytes", "UPLOAD_SIZE");
+        }
+        if (request.getTotalSize() > maxUploadSize.toBytes()) {
+            throw new BusinessValidationException(
+                    "Upload exceeds the maximum size of " + maxUploadSize.toMegabytes() + " MB", "UPLOAD_SIZE");
+        }
+        String expectedDigest = null;
+        if (StringUtils.hasText(request.getSha256())) {
+            expectedDigest = request.getSha256().toLowerCase(Locale.ROOT);
+            if (!expectedDigest.matches("[0-9a-f]{64}")) {
+                throw new BusinessValidationException("sha256 must be 64 hex characters", "UPLOAD_CHECKSUM");
+            }
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUsername(username);
+        session.setTitle(request.getTitle());
+        session.setArtist(request.getArtist());
+        session.setAlbum(request.getAlbum());
+        session.setGenre(request.getGenre());
+        session.setDuration(request.getDuration());
+        session.setFilename(request.getFilename());
+        session.setTotalSize(request.getTotalSize());
+        session.setExpectedDigest(expectedDigest);
+
+        try {
+            Files.createFile(spoolFile(session.getId()));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create the upload file", ex);
+        }
+        return convertToDto(uploadSessionRepository.save(session));
+    }
+
+    /**
+     * Current progress of an upload
+     */
+    public UploadSessionDto getSession(String id, String username) {
+        return convertToDto(findSession(id, username));
+    }
+
+    /**
+     * Append a chunk to an upload. Bytes received before a broken connection
+     * are kept, so the client can resume from the offset reported afterwards.
+     *
+     * @param offset Position of the first byte of the chunk, must equal the current offset
+     * @param contentLength Declared chunk length, or -1 if unknown
+     * @param chunk The chunk bytes, read to the end
+     */
+    public UploadSessionDto appendChunk(String id, String username, long offset, long contentLength,
+                                        InputStream chunk) throws IOException {
+        UploadSession session = findSession(id, username);
+        lock(id);
+        try (FileChannel channel = FileChannel.open(spoolFile(id), StandardOpenOption.WRITE)) {
+            long current = channel.size();
+            if (offset != current) {
+                throw new ResourceConflictException(
+                        "Chunk starts at " + offset + " but the upload is at offset " + current, "UPLOAD_OFFSET");
+            }
+            long limit = Math.min(maxChunkSize.toBytes(), session.getTotalSize() - current);
+            if (contentLength > limit) {
+                throw new BusinessValidationException(
+                        "Chunk of " + contentLength + " bytes exceeds the " + limit + " bytes allowed", "UPLOAD_CHUNK");
+            }
+
+            channel.position(current);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long written = 0;
+            int read;
+            while ((read = chunk.read(buffer)) != -1) {
+                if (written + read > limit) {
+                    channel.truncate(current);
+                    throw new BusinessValidationException(
+                            "Chunk exceeds the " + limit + " bytes allowed", "UPLOAD_CHUNK");
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                written += read;
+            }
+            // Make the new offset durable before acknowledging it
+            channel.force(false);
+        } catch (NoSuchFileException ex) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        } finally {
+            unlock(id);
+        }
+        return convertToDto(session);
+    }
+
+    /**
+     * Turn a fully received upload into a song. Ingest works on a link to the
+     * spool file, so the received bytes stay in place until the song is
+     * committed; if ingest or the save fails the session is left as it was
+     * and completing can be retried.
+     *
+     * @param duration Optional duration in seconds, overriding the one given at creation
+     * @param coverImage Optional cover image sent along with the completion request
+     */
+    public SongDto complete(String id, String username, Integer duration, MultipartFile coverImage)
+            throws IOException {
+        UploadSession session = findSession(id, username);
+        lock(id);
+        Path staged = null;
+        IngestedMedia cover = null;
+        Song savedSong;
+        try {
+            Path file = spoolFile(id);
+            long received = currentOffset(file);
+            if (received != session.getTotalSize()) {
+                throw new ResourceConflictException(
+                        "Upload incomplete: " + received + " of " + session.getTotalSize() + " bytes received",
+                        "UPLOAD_INCOMPLETE");
+            }
+
+            staged = stage(file, ingestFile(id));
+            IngestedMedia audio = mediaIngestService.ingest(MediaKind.AUDIO, staged);
+            if (session.getExpectedDigest() != null && !session.getExpectedDigest().equals(audio.getDigest())) {
+                // The bytes on disk are not what the client meant to send; resuming cannot fix that
+                discard(session);
+                throw new BusinessValidationException(
+                        "Uploaded data does not match the declared sha256, the upload was discarded", "UPLOAD_CHECKSUM");
+            }
+            if (coverImage != null && !coverImage.isEmpty()) {
+                cover = mediaIngestService.ingest(MediaKind.COVER, coverImage);
+            }
+
+            Song song = new Song();
+            song.setTitle(session.getTitle());
+            song.setArtist(session.getArtist());
+            song.setAlbum(session.getAlbum());
+            song.setGenre(session.getGenre());
+            song.setDuration(duration != null ? duration : session.getDuration());
+            song.setAudioFilename(session.getFilename());
+            if (cover != null) {
+                song.setCoverImageFilename(coverImage.getOriginalFilename());
+            }
+            // Commits on return; the store may have moved the staged link, never the spool file
+            savedSong = songService.saveSongWithMedia(song, audio, cover);
+
+            try {
+                discard(session);
+            } catch (IOException | RuntimeException ex) {
+                // The song exists; the reaper removes the leftover session
+                logger.warn("Could not discard completed upload session {}", id, ex);
+            }
+        } finally {
+            if (staged != null) {
+                Files.deleteIfExists(staged);
+            }
+            if (cover != null) {
+                Files.deleteIfExists(cover.getSpooledFile());
+            }
+            unlock(id);
+        }
+        return songService.convertToDto(savedSong);
+    }
+
+    /**
+     * Abandon an upload and delete what was received
+     */
+    public void abort(String id, String username) throws IOException {
+        UploadSession session = findSession(id, username);
+        lock(id);
+        try {
+            discard(session);
+        } finally {
+            unlock(id);
+        }
+    }
+
+    /**
+     * Delete sessions that have not received a chunk within the session TTL
+     */
+    @Scheduled(fixedDelayString = "${media.upload.reaper-interval:PT15M}")
+    public void reapIdleSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        int reaped = 0;
+        for (UploadSession session : uploadSessionRepository.findAll()) {
+            if (!busySessions.add(session.getId())) {
+                continue;
+            }
+            try {
+                if (expiresAt(session).isBefore(now)) {
+                    discard(session);
+                    reaped++;
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("Could not reap upload session {}", session.getId(), ex);
+            } finally {
+                busySessions.remove(session.getId());
+            }
+        }
+        if (reaped > 0) {
+            logger.info("Reaped {} idle upload sessions", reaped);
+        }
+    }
+
+    private UploadSession findSession(String id, String username) {
+        UploadSession session = uploadSessionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload", "id", id));
+        if (!session.getUsername().equals(username)) {
+            throw new UnauthorizedAccessException("You can only access your own uploads");
+        }
+        return session;
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        Files.deleteIfExists(spoolFile(session.getId()));
+        Files.deleteIfExists(ingestFile(session.getId()));
+        uploadSessionRepository.delete(session);
+    }
+
+    private void lock(String id) {
+        if (!busySessions.add(id)) {
+            throw new ResourceConflictException("Another request is already writing this upload", "UPLOAD_BUSY");
+        }
+    }
+
+    private void unlock(String id) {
+        busySessions.remove(id);
+    }
+
+    private Path spoolFile(String id) {
+        // The id is a server-generated UUID, looked up in the database before any file access
+        return fileStorageService.getSpoolLocation().resolve("session-" + id + ".part");
+    }
+
+    /**
+     * Where completion links the spool file for ingest, left over only if the server died meanwhile
+     */
+    private Path ingestFile(String id) {
+        return fileStorageService.getSpoolLocation().resolve("session-" + id + ".ingest");
+    }
+
+    /**
+     * Hard link the file under a second name, or copy it where links are not supported
+     */
+    private static Path stage(Path file, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            return Files.createLink(target, file);
+        } catch (IOException | UnsupportedOperationException ex) {
+            return Files.copy(file, target);
+        }
+    }
+
+    private long currentOffset(Path file) throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    /**
+     * Idle sessions expire a TTL after the last chunk, tracked by the spool file's modification time
+     */
+    private LocalDateTime expiresAt(UploadSession session) throws IOException {
+        Path file = spoolFile(session.getId());
+        LocalDateTime lastActivity = Files.exists(file)
+                ? LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault())
+                : session.getCreatedAt();
+        return lastActivity.plus(sessionTtl);
+    }
+
+    private UploadSessionDto convertToDto(UploadSession session) {
+        try {
+            long offset = currentOffset(spoolFile(session.getId()));
+            return new UploadSessionDto(session.getId(), session.getFilename(), offset, session.getTotalSize(),
+                    offset == session.getTotalSize(), expiresAt(session));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the upload progress", ex);
+        }
+    }
+}
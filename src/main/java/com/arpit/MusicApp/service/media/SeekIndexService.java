@@ -0,0 +1,405 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.AudioSeekIndex;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.repository.AudioSeekIndexRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds and queries seek indexes that map playback time to frame offsets.
+ *
+ * MP3 files are scanned once after upload and the offset of every frame is
+ * recorded, so a position resolves to the exact frame boundary even in VBR
+ * files, where the coarse 100-entry Xing table of contents would be off by
+ * seconds. Offsets are stored as varint deltas, about two bytes per frame.
+ * WAV only needs its header: frames are fixed-size sample blocks.
+ *
+ * Like thumbnails, indexes are built on the media executor once new audio is
+ * committed, and audio stored before indexes existed is indexed the first
+ * time playback from a position is requested.
+ */
+@Service
+public class SeekIndexService {
+
+    private static final Logger logger = LogManager.getLogger(SeekIndexService.class);
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FORMAT_CHUNK_SIZE = 64;
+    private static final int MAX_CACHED_TABLES = 1024;
+    // MP3 frames between decoded offsets; a lookup reads at most this many varints
+    static final int CHECKPOINT_INTERVAL = 64;
+
+    @Autowired
+    private AudioSeekIndexRepository audioSeekIndexRepository;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    @Qualifier("mediaTaskExecutor")
+    private TaskExecutor mediaTaskExecutor;
+
+    // Audio indexed or attempted since startup, so lazy requests trigger at most one attempt each
+    private final Set<String> attemptedAudio = ConcurrentHashMap.newKeySet();
+
+    // Indexes ready for lookups per audio digest; content addressed, so entries only go away with the audio
+    private final Map<String, SeekTable> tables = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SeekTable> eldest) {
+            return size() > MAX_CACHED_TABLES;
+        }
+    };
+
+    /**
+     * Find where playback at a position starts
+     *
+     * @param seconds Requested position, clamped to the last frame
+     * @return The seek point, or empty if the audio has no index (yet)
+     */
+    public Optional<SeekPoint> seek(String audioDigest, double seconds) {
+        synchronized (tables) {
+            SeekTable table = tables.get(audioDigest);
+            if (table != null) {
+                return Optional.of(table.locate(seconds));
+            }
+        }
+        Optional<SeekTable> table = findIndex(audioDigest).map(SeekTable::new);
+        table.ifPresent(found -> {
+            synchronized (tables) {
+                tables.put(audioDigest, found);
+            }
+        });
+        return table.map(found -> found.locate(seconds));
+    }
+
+    /**
+     * Find the index of audio, starting to build it in the background if it
+     * has none and no attempt was made since startup
+     */
+    public Optional<AudioSeekIndex> findIndex(String audioDigest) {
+        Optional<AudioSeekIndex> index = audioSeekIndexRepository.findByAudioDigest(audioDigest);
+        if (index.isEmpty() && attemptedAudio.add(audioDigest)) {
+            mediaTaskExecutor.execute(() -> build(audioDigest));
+        }
+        return index;
+    }
+
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener
+    public void onBlobCreated(MediaBlobCreatedEvent event) {
+        if (event.kind() == MediaKind.AUDIO) {
+            attemptedAudio.add(event.digest());
+            build(event.digest());
+        }
+    }
+
+    /**
+     * Drop the index of audio along with it
+     */
+    @EventListener
+    public void onBlobDeleted(MediaBlobDeletedEvent event) {
+        if (event.kind() == MediaKind.AUDIO) {
+            audioSeekIndexRepository.deleteByAudioDigest(event.digest());
+            attemptedAudio.remove(event.digest());
+            synchronized (tables) {
+                tables.remove(event.digest());
+            }
+        }
+    }
+
+    /**
+     * Index audio if it is in a seekable format and not indexed yet.
+     * Failures are logged, the audio keeps being served from the start.
+     */
+    public void build(String audioDigest) {
+        if (audioSeekIndexRepository.findByAudioDigest(audioDigest).isPresent()) {
+            return;
+        }
+
+        Path spooledFile = null;
+        try {
+            Optional<Path> localFile = mediaStore.localFile(MediaKind.AUDIO, audioDigest);
+            Path file;
+            if (localFile.isPresent()) {
+                file = localFile.get();
+            } else {
+                spooledFile = fileStorageService.createSpoolFile();
+                try (OutputStream out = Files.newOutputStream(spooledFile)) {
+                    mediaStore.copyTo(MediaKind.AUDIO, audioDigest, out, 0,
+                            mediaStore.size(MediaKind.AUDIO, audioDigest));
+                }
+                file = spooledFile;
+            }
+
+            AudioSeekIndex index;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE)) {
+                index = index(in, Files.size(file));
+            }
+            if (index == null) {
+                return; // not a format with a seek index, or no audio frames found
+            }
+            index.setAudioDigest(audioDigest);
+            audioSeekIndexRepository.saveAndFlush(index);
+        } catch (DataIntegrityViolationException ex) {
+            // Built concurrently for the same audio, the other index wins
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not build the seek index of audio {}", audioDigest, ex);
+        } finally {
+            deleteQuietly(spooledFile);
+        }
+    }
+
+    /**
+     * Read an index from audio content
+     *
+     * @param length Total length of the content
+     * @return The index without its digest, or null if the format has none
+     */
+    static AudioSeekIndex index(InputStream in, long length) throws IOException {
+        in.mark(MediaFormat.SNIFF_LENGTH);
+        byte[] header = in.readNBytes(MediaFormat.SNIFF_LENGTH);
+        in.reset();
+
+        MediaFormat format = MediaFormat.detect(header, header.length).orElse(null);
+        if (format == MediaFormat.MP3) {
+            return indexMp3(in);
+        } else if (format == MediaFormat.WAV) {
+            return indexWav(new DataInputStream(in), length);
+        }
+        return null;
+    }
+
+    private static AudioSeekIndex indexMp3(InputStream in) throws IOException {
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        long[] previousOffset = {-1};
+        int[] samplesPerFrame = {0};
+        Mp3FrameScanner.Result result = new Mp3FrameScanner().scan(in, (offset, header) -> {
+            if (previousOffset[0] < 0) {
+                samplesPerFrame[0] = header.samples;
+            } else {
+                writeVarint(deltas, offset - previousOffset[0]);
+            }
+            previousOffset[0] = offset;
+        });
+        if (result.getFrameCount() == 0) {
+            return null;
+        }
+
+        AudioSeekIndex index = new AudioSeekIndex();
+        index.setFormat(MediaFormat.MP3.name());
+        index.setSampleRate(result.getSampleRate());
+        index.setSamplesPerFrame(samplesPerFrame[0]);
+        index.setFrameCount(result.getFrameCount());
+        index.setDataOffset(result.getFirstFrameOffset());
+        index.setDataLength(result.getEndOffset() - result.getFirstFrameOffset());
+        index.setFrameOffsets(deltas.toByteArray());
+        return index;
+    }
+
+    private static AudioSeekIndex indexWav(DataInputStream data, long length) throws IOException {
+        data.skipNBytes(12); // "RIFF", size, "WAVE"
+        long position = 12;
+        byte[] formatChunk = null;
+        while (true) {
+            byte[] chunkId = data.readNBytes(4);
+            if (chunkId.length < 4) {
+                return null;
+            }
+            long chunkSize = MediaProbe.readLittleEndianInt(data) & 0xFFFFFFFFL;
+            position += 8;
+            String id = new String(chunkId, StandardCharsets.US_ASCII);
+            if (id.equals("fmt ")) {
+                if (chunkSize < 16 || chunkSize > MAX_FORMAT_CHUNK_SIZE) {
+                    return null;
+                }
+                formatChunk = data.readNBytes((int) chunkSize);
+                data.skipNBytes(chunkSize & 1);
+            } else if (id.equals("data")) {
+                if (formatChunk == null) {
+                    return null;
+                }
+                ByteBuffer format = ByteBuffer.wrap(formatChunk).order(ByteOrder.LITTLE_ENDIAN);
+                int sampleRate = format.getInt(4);
+                int blockAlign = format.getShort(12) & 0xFFFF;
+                if (sampleRate <= 0 || blockAlign == 0) {
+                    return null;
+                }
+                // Streamed recordings may leave the size unset; the data then runs to the end
+                long dataLength = Math.min(chunkSize, length - position);
+
+                AudioSeekIndex index = new AudioSeekIndex();
+                index.setFormat(MediaFormat.WAV.name());
+                index.setSampleRate(sampleRate);
+                index.setSamplesPerFrame(1);
+                index.setFrameCount(dataLength / blockAlign);
+                index.setDataOffset(position);
+                index.setDataLength(dataLength);
+                index.setBlockAlign(blockAlign);
+                index.setFormatChunk(formatChunk);
+                return index;
+            } else {
+                data.skipNBytes(chunkSize + (chunkSize & 1));
+            }
+            position += chunkSize + (chunkSize & 1);
+        }
+    }
+
+    /**
+     * An index ready for lookups. MP3 frame offsets stay varint-encoded, with
+     * the decoded offset and varint position of every CHECKPOINT_INTERVAL-th
+     * frame, so a lookup decodes a few deltas instead of the whole file's.
+     */
+    static class SeekTable {
+
+        private final AudioSeekIndex index;
+        private final long[] checkpointOffsets;
+        private final int[] checkpointPositions;
+
+        SeekTable(AudioSeekIndex index) {
+            this.index = index;
+            if (!MediaFormat.MP3.name().equals(index.getFormat())) {
+                checkpointOffsets = null;
+                checkpointPositions = null;
+                return;
+            }
+            int checkpoints = (int) ((index.getFrameCount() + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL);
+            checkpointOffsets = new long[checkpoints];
+            checkpointPositions = new int[checkpoints];
+            byte[] deltas = index.getFrameOffsets();
+            long offset = index.getDataOffset();
+            int[] position = {0};
+            for (long frame = 0; frame < index.getFrameCount(); frame++) {
+                if (frame > 0) {
+                    offset += readVarint(deltas, position);
+                }
+                if (frame % CHECKPOINT_INTERVAL == 0) {
+                    checkpointOffsets[(int) (frame / CHECKPOINT_INTERVAL)] = offset;
+                    checkpointPositions[(int) (frame / CHECKPOINT_INTERVAL)] = position[0];
+                }
+            }
+        }
+
+        /**
+         * Resolve a position to the frame containing it
+         */
+        SeekPoint locate(double seconds) {
+            long frame = (long) Math.floor(seconds * index.getSampleRate() / index.getSamplesPerFrame());
+            frame = Math.max(0, Math.min(frame, index.getFrameCount() - 1));
+            double startSeconds = (double) frame * index.getSamplesPerFrame() / index.getSampleRate();
+            long end = index.getDataOffset() + index.getDataLength();
+
+            if (checkpointOffsets == null) {
+                long offset = index.getDataOffset() + frame * index.getBlockAlign();
+                return new SeekPoint(offset, end, startSeconds, wavHeader(index.getFormatChunk(), end - offset));
+            }
+            int checkpoint = (int) (frame / CHECKPOINT_INTERVAL);
+            long offset = checkpointOffsets[checkpoint];
+            int[] position = {checkpointPositions[checkpoint]};
+            for (long i = (long) checkpoint * CHECKPOINT_INTERVAL; i < frame; i++) {
+                offset += readVarint(index.getFrameOffsets(), position);
+            }
+            return new SeekPoint(offset, end, startSeconds, new byte[0]);
+        }
+    }
+
+    /**
+     * Offsets of all frames of an MP3 index
+     */
+    static long[] frameOffsets(AudioSeekIndex index) {
+        long[] offsets = new long[(int) (long) index.getFrameCount()];
+        byte[] deltas = index.getFrameOffsets();
+        long offset = index.getDataOffset();
+        int[] position = {0};
+        for (int i = 0; i < offsets.length; i++) {
+            if (i > 0) {
+                offset += readVarint(deltas, position);
+            }
+            offsets[i] = offset;
+        }
+        return offsets;
+    }
+
+    /**
+     * Read the varint at position[0] and move position[0] past it
+     */
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while (value >= 0x80) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * A canonical RIFF header for the given format and amount of sample data
+     */
+    static byte[] wavHeader(byte[] formatChunk, long dataLength) {
+        int padding = formatChunk.length & 1;
+        ByteBuffer header = ByteBuffer.allocate(28 + formatChunk.length + padding).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) (20 + formatChunk.length + padding + dataLength));
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(formatChunk.length);
+        header.put(formatChunk);
+        if (padding != 0) {
+            header.put((byte) 0);
+        }
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) dataLength);
+        return header.array();
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("Could not delete temporary file {}", file);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * The tail of an audio source from a seek point on, with the header the
+ * format needs in front of it. Served as a resource of its own, so ranges
+ * apply to these bytes and the ETag differs from the whole file's.
+ */
+public class SeekMediaSource implements MediaSource {
+
+    private final MediaSource audio;
+    private final SeekPoint point;
+
+    public SeekMediaSource(MediaSource audio, SeekPoint point) {
+        this.audio = audio;
+        this.point = point;
+    }
+
+    /**
+     * Playback time of the first frame served
+     */
+    @Override
+    public double startSeconds() {
+        return point.startSeconds();
+    }
+
+    @Override
+    public long length() {
+        return point.header().length + point.end() - point.offset();
+    }
+
+    @Override
+    public String contentType() {
+        return audio.contentType();
+    }
+
+    @Override
+    public String filename() {
+        return audio.filename();
+    }
+
+    @Override
+    public LocalDateTime lastModified() {
+        return audio.lastModified();
+    }
+
+    @Override
+    public String eTag() {
+        String eTag = audio.eTag();
+        if (eTag == null) {
+            return null;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + point.offset() + "\"";
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long count) throws IOException {
+        byte[] header = point.header();
+        if (offset < header.length) {
+            int headerCount = (int) Math.min(count, header.length - offset);
+            out.write(header, (int) offset, headerCount);
+            offset += headerCount;
+            count -= headerCount;
+        }
+        if (count > 0) {
+            audio.writeTo(out, point.offset() + offset - header.length, count);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.arpit.MusicApp.service.media;
+
+/**
+ * Where playback from a requested position starts in an audio file
+ *
+ * @param offset First byte of the frame containing the position
+ * @param end Position just past the last audio frame
+ * @param startSeconds Time at which that frame starts, at or before the requested position
+ * @param header Bytes to send before the frames so a player can decode them, may be empty
+ */
+public record SeekPoint(long offset, long end, double startSeconds, byte[] header) {
+}
@@ -0,0 +1,177 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.CoverVariant;
+import com.arpit.MusicApp.entity.MediaBlob;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.repository.SongRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Connects songs to their payloads in the active MediaStore.
+ * Only song metadata is loaded here; bytes are read lazily by the returned sources.
+ */
+@Service
+public class SongMediaService {
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private MediaBlobService mediaBlobService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private SeekIndexService seekIndexService;
+
+    @Autowired
+    private BandwidthScheduler bandwidthScheduler;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    /**
+     * Open the audio of a song, empty if none has been uploaded.
+     * The audio is paced to its bitrate after an initial burst.
+     */
+    public Optional<MediaSource> openAudio(Long songId) {
+        Song song = findSong(songId);
+        return openAudio(song).map(audio -> pace(song, audio));
+    }
+
+    /**
+     * Open the audio of a song for playback from a position. The content
+     * starts at the frame containing that position, so players can decode it
+     * without the bytes before; WAV gets a new header in front of the samples.
+     * The whole file is served while the audio has no seek index yet.
+     *
+     * @param seconds Requested playback position
+     */
+    public Optional<MediaSource> openAudio(Long songId, double seconds) {
+        Song song = findSong(songId);
+        Optional<MediaSource> audio = openAudio(song);
+        if (audio.isEmpty()) {
+            return audio;
+        }
+        MediaSource source = seekIndexService.seek(song.getAudioDigest(), seconds)
+                .<MediaSource>map(point -> new SeekMediaSource(audio.get(), point))
+                .orElse(audio.get());
+        return Optional.of(pace(song, source));
+    }
+
+    /**
+     * Digest of the audio of a song, empty if none has been uploaded
+     */
+    public Optional<String> findAudioDigest(Long songId) {
+        return Optional.ofNullable(findSong(songId).getAudioDigest());
+    }
+
+    private MediaSource pace(Song song, MediaSource audio) {
+        boolean bitrateKnown = song.getDuration() != null && song.getDuration() > 0;
+        return bandwidthScheduler.pace(audio, bitrateKnown ? (double) song.getAudioSize() / song.getDuration() : 0);
+    }
+
+    private Optional<MediaSource> openAudio(Song song) {
+        if (song.getAudioDigest() == null || song.getAudioSize() == null || song.getAudioSize() == 0) {
+            return Optional.empty();
+        }
+        String contentType = song.getAudioContentType() != null ? song.getAudioContentType() : "application/octet-stream";
+        return Optional.of(new StoredMediaSource(mediaStore, mediaCache, MediaKind.AUDIO, song.getAudioDigest(),
+                song.getAudioSize(), contentType, song.getAudioFilename(), song.getUpdatedAt()));
+    }
+
+    /**
+     * Open the cover image of a song, empty if none has been uploaded
+     */
+    public Optional<MediaSource> openCover(Long songId) {
+        return openCover(songId, null);
+    }
+
+    /**
+     * Open the cover image of a song scaled for a display size in pixels.
+     * Serves the smallest precomputed variant covering that size, or the
+     * original if there is none (small original or variants not generated yet).
+     *
+     * @param size Requested size of the longest side, null for the original
+     */
+    public Optional<MediaSource> openCover(Long songId, Integer size) {
+        Song song = findSong(songId);
+        if (song.getCoverImageDigest() == null || song.getCoverImageSize() == null || song.getCoverImageSize() == 0) {
+            return Optional.empty();
+        }
+        if (size != null) {
+            Optional<CoverVariant> variant = thumbnailService.findVariant(song.getCoverImageDigest(), size);
+            if (variant.isPresent()) {
+                return Optional.of(new StoredMediaSource(mediaStore, mediaCache, MediaKind.THUMBNAIL,
+                        variant.get().getDigest(), variant.get().getByteSize(), "image/jpeg",
+                        "cover-" + variant.get().getMaxDimension() + ".jpg", song.getUpdatedAt()));
+            }
+        }
+        String contentType = song.getCoverImageContentType() != null ? song.getCoverImageContentType() : "image/jpeg";
+        return Optional.of(new StoredMediaSource(mediaStore, mediaCache, MediaKind.COVER, song.getCoverImageDigest(),
+                song.getCoverImageSize(), contentType, song.getCoverImageFilename(), song.getUpdatedAt()));
+    }
+
+    /**
+     * Store an ingested payload for a song, deduplicated by content, and record
+     * its digest, size and detected content type.
+     * A payload previously attached to the song is released.
+     * The caller is responsible for saving the song afterwards.
+     */
+    public void store(Song song, IngestedMedia media) throws IOException {
+        MediaBlob blob = mediaBlobService.acquire(media.getKind(), media.getDigest(), media.getSpooledFile());
+        mediaBlobService.recordCrc32(blob, media.getCrc32());
+        if (media.getKind() == MediaKind.AUDIO) {
+            song.setAudioContentType(media.getContentType());
+        } else {
+            song.setCoverImageContentType(media.getContentType());
+        }
+        attach(song, blob);
+    }
+
+    /**
+     * Point a song at an already acquired blob, releasing whatever it pointed at before
+     */
+    public void attach(Song song, MediaBlob blob) {
+        String previousDigest;
+        if (blob.getKind() == MediaKind.AUDIO) {
+            previousDigest = song.getAudioDigest();
+            song.setAudioDigest(blob.getDigest());
+            song.setAudioSize(blob.getSize());
+        } else {
+            previousDigest = song.getCoverImageDigest();
+            song.setCoverImageDigest(blob.getDigest());
+            song.setCoverImageSize(blob.getSize());
+        }
+        if (previousDigest != null) {
+            mediaBlobService.release(blob.getKind(), previousDigest);
+        }
+    }
+
+    /**
+     * Release every payload of a song
+     */
+    public void deleteMedia(Song song) {
+        if (song.getAudioDigest() != null) {
+            mediaBlobService.release(MediaKind.AUDIO, song.getAudioDigest());
+        }
+        if (song.getCoverImageDigest() != null) {
+            mediaBlobService.release(MediaKind.COVER, song.getCoverImageDigest());
+        }
+    }
+
+    private Song findSong(Long songId) {
+        return songRepository.findById(songId)
+                .orElseThrow(() -> new com.arpit.MusicApp.exception.ResourceNotFoundException(
+                    "Song", "id", songId));
+    }
+}
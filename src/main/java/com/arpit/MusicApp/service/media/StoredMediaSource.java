@@ -0,0 +1,72 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * MediaSource reading its bytes from the active MediaStore through the MediaCache.
+ * The content digest doubles as a strong ETag.
+ */
+public class StoredMediaSource implements MediaSource {
+
+    private final MediaStore store;
+    private final MediaCache cache;
+    private final MediaKind kind;
+    private final String digest;
+    private final long length;
+    private final String contentType;
+    private final String filename;
+    private final LocalDateTime lastModified;
+
+    public StoredMediaSource(MediaStore store, MediaCache cache, MediaKind kind, String digest, long length,
+                             String contentType, String filename, LocalDateTime lastModified) {
+        this.store = store;
+        this.cache = cache;
+        this.kind = kind;
+        this.digest = digest;
+        this.length = length;
+        this.contentType = contentType;
+        this.filename = filename;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public String filename() {
+        return filename;
+    }
+
+    @Override
+    public LocalDateTime lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String eTag() {
+        return "\"" + digest + "\"";
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long count) throws IOException {
+        cache.copyTo(store, kind, digest, length, out, offset, count);
+    }
+
+    @Override
+    public Optional<Path> localFile() {
+        return store.localFile(kind, digest);
+    }
+}
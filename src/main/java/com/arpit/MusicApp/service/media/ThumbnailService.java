@@ -0,0 +1,282 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.CoverVariant;
+import com.arpit.MusicApp.entity.MediaBlob;
+import com.arpit.MusicApp.entity.MediaKind;
+import com.arpit.MusicApp.repository.CoverVariantRepository;
+import com.arpit.MusicApp.service.FileStorageService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputes downscaled JPEG variants of cover images.
+ *
+ * Variants are generated on the media executor once a new cover has been
+ * committed, so uploads do not wait for image decoding. Each configured size
+ * is a bounding box; images already smaller than a size get no variant for it
+ * and are served as uploaded. Covers stored before variants existed are
+ * processed the first time a variant is requested.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LogManager.getLogger(ThumbnailService.class);
+
+    @Autowired
+    private CoverVariantRepository coverVariantRepository;
+
+    @Autowired
+    private MediaBlobService mediaBlobService;
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("mediaTaskExecutor")
+    private TaskExecutor mediaTaskExecutor;
+
+    @Value("${media.thumbnail.sizes:64,256,640}")
+    private List<Integer> sizes;
+
+    @Value("${media.thumbnail.quality:0.85}")
+    private float quality;
+
+    // Covers generated or attempted since startup, so lazy requests trigger at most one attempt each
+    private final Set<String> attemptedCovers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Find the variant to serve for a requested display size: the smallest
+     * variant at least that large, so the client never has to upscale.
+     *
+     * @return The variant, or empty if the original should be served
+     */
+    public Optional<CoverVariant> findVariant(String coverDigest, int requestedSize) {
+        List<CoverVariant> variants = coverVariantRepository.findByCoverDigestOrderByMaxDimensionAsc(coverDigest);
+        if (variants.isEmpty() && attemptedCovers.add(coverDigest)) {
+            mediaTaskExecutor.execute(() -> generate(coverDigest));
+        }
+        return variants.stream()
+                .filter(variant -> variant.getMaxDimension() >= requestedSize)
+                .findFirst();
+    }
+
+    @Async("mediaTaskExecutor")
+    @TransactionalEventListener
+    public void onBlobCreated(MediaBlobCreatedEvent event) {
+        if (event.kind() == MediaKind.COVER) {
+            attemptedCovers.add(event.digest());
+            generate(event.digest());
+        }
+    }
+
+    /**
+     * Release the variants of a cover along with it
+     */
+    @EventListener
+    public void onBlobDeleted(MediaBlobDeletedEvent event) {
+        if (event.kind() != MediaKind.COVER) {
+            return;
+        }
+        for (CoverVariant variant : coverVariantRepository.findByCoverDigestOrderByMaxDimensionAsc(event.digest())) {
+            coverVariantRepository.delete(variant);
+            mediaBlobService.release(MediaKind.THUMBNAIL, variant.getDigest());
+        }
+        attemptedCovers.remove(event.digest());
+    }
+
+    /**
+     * Create all missing variants of a cover. Failures are logged, the
+     * original cover keeps being served.
+     */
+    public void generate(String coverDigest) {
+        Set<Integer> existing = coverVariantRepository.findByCoverDigestOrderByMaxDimensionAsc(coverDigest).stream()
+                .map(CoverVariant::getMaxDimension)
+                .collect(Collectors.toSet());
+        List<Integer> missing = sizes.stream()
+                .filter(size -> !existing.contains(size))
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Path original = null;
+        try {
+            original = fileStorageService.createSpoolFile();
+            try (OutputStream out = Files.newOutputStream(original)) {
+                mediaStore.copyTo(MediaKind.COVER, coverDigest, out, 0, mediaStore.size(MediaKind.COVER, coverDigest));
+            }
+            BufferedImage image = decode(original, missing.get(0));
+            if (image == null) {
+                logger.info("No image decoder for cover {}, serving the original only", coverDigest);
+                return;
+            }
+            for (int size : missing) {
+                if (Math.max(image.getWidth(), image.getHeight()) <= size) {
+                    continue; // never upscale, the original already fits this box
+                }
+                storeVariant(coverDigest, size, scaleToFit(image, size));
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not generate thumbnails for cover {}", coverDigest, ex);
+        } finally {
+            deleteQuietly(original);
+        }
+    }
+
+    private void storeVariant(String coverDigest, int size, BufferedImage thumbnail) throws IOException {
+        Path spooledFile = fileStorageService.createSpoolFile();
+        try {
+            writeJpeg(thumbnail, spooledFile);
+            String digest;
+            try (HashingInputStream in = new HashingInputStream(Files.newInputStream(spooledFile))) {
+                in.drain();
+                digest = in.getDigestHex();
+            }
+
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.executeWithoutResult(status -> {
+                try {
+                    MediaBlob blob = mediaBlobService.acquire(MediaKind.THUMBNAIL, digest, spooledFile);
+                    CoverVariant variant = new CoverVariant();
+                    variant.setCoverDigest(coverDigest);
+                    variant.setMaxDimension(size);
+                    variant.setDigest(digest);
+                    variant.setByteSize(blob.getSize());
+                    variant.setWidth(thumbnail.getWidth());
+                    variant.setHeight(thumbnail.getHeight());
+                    coverVariantRepository.saveAndFlush(variant);
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Could not store thumbnail", ex);
+                }
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Generated concurrently for the same cover, the other variant wins
+        } finally {
+            deleteQuietly(spooledFile);
+        }
+    }
+
+    /**
+     * Decode an image, letting the reader skip pixels when the source is far
+     * larger than needed. Subsampling keeps at least twice the largest target
+     * size, so quality is unaffected while decode memory and time drop.
+     *
+     * @return The decoded image, or null if no reader supports the format
+     */
+    private BufferedImage decode(Path file, int largestSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (2 * largestSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale to fit a square box, halving repeatedly with bilinear filtering
+     * so large reductions keep detail without an expensive area filter.
+     * Transparency is flattened onto white since the output is JPEG.
+     */
+    static BufferedImage scaleToFit(BufferedImage source, int size) {
+        double ratio = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream out = Files.newOutputStream(target);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("Could not delete temporary file {}", file);
+        }
+    }
+}
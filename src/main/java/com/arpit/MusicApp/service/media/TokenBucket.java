@@ -0,0 +1,68 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte budget refilled at a constant rate, up to a capacity.
+ *
+ * Bytes are reserved ahead of sending: a reservation always succeeds, driving
+ * the budget into debt if need be, and says how long the caller has to wait
+ * before sending them, so paced responses can wait on a timer. Reservations
+ * are served in the order they are made. Background jobs may simply block in
+ * {@link #acquire}. Thread-safe.
+ */
+class TokenBucket {
+
+    private final double rate;      // bytes per second
+    private final double capacity;  // bytes
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param rate Refill rate in bytes per second
+     * @param capacity Largest burst in bytes
+     * @param initialTokens Bytes available right away
+     */
+    TokenBucket(double rate, double capacity, double initialTokens) {
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = initialTokens;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Reserve n bytes
+     *
+     * @return Nanoseconds until they may be sent, 0 for right away
+     */
+    synchronized long reserve(long n) {
+        refill();
+        tokens -= n;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * 1_000_000_000L);
+    }
+
+    /**
+     * Take n bytes, sleeping until they have been refilled if necessary
+     *
+     * @return Nanoseconds spent waiting
+     */
+    long acquire(long n) throws InterruptedIOException {
+        long wait = reserve(n);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while pacing");
+            }
+        }
+        return wait;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / 1_000_000_000L);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,290 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * MediaSource of an uncompressed (STORED) ZIP archive of other sources.
+ *
+ * Sizes and CRCs go into the local headers up front instead of trailing data
+ * descriptors, so the complete layout is known before a byte is sent: the
+ * archive has a fixed length and every offset is stable, which lets it be
+ * served with ranges and resumed like a file. Only the headers are held in
+ * memory; entry content is copied from its source as it is written.
+ * ZIP64 records are added where sizes, offsets or the entry count outgrow
+ * the classic format.
+ */
+public class ZipArchiveSource implements MediaSource {
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    /**
+     * One file in the archive
+     *
+     * @param crc32 CRC-32 of the content
+     * @param modified Timestamp recorded for the file, null for 1980-01-01
+     */
+    public record Entry(String name, MediaSource content, long crc32, LocalDateTime modified) {
+    }
+
+    /**
+     * A run of the archive: generated header bytes or the content of an entry
+     */
+    private record Part(long start, byte[] bytes, MediaSource content) {
+
+        long length() {
+            return bytes != null ? bytes.length : content.length();
+        }
+    }
+
+    private final List<Part> parts = new ArrayList<>();
+    private final long length;
+    private final String filename;
+    private final LocalDateTime lastModified;
+    private final String eTag;
+
+    public ZipArchiveSource(List<Entry> entries, String filename, LocalDateTime lastModified) {
+        this.filename = filename;
+        this.lastModified = lastModified;
+
+        MessageDigest layout = sha256();
+        ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+        long position = 0;
+        for (Entry entry : entries) {
+            byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            long size = entry.content().length();
+            long dateTime = dosDateTime(entry.modified());
+
+            byte[] localHeader = localHeader(name, size, entry.crc32(), dateTime, position);
+            position = add(new Part(position, localHeader, null));
+            position = add(new Part(position, null, entry.content()));
+            centralDirectory.writeBytes(centralHeader(name, size, entry.crc32(), dateTime,
+                    position - size - localHeader.length));
+
+            layout.update(localHeader);
+            layout.update(String.valueOf(entry.content().eTag()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] end = endRecords(entries.size(), centralDirectory.size(), position);
+        centralDirectory.writeBytes(end);
+        byte[] trailer = centralDirectory.toByteArray();
+        layout.update(trailer);
+        this.length = add(new Part(position, trailer, null));
+        this.eTag = "\"" + HexFormat.of().formatHex(layout.digest(), 0, 16) + "\"";
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public String contentType() {
+        return "application/zip";
+    }
+
+    @Override
+    public String filename() {
+        return filename;
+    }
+
+    @Override
+    public LocalDateTime lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Hash of the headers and entry content ETags, so it changes with any
+     * byte of the archive
+     */
+    @Override
+    public String eTag() {
+        return eTag;
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long count) throws IOException {
+        long end = offset + count;
+        for (int i = findPart(offset); i < parts.size() && parts.get(i).start() < end; i++) {
+            Part part = parts.get(i);
+            long from = Math.max(offset, part.start()) - part.start();
+            long to = Math.min(end, part.start() + part.length()) - part.start();
+            if (to <= from) {
+                continue;
+            }
+            if (part.bytes() != null) {
+                out.write(part.bytes(), (int) from, (int) (to - from));
+            } else {
+                part.content().writeTo(out, from, to - from);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> localFile() {
+        return Optional.empty();
+    }
+
+    private long add(Part part) {
+        if (part.length() > 0) {
+            parts.add(part);
+        }
+        return part.start() + part.length();
+    }
+
+    /**
+     * Index of the part containing an offset
+     */
+    private int findPart(long offset) {
+        int low = 0;
+        int high = parts.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (parts.get(middle).start() <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Local file header. The version needed matches the central header, which
+     * needs ZIP64 for a large offset even when the sizes fit.
+     */
+    private static byte[] localHeader(byte[] name, long size, long crc32, long dateTime, long headerOffset) {
+        boolean zip64 = size >= MAX_32;
+        ByteBuffer header = buffer(30 + name.length + (zip64 ? 20 : 0));
+        header.putInt(0x04034b50);
+        header.putShort((short) (zip64 || headerOffset >= MAX_32 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) 0); // STORED
+        header.putInt((int) dateTime);
+        header.putInt((int) crc32);
+        header.putInt((int) (zip64 ? MAX_32 : size)); // compressed size
+        header.putInt((int) (zip64 ? MAX_32 : size));
+        header.putShort((short) name.length);
+        header.putShort((short) (zip64 ? 20 : 0));
+        header.put(name);
+        if (zip64) {
+            header.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+        }
+        return header.array();
+    }
+
+    private static byte[] centralHeader(byte[] name, long size, long crc32, long dateTime, long headerOffset) {
+        boolean zip64Size = size >= MAX_32;
+        boolean zip64Offset = headerOffset >= MAX_32;
+        int extraLength = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+        if (extraLength > 0) {
+            extraLength += 4;
+        }
+        int version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+        ByteBuffer header = buffer(46 + name.length + extraLength);
+        header.putInt(0x02014b50);
+        header.putShort((short) version); // made by, MS-DOS attributes
+        header.putShort((short) version);
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) 0); // STORED
+        header.putInt((int) dateTime);
+        header.putInt((int) crc32);
+        header.putInt((int) (zip64Size ? MAX_32 : size));
+        header.putInt((int) (zip64Size ? MAX_32 : size));
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.putShort((short) 0); // comment length
+        header.putShort((short) 0); // disk number
+        header.putShort((short) 0); // internal attributes
+        header.putInt(0); // external attributes
+        header.putInt((int) (zip64Offset ? MAX_32 : headerOffset));
+        header.put(name);
+        if (extraLength > 0) {
+            header.putShort((short) 0x0001).putShort((short) (extraLength - 4));
+            if (zip64Size) {
+                header.putLong(size).putLong(size);
+            }
+            if (zip64Offset) {
+                header.putLong(headerOffset);
+            }
+        }
+        return header.array();
+    }
+
+    /**
+     * End of central directory record, preceded by the ZIP64 end record and
+     * its locator when a value does not fit
+     */
+    private static byte[] endRecords(long entryCount, long directorySize, long directoryOffset) {
+        boolean zip64 = entryCount >= MAX_16 || directorySize >= MAX_32 || directoryOffset >= MAX_32;
+        ByteBuffer end = buffer((zip64 ? 56 + 20 : 0) + 22);
+        if (zip64) {
+            long recordOffset = directoryOffset + directorySize;
+            end.putInt(0x06064b50);
+            end.putLong(44); // size of the rest of the record
+            end.putShort((short) VERSION_ZIP64);
+            end.putShort((short) VERSION_ZIP64);
+            end.putInt(0).putInt(0); // this disk, directory disk
+            end.putLong(entryCount).putLong(entryCount);
+            end.putLong(directorySize).putLong(directoryOffset);
+
+            end.putInt(0x07064b50);
+            end.putInt(0);
+            end.putLong(recordOffset);
+            end.putInt(1); // total disks
+        }
+        end.putInt(0x06054b50);
+        end.putShort((short) 0).putShort((short) 0);
+        end.putShort((short) Math.min(entryCount, MAX_16));
+        end.putShort((short) Math.min(entryCount, MAX_16));
+        end.putInt((int) Math.min(directorySize, MAX_32));
+        end.putInt((int) Math.min(directoryOffset, MAX_32));
+        end.putShort((short) 0); // comment length
+        return end.array();
+    }
+
+    /**
+     * MS-DOS time (low 16 bits) and date (high 16 bits), clamped to the
+     * 1980-2107 range the format can represent
+     */
+    static long dosDateTime(LocalDateTime time) {
+        if (time == null || time.getYear() < 1980) {
+            return (1 << 21 | 1 << 16) & MAX_32; // 1980-01-01 00:00
+        }
+        if (time.getYear() > 2107) {
+            time = LocalDateTime.of(2107, 12, 31, 23, 59, 58);
+        }
+        long date = (time.getYear() - 1980) << 9 | time.getMonthValue() << 5 | time.getDayOfMonth();
+        long clock = time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() / 2;
+        return date << 16 | clock;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
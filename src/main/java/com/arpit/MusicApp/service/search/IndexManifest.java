@@ -0,0 +1,106 @@
+package com.arpit.MusicApp.service.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The committed state of the on-disk search index: its segments and the documents
+ * deleted from each, the number for the next segment file, and the newest song
+ * change it is known to hold. Written to a temporary file with a checksum and
+ * moved over the previous one, so a crash leaves either commit intact.
+ */
+record IndexManifest(long nextSegment, LocalDateTime watermark, List<Entry> segments) {
+
+    static final String FILE_NAME = "manifest";
+
+    private static final int MAGIC = 0x534F4E4D; // "SONM"
+    private static final int VERSION = 1;
+
+    /**
+     * @param deleted deleted ordinals as {@link java.util.BitSet#toByteArray()}
+     */
+    record Entry(String name, byte[] deleted) {
+    }
+
+    /**
+     * @return the manifest in a directory, or null when none was committed there
+     */
+    static IndexManifest read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("Truncated search index manifest " + file);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, bytes.length - Long.BYTES);
+        if (checksum.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong()) {
+            throw new IOException("Checksum mismatch in search index manifest " + file);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Long.BYTES))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a search index manifest: " + file);
+            }
+            long nextSegment = in.readLong();
+            String watermark = in.readUTF();
+            int count = in.readInt();
+            List<Entry> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] deleted = new byte[in.readInt()];
+                in.readFully(deleted);
+                segments.add(new Entry(name, deleted));
+            }
+            return new IndexManifest(nextSegment, watermark.isEmpty() ? null : LocalDateTime.parse(watermark), segments);
+        }
+    }
+
+    void write(Path directory) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextSegment);
+            out.writeUTF(watermark == null ? "" : watermark.toString());
+            out.writeInt(segments.size());
+            for (Entry segment : segments) {
+                out.writeUTF(segment.name());
+                out.writeInt(segment.deleted().length);
+                out.write(segment.deleted());
+            }
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        byte[] contents = Arrays.copyOf(payload, payload.length + Long.BYTES);
+        ByteBuffer.wrap(contents, payload.length, Long.BYTES).putLong(checksum.getValue());
+
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contents);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(FILE_NAME), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
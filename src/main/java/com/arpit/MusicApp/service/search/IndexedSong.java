@@ -0,0 +1,15 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a song kept in memory by the search indexes
+ */
+public record IndexedSong(long id, String title, String artist, String album, LocalDateTime createdAt) {
+
+    public static IndexedSong from(Song song) {
+        return new IndexedSong(song.getId(), song.getTitle(), song.getArtist(), song.getAlbum(), song.getCreatedAt());
+    }
+}
@@ -0,0 +1,98 @@
+package com.arpit.MusicApp.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of song ids backed by a primitive int array.
+ * Not thread-safe; the owning index guards it.
+ */
+final class IntPostings {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int id) {
+        // Ids are mostly handed out in increasing order, so appending is the common case
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        if (size > INITIAL_CAPACITY && size < ids.length / 4) {
+            ids = Arrays.copyOf(ids, ids.length / 2);
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Keep only the first count candidates that are also in this list, in place.
+     * Few candidates against a long list are probed by binary search, otherwise
+     * both sorted arrays are merged.
+     *
+     * @return the number of candidates left at the front of the array
+     */
+    int retainAll(int[] candidates, int count) {
+        int kept = 0;
+        if ((long) count * 16 < size) {
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                int index = Arrays.binarySearch(ids, from, size, candidates[i]);
+                if (index >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+        int position = 0;
+        for (int i = 0; i < count && position < size; i++) {
+            while (position < size && ids[position] < candidates[i]) {
+                position++;
+            }
+            if (position < size && ids[position] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+                position++;
+            }
+        }
+        return kept;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.arpit.MusicApp.service.search;
+
+/**
+ * A search match with its relevance score, higher is better
+ */
+public record RankedSong(IndexedSong song, double score) {
+}
@@ -0,0 +1,159 @@
+package com.arpit.MusicApp.service.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * How the search index sees a song: normalized field text, trigrams and word tokens.
+ * Shared by the in-memory buffer and the on-disk segments so both index alike.
+ */
+final class SearchText {
+
+    static final int GRAM_LENGTH = 3;
+    static final int FIELD_COUNT = 3; // title, artist, album
+    static final char FIELD_SEPARATOR = '\u0000';
+    static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchText() {
+    }
+
+    /**
+     * Normalized title, artist and album joined by the field separator
+     */
+    static String text(IndexedSong song) {
+        return normalize(song.title()) + FIELD_SEPARATOR + normalize(song.artist()) + FIELD_SEPARATOR
+                + normalize(song.album());
+    }
+
+    /**
+     * Distinct grams of a text, three chars packed into a long. Each field is
+     * padded with the separator, so a field of one or two chars still has a gram
+     * and every substring of up to three chars lies inside one; grams never reach
+     * from one field into the next.
+     */
+    static Set<Long> grams(String text) {
+        String padded = FIELD_SEPARATOR + text + FIELD_SEPARATOR;
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+            if (padded.charAt(i + 1) == FIELD_SEPARATOR) {
+                continue;
+            }
+            grams.add(gram(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+        }
+        return grams;
+    }
+
+    /**
+     * Distinct grams of a query, which has to contain all of them in some field
+     */
+    static Set<Long> queryGrams(String query) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            grams.add(gram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+        }
+        return grams;
+    }
+
+    /**
+     * Whether a query of one or two chars occurs in a gram
+     */
+    static boolean gramContains(long gram, String query) {
+        char first = (char) (gram >>> 32);
+        char second = (char) (gram >>> 16);
+        char third = (char) gram;
+        char start = query.charAt(0);
+        if (query.length() == 1) {
+            return first == start || second == start || third == start;
+        }
+        char end = query.charAt(1);
+        return (first == start && second == end) || (second == start && third == end);
+    }
+
+    private static long gram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    /**
+     * Word tokens of title, artist and album
+     */
+    static String[][] tokens(IndexedSong song) {
+        return new String[][]{tokenize(normalize(song.title())), tokenize(normalize(song.artist())),
+                tokenize(normalize(song.album()))};
+    }
+
+    static String[] tokenize(String normalized) {
+        return Arrays.stream(TOKEN_SEPARATOR.split(normalized))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Token count of each field of a text, adding to hits[field][t] the hits of
+     * each query token there: 1 for a whole word, prefixHit for a word it begins.
+     * Walks the text once instead of splitting it, and tells tokens apart the
+     * same way as {@link #tokenize}.
+     */
+    static int[] countHits(String text, String[] queryTokens, double prefixHit, double[][] hits) {
+        int[] lengths = new int[FIELD_COUNT];
+        int field = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) == FIELD_SEPARATOR) {
+                field = Math.min(field + 1, FIELD_COUNT - 1);
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && isTokenChar(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            if (i == start) {
+                i += Character.charCount(text.codePointAt(i));
+                continue;
+            }
+            lengths[field]++;
+            for (int t = 0; t < queryTokens.length; t++) {
+                String token = queryTokens[t];
+                if (token.length() <= i - start && text.startsWith(token, start)) {
+                    hits[field][t] += token.length() == i - start ? 1 : prefixHit;
+                }
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Letters and numbers, what {@link #TOKEN_SEPARATOR} does not match
+     */
+    private static boolean isTokenChar(int codePoint) {
+        return switch (Character.getType(codePoint)) {
+            case Character.DECIMAL_DIGIT_NUMBER, Character.LETTER_NUMBER, Character.OTHER_NUMBER -> true;
+            default -> Character.isLetter(codePoint);
+        };
+    }
+
+    /**
+     * Token count of each field, as stored in segments
+     */
+    static int[] fieldLengths(IndexedSong song) {
+        String[][] tokens = tokens(song);
+        int[] lengths = new int[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            lengths[field] = Math.min(tokens[field].length, MAX_FIELD_LENGTH);
+        }
+        return lengths;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    static int documentId(long songId) {
+        return Math.toIntExact(songId);
+    }
+}
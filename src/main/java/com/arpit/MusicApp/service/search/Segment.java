@@ -0,0 +1,313 @@
+package com.arpit.MusicApp.service.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+
+/**
+ * One immutable, memory-mapped search segment written by {@link SegmentWriter}.
+ *
+ * Lookups read the mapping in place: a song's ordinal is found by binary search
+ * over the id table, a gram's postings by binary search over the gram table, and
+ * only the documents left after intersecting postings are decoded. The operating
+ * system pages the file in and out, so opening a segment reads just its header
+ * however large it is.
+ *
+ * Documents replaced or deleted after the segment was written are marked in its
+ * deletion set, the only mutable part. Not thread-safe for that part; the owning
+ * index guards it.
+ */
+final class Segment {
+
+    static final int MAGIC = 0x534F4E47; // "SONG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final String name;
+    private final ByteBuffer data;
+    private final int documentCount;
+    private final int gramCount;
+    private final long[] fieldTokenTotals = new long[SearchText.FIELD_COUNT];
+    private final int fieldsOffset;
+    private final int storedIndexOffset;
+    private final int storedOffset;
+    private final int postingsOffset;
+    private final int gramsOffset;
+    private final int startsOffset;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    private Segment(String name, ByteBuffer data) throws IOException {
+        this.name = name;
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a search segment: " + name);
+        }
+        documentCount = data.getInt(8);
+        gramCount = data.getInt(12);
+        for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+            fieldTokenTotals[field] = data.getLong(16 + field * Long.BYTES);
+        }
+        postingsOffset = data.getInt(40);
+        gramsOffset = data.getInt(44);
+        startsOffset = data.getInt(48);
+        long fields = HEADER_SIZE + (long) documentCount * Integer.BYTES;
+        long storedIndex = fields + (long) documentCount * SearchText.FIELD_COUNT * Character.BYTES;
+        long stored = storedIndex + ((long) documentCount + 1) * Integer.BYTES;
+        if (documentCount < 0 || gramCount < 0 || data.getInt(52) != data.capacity()
+                || stored > postingsOffset
+                || gramsOffset + (long) gramCount * Long.BYTES != startsOffset
+                || startsOffset + ((long) gramCount + 1) * Integer.BYTES != data.capacity()) {
+            throw new IOException("Truncated or inconsistent search segment: " + name);
+        }
+        fieldsOffset = (int) fields;
+        storedIndexOffset = (int) storedIndex;
+        storedOffset = (int) stored;
+        if (storedOffset + (long) storedStart(documentCount) != postingsOffset
+                || postingsOffset + (long) postingStart(gramCount) * Integer.BYTES != gramsOffset) {
+            throw new IOException("Truncated or inconsistent search segment: " + name);
+        }
+    }
+
+    static Segment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Search segment too large: " + file);
+            }
+            return new Segment(file.getFileName().toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    String name() {
+        return name;
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    int liveCount() {
+        return documentCount - deletedCount;
+    }
+
+    long sizeInBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * Token totals per field over every document written, deleted or not
+     */
+    long fieldTokenTotal(int field) {
+        return fieldTokenTotals[field];
+    }
+
+    int id(int ordinal) {
+        return data.getInt(HEADER_SIZE + ordinal * Integer.BYTES);
+    }
+
+    /**
+     * Ordinal of a song, or -1 when the segment never held it
+     */
+    int ordinalOf(int id) {
+        int low = 0;
+        int high = documentCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = id(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    boolean isLive(int ordinal) {
+        return !deleted.get(ordinal);
+    }
+
+    /**
+     * @return whether the document was live until now
+     */
+    boolean delete(int ordinal) {
+        if (deleted.get(ordinal)) {
+            return false;
+        }
+        deleted.set(ordinal);
+        deletedCount++;
+        return true;
+    }
+
+    void restoreDeletions(BitSet ordinals) throws IOException {
+        if (ordinals.length() > documentCount) {
+            throw new IOException("Deletions beyond the end of search segment " + name);
+        }
+        deleted.clear();
+        deleted.or(ordinals);
+        deletedCount = ordinals.cardinality();
+    }
+
+    BitSet deletions() {
+        return (BitSet) deleted.clone();
+    }
+
+    int fieldLength(int ordinal, int field) {
+        return data.getChar(fieldsOffset + (ordinal * SearchText.FIELD_COUNT + field) * Character.BYTES);
+    }
+
+    IndexedSong document(int ordinal) {
+        int position = storedOffset + storedStart(ordinal);
+        String[] fields = new String[SearchText.FIELD_COUNT];
+        for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+            int length = data.getInt(position);
+            position += Integer.BYTES;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                data.get(position, bytes);
+                fields[field] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        long seconds = data.getLong(position);
+        LocalDateTime createdAt = seconds == NO_TIMESTAMP
+                ? null
+                : LocalDateTime.ofEpochSecond(seconds, data.getInt(position + Long.BYTES), ZoneOffset.UTC);
+        return new IndexedSong(id(ordinal), fields[0], fields[1], fields[2], createdAt);
+    }
+
+    /**
+     * The encoded document as written, for copying into a merged segment
+     */
+    byte[] storedBytes(int ordinal) {
+        byte[] bytes = new byte[storedLength(ordinal)];
+        data.get(storedOffset + storedStart(ordinal), bytes);
+        return bytes;
+    }
+
+    int storedLength(int ordinal) {
+        return storedStart(ordinal + 1) - storedStart(ordinal);
+    }
+
+    int gramCount() {
+        return gramCount;
+    }
+
+    long gram(int index) {
+        return data.getLong(gramsOffset + index * Long.BYTES);
+    }
+
+    /**
+     * Index of a gram in the gram table, or -1 when no document here has it
+     */
+    int gramIndex(long gram) {
+        int low = 0;
+        int high = gramCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = gram(middle);
+            if (value < gram) {
+                low = middle + 1;
+            } else if (value > gram) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    int postingCount(int gramIndex) {
+        return postingStart(gramIndex + 1) - postingStart(gramIndex);
+    }
+
+    /**
+     * Ordinals of the documents with a gram, ascending, deleted ones included
+     */
+    int[] postings(int gramIndex) {
+        int start = postingStart(gramIndex);
+        int[] ordinals = new int[postingStart(gramIndex + 1) - start];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = posting(start + i);
+        }
+        return ordinals;
+    }
+
+    /**
+     * Keep only the first count candidate ordinals that are also in the postings
+     * of a gram, in place, the same way as {@link IntPostings#retainAll}.
+     *
+     * @return the number of candidates left at the front of the array
+     */
+    int retainAll(int gramIndex, int[] candidates, int count) {
+        int start = postingStart(gramIndex);
+        int end = postingStart(gramIndex + 1);
+        int kept = 0;
+        if ((long) count * 16 < end - start) {
+            int from = start;
+            for (int i = 0; i < count; i++) {
+                int index = searchPostings(from, end, candidates[i]);
+                if (index >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+        int position = start;
+        for (int i = 0; i < count && position < end; i++) {
+            while (position < end && posting(position) < candidates[i]) {
+                position++;
+            }
+            if (position < end && posting(position) == candidates[i]) {
+                candidates[kept++] = candidates[i];
+                position++;
+            }
+        }
+        return kept;
+    }
+
+    private int searchPostings(int from, int to, int ordinal) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = posting(middle);
+            if (value < ordinal) {
+                low = middle + 1;
+            } else if (value > ordinal) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int posting(int index) {
+        return data.getInt(postingsOffset + index * Integer.BYTES);
+    }
+
+    private int postingStart(int gramIndex) {
+        return data.getInt(startsOffset + gramIndex * Integer.BYTES);
+    }
+
+    private int storedStart(int ordinal) {
+        return data.getInt(storedIndexOffset + ordinal * Integer.BYTES);
+    }
+}
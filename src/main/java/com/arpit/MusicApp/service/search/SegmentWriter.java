@@ -0,0 +1,317 @@
+package com.arpit.MusicApp.service.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the immutable segments read by {@link Segment}.
+ *
+ * A segment is one file, big-endian, with these sections in order:
+ * <pre>
+ * header     magic, version, document and gram counts, token totals per field,
+ *            offsets of the postings, grams and starts sections, file length
+ * ids        int song id per document, ascending; a document's ordinal is its position here
+ * fields     three unsigned shorts per document: token counts of title, artist and album
+ * stored     int start per document plus an end, then each document's title,
+ *            artist and album (int UTF-8 length or -1, bytes) and creation time
+ * postings   int ordinals, ascending per gram
+ * grams      long per gram, ascending
+ * starts     int per gram plus an end: where its postings begin
+ * </pre>
+ * The file is written under a temporary name, forced to disk and then moved into
+ * place, so a segment either exists whole or not at all.
+ */
+final class SegmentWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Path temp;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final int documentCount;
+    private final long[] fieldTokenTotals;
+    private long[] grams = new long[1024];
+    private int[] starts = new int[1025];
+    private int gramCount;
+    private int postingCount;
+    private int postingsOffset = -1;
+    private boolean finished;
+
+    private SegmentWriter(Path file, int documentCount, long[] fieldTokenTotals) throws IOException {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.documentCount = documentCount;
+        this.fieldTokenTotals = fieldTokenTotals;
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        out.write(new byte[Segment.HEADER_SIZE]);
+    }
+
+    /**
+     * Write songs, ordered by id, as a new segment
+     */
+    static void write(Path file, List<IndexedSong> songs) throws IOException {
+        int count = songs.size();
+        int[] ids = new int[count];
+        char[] fieldLengths = new char[count * SearchText.FIELD_COUNT];
+        byte[][] stored = new byte[count][];
+        long[] totals = new long[SearchText.FIELD_COUNT];
+        Map<Long, IntPostings> postings = new HashMap<>();
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            IndexedSong song = songs.get(ordinal);
+            ids[ordinal] = SearchText.documentId(song.id());
+            if (ordinal > 0 && ids[ordinal] <= ids[ordinal - 1]) {
+                throw new IllegalArgumentException("Songs must be ordered by id without duplicates");
+            }
+            int[] lengths = SearchText.fieldLengths(song);
+            for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                fieldLengths[ordinal * SearchText.FIELD_COUNT + field] = (char) lengths[field];
+                totals[field] += lengths[field];
+            }
+            stored[ordinal] = encode(song);
+            for (long gram : SearchText.grams(SearchText.text(song))) {
+                postings.computeIfAbsent(gram, key -> new IntPostings()).add(ordinal);
+            }
+        }
+
+        try (SegmentWriter writer = new SegmentWriter(file, count, totals)) {
+            writer.documents(ids, fieldLengths, Arrays.stream(stored).mapToInt(bytes -> bytes.length).toArray());
+            for (byte[] document : stored) {
+                writer.out.write(document);
+            }
+            for (long gram : postings.keySet().stream().mapToLong(Long::longValue).sorted().toArray()) {
+                int[] ordinals = postings.get(gram).toArray();
+                writer.postings(gram, ordinals, ordinals.length);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Write the documents of several segments that are not in their deletion
+     * snapshots as one segment. Stored documents are copied as they are and
+     * postings are merged gram by gram with ordinals renumbered, so nothing is
+     * decoded or re-tokenized and memory stays at a few ints per document.
+     */
+    static void merge(Path file, List<Segment> sources, List<BitSet> deletions) throws IOException {
+        int[] bases = new int[sources.size() + 1];
+        int live = 0;
+        for (int source = 0; source < sources.size(); source++) {
+            bases[source + 1] = bases[source] + sources.get(source).documentCount();
+            live += sources.get(source).documentCount() - deletions.get(source).cardinality();
+        }
+
+        // New ordinals follow song ids: sort (id, position across all sources) pairs
+        long[] order = new long[live];
+        int index = 0;
+        for (int source = 0; source < sources.size(); source++) {
+            Segment segment = sources.get(source);
+            for (int ordinal = 0; ordinal < segment.documentCount(); ordinal++) {
+                if (!deletions.get(source).get(ordinal)) {
+                    order[index++] = ((long) segment.id(ordinal) << 32) | (bases[source] + ordinal);
+                }
+            }
+        }
+        Arrays.sort(order);
+
+        int[][] renumbered = new int[sources.size()][];
+        for (int source = 0; source < sources.size(); source++) {
+            renumbered[source] = new int[sources.get(source).documentCount()];
+            Arrays.fill(renumbered[source], -1);
+        }
+        int[] ids = new int[live];
+        int[] sourceOf = new int[live];
+        int[] ordinalIn = new int[live];
+        char[] fieldLengths = new char[live * SearchText.FIELD_COUNT];
+        int[] storedLengths = new int[live];
+        long[] totals = new long[SearchText.FIELD_COUNT];
+        for (int ordinal = 0; ordinal < live; ordinal++) {
+            int position = (int) order[ordinal];
+            int source = 0;
+            while (bases[source + 1] <= position) {
+                source++;
+            }
+            Segment segment = sources.get(source);
+            int sourceOrdinal = position - bases[source];
+            ids[ordinal] = (int) (order[ordinal] >>> 32);
+            if (ordinal > 0 && ids[ordinal] == ids[ordinal - 1]) {
+                throw new IllegalStateException("Song " + ids[ordinal] + " is live in two segments");
+            }
+            sourceOf[ordinal] = source;
+            ordinalIn[ordinal] = sourceOrdinal;
+            renumbered[source][sourceOrdinal] = ordinal;
+            for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                int length = segment.fieldLength(sourceOrdinal, field);
+                fieldLengths[ordinal * SearchText.FIELD_COUNT + field] = (char) length;
+                totals[field] += length;
+            }
+            storedLengths[ordinal] = segment.storedLength(sourceOrdinal);
+        }
+
+        try (SegmentWriter writer = new SegmentWriter(file, live, totals)) {
+            writer.documents(ids, fieldLengths, storedLengths);
+            for (int ordinal = 0; ordinal < live; ordinal++) {
+                writer.out.write(sources.get(sourceOf[ordinal]).storedBytes(ordinalIn[ordinal]));
+            }
+
+            // Walk the sorted gram tables of all sources side by side
+            int[] cursors = new int[sources.size()];
+            int[] merged = new int[1024];
+            while (true) {
+                long gram = Long.MAX_VALUE;
+                for (int source = 0; source < sources.size(); source++) {
+                    if (cursors[source] < sources.get(source).gramCount()) {
+                        gram = Math.min(gram, sources.get(source).gram(cursors[source]));
+                    }
+                }
+                if (gram == Long.MAX_VALUE) {
+                    break;
+                }
+                int count = 0;
+                int contributing = 0;
+                for (int source = 0; source < sources.size(); source++) {
+                    Segment segment = sources.get(source);
+                    if (cursors[source] >= segment.gramCount() || segment.gram(cursors[source]) != gram) {
+                        continue;
+                    }
+                    int[] ordinals = segment.postings(cursors[source]++);
+                    if (merged.length < count + ordinals.length) {
+                        merged = Arrays.copyOf(merged, Math.max(merged.length * 2, count + ordinals.length));
+                    }
+                    for (int ordinal : ordinals) {
+                        int target = renumbered[source][ordinal];
+                        if (target >= 0) {
+                            merged[count++] = target;
+                        }
+                    }
+                    contributing++;
+                }
+                if (contributing > 1) {
+                    Arrays.sort(merged, 0, count);
+                }
+                if (count > 0) {
+                    writer.postings(gram, merged, count);
+                }
+            }
+            writer.finish();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private void documents(int[] ids, char[] fieldLengths, int[] storedLengths) throws IOException {
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+        for (char length : fieldLengths) {
+            out.writeChar(length);
+        }
+        int start = 0;
+        for (int length : storedLengths) {
+            out.writeInt(start);
+            start += length;
+        }
+        out.writeInt(start);
+    }
+
+    private void postings(long gram, int[] ordinals, int count) throws IOException {
+        if (postingsOffset < 0) {
+            postingsOffset = out.size();
+        }
+        if (gramCount == grams.length) {
+            grams = Arrays.copyOf(grams, gramCount * 2);
+            starts = Arrays.copyOf(starts, gramCount * 2 + 1);
+        }
+        grams[gramCount] = gram;
+        starts[gramCount++] = postingCount;
+        for (int i = 0; i < count; i++) {
+            out.writeInt(ordinals[i]);
+        }
+        postingCount += count;
+    }
+
+    private void finish() throws IOException {
+        if (postingsOffset < 0) {
+            postingsOffset = out.size();
+        }
+        starts[gramCount] = postingCount;
+        int gramsOffset = out.size();
+        for (int i = 0; i < gramCount; i++) {
+            out.writeLong(grams[i]);
+        }
+        int startsOffset = out.size();
+        for (int i = 0; i <= gramCount; i++) {
+            out.writeInt(starts[i]);
+        }
+        out.flush();
+        if (channel.size() >= Integer.MAX_VALUE) {
+            throw new IOException("Search segment " + file.getFileName() + " would exceed 2 GB");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(Segment.HEADER_SIZE);
+        header.putInt(Segment.MAGIC).putInt(Segment.VERSION).putInt(documentCount).putInt(gramCount);
+        for (long total : fieldTokenTotals) {
+            header.putLong(total);
+        }
+        header.putInt(postingsOffset).putInt(gramsOffset).putInt(startsOffset).putInt((int) channel.size());
+        header.rewind();
+        channel.write(header, 0);
+        channel.force(true);
+        out.close();
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    private static byte[] encode(IndexedSong song) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream document = new DataOutputStream(bytes)) {
+            for (String field : new String[]{song.title(), song.artist(), song.album()}) {
+                if (field == null) {
+                    document.writeInt(-1);
+                } else {
+                    byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                    document.writeInt(utf8.length);
+                    document.write(utf8);
+                }
+            }
+            if (song.createdAt() == null) {
+                document.writeLong(Segment.NO_TIMESTAMP);
+                document.writeInt(0);
+            } else {
+                document.writeLong(song.createdAt().toEpochSecond(ZoneOffset.UTC));
+                document.writeInt(song.createdAt().getNano());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode search document", ex);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,548 @@
+package com.arpit.MusicApp.service.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A compressed set of song ids in the style of Roaring bitmaps.
+ *
+ * Ids are split on their high 16 bits into chunks of 65536. Each chunk present
+ * keeps its low 16 bits in a container chosen by density: a sorted char array
+ * while it holds at most {@value #ARRAY_MAX} ids (two bytes each), a 1024-word
+ * bitmap beyond that (8 KB however full). Sparse attributes stay small, dense
+ * ones become plain word operations. AND and AND NOT walk the two key tables
+ * like a merge join so only chunks present on the relevant sides are combined;
+ * OR folds any number of bitmaps chunk by chunk in a single pass.
+ *
+ * Not thread-safe; {@link SongFilterIndex} guards the bitmaps it keeps, and the
+ * results of set operations are new bitmaps only their caller sees.
+ */
+final class SongBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    SongBitmap() {
+        this(4);
+    }
+
+    private SongBitmap(int capacity) {
+        keys = new char[Math.max(capacity, 4)];
+        containers = new Container[keys.length];
+    }
+
+    void add(int id) {
+        char key = (char) (id >>> 16);
+        int index = find(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) id);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add((char) id));
+        }
+    }
+
+    void remove(int id) {
+        int index = find((char) (id >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) id);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    boolean contains(int id) {
+        int index = find((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Bytes held by the containers, for logging
+     */
+    long sizeInBytes() {
+        long bytes = (long) keys.length * (Character.BYTES + 8);
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    SongBitmap and(SongBitmap other) {
+        SongBitmap result = new SongBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i++].and(other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The union of many bitmaps in one pass: the containers of each chunk are
+     * accumulated into one set of words, rather than copying a growing result
+     * once per operand
+     */
+    static SongBitmap orAll(List<SongBitmap> bitmaps) {
+        TreeMap<Character, long[]> chunks = new TreeMap<>();
+        for (SongBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                long[] words = chunks.computeIfAbsent(bitmap.keys[i], key -> new long[BitmapContainer.WORDS]);
+                bitmap.containers[i].orInto(words);
+            }
+        }
+        SongBitmap result = new SongBitmap(chunks.size());
+        chunks.forEach((key, words) -> result.append(key, BitmapContainer.of(words)));
+        return result;
+    }
+
+    SongBitmap andNot(SongBitmap other) {
+        SongBitmap result = new SongBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Up to count ids, ascending from just after an id (-1 to start at the lowest)
+     */
+    long[] ascendingAfter(long after, int count) {
+        long[] ids = new long[count];
+        int found = 0;
+        long start = Math.max(after + 1, 0);
+        if (start > Integer.MAX_VALUE) {
+            return new long[0];
+        }
+        int first = find((char) (start >>> 16));
+        int index = first >= 0 ? first : -first - 1;
+        for (int from = first >= 0 ? (int) (start & 0xFFFF) : 0; index < size && found < count; index++, from = 0) {
+            Container container = containers[index];
+            for (int value = container.next(from); value >= 0 && found < count; value = container.next(value + 1)) {
+                ids[found++] = ((long) keys[index] << 16) | value;
+            }
+        }
+        return Arrays.copyOf(ids, found);
+    }
+
+    /**
+     * Up to count ids, descending from just before an id (Long.MAX_VALUE to start at the highest)
+     */
+    long[] descendingBefore(long before, int count) {
+        long[] ids = new long[count];
+        int found = 0;
+        long start = Math.min(before - 1, Integer.MAX_VALUE);
+        if (start < 0) {
+            return new long[0];
+        }
+        int last = find((char) (start >>> 16));
+        int index = last >= 0 ? last : -last - 2;
+        for (int from = last >= 0 ? (int) (start & 0xFFFF) : CHUNK_SIZE - 1; index >= 0 && found < count;
+             index--, from = CHUNK_SIZE - 1) {
+            Container container = containers[index];
+            for (int value = container.previous(from); value >= 0 && found < count; value = container.previous(value - 1)) {
+                ids[found++] = ((long) keys[index] << 16) | value;
+            }
+        }
+        return Arrays.copyOf(ids, found);
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        grow();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        grow();
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private void appendIfNotEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            append(key, container);
+        }
+    }
+
+    private void grow() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /**
+     * The low 16 bits of the ids in one chunk. Updates return the container to
+     * use from then on, which is a converted one when the density crossed
+     * {@link #ARRAY_MAX}; set operations never modify their operands.
+     */
+    private interface Container {
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        long sizeInBytes();
+
+        /**
+         * The smallest value at or above from, or -1
+         */
+        int next(int from);
+
+        /**
+         * The largest value at or below from, or -1
+         */
+        int previous(int from);
+
+        Container and(Container other);
+
+        Container andNot(Container other);
+
+        /**
+         * Set the bits of this container's values in a 1024-word bitmap
+         */
+        void orInto(long[] words);
+
+        Container copy();
+    }
+
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return BitmapContainer.of(this).add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+
+        @Override
+        public int next(int from) {
+            if (from >= CHUNK_SIZE) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+
+        @Override
+        public int previous(int from) {
+            if (from < 0) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, (char) Math.min(from, CHUNK_SIZE - 1));
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index >= 0 ? values[index] : -1;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int j = 0;
+                for (int i = 0; i < cardinality && j < array.cardinality; ) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public void orInto(long[] words) {
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+
+        private static final int WORDS = CHUNK_SIZE / Long.SIZE;
+
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        static BitmapContainer of(ArrayContainer array) {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < array.cardinality; i++) {
+                words[array.values[i] >>> 6] |= 1L << array.values[i];
+            }
+            return new BitmapContainer(words, array.cardinality);
+        }
+
+        /**
+         * A container for the result of a word operation, back to an array once sparse enough
+         */
+        static Container of(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > ARRAY_MAX) {
+                return new BitmapContainer(words, cardinality);
+            }
+            return new BitmapContainer(words, cardinality).toArray();
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    values[count++] = (char) (w * Long.SIZE + Long.numberOfTrailingZeros(word));
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        public Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) WORDS * Long.BYTES;
+        }
+
+        @Override
+        public int next(int from) {
+            if (from >= CHUNK_SIZE) {
+                return -1;
+            }
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == WORDS) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        @Override
+        public int previous(int from) {
+            if (from < 0) {
+                return -1;
+            }
+            from = Math.min(from, CHUNK_SIZE - 1);
+            int w = from >>> 6;
+            long word = words[w] & (-1L >>> (63 - (from & 63)));
+            while (true) {
+                if (word != 0) {
+                    return w * Long.SIZE + 63 - Long.numberOfLeadingZeros(word);
+                }
+                if (--w < 0) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer array) {
+                return array.and(this);
+            }
+            long[] result = new long[WORDS];
+            long[] otherWords = ((BitmapContainer) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                result[w] = words[w] & otherWords[w];
+            }
+            return of(result);
+        }
+
+        @Override
+        public Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] &= ~otherWords[w];
+                }
+            }
+            return of(result);
+        }
+
+        @Override
+        public void orInto(long[] words) {
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= this.words[w];
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.dto.FacetCountDto;
+import com.arpit.MusicApp.dto.SongFacetsDto;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.service.SongDeletedEvent;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Song counts per genre, artist and album for browse pages.
+ *
+ * Every distinct value has a counter adjusted on each song change, so counts over
+ * the whole catalogue are read straight off the counters. For counts within a
+ * search, each song's genre, artist and album are kept as small ints in arrays
+ * indexed by song id, and the matches of {@link SongSearchIndex} are tallied
+ * through them without loading a single song. Artists and albums are grouped
+ * ignoring case and surrounding whitespace.
+ *
+ * Built when the application is ready and kept current by song events.
+ */
+@Service
+public class SongFacetService {
+
+    private static final Logger logger = LogManager.getLogger(SongFacetService.class);
+
+    public static final int DEFAULT_FACET_VALUES = 20;
+    public static final int MAX_FACET_VALUES = 100;
+
+    private static final int NONE = -1;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Song.Genre[] GENRES = Song.Genre.values();
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private SongSearchIndex songSearchIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock. The per-song arrays are indexed by song id and only
+    // meaningful for ids in songs; they hold a genre ordinal or value id, or NONE.
+    private final BitSet songs = new BitSet();
+    private int[] genreOf = new int[0];
+    private int[] artistOf = new int[0];
+    private int[] albumOf = new int[0];
+    private final int[] genreCounts = new int[GENRES.length];
+    private final Values artists = new Values();
+    private final Values albums = new Values();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    /**
+     * Distinct values of one field, each with a small id and the number of songs carrying it
+     */
+    private static final class Values {
+        final List<String> texts = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        final Deque<Integer> freeIds = new ArrayDeque<>();
+        int[] counts = new int[16];
+
+        /**
+         * Count one more song with a value
+         *
+         * @return the id of the value, NONE when it is blank
+         */
+        int add(String text) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return NONE;
+            }
+            Integer existing = ids.get(key);
+            int id;
+            if (existing != null) {
+                id = existing;
+            } else {
+                id = freeIds.isEmpty() ? texts.size() : freeIds.pop();
+                if (id == texts.size()) {
+                    texts.add(text.strip());
+                } else {
+                    texts.set(id, text.strip());
+                }
+                if (id >= counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+                ids.put(key, id);
+            }
+            counts[id]++;
+            return id;
+        }
+
+        void remove(int id) {
+            if (id == NONE) {
+                return;
+            }
+            if (--counts[id] == 0) {
+                ids.remove(normalize(texts.get(id)));
+                texts.set(id, null);
+                freeIds.push(id);
+            }
+        }
+
+        int size() {
+            return texts.size();
+        }
+
+        void clear() {
+            texts.clear();
+            ids.clear();
+            freeIds.clear();
+            Arrays.fill(counts, 0);
+        }
+    }
+
+    /**
+     * Counts over the whole catalogue, or over the songs matching a search query the
+     * same way as song search; artists and albums limited to the most common
+     */
+    public SongFacetsDto facets(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            lock.readLock().lock();
+            try {
+                return result(songs.cardinality(), genreCounts, artists.counts, albums.counts, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Long> matches = songSearchIndex.isReady()
+                ? songSearchIndex.search(query).stream().map(IndexedSong::id).toList()
+                : songRepository.searchSongs(query).stream().map(Song::getId).toList();
+        lock.readLock().lock();
+        try {
+            int total = 0;
+            int[] genreTally = new int[GENRES.length];
+            int[] artistTally = new int[artists.size()];
+            int[] albumTally = new int[albums.size()];
+            for (long songId : matches) {
+                int id = Math.toIntExact(songId);
+                if (!songs.get(id)) {
+                    continue; // deleted after the search ran
+                }
+                total++;
+                if (genreOf[id] != NONE) {
+                    genreTally[genreOf[id]]++;
+                }
+                if (artistOf[id] != NONE) {
+                    artistTally[artistOf[id]]++;
+                }
+                if (albumOf[id] != NONE) {
+                    albumTally[albumOf[id]]++;
+                }
+            }
+            return result(total, genreTally, artistTally, albumTally, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongSaved(SongSavedEvent event) {
+        Song song = event.song();
+        lock.writeLock().lock();
+        try {
+            removeSong(song.getId());
+            addSong(song.getId(), song.getGenre(), song.getArtist(), song.getAlbum());
+            if (rebuilding) {
+                changedDuringRebuild.add(song.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongDeleted(SongDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeSong(event.songId());
+            if (rebuilding) {
+                changedDuringRebuild.add(event.songId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load the genre, artist and album of every song in id order in batches.
+     * Songs changed while this runs keep the values their event brought in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+                songs.clear();
+                Arrays.fill(genreCounts, 0);
+                artists.clear();
+                albums.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long lastId = 0;
+            List<Object[]> batch;
+            do {
+                batch = songRepository.findFacetValuesGreaterThan(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : batch) {
+                        Long songId = (Long) row[0];
+                        if (!changedDuringRebuild.contains(songId)) {
+                            removeSong(songId);
+                            addSong(songId, (Song.Genre) row[1], (String) row[2], (String) row[3]);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    lastId = (Long) batch.get(batch.size() - 1)[0];
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            logger.info("Facets built: {} songs, {} artists, {} albums in {} ms", songs.cardinality(),
+                    artists.ids.size(), albums.ids.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            logger.error("Could not build song facets", ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void addSong(long songId, Song.Genre genre, String artist, String album) {
+        int id = Math.toIntExact(songId);
+        if (id >= genreOf.length) {
+            int length = Math.max(id + 1, Math.max(genreOf.length * 2, 1024));
+            genreOf = Arrays.copyOf(genreOf, length);
+            artistOf = Arrays.copyOf(artistOf, length);
+            albumOf = Arrays.copyOf(albumOf, length);
+        }
+        songs.set(id);
+        genreOf[id] = genre == null ? NONE : genre.ordinal();
+        if (genre != null) {
+            genreCounts[genre.ordinal()]++;
+        }
+        artistOf[id] = artists.add(artist);
+        albumOf[id] = albums.add(album);
+    }
+
+    private void removeSong(long songId) {
+        int id = Math.toIntExact(songId);
+        if (!songs.get(id)) {
+            return;
+        }
+        songs.clear(id);
+        if (genreOf[id] != NONE) {
+            genreCounts[genreOf[id]]--;
+        }
+        artists.remove(artistOf[id]);
+        albums.remove(albumOf[id]);
+    }
+
+    private SongFacetsDto result(int total, int[] genreTally, int[] artistTally, int[] albumTally, int limit) {
+        List<FacetCountDto> genres = new ArrayList<>();
+        for (Song.Genre genre : GENRES) {
+            if (genreTally[genre.ordinal()] > 0) {
+                genres.add(new FacetCountDto(genre.name(), genreTally[genre.ordinal()]));
+            }
+        }
+        genres.sort(Comparator.comparingInt(FacetCountDto::getCount).reversed());
+        return new SongFacetsDto(total, genres, top(artists, artistTally, limit), top(albums, albumTally, limit));
+    }
+
+    /**
+     * The most common values of a tally, by count then text, kept in a heap of limit entries
+     */
+    private static List<FacetCountDto> top(Values values, int[] tally, int limit) {
+        Comparator<Integer> order = Comparator.<Integer>comparingInt(id -> -tally[id])
+                .thenComparing(id -> values.texts.get(id), String.CASE_INSENSITIVE_ORDER);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, order.reversed());
+        for (int id = 0; id < values.size(); id++) {
+            if (tally[id] > 0) {
+                heap.add(id);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+        List<Integer> ids = new ArrayList<>(heap);
+        ids.sort(order);
+        return ids.stream().map(id -> new FacetCountDto(values.texts.get(id), tally[id])).toList();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : WHITESPACE.matcher(value.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
@@ -0,0 +1,64 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+
+import java.util.List;
+
+/**
+ * A parsed song filter expression, answered by {@link SongFilterIndex}.
+ *
+ * Terms are {@code genre:ROCK} (several genres separated by commas match any),
+ * {@code duration:180-300} in seconds with either bound optional,
+ * {@code has:audio}, {@code has:cover} and {@code decade:1990}. They combine
+ * with AND, OR, NOT and parentheses; NOT binds tightest, then AND, then OR, and
+ * terms side by side are ANDed:
+ * <pre>
+ * (genre:ROCK OR genre:METAL) AND duration:180-300 AND has:audio
+ * genre:ROCK,METAL duration:180-300 has:audio NOT has:cover
+ * </pre>
+ */
+public sealed interface SongFilter {
+
+    int MAX_TERMS = 32;
+
+    record GenreIs(Song.Genre genre) implements SongFilter {
+    }
+
+    /**
+     * Duration within bounds in seconds, both inclusive and either null for open
+     */
+    record DurationBetween(Integer min, Integer max) implements SongFilter {
+    }
+
+    record HasMedia(Media media) implements SongFilter {
+    }
+
+    /**
+     * Added to the catalogue in the ten years from a year ending in 0
+     */
+    record AddedInDecade(int decade) implements SongFilter {
+    }
+
+    record And(List<SongFilter> filters) implements SongFilter {
+    }
+
+    record Or(List<SongFilter> filters) implements SongFilter {
+    }
+
+    record Not(SongFilter filter) implements SongFilter {
+    }
+
+    enum Media {
+        AUDIO, COVER
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message for the client when the expression is malformed
+     */
+    static SongFilter parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("filter must not be empty");
+        }
+        return new SongFilterParser(expression).parse();
+    }
+}
@@ -0,0 +1,314 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.service.SongDeletedEvent;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmaps of song ids per genre, duration bucket, media presence and
+ * decade added, for answering {@link SongFilter} expressions in memory.
+ *
+ * Each term is a bitmap or a union of a few; AND, OR and NOT are bitmap
+ * operations and the result is read in id order from a position, so a filtered
+ * page costs a handful of {@link SongBitmap} operations whatever the combination.
+ * Durations sit in {@value #DURATION_BUCKET_SECONDS}-second buckets; buckets
+ * wholly inside a range are taken as they are and the two at its edges are
+ * checked against each song's exact duration.
+ *
+ * Built when the application is ready and kept current by song events.
+ */
+@Service
+public class SongFilterIndex {
+
+    private static final Logger logger = LogManager.getLogger(SongFilterIndex.class);
+
+    public static final int DURATION_BUCKET_SECONDS = 30;
+
+    private static final int DURATION_BUCKETS = 121; // the last one holds an hour and longer
+    private static final int NONE = -1;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Song.Genre[] GENRES = Song.Genre.values();
+
+    @Autowired
+    private SongRepository songRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock. The per-song arrays are indexed by song id and only
+    // meaningful for ids in all; they hold what the song was indexed under, or NONE.
+    private final SongBitmap all = new SongBitmap();
+    private final SongBitmap[] genres = newBitmaps(GENRES.length);
+    private final SongBitmap[] durations = newBitmaps(DURATION_BUCKETS);
+    private final SongBitmap[] media = newBitmaps(SongFilter.Media.values().length);
+    private final TreeMap<Integer, SongBitmap> decades = new TreeMap<>();
+    private int[] genreOf = new int[0];
+    private int[] durationOf = new int[0];
+    private int[] decadeOf = new int[0];
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    private volatile boolean ready;
+
+    /**
+     * Whether the index holds every song; until then filters go to the database
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids of the songs matching a filter in id order: up to count after a song id,
+     * or before it when descending (null to start at either end)
+     */
+    public List<Long> filter(SongFilter filter, Long after, boolean descending, int count) {
+        lock.readLock().lock();
+        try {
+            SongBitmap matches = evaluate(filter);
+            long[] ids = descending
+                    ? matches.descendingBefore(after == null ? Long.MAX_VALUE : after, count)
+                    : matches.ascendingAfter(after == null ? -1 : after, count);
+            return Arrays.stream(ids).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongSaved(SongSavedEvent event) {
+        Song song = event.song();
+        lock.writeLock().lock();
+        try {
+            removeSong(song.getId());
+            addSong(song.getId(), song.getGenre(), song.getDuration(), song.getAudioSize(),
+                    song.getCoverImageSize(), song.getCreatedAt());
+            if (rebuilding) {
+                changedDuringRebuild.add(song.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongDeleted(SongDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeSong(event.songId());
+            if (rebuilding) {
+                changedDuringRebuild.add(event.songId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load the filterable attributes of every song in id order in batches.
+     * Songs changed while this runs keep the values their event brought in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long lastId = 0;
+            List<Object[]> batch;
+            do {
+                batch = songRepository.findFilterValuesGreaterThan(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : batch) {
+                        Long songId = (Long) row[0];
+                        if (!changedDuringRebuild.contains(songId)) {
+                            removeSong(songId);
+                            addSong(songId, (Song.Genre) row[1], (Integer) row[2], (Long) row[3], (Long) row[4],
+                                    (LocalDateTime) row[5]);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    lastId = (Long) batch.get(batch.size() - 1)[0];
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            ready = true;
+            logger.info("Filter index built: {} songs, {} KB of bitmaps in {} ms", all.cardinality(),
+                    bitmapBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            logger.error("Could not build song filter index", ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private SongBitmap evaluate(SongFilter filter) {
+        if (filter instanceof SongFilter.GenreIs genre) {
+            return genres[genre.genre().ordinal()];
+        }
+        if (filter instanceof SongFilter.DurationBetween range) {
+            return durationBetween(range.min() == null ? 0 : range.min(),
+                    range.max() == null ? Integer.MAX_VALUE : range.max());
+        }
+        if (filter instanceof SongFilter.HasMedia has) {
+            return media[has.media().ordinal()];
+        }
+        if (filter instanceof SongFilter.AddedInDecade decade) {
+            return decades.getOrDefault(decade.decade(), new SongBitmap());
+        }
+        if (filter instanceof SongFilter.Not not) {
+            return all.andNot(evaluate(not.filter()));
+        }
+        if (filter instanceof SongFilter.And and) {
+            SongBitmap result = evaluate(and.filters().get(0));
+            for (int i = 1; i < and.filters().size() && !result.isEmpty(); i++) {
+                result = result.and(evaluate(and.filters().get(i)));
+            }
+            return result;
+        }
+        SongFilter.Or or = (SongFilter.Or) filter;
+        return SongBitmap.orAll(or.filters().stream().map(this::evaluate).toList());
+    }
+
+    private SongBitmap durationBetween(int min, int max) {
+        List<SongBitmap> parts = new ArrayList<>();
+        if (min > max) {
+            return new SongBitmap();
+        }
+        int first = bucket(min);
+        int last = bucket(max);
+        for (int bucket = first; bucket <= last; bucket++) {
+            boolean whole = (bucket > first || bucketStart(bucket) >= min)
+                    && (bucket < last || (bucket < DURATION_BUCKETS - 1 && bucketStart(bucket + 1) - 1 <= max));
+            if (whole) {
+                parts.add(durations[bucket]);
+                continue;
+            }
+            SongBitmap edge = new SongBitmap();
+            for (long id : durations[bucket].ascendingAfter(-1, durations[bucket].cardinality())) {
+                int duration = durationOf[(int) id];
+                if (duration >= min && duration <= max) {
+                    edge.add((int) id);
+                }
+            }
+            parts.add(edge);
+        }
+        return SongBitmap.orAll(parts);
+    }
+
+    private void addSong(long songId, Song.Genre genre, Integer duration, Long audioSize, Long coverImageSize,
+                         LocalDateTime createdAt) {
+        int id = Math.toIntExact(songId);
+        if (id >= genreOf.length) {
+            int length = Math.max(id + 1, Math.max(genreOf.length * 2, 1024));
+            genreOf = Arrays.copyOf(genreOf, length);
+            durationOf = Arrays.copyOf(durationOf, length);
+            decadeOf = Arrays.copyOf(decadeOf, length);
+        }
+        all.add(id);
+        genreOf[id] = genre == null ? NONE : genre.ordinal();
+        if (genre != null) {
+            genres[genre.ordinal()].add(id);
+        }
+        durationOf[id] = duration == null || duration < 0 ? NONE : duration;
+        if (durationOf[id] != NONE) {
+            durations[bucket(duration)].add(id);
+        }
+        // Presence as in SongDto.hasAudioData and hasCoverImage
+        if (audioSize != null && audioSize > 0) {
+            media[SongFilter.Media.AUDIO.ordinal()].add(id);
+        }
+        if (coverImageSize != null && coverImageSize > 0) {
+            media[SongFilter.Media.COVER.ordinal()].add(id);
+        }
+        decadeOf[id] = createdAt == null ? NONE : createdAt.getYear() / 10 * 10;
+        if (decadeOf[id] != NONE) {
+            decades.computeIfAbsent(decadeOf[id], decade -> new SongBitmap()).add(id);
+        }
+    }
+
+    private void removeSong(long songId) {
+        int id = Math.toIntExact(songId);
+        if (!all.contains(id)) {
+            return;
+        }
+        all.remove(id);
+        if (genreOf[id] != NONE) {
+            genres[genreOf[id]].remove(id);
+        }
+        if (durationOf[id] != NONE) {
+            durations[bucket(durationOf[id])].remove(id);
+        }
+        for (SongBitmap bitmap : media) {
+            bitmap.remove(id);
+        }
+        if (decadeOf[id] != NONE) {
+            SongBitmap decade = decades.get(decadeOf[id]);
+            decade.remove(id);
+            if (decade.isEmpty()) {
+                decades.remove(decadeOf[id]);
+            }
+        }
+    }
+
+    private long bitmapBytes() {
+        long bytes = all.sizeInBytes();
+        for (SongBitmap[] bitmaps : List.of(genres, durations, media)) {
+            for (SongBitmap bitmap : bitmaps) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        for (SongBitmap bitmap : decades.values()) {
+            bytes += bitmap.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private static int bucket(int duration) {
+        return Math.min(duration / DURATION_BUCKET_SECONDS, DURATION_BUCKETS - 1);
+    }
+
+    private static int bucketStart(int bucket) {
+        return bucket * DURATION_BUCKET_SECONDS;
+    }
+
+    private static SongBitmap[] newBitmaps(int count) {
+        SongBitmap[] bitmaps = new SongBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new SongBitmap();
+        }
+        return bitmaps;
+    }
+}
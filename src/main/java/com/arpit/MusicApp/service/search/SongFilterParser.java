@@ -0,0 +1,159 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses {@link SongFilter} expressions by recursive descent over whitespace-
+ * and parenthesis-separated tokens
+ */
+final class SongFilterParser {
+
+    private final List<String> tokens = new ArrayList<>();
+    private int position;
+    private int terms;
+
+    SongFilterParser(String expression) {
+        StringBuilder token = new StringBuilder();
+        for (char c : expression.toCharArray()) {
+            if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                if (!token.isEmpty()) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+    }
+
+    SongFilter parse() {
+        SongFilter filter = or();
+        if (position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(position) + "' in filter");
+        }
+        return filter;
+    }
+
+    private SongFilter or() {
+        List<SongFilter> filters = new ArrayList<>(List.of(and()));
+        while (accept("OR")) {
+            filters.add(and());
+        }
+        return filters.size() == 1 ? filters.get(0) : new SongFilter.Or(filters);
+    }
+
+    private SongFilter and() {
+        List<SongFilter> filters = new ArrayList<>(List.of(unary()));
+        while (position < tokens.size() && !peekIs(")") && !peekIs("OR")) {
+            accept("AND");
+            filters.add(unary());
+        }
+        return filters.size() == 1 ? filters.get(0) : new SongFilter.And(filters);
+    }
+
+    private SongFilter unary() {
+        if (accept("NOT")) {
+            return new SongFilter.Not(unary());
+        }
+        if (accept("(")) {
+            SongFilter filter = or();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')' in filter");
+            }
+            return filter;
+        }
+        if (position == tokens.size()) {
+            throw new IllegalArgumentException("filter ends where a term was expected");
+        }
+        return term(tokens.get(position++));
+    }
+
+    private SongFilter term(String token) {
+        if (++terms > SongFilter.MAX_TERMS) {
+            throw new IllegalArgumentException("filter may have at most " + SongFilter.MAX_TERMS + " terms");
+        }
+        int colon = token.indexOf(':');
+        if (colon <= 0 || colon == token.length() - 1) {
+            throw new IllegalArgumentException("Expected field:value in filter, got '" + token + "'");
+        }
+        String field = token.substring(0, colon).toLowerCase(Locale.ROOT);
+        String value = token.substring(colon + 1);
+        return switch (field) {
+            case "genre" -> genres(value);
+            case "duration" -> duration(value);
+            case "has" -> switch (value.toLowerCase(Locale.ROOT)) {
+                case "audio" -> new SongFilter.HasMedia(SongFilter.Media.AUDIO);
+                case "cover" -> new SongFilter.HasMedia(SongFilter.Media.COVER);
+                default -> throw new IllegalArgumentException("has: takes audio or cover, got '" + value + "'");
+            };
+            case "decade" -> decade(value);
+            default -> throw new IllegalArgumentException(
+                    "Unknown filter field '" + field + "'; use genre, duration, has or decade");
+        };
+    }
+
+    private static SongFilter genres(String value) {
+        List<SongFilter> genres = new ArrayList<>();
+        for (String name : value.split(",")) {
+            try {
+                genres.add(new SongFilter.GenreIs(Song.Genre.valueOf(name.strip().toUpperCase(Locale.ROOT))));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown genre '" + name + "' in filter");
+            }
+        }
+        return genres.size() == 1 ? genres.get(0) : new SongFilter.Or(genres);
+    }
+
+    private static SongFilter duration(String value) {
+        int dash = value.indexOf('-');
+        try {
+            if (dash < 0) {
+                int seconds = Integer.parseInt(value);
+                return new SongFilter.DurationBetween(seconds, seconds);
+            }
+            Integer min = dash == 0 ? null : Integer.valueOf(value.substring(0, dash));
+            Integer max = dash == value.length() - 1 ? null : Integer.valueOf(value.substring(dash + 1));
+            if ((min == null && max == null) || (min != null && min < 0) || (min != null && max != null && min > max)) {
+                throw new NumberFormatException();
+            }
+            return new SongFilter.DurationBetween(min, max);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("duration: takes seconds as min-max, min- or -max, got '" + value + "'");
+        }
+    }
+
+    private static SongFilter decade(String value) {
+        String year = value.endsWith("s") ? value.substring(0, value.length() - 1) : value;
+        try {
+            int decade = Integer.parseInt(year);
+            if (decade % 10 == 0 && decade > 0 && decade < 10000) {
+                return new SongFilter.AddedInDecade(decade);
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("decade: takes a year ending in 0 such as 1990, got '" + value + "'");
+    }
+
+    private boolean accept(String token) {
+        if (peekIs(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peekIs(String token) {
+        return position < tokens.size() && tokens.get(position).equalsIgnoreCase(token);
+    }
+}
@@ -0,0 +1,1026 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.service.SongDeletedEvent;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over song title, artist and album, kept on disk so it survives restarts.
+ *
+ * Each lowercased field is cut into overlapping three-character grams and every
+ * gram maps to a sorted list of the songs containing it. A substring query
+ * intersects the postings of its own grams, rarest first, and confirms the few
+ * remaining candidates against the stored text, so a search touches a handful
+ * of short lists instead of scanning the songs table. Queries shorter than a
+ * gram take the union of the grams containing them.
+ *
+ * Storage is log-structured. Changes go to a small in-memory buffer that is
+ * written out as an immutable, memory-mapped {@link Segment} every few seconds
+ * or once it is full; the older version of a changed or deleted song is only
+ * marked deleted in its segment. When segments pile up, or one is mostly
+ * deleted, they are merged into one in the background. Flushes and merges end
+ * with an atomic {@link IndexManifest} commit, so at startup the index maps the
+ * committed segments and serves searches straight away, then catches up with
+ * songs changed since, including changes made by other nodes. Each node keeps
+ * its own directory. The catalogue is only read in full when there is no
+ * usable index on disk.
+ *
+ * Matches can also be ranked. Each field is split into word tokens and scored
+ * with BM25F: per query token, whole-word hits in a field count fully and
+ * word-prefix hits half, weighted by field boost (title above artist above
+ * album) and normalized by field length against the catalogue average, then
+ * saturated and weighted by inverse document frequency. Every song sharing a
+ * word prefix with a one-word query is also a substring match, so frequencies
+ * are counted over the matches alone and nothing else is scored.
+ *
+ * Until the index is open callers fall back to the database.
+ */
+@Service
+public class SongSearchIndex {
+
+    private static final Logger logger = LogManager.getLogger(SongSearchIndex.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // Songs committed late or stamped by a clock slightly behind are still caught up
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(5);
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_HIT = 0.5;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Value("${song.search.boost.title:3.0}")
+    private double titleBoost;
+
+    @Value("${song.search.boost.artist:2.0}")
+    private double artistBoost;
+
+    @Value("${song.search.boost.album:1.0}")
+    private double albumBoost;
+
+    @Value("${song.search.index.dir:data/search-index}")
+    private String indexDirectory;
+
+    @Value("${song.search.index.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${song.search.index.merge-factor:8}")
+    private int mergeFactor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Serializes opening, rebuilding, flushing, merging and catching up; searches and events only take lock
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private final AtomicLong nextSegment = new AtomicLong();
+    private Path directory;
+
+    // All guarded by lock
+    private final Map<Long, IntPostings> postings = new HashMap<>();
+    private final Map<Integer, Document> buffer = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Set<Integer> changedWhileLoading = new HashSet<>();
+    private final long[] fieldTokenTotals = new long[SearchText.FIELD_COUNT];
+    private int liveDocuments;
+    private LocalDateTime watermark;
+    private boolean uncommitted;
+    private boolean loading;
+
+    private volatile boolean ready;
+
+    private record Document(IndexedSong song, String text) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Songs whose title, artist or album contains the term, ignoring case, in no particular order.
+     * Matches the LIKE query in {@link SongRepository#searchSongs(String)}.
+     */
+    public List<IndexedSong> search(String term) {
+        String query = SearchText.normalize(term);
+        lock.readLock().lock();
+        try {
+            return match(query).stream().map(Document::song).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first matches of {@link #search} after a cursor, in an order that may
+     * use their BM25F relevance to the query tokens. Matches sharing no word
+     * prefix with the query, such as "een" in "queen", score 0.
+     *
+     * Every match is scored in one pass over the text it was confirmed against,
+     * and only the best limit are kept, in a heap, and sorted.
+     *
+     * @param order Order of the result, best first
+     * @param after Cursor, only matches ordered after it are returned; null for the start
+     */
+    public List<RankedSong> rank(String term, Comparator<RankedSong> order, RankedSong after, int limit) {
+        String query = SearchText.normalize(term);
+        String[] queryTokens = Arrays.stream(SearchText.tokenize(query)).distinct().toArray(String[]::new);
+        double[] boosts = {titleBoost, artistBoost, albumBoost};
+        lock.readLock().lock();
+        try {
+            List<Document> matches = match(query);
+            double[] averageLengths = new double[SearchText.FIELD_COUNT];
+            for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                averageLengths[field] = liveDocuments == 0
+                        ? 1.0
+                        : Math.max(1.0, (double) fieldTokenTotals[field] / liveDocuments);
+            }
+
+            // Boosted, length-normalized term frequency of every query token in every match
+            double[][] frequencies = new double[matches.size()][queryTokens.length];
+            int[] documentFrequencies = new int[queryTokens.length];
+            double[][] hits = new double[SearchText.FIELD_COUNT][queryTokens.length];
+            for (int i = 0; i < matches.size(); i++) {
+                for (double[] fieldHits : hits) {
+                    Arrays.fill(fieldHits, 0);
+                }
+                int[] lengths = SearchText.countHits(matches.get(i).text(), queryTokens, PREFIX_HIT, hits);
+                for (int t = 0; t < queryTokens.length; t++) {
+                    double frequency = 0;
+                    for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                        if (hits[field][t] > 0) {
+                            frequency += boosts[field] * hits[field][t]
+                                    / (1 - B + B * lengths[field] / averageLengths[field]);
+                        }
+                    }
+                    frequencies[i][t] = frequency;
+                    if (frequency > 0) {
+                        documentFrequencies[t]++;
+                    }
+                }
+            }
+
+            int total = liveDocuments;
+            double[] idfs = new double[queryTokens.length];
+            for (int t = 0; t < queryTokens.length; t++) {
+                idfs[t] = Math.log(1 + (total - documentFrequencies[t] + 0.5) / (documentFrequencies[t] + 0.5));
+            }
+            PriorityQueue<RankedSong> best = new PriorityQueue<>(limit + 1, order.reversed());
+            for (int i = 0; i < matches.size(); i++) {
+                double score = 0;
+                for (int t = 0; t < queryTokens.length; t++) {
+                    double frequency = frequencies[i][t];
+                    if (frequency > 0) {
+                        score += idfs[t] * frequency * (K1 + 1) / (frequency + K1);
+                    }
+                }
+                RankedSong match = new RankedSong(matches.get(i).song(), score);
+                if (after != null && order.compare(match, after) <= 0) {
+                    continue;
+                }
+                best.add(match);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<RankedSong> ranked = new ArrayList<>(best);
+            ranked.sort(order);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongSaved(SongSavedEvent event) {
+        IndexedSong song = IndexedSong.from(event.song());
+        lock.writeLock().lock();
+        try {
+            put(song);
+            advanceWatermark(event.song().getUpdatedAt());
+            if (loading) {
+                changedWhileLoading.add(SearchText.documentId(song.id()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongDeleted(SongDeletedEvent event) {
+        int id = SearchText.documentId(event.songId());
+        lock.writeLock().lock();
+        try {
+            remove(id);
+            if (loading) {
+                changedWhileLoading.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Open the index on disk and catch up with the database, or build it from
+     * scratch when there is none or it cannot be read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void open() {
+        maintenanceLock.lock();
+        try {
+            long started = System.nanoTime();
+            directory = Path.of(indexDirectory).toAbsolutePath();
+            Files.createDirectories(directory);
+            if (load()) {
+                ready = true;
+                logger.info("Search index opened: {} songs in {} segments in {} ms",
+                        size(), segmentCount(), (System.nanoTime() - started) / 1_000_000);
+                catchUp();
+            } else {
+                build();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Could not open the search index in {}, searches use the database", indexDirectory, ex);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Index the whole catalogue again, replacing what is on disk once done.
+     */
+    public void rebuild() {
+        maintenanceLock.lock();
+        try {
+            build();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Could not build the search index, searches use the database", ex);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Write buffered changes to a segment, then merge segments if there are too many
+     */
+    @Scheduled(fixedDelayString = "${song.search.index.flush-interval:PT5S}")
+    public void maintain() {
+        if (!ready || !maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            flush(true);
+            merge();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Search index maintenance failed, changes stay buffered", ex);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Pick up songs changed by other nodes
+     */
+    @Scheduled(fixedDelayString = "${song.search.index.sync-interval:PT5M}",
+            initialDelayString = "${song.search.index.sync-interval:PT5M}")
+    public void synchronize() {
+        if (!ready || !maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            catchUp();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Could not synchronize the search index with the database", ex);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!ready) {
+            return;
+        }
+        maintenanceLock.lock();
+        try {
+            flush(true);
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Could not flush the search index on shutdown", ex);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Map the committed segments and apply their deletions.
+     *
+     * @return false when there is no usable index on disk
+     */
+    private boolean load() {
+        IndexManifest manifest;
+        List<Segment> opened = new ArrayList<>();
+        try {
+            manifest = IndexManifest.read(directory);
+            if (manifest == null) {
+                return false;
+            }
+            for (IndexManifest.Entry entry : manifest.segments()) {
+                Segment segment = Segment.open(directory.resolve(entry.name()));
+                segment.restoreDeletions(BitSet.valueOf(entry.deleted()));
+                opened.add(segment);
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Search index in {} is unreadable, rebuilding it: {}", directory, ex.getMessage());
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Segment segment : opened) {
+                segments.add(segment);
+                liveDocuments += segment.liveCount();
+                for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                    fieldTokenTotals[field] += segment.fieldTokenTotal(field);
+                }
+                BitSet deleted = segment.deletions();
+                for (int ordinal = deleted.nextSetBit(0); ordinal >= 0; ordinal = deleted.nextSetBit(ordinal + 1)) {
+                    for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                        fieldTokenTotals[field] -= segment.fieldLength(ordinal, field);
+                    }
+                }
+            }
+            watermark = manifest.watermark();
+            nextSegment.set(Math.max(manifest.nextSegment(), highestSegmentNumber() + 1));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deleteUnreferencedFiles();
+        return true;
+    }
+
+    /**
+     * Read every song in id order in batches, writing segments as the buffer fills,
+     * and commit them in place of the previous index at the end. Searches use the
+     * database meanwhile. Songs changed while this runs keep the version their
+     * event brought in.
+     */
+    private void build() throws IOException {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            clear();
+            nextSegment.set(Math.max(nextSegment.get(), highestSegmentNumber() + 1));
+            loading = true;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long lastId = 0;
+            List<Song> batch;
+            do {
+                batch = songRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, BATCH_SIZE));
+                putAll(batch);
+                if (bufferedCount() >= bufferSize) {
+                    flush(false);
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == BATCH_SIZE);
+            lock.writeLock().lock();
+            try {
+                uncommitted = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            flush(true);
+            ready = true;
+            deleteUnreferencedFiles();
+            logger.info("Search index built: {} songs in {} segments in {} ms",
+                    size(), segmentCount(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            stopLoading();
+        }
+    }
+
+    /**
+     * Bring the index up to date with the database. Songs changed since the newest
+     * change it holds, less a margin, are read again; if the song count still
+     * differs, every id is compared to find songs added or deleted behind its back.
+     */
+    private void catchUp() throws IOException {
+        long started = System.nanoTime();
+        LocalDateTime since;
+        lock.writeLock().lock();
+        try {
+            since = watermark;
+            loading = true;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            int changed = 0;
+            if (since != null) {
+                LocalDateTime from = since.minus(CATCH_UP_OVERLAP);
+                long lastId = 0;
+                List<Song> batch;
+                do {
+                    batch = songRepository.findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                            from, lastId, PageRequest.of(0, BATCH_SIZE));
+                    changed += putAll(batch);
+                    if (bufferedCount() >= bufferSize) {
+                        flush(true);
+                    }
+                    if (!batch.isEmpty()) {
+                        lastId = batch.get(batch.size() - 1).getId();
+                    }
+                } while (batch.size() == BATCH_SIZE);
+            }
+            int[] addedAndRemoved = {0, 0};
+            if (since == null || songRepository.count() != size()) {
+                addedAndRemoved = reconcile();
+            }
+            flush(true);
+            if (changed + addedAndRemoved[0] + addedAndRemoved[1] > 0) {
+                logger.info("Search index caught up: {} changed, {} added, {} removed in {} ms",
+                        changed, addedAndRemoved[0], addedAndRemoved[1], (System.nanoTime() - started) / 1_000_000);
+            }
+        } finally {
+            stopLoading();
+        }
+    }
+
+    /**
+     * Walk the song ids of the index and of the database side by side, indexing
+     * songs it lacks and dropping songs that are gone.
+     *
+     * @return songs added and removed
+     */
+    private int[] reconcile() throws IOException {
+        int[] indexed;
+        lock.readLock().lock();
+        try {
+            indexed = liveIds();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int position = 0;
+        int added = 0;
+        List<Integer> stale = new ArrayList<>();
+        long lastId = 0;
+        List<Long> ids;
+        do {
+            ids = songRepository.findIdsGreaterThan(lastId, PageRequest.of(0, BATCH_SIZE));
+            List<Long> missing = new ArrayList<>();
+            for (Long id : ids) {
+                int documentId = SearchText.documentId(id);
+                while (position < indexed.length && indexed[position] < documentId) {
+                    stale.add(indexed[position++]);
+                }
+                if (position < indexed.length && indexed[position] == documentId) {
+                    position++;
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                added += putAll(songRepository.findAllById(missing));
+                if (bufferedCount() >= bufferSize) {
+                    flush(true);
+                }
+            }
+            if (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == BATCH_SIZE);
+        while (position < indexed.length) {
+            stale.add(indexed[position++]);
+        }
+
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            for (int id : stale) {
+                if (!changedWhileLoading.contains(id) && remove(id)) {
+                    removed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new int[]{added, removed};
+    }
+
+    /**
+     * Write the buffer out as a new segment and, if asked, commit. The segment is
+     * written without holding the lock; a buffered song changed meanwhile stays
+     * in the buffer and its copy in the new segment is marked deleted.
+     */
+    private void flush(boolean commit) throws IOException {
+        Map<Integer, Document> flushed;
+        lock.readLock().lock();
+        try {
+            if (buffer.isEmpty() && !(commit && uncommitted)) {
+                return;
+            }
+            flushed = new HashMap<>(buffer);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Segment segment = null;
+        if (!flushed.isEmpty()) {
+            List<IndexedSong> songs = flushed.values().stream()
+                    .map(Document::song)
+                    .sorted(Comparator.comparingLong(IndexedSong::id))
+                    .toList();
+            Path file = directory.resolve(segmentName(nextSegment.getAndIncrement()));
+            SegmentWriter.write(file, songs);
+            segment = Segment.open(file);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                for (int ordinal = 0; ordinal < segment.documentCount(); ordinal++) {
+                    int id = segment.id(ordinal);
+                    Document document = flushed.get(id);
+                    if (buffer.get(id) == document) {
+                        unbuffer(id, document);
+                    } else {
+                        segment.delete(ordinal);
+                    }
+                }
+                segments.add(segment);
+                uncommitted = true;
+            }
+            if (commit && uncommitted) {
+                commit();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merge the segments picked by {@link #mergeCandidates()} into one, written
+     * without holding the lock. Songs deleted from the sources meanwhile are then
+     * deleted from the merged segment before it replaces them.
+     */
+    private void merge() throws IOException {
+        List<Segment> sources;
+        List<BitSet> deletions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            sources = mergeCandidates();
+            for (Segment source : sources) {
+                deletions.add(source.deletions());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        Segment merged = null;
+        if (sources.stream().mapToInt(Segment::liveCount).sum() > 0) {
+            Path file = directory.resolve(segmentName(nextSegment.getAndIncrement()));
+            SegmentWriter.merge(file, sources, deletions);
+            merged = Segment.open(file);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < sources.size() && merged != null; i++) {
+                BitSet deletedSince = sources.get(i).deletions();
+                deletedSince.andNot(deletions.get(i));
+                for (int ordinal = deletedSince.nextSetBit(0); ordinal >= 0; ordinal = deletedSince.nextSetBit(ordinal + 1)) {
+                    int target = merged.ordinalOf(sources.get(i).id(ordinal));
+                    if (target >= 0) {
+                        merged.delete(target);
+                    }
+                }
+            }
+            segments.removeAll(sources);
+            if (merged != null) {
+                segments.add(merged);
+            }
+            commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Segment source : sources) {
+            deleteQuietly(directory.resolve(source.name()));
+        }
+        logger.debug("Merged {} search segments into {} live songs in {} ms", sources.size(),
+                merged == null ? 0 : merged.liveCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * The smallest segments once there are more than the merge factor, plus any
+     * mostly deleted one, as many as fit in one segment file. Callers hold the lock.
+     */
+    private List<Segment> mergeCandidates() {
+        List<Segment> bySize = new ArrayList<>(segments);
+        bySize.sort(Comparator.comparingInt(Segment::liveCount));
+        List<Segment> candidates = new ArrayList<>();
+        if (segments.size() > mergeFactor) {
+            candidates.addAll(bySize.subList(0, mergeFactor));
+        }
+        for (Segment segment : bySize) {
+            if (segment.deletedCount() * 2L > segment.documentCount() && !candidates.contains(segment)) {
+                candidates.add(segment);
+            }
+        }
+        List<Segment> fitting = new ArrayList<>();
+        long bytes = 0;
+        for (Segment candidate : candidates) {
+            if (bytes + candidate.sizeInBytes() < Integer.MAX_VALUE) {
+                fitting.add(candidate);
+                bytes += candidate.sizeInBytes();
+            }
+        }
+        boolean worthIt = fitting.size() > 1 || (fitting.size() == 1 && fitting.get(0).deletedCount() > 0);
+        return worthIt ? fitting : List.of();
+    }
+
+    /**
+     * Record segments and their deletions as the current state. Callers hold the write lock.
+     */
+    private void commit() throws IOException {
+        List<IndexManifest.Entry> entries = segments.stream()
+                .map(segment -> new IndexManifest.Entry(segment.name(), segment.deletions().toByteArray()))
+                .toList();
+        new IndexManifest(nextSegment.get(), watermark, entries).write(directory);
+        uncommitted = false;
+    }
+
+    /**
+     * Documents containing the normalized query, in no particular order. Callers hold the read lock.
+     */
+    private List<Document> match(String query) {
+        List<Document> matches = new ArrayList<>();
+        if (query.length() < SearchText.GRAM_LENGTH) {
+            for (Document document : buffer.values()) {
+                if (document.text().contains(query)) {
+                    matches.add(document);
+                }
+            }
+            for (Segment segment : segments) {
+                matchShort(segment, query, matches);
+            }
+        } else {
+            Set<Long> grams = SearchText.queryGrams(query);
+            matchBuffer(grams, query, matches);
+            for (Segment segment : segments) {
+                match(segment, grams, query, matches);
+            }
+        }
+        return matches;
+    }
+
+    private void matchBuffer(Set<Long> grams, String query, List<Document> matches) {
+        List<IntPostings> lists = new ArrayList<>();
+        for (long gram : grams) {
+            IntPostings list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(IntPostings::size));
+        int[] candidates = lists.get(0).toArray();
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainAll(candidates, count);
+        }
+
+        // Grams can match out of order or across words, so confirm each candidate
+        for (int i = 0; i < count; i++) {
+            Document document = buffer.get(candidates[i]);
+            if (document.text().contains(query)) {
+                matches.add(document);
+            }
+        }
+    }
+
+    private static void match(Segment segment, Set<Long> grams, String query, List<Document> matches) {
+        List<Integer> indexes = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            int index = segment.gramIndex(gram);
+            if (index < 0) {
+                return;
+            }
+            indexes.add(index);
+        }
+        indexes.sort(Comparator.comparingInt(segment::postingCount));
+        int[] candidates = segment.postings(indexes.get(0));
+        int count = candidates.length;
+        for (int i = 1; i < indexes.size() && count > 0; i++) {
+            count = segment.retainAll(indexes.get(i), candidates, count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (segment.isLive(candidates[i])) {
+                IndexedSong song = segment.document(candidates[i]);
+                String text = SearchText.text(song);
+                if (text.contains(query)) {
+                    matches.add(new Document(song, text));
+                }
+            }
+        }
+    }
+
+    /**
+     * Fields are padded before they are cut into grams, so every query of one or
+     * two chars a field contains lies inside one of its grams and the union of the
+     * postings of those grams is exactly the match set.
+     */
+    private static void matchShort(Segment segment, String query, List<Document> matches) {
+        BitSet ordinals = new BitSet(segment.documentCount());
+        if (query.isEmpty()) {
+            ordinals.set(0, segment.documentCount());
+        } else {
+            for (int index = 0; index < segment.gramCount(); index++) {
+                if (SearchText.gramContains(segment.gram(index), query)) {
+                    for (int ordinal : segment.postings(index)) {
+                        ordinals.set(ordinal);
+                    }
+                }
+            }
+        }
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            if (segment.isLive(ordinal)) {
+                IndexedSong song = segment.document(ordinal);
+                matches.add(new Document(song, SearchText.text(song)));
+            }
+        }
+    }
+
+    /**
+     * Index songs read from the database unless an event changed them meanwhile
+     * or the index already holds them as they are.
+     *
+     * @return how many songs were new or different
+     */
+    private int putAll(List<Song> songs) {
+        int changed = 0;
+        lock.writeLock().lock();
+        try {
+            for (Song song : songs) {
+                int id = SearchText.documentId(song.getId());
+                if (changedWhileLoading.contains(id)) {
+                    continue;
+                }
+                advanceWatermark(song.getUpdatedAt());
+                IndexedSong indexed = IndexedSong.from(song);
+                if (!indexed.equals(find(id))) {
+                    put(indexed);
+                    changed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changed;
+    }
+
+    private void put(IndexedSong song) {
+        int id = SearchText.documentId(song.id());
+        remove(id);
+        Document document = new Document(song, SearchText.text(song));
+        buffer.put(id, document);
+        for (long gram : SearchText.grams(document.text())) {
+            postings.computeIfAbsent(gram, key -> new IntPostings()).add(id);
+        }
+        count(SearchText.fieldLengths(song), 1);
+    }
+
+    /**
+     * Drop the live version of a song, from the buffer or by marking it deleted in its segment
+     *
+     * @return whether there was one
+     */
+    private boolean remove(int id) {
+        Document buffered = buffer.get(id);
+        if (buffered != null) {
+            unbuffer(id, buffered);
+            count(SearchText.fieldLengths(buffered.song()), -1);
+            return true;
+        }
+        for (Segment segment : segments) {
+            int ordinal = segment.ordinalOf(id);
+            if (ordinal >= 0 && segment.delete(ordinal)) {
+                int[] lengths = new int[SearchText.FIELD_COUNT];
+                for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+                    lengths[field] = segment.fieldLength(ordinal, field);
+                }
+                count(lengths, -1);
+                uncommitted = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unbuffer(int id, Document document) {
+        buffer.remove(id);
+        for (long gram : SearchText.grams(document.text())) {
+            IntPostings list = postings.get(gram);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private IndexedSong find(int id) {
+        Document buffered = buffer.get(id);
+        if (buffered != null) {
+            return buffered.song();
+        }
+        for (Segment segment : segments) {
+            int ordinal = segment.ordinalOf(id);
+            if (ordinal >= 0 && segment.isLive(ordinal)) {
+                return segment.document(ordinal);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ids of all live songs, ascending. Callers hold the lock.
+     */
+    private int[] liveIds() {
+        int[] ids = new int[liveDocuments];
+        int count = 0;
+        for (int id : buffer.keySet()) {
+            ids[count++] = id;
+        }
+        for (Segment segment : segments) {
+            for (int ordinal = 0; ordinal < segment.documentCount(); ordinal++) {
+                if (segment.isLive(ordinal)) {
+                    ids[count++] = segment.id(ordinal);
+                }
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void count(int[] fieldLengths, int sign) {
+        for (int field = 0; field < SearchText.FIELD_COUNT; field++) {
+            fieldTokenTotals[field] += (long) sign * fieldLengths[field];
+        }
+        liveDocuments += sign;
+    }
+
+    private void advanceWatermark(LocalDateTime updatedAt) {
+        if (updatedAt != null && (watermark == null || updatedAt.isAfter(watermark))) {
+            watermark = updatedAt;
+        }
+    }
+
+    private void clear() {
+        postings.clear();
+        buffer.clear();
+        segments.clear();
+        Arrays.fill(fieldTokenTotals, 0);
+        liveDocuments = 0;
+        watermark = null;
+        uncommitted = false;
+    }
+
+    private void stopLoading() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int bufferedCount() {
+        lock.readLock().lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove segment files no commit refers to: leftovers of a crash, a merge or a rebuild
+     */
+    private void deleteUnreferencedFiles() {
+        Set<String> referenced = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            segments.forEach(segment -> referenced.add(segment.name()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!referenced.contains(file.getFileName().toString())) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not list search index files in {}", directory, ex);
+        }
+    }
+
+    private long highestSegmentNumber() {
+        long highest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.indexOf(SEGMENT_SUFFIX));
+                try {
+                    highest = Math.max(highest, Long.parseLong(number));
+                } catch (NumberFormatException ex) {
+                    // not one of ours
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not list search index files in {}", directory, ex);
+        }
+        return highest;
+    }
+
+    private static String segmentName(long number) {
+        return SEGMENT_PREFIX + number + SEGMENT_SUFFIX;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // Still mapped on some platforms; removed as unreferenced on the next start
+            logger.debug("Could not delete search index file {}", file, ex);
+        }
+    }
+}
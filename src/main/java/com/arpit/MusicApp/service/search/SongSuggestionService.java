@@ -0,0 +1,347 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.dto.SuggestionDto;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.repository.PlaylistRepository;
+import com.arpit.MusicApp.repository.SongRepository;
+import com.arpit.MusicApp.service.PlaylistSongsChangedEvent;
+import com.arpit.MusicApp.service.SongDeletedEvent;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Type-ahead suggestions over the distinct titles, artists and albums of the catalogue.
+ *
+ * Each distinct value is one suggestion, found by a prefix of the whole value or
+ * of any word in it ("rhap" finds "Bohemian Rhapsody"). Its weight is the number
+ * of songs carrying it plus the number of playlists those songs are in, so
+ * popular artists and songs come first. Lookups read the precomputed top list of
+ * one {@link SuggestionTrie} node and never touch the database.
+ *
+ * Built when the application is ready and kept current by song and playlist events.
+ */
+@Service
+public class SongSuggestionService {
+
+    private static final Logger logger = LogManager.getLogger(SongSuggestionService.class);
+
+    public static final int MAX_SUGGESTIONS = SuggestionTrie.TOP_K;
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_WORD_KEYS = 8;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private final List<Suggestion> suggestions = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final Map<String, Integer> suggestionIds = new HashMap<>();
+    private final Map<Long, IndexedSong> songs = new HashMap<>();
+    private final Map<Long, Integer> playlistCounts = new HashMap<>();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private final SuggestionTrie trie = new SuggestionTrie(id -> suggestions.get(id).weight);
+    private boolean rebuilding;
+
+    private static final class Suggestion {
+        final int id;
+        final SuggestionDto.Field field;
+        final String text;
+        final List<String> keys;
+        int songCount;
+        long weight;
+
+        Suggestion(int id, SuggestionDto.Field field, String text, List<String> keys) {
+            this.id = id;
+            this.field = field;
+            this.text = text;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Suggestions for a prefix of a title, artist or album or of a word in one, heaviest first
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int[] top = trie.lookup(truncate(key));
+            List<SuggestionDto> results = new ArrayList<>(Math.min(limit, top.length));
+            for (int i = 0; i < top.length && results.size() < limit; i++) {
+                Suggestion suggestion = suggestions.get(top[i]);
+                results.add(new SuggestionDto(suggestion.text, suggestion.field, suggestion.songCount));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongSaved(SongSavedEvent event) {
+        IndexedSong song = IndexedSong.from(event.song());
+        lock.writeLock().lock();
+        try {
+            removeSong(song.id());
+            addSong(song);
+            if (rebuilding) {
+                changedDuringRebuild.add(song.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongDeleted(SongDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeSong(event.songId());
+            playlistCounts.remove(event.songId());
+            if (rebuilding) {
+                changedDuringRebuild.add(event.songId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlaylistSongsChanged(PlaylistSongsChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.addedSongIds().forEach(songId -> changePlaylistCount(songId, 1));
+            event.removedSongIds().forEach(songId -> changePlaylistCount(songId, -1));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Load playlist counts, then every song in id order in batches.
+     * Songs changed while this runs keep the version their event brought in.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        try {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (Object[] row : playlistRepository.countPlaylistsPerSong()) {
+                counts.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+                for (IndexedSong song : new ArrayList<>(songs.values())) {
+                    removeSong(song.id());
+                }
+                playlistCounts.clear();
+                playlistCounts.putAll(counts);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long lastId = 0;
+            List<Song> batch;
+            do {
+                batch = songRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                lock.writeLock().lock();
+                try {
+                    for (Song song : batch) {
+                        if (!changedDuringRebuild.contains(song.getId())) {
+                            removeSong(song.getId());
+                            addSong(IndexedSong.from(song));
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            logger.info("Suggestions built: {} from {} songs in {} ms",
+                    suggestionIds.size(), songs.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException ex) {
+            logger.error("Could not build song suggestions", ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void addSong(IndexedSong song) {
+        songs.put(song.id(), song);
+        long weight = songWeight(song.id());
+        for (Map.Entry<SuggestionDto.Field, String> value : values(song).entrySet()) {
+            Suggestion suggestion = findOrCreate(value.getKey(), value.getValue(), weight);
+            suggestion.songCount++;
+        }
+    }
+
+    private void removeSong(long songId) {
+        IndexedSong song = songs.remove(songId);
+        if (song == null) {
+            return;
+        }
+        long weight = songWeight(songId);
+        for (Map.Entry<SuggestionDto.Field, String> value : values(song).entrySet()) {
+            Integer id = suggestionIds.get(identity(value.getKey(), value.getValue()));
+            if (id == null) {
+                continue;
+            }
+            Suggestion suggestion = suggestions.get(id);
+            suggestion.songCount--;
+            if (suggestion.songCount > 0) {
+                reweigh(suggestion, -weight);
+                continue;
+            }
+            for (String key : suggestion.keys) {
+                trie.remove(key, id);
+            }
+            suggestionIds.remove(identity(value.getKey(), value.getValue()));
+            suggestions.set(id, null);
+            freeIds.push(id);
+        }
+    }
+
+    private void changePlaylistCount(long songId, int delta) {
+        int previous = playlistCounts.getOrDefault(songId, 0);
+        int count = Math.max(0, previous + delta);
+        if (count == 0) {
+            playlistCounts.remove(songId);
+        } else {
+            playlistCounts.put(songId, count);
+        }
+        IndexedSong song = songs.get(songId);
+        if (song == null) {
+            return;
+        }
+        long change = count - previous;
+        for (Map.Entry<SuggestionDto.Field, String> value : values(song).entrySet()) {
+            Integer id = suggestionIds.get(identity(value.getKey(), value.getValue()));
+            if (id != null) {
+                reweigh(suggestions.get(id), change);
+            }
+        }
+    }
+
+    private void reweigh(Suggestion suggestion, long change) {
+        if (change == 0) {
+            return;
+        }
+        suggestion.weight += change;
+        for (String key : suggestion.keys) {
+            trie.reweigh(key, suggestion.id, change > 0);
+        }
+    }
+
+    /**
+     * Add weight to a suggestion, creating it with that weight if it is new
+     */
+    private Suggestion findOrCreate(SuggestionDto.Field field, String text, long weight) {
+        String identity = identity(field, text);
+        Integer existing = suggestionIds.get(identity);
+        if (existing != null) {
+            Suggestion suggestion = suggestions.get(existing);
+            reweigh(suggestion, weight);
+            return suggestion;
+        }
+        int id = freeIds.isEmpty() ? suggestions.size() : freeIds.pop();
+        Suggestion suggestion = new Suggestion(id, field, text.strip(), keys(text));
+        suggestion.weight = weight;
+        if (id == suggestions.size()) {
+            suggestions.add(suggestion);
+        } else {
+            suggestions.set(id, suggestion);
+        }
+        suggestionIds.put(identity, id);
+        for (String key : suggestion.keys) {
+            trie.add(key, id);
+        }
+        return suggestion;
+    }
+
+    private long songWeight(long songId) {
+        return 1L + playlistCounts.getOrDefault(songId, 0);
+    }
+
+    /**
+     * Non-blank title, artist and album of a song
+     */
+    private static Map<SuggestionDto.Field, String> values(IndexedSong song) {
+        Map<SuggestionDto.Field, String> values = new HashMap<>();
+        if (!normalize(song.title()).isEmpty()) {
+            values.put(SuggestionDto.Field.TITLE, song.title());
+        }
+        if (!normalize(song.artist()).isEmpty()) {
+            values.put(SuggestionDto.Field.ARTIST, song.artist());
+        }
+        if (!normalize(song.album()).isEmpty()) {
+            values.put(SuggestionDto.Field.ALBUM, song.album());
+        }
+        return values;
+    }
+
+    /**
+     * The whole normalized value and the rest of it from each following word start
+     */
+    private static List<String> keys(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        keys.add(truncate(normalized));
+        for (int i = normalized.indexOf(' '); i >= 0 && keys.size() <= MAX_WORD_KEYS; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(truncate(normalized.substring(i + 1)));
+        }
+        return keys.stream().distinct().toList();
+    }
+
+    private static String identity(SuggestionDto.Field field, String text) {
+        return field.name() + ':' + normalize(text);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : WHITESPACE.matcher(value.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+}
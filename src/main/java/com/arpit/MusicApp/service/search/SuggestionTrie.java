@@ -0,0 +1,288 @@
+package com.arpit.MusicApp.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Radix tree from normalized keys to suggestion ids, where every node also keeps
+ * the ids of the heaviest suggestions anywhere below it.
+ *
+ * Edges carry whole label strings and children sit in sorted parallel arrays, so
+ * the tree has about two nodes per key however long the keys are. A lookup walks
+ * the prefix and returns the precomputed list of the node it ends in, without
+ * visiting the subtree. After a key is added or removed, or the weight of a
+ * suggestion changes, only the lists on that key's path are recomputed, each from
+ * the node's own suggestions and its children's lists. A suggestion that only
+ * got heavier cannot let anything else in, so it is just moved up or inserted
+ * in each list on its path.
+ *
+ * Not thread-safe; the owning service guards it.
+ */
+final class SuggestionTrie {
+
+    static final int TOP_K = 10;
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private final IntToLongFunction weights;
+    private final Node root = new Node("");
+
+    private static final class Node {
+        String label;
+        char[] childKeys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int[] terminals = NO_IDS; // suggestions whose key ends here
+        int[] top = NO_IDS; // heaviest suggestions in this subtree, heaviest first
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(childKeys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void putChild(Node child) {
+            char key = child.label.charAt(0);
+            int index = Arrays.binarySearch(childKeys, key);
+            if (index >= 0) {
+                children[index] = child;
+                return;
+            }
+            int insertAt = -index - 1;
+            childKeys = insert(childKeys, insertAt, key);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(childKeys, key);
+            if (index < 0) {
+                return;
+            }
+            char[] keys = new char[childKeys.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(childKeys, 0, keys, 0, index);
+            System.arraycopy(childKeys, index + 1, keys, index, keys.length - index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            childKeys = keys.length == 0 ? NO_KEYS : keys;
+            children = nodes.length == 0 ? NO_CHILDREN : nodes;
+        }
+
+        private static char[] insert(char[] keys, int index, char key) {
+            char[] grown = new char[keys.length + 1];
+            System.arraycopy(keys, 0, grown, 0, index);
+            grown[index] = key;
+            System.arraycopy(keys, index, grown, index + 1, keys.length - index);
+            return grown;
+        }
+    }
+
+    /**
+     * @param weights weight of a suggestion by id; ties go to the lower id
+     */
+    SuggestionTrie(IntToLongFunction weights) {
+        this.weights = weights;
+    }
+
+    void add(String key, int id) {
+        Node node = root;
+        String rest = key;
+        while (!rest.isEmpty()) {
+            Node child = node.child(rest.charAt(0));
+            if (child == null) {
+                child = new Node(rest);
+                node.putChild(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefixLength(child.label, rest);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.putChild(child);
+                middle.top = child.top;
+                node.putChild(middle);
+                child = middle;
+            }
+            node = child;
+            rest = rest.substring(common);
+        }
+        if (Arrays.stream(node.terminals).noneMatch(existing -> existing == id)) {
+            node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+            node.terminals[node.terminals.length - 1] = id;
+        }
+        promote(key, id);
+    }
+
+    void remove(String key, int id) {
+        List<Node> path = path(key);
+        Node node = path.get(path.size() - 1);
+        if (!lengthMatches(path, key)) {
+            return;
+        }
+        node.terminals = Arrays.stream(node.terminals).filter(existing -> existing != id).toArray();
+
+        // Drop nodes left empty and fold single-child chains back into one edge
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            Node parent = path.get(i - 1);
+            if (current.terminals.length == 0 && current.children.length == 0) {
+                parent.removeChild(current.label.charAt(0));
+            } else if (current.terminals.length == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                only.label = current.label + only.label;
+                parent.putChild(only);
+                break;
+            } else {
+                break;
+            }
+        }
+        refresh(key);
+    }
+
+    /**
+     * Update the lists on the path of a key after the weight of a suggestion stored under it changed
+     */
+    void reweigh(String key, int id, boolean heavier) {
+        if (heavier) {
+            promote(key, id);
+        } else {
+            refresh(key);
+        }
+    }
+
+    /**
+     * Heaviest suggestions with a key starting with the prefix, at most {@link #TOP_K}
+     */
+    int[] lookup(String prefix) {
+        Node node = root;
+        String rest = prefix;
+        while (!rest.isEmpty()) {
+            Node child = node.child(rest.charAt(0));
+            if (child == null) {
+                return NO_IDS;
+            }
+            int common = commonPrefixLength(child.label, rest);
+            if (common == rest.length()) {
+                return child.top; // the prefix ends on or inside this edge
+            }
+            if (common < child.label.length()) {
+                return NO_IDS;
+            }
+            node = child;
+            rest = rest.substring(common);
+        }
+        return node.top;
+    }
+
+    private void promote(String key, int id) {
+        for (Node node : path(key)) {
+            int[] top = node.top;
+            int index = indexOf(top, id);
+            if (index < 0) {
+                if (top.length == TOP_K && compare(id, top[TOP_K - 1]) >= 0) {
+                    continue;
+                }
+                top = Arrays.copyOf(top, Math.min(top.length + 1, TOP_K));
+                index = top.length - 1;
+                top[index] = id;
+            } else {
+                top = top.clone();
+            }
+            while (index > 0 && compare(top[index], top[index - 1]) < 0) {
+                int swap = top[index - 1];
+                top[index - 1] = top[index];
+                top[index] = swap;
+                index--;
+            }
+            node.top = top;
+        }
+    }
+
+    private void refresh(String key) {
+        List<Node> path = path(key);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            List<Integer> candidates = new ArrayList<>();
+            for (int id : node.terminals) {
+                candidates.add(id);
+            }
+            for (Node child : node.children) {
+                for (int id : child.top) {
+                    candidates.add(id);
+                }
+            }
+            node.top = candidates.stream()
+                    .distinct()
+                    .sorted(this::compare)
+                    .limit(TOP_K)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Heavier first, ties to the lower id
+     */
+    private int compare(int first, int second) {
+        int byWeight = Long.compare(weights.applyAsLong(second), weights.applyAsLong(first));
+        return byWeight != 0 ? byWeight : Integer.compare(first, second);
+    }
+
+    /**
+     * Nodes from the root along the key, as far as whole edges match
+     */
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int offset = 0;
+        while (offset < key.length()) {
+            Node child = node.child(key.charAt(offset));
+            if (child == null || !key.startsWith(child.label, offset)) {
+                break;
+            }
+            path.add(child);
+            node = child;
+            offset += child.label.length();
+        }
+        return path;
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean lengthMatches(List<Node> path, String key) {
+        int length = 0;
+        for (Node node : path) {
+            length += node.label.length();
+        }
+        return length == key.length();
+    }
+
+    private static int commonPrefixLength(String first, String second) {
+        int limit = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < limit && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,117 @@
+package com.arpit.MusicApp.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Signs and verifies time-limited media URLs.
+ *
+ * A signature is an HMAC-SHA256 over the URL path and its expiry time, so it
+ * can be checked without any lookup. Query parameters other than the
+ * signature itself are not signed: clients may add Range-like options such as
+ * ?t= or ?size= to a signed URL. Segments of one audio file share a single
+ * signature over their directory.
+ *
+ * Expiry times are rounded up to media.url.granularity, so every URL issued
+ * for a file within that window is identical and stays cacheable.
+ */
+@Component
+public class MediaUrlSigner {
+
+    public static final String EXPIRES_PARAM = "expires";
+    public static final String SIGNATURE_PARAM = "signature";
+
+    private static final String SEGMENTS_PATH = "/api/files/segments/";
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Duration granularity;
+
+    public MediaUrlSigner(@Value("${media.url.secret}") String secret,
+                          @Value("${media.url.ttl:6h}") Duration ttl,
+                          @Value("${media.url.granularity:1h}") Duration granularity) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttl = ttl;
+        this.granularity = granularity;
+    }
+
+    /**
+     * Expiry of URLs signed now, in epoch seconds: at least the TTL ahead,
+     * rounded up to the granularity
+     */
+    public long currentExpiry() {
+        long step = Math.max(1, granularity.toSeconds());
+        long earliest = Instant.now().getEpochSecond() + ttl.toSeconds();
+        return (earliest + step - 1) / step * step;
+    }
+
+    /**
+     * Sign a path with the current expiry
+     *
+     * @return The path with the expires and signature query parameters
+     */
+    public String sign(String path) {
+        return path + "?" + signatureQuery(path, currentExpiry());
+    }
+
+    /**
+     * Query string (without '?') carrying the signature of a path
+     */
+    public String signatureQuery(String path, long expires) {
+        return EXPIRES_PARAM + "=" + expires + "&" + SIGNATURE_PARAM + "=" + signature(signedResource(path), expires);
+    }
+
+    /**
+     * Check a signature sent with a request
+     *
+     * @param path Request path without the context path
+     * @return Whether the signature is valid for the path and not expired
+     */
+    public boolean verify(String path, String expires, String signature) {
+        if (expires == null || signature == null) {
+            return false;
+        }
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(expires);
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+        if (expiresAt < Instant.now().getEpochSecond()) {
+            return false;
+        }
+        byte[] expected = signature(signedResource(path), expiresAt).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * The part of a path covered by its signature: the directory for
+     * segments, the whole path otherwise
+     */
+    static String signedResource(String path) {
+        if (path.startsWith(SEGMENTS_PATH)) {
+            return path.substring(0, path.lastIndexOf('/') + 1);
+        }
+        return path;
+    }
+
+    private String signature(String resource, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] hash = mac.doFinal((resource + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 is not available", ex);
+        }
+    }
+}
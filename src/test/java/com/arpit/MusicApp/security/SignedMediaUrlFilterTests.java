@@ -0,0 +1,116 @@
+package com.arpit.MusicApp.security;
+
+import com.arpit.MusicApp.util.MediaUrlSigner;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedMediaUrlFilterTests {
+
+	private final MediaUrlSigner signer = new MediaUrlSigner("test-secret", Duration.ofHours(6), Duration.ofHours(1));
+
+	private final SignedMediaUrlFilter filter = new SignedMediaUrlFilter();
+
+	SignedMediaUrlFilterTests() {
+		ReflectionTestUtils.setField(filter, "mediaUrlSigner", signer);
+	}
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void validSignatureAuthenticatesTheRequest() throws Exception {
+		Authentication[] seen = new Authentication[1];
+		MockHttpServletResponse response = run(request("/api/files/audio/11", signer.sign("/api/files/audio/11")),
+				(req, res) -> seen[0] = SecurityContextHolder.getContext().getAuthentication());
+
+		assertEquals(200, response.getStatus());
+		assertNotNull(seen[0]);
+		assertTrue(seen[0].getAuthorities().stream()
+				.anyMatch(authority -> authority.getAuthority().equals(SignedMediaUrlFilter.MEDIA_AUTHORITY)));
+	}
+
+	@Test
+	void expiredSignatureIsForbidden() throws Exception {
+		long past = Instant.now().getEpochSecond() - 60;
+		String url = "/api/files/audio/11?" + signer.signatureQuery("/api/files/audio/11", past);
+
+		MockHttpServletResponse response = run(request("/api/files/audio/11", url), null);
+
+		assertEquals(403, response.getStatus());
+	}
+
+	@Test
+	void tamperedSignatureIsForbidden() throws Exception {
+		String url = signer.sign("/api/files/audio/11");
+		int first = url.indexOf("signature=") + "signature=".length();
+		url = url.substring(0, first) + (url.charAt(first) == 'A' ? 'B' : 'A') + url.substring(first + 1);
+
+		MockHttpServletResponse response = run(request("/api/files/audio/11", url), null);
+
+		assertEquals(403, response.getStatus());
+	}
+
+	@Test
+	void signatureForAnotherPathIsForbidden() throws Exception {
+		MockHttpServletResponse response = run(request("/api/files/audio/12", signer.sign("/api/files/audio/11")), null);
+
+		assertEquals(403, response.getStatus());
+	}
+
+	@Test
+	void unsignedRequestIsLeftToJwtAuthentication() throws Exception {
+		boolean[] called = new boolean[1];
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/audio/11");
+
+		MockHttpServletResponse response = run(request, (req, res) -> called[0] = true);
+
+		assertTrue(called[0]);
+		assertEquals(200, response.getStatus());
+		assertNull(SecurityContextHolder.getContext().getAuthentication());
+	}
+
+	@Test
+	void otherPathsAreNotChecked() throws Exception {
+		boolean[] called = new boolean[1];
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/songs/11");
+		request.setParameter(MediaUrlSigner.SIGNATURE_PARAM, "garbage");
+
+		MockHttpServletResponse response = run(request, (req, res) -> called[0] = true);
+
+		assertTrue(called[0]);
+		assertEquals(200, response.getStatus());
+	}
+
+	private MockHttpServletResponse run(MockHttpServletRequest request, FilterChain next) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, next == null ? new MockFilterChain() : next);
+		return response;
+	}
+
+	/**
+	 * A request for a path with the query parameters of a signed URL
+	 */
+	private static MockHttpServletRequest request(String path, String signedUrl) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		String query = signedUrl.substring(signedUrl.indexOf('?') + 1);
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			request.setParameter(pair.substring(0, eq), pair.substring(eq + 1));
+		}
+		return request;
+	}
+}
@@ -0,0 +1,165 @@
+package com.arpit.MusicApp.service;
+
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.entity.Song;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongCatalogCacheTests {
+
+	private static final SongCatalogCache.Listing ALL = SongCatalogCache.Listing.all();
+	private static final SongCatalogCache.Listing ROCK = SongCatalogCache.Listing.genre(Song.Genre.ROCK);
+	private static final SongCatalogCache.Listing JAZZ = SongCatalogCache.Listing.genre(Song.Genre.JAZZ);
+	private static final LocalDateTime DAY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private final SongCatalogCache cache = new SongCatalogCache(true, 100, 100, Duration.ofMinutes(5));
+
+	@Test
+	void songMovedBetweenGenresDropsThePagesItLeftAndJoined() {
+		SongCatalogCache.PageKey rockFirst = putPage(ROCK, "id", false, null, null, List.of(1L, 2L, 3L), null, 3L);
+		SongCatalogCache.PageKey rockSecond = putPage(ROCK, "id", false, null, 3L, List.of(5L, 6L), null, null);
+		SongCatalogCache.PageKey jazzFirst = putPage(JAZZ, "id", false, null, null, List.of(4L, 7L), null, 7L);
+		SongCatalogCache.PageKey jazzSecond = putPage(JAZZ, "id", false, null, 7L, List.of(8L, 9L), null, null);
+		SongCatalogCache.PageKey allFirst = putPage(ALL, "id", false, null, null, List.of(1L, 2L, 3L), null, 3L);
+		SongCatalogCache.PageKey allSecond = putPage(ALL, "id", false, null, 3L, List.of(4L, 5L, 6L), null, 6L);
+		putSong(1L);
+		putSong(2L);
+
+		cache.onSongSaved(new SongSavedEvent(song(2L, Song.Genre.JAZZ, "Artist", DAY)));
+
+		assertNull(cache.getPage(rockFirst), "held the song");
+		assertNotNull(cache.getPage(rockSecond), "starts after the song");
+		assertNull(cache.getPage(jazzFirst), "the song now sorts onto it");
+		assertNotNull(cache.getPage(jazzSecond), "starts after the song");
+		assertNull(cache.getPage(allFirst), "held the song");
+		assertNotNull(cache.getPage(allSecond), "starts after the song");
+		assertNull(cache.getSong(2L));
+		assertNotNull(cache.getSong(1L));
+	}
+
+	@Test
+	void pageRangesFollowTheDirectionAndCreationTime() {
+		SongCatalogCache.PageKey newest = putPage(ROCK, "createdAt", true, null, null, List.of(9L, 8L),
+				DAY.plusDays(8), 8L);
+		SongCatalogCache.PageKey older = putPage(ROCK, "createdAt", true, DAY.plusDays(8), 8L, List.of(4L, 3L),
+				DAY.plusDays(3), 3L);
+		SongCatalogCache.PageKey oldest = putPage(ROCK, "createdAt", true, DAY.plusDays(3), 3L, List.of(1L),
+				null, null);
+		SongCatalogCache.PageKey byIdDescending = putPage(ROCK, "id", true, null, 20L, List.of(10L, 9L), null, 9L);
+
+		cache.onSongSaved(new SongSavedEvent(song(6L, Song.Genre.ROCK, "Artist", DAY.plusDays(5))));
+
+		assertNotNull(cache.getPage(newest));
+		assertNull(cache.getPage(older));
+		assertNotNull(cache.getPage(oldest));
+		assertNotNull(cache.getPage(byIdDescending), "id 6 comes after its last row, 9");
+
+		// Same creation time as a page's last row: the id decides
+		cache.onSongSaved(new SongSavedEvent(song(7L, Song.Genre.ROCK, "Artist", DAY.plusDays(8))));
+		assertNotNull(cache.getPage(newest), "id 7 comes after its last row, 8");
+		cache.onSongSaved(new SongSavedEvent(song(10L, Song.Genre.ROCK, "Artist", DAY.plusDays(8))));
+		assertNull(cache.getPage(newest));
+		assertNotNull(cache.getPage(oldest));
+	}
+
+	@Test
+	void pagesWithoutComparableKeysAreDroppedWhole() {
+		SongCatalogCache.PageKey byTitle = putPage(ROCK, "title", false, "zz", 40L, List.of(41L), null, null);
+		SongCatalogCache.PageKey byArtist = putPage(ALL, "artist", false, null, null, List.of(1L), "a", 1L);
+		SongCatalogCache.PageKey otherGenreByTitle = putPage(JAZZ, "title", false, null, null, List.of(4L), "b", 4L);
+		SongCatalogCache.PageKey noCreationTime = putPage(ROCK, "createdAt", false, DAY, 1L, List.of(2L), null, null);
+
+		cache.onSongSaved(new SongSavedEvent(song(3L, Song.Genre.ROCK, "Artist", null)));
+
+		assertNull(cache.getPage(byTitle));
+		assertNull(cache.getPage(byArtist));
+		assertNotNull(cache.getPage(otherGenreByTitle), "the song is not in that listing");
+		assertNull(cache.getPage(noCreationTime));
+	}
+
+	@Test
+	void listingMembershipMatchesTheQueries() {
+		Song song = song(1L, Song.Genre.ROCK, "The Rolling Stones", DAY);
+		Song noArtist = song(2L, null, null, DAY);
+
+		assertTrue(ALL.contains(song));
+		assertTrue(ROCK.contains(song));
+		assertFalse(JAZZ.contains(song));
+		assertFalse(ROCK.contains(noArtist));
+		assertTrue(SongCatalogCache.Listing.artist("rolling").contains(song));
+		assertTrue(SongCatalogCache.Listing.artist("STONES").contains(song));
+		assertFalse(SongCatalogCache.Listing.artist("beatles").contains(song));
+		assertFalse(SongCatalogCache.Listing.artist("rolling").contains(noArtist));
+		// The database reads these as wildcards, so the cache cannot tell
+		assertTrue(SongCatalogCache.Listing.artist("b%tles").contains(song));
+		assertTrue(SongCatalogCache.Listing.artist("b_atles").contains(noArtist));
+	}
+
+	@Test
+	void loadThatRacedAnInvalidationIsNotCached() {
+		long loadedAt = cache.generation();
+		cache.onSongSaved(new SongSavedEvent(song(99L, Song.Genre.METAL, "Someone", DAY)));
+
+		cache.putSong(dto(1L), loadedAt);
+		SongCatalogCache.PageKey key = new SongCatalogCache.PageKey(ROCK, "id", false, 20, null, null);
+		cache.putPage(key, new SongCatalogCache.CachedPage(List.of(1L), null, null, null), loadedAt);
+
+		assertNull(cache.getSong(1L));
+		assertNull(cache.getPage(key));
+
+		long reloadedAt = cache.generation();
+		cache.putSong(dto(1L), reloadedAt);
+		cache.putPage(key, new SongCatalogCache.CachedPage(List.of(1L), null, null, null), reloadedAt);
+
+		assertNotNull(cache.getSong(1L));
+		assertNotNull(cache.getPage(key));
+	}
+
+	@Test
+	void deleteDropsOnlyWhatHeldTheSong() {
+		SongCatalogCache.PageKey holding = putPage(ALL, "id", false, null, null, List.of(1L, 2L), null, 2L);
+		SongCatalogCache.PageKey next = putPage(ALL, "id", false, null, 2L, List.of(3L), null, null);
+		long loadedAt = cache.generation();
+
+		cache.onSongDeleted(new SongDeletedEvent(2L));
+
+		assertNull(cache.getPage(holding));
+		assertNotNull(cache.getPage(next));
+		cache.putSong(dto(2L), loadedAt);
+		assertNull(cache.getSong(2L), "a delete also moves the generation on");
+	}
+
+	private SongCatalogCache.PageKey putPage(SongCatalogCache.Listing listing, String sort, boolean descending,
+											 Object afterKey, Long afterId, List<Long> ids, Object endKey, Long endId) {
+		SongCatalogCache.PageKey key = new SongCatalogCache.PageKey(listing, sort, descending, ids.size(),
+				afterKey, afterId);
+		cache.putPage(key, new SongCatalogCache.CachedPage(ids, endId == null ? null : "cursor", endKey, endId),
+				cache.generation());
+		return key;
+	}
+
+	private void putSong(long id) {
+		cache.putSong(dto(id), cache.generation());
+	}
+
+	private static SongDto dto(long id) {
+		SongDto dto = new SongDto();
+		dto.setId(id);
+		return dto;
+	}
+
+	private static Song song(long id, Song.Genre genre, String artist, LocalDateTime createdAt) {
+		Song song = new Song();
+		song.setId(id);
+		song.setTitle("Song " + id);
+		song.setArtist(artist);
+		song.setGenre(genre);
+		song.setCreatedAt(createdAt);
+		return song;
+	}
+}
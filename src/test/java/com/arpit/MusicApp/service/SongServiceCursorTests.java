@@ -0,0 +1,131 @@
+package com.arpit.MusicApp.service;
+
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.SongPageDto;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.exception.BusinessValidationException;
+import com.arpit.MusicApp.repository.SongRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SongServiceCursorTests {
+
+	@Autowired
+	private SongService songService;
+
+	@Autowired
+	private SongRepository songRepository;
+
+	private final List<Song> songs = new ArrayList<>();
+
+	private String artist;
+
+	@BeforeEach
+	void createSongs() {
+		// A fresh artist per test keeps listings apart in the catalog cache
+		artist = "cursor-" + UUID.randomUUID();
+		for (String title : List.of("delta", "alpha", "echo", "charlie", "bravo")) {
+			Song song = new Song();
+			song.setTitle(title);
+			song.setArtist(artist);
+			song.setGenre(Song.Genre.ROCK);
+			songs.add(songRepository.save(song));
+		}
+	}
+
+	@AfterEach
+	void deleteSongs() {
+		songRepository.deleteAll(songs);
+	}
+
+	@Test
+	void followingCursorsVisitsEverySongOnce() {
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			SongPageDto page = songService.getSongsByArtist(artist, 2, null, null, cursor);
+			assertTrue(page.getSongs().size() <= 2);
+			page.getSongs().forEach(song -> seen.add(song.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(songs.stream().map(Song::getId).sorted().toList(), seen);
+	}
+
+	@Test
+	void cursorKeepsTheSortItWasIssuedFor() {
+		SongPageDto first = songService.getSongsByArtist(artist, 2, "title", "desc", null);
+		SongPageDto second = songService.getSongsByArtist(artist, 2, null, null, first.getNextCursor());
+		SongPageDto third = songService.getSongsByArtist(artist, 2, "title", "desc", second.getNextCursor());
+
+		assertEquals(List.of("echo", "delta"), titles(first));
+		assertEquals(List.of("charlie", "bravo"), titles(second));
+		assertEquals(List.of("alpha"), titles(third));
+		assertNull(third.getNextCursor());
+	}
+
+	@Test
+	void cursorReusedUnderAnotherSortIsRejected() {
+		String cursor = songService.getSongsByArtist(artist, 2, "title", "asc", null).getNextCursor();
+
+		assertRejected("CURSOR_SORT_MISMATCH", () -> songService.getSongsByArtist(artist, 2, "artist", null, cursor));
+		assertRejected("CURSOR_SORT_MISMATCH", () -> songService.getSongsByArtist(artist, 2, "title", "desc", cursor));
+	}
+
+	@Test
+	void tamperedCursorIsRejected() {
+		String cursor = songService.getSongsByArtist(artist, 2, "title", "asc", null).getNextCursor();
+		byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+
+		byte[] otherVersion = bytes.clone();
+		otherVersion[0]++;
+		assertRejected("INVALID_CURSOR", () -> songService.getSongsByArtist(artist, 2, null, null, encode(otherVersion)));
+
+		byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+		assertRejected("INVALID_CURSOR", () -> songService.getSongsByArtist(artist, 2, null, null, encode(truncated)));
+
+		byte[] unknownSort = bytes.clone();
+		unknownSort[3] = 'X'; // first letter of the sort property
+		assertRejected("INVALID_CURSOR", () -> songService.getSongsByArtist(artist, 2, null, null, encode(unknownSort)));
+	}
+
+	@Test
+	void garbageCursorIsRejected() {
+		for (String cursor : List.of("not a cursor!", "%%%", "AAAA", "////")) {
+			assertRejected("INVALID_CURSOR", () -> songService.getSongsByArtist(artist, 2, null, null, cursor));
+		}
+	}
+
+	@Test
+	void relevanceIsRejectedOutsideSearch() {
+		assertRejected("INVALID_SORT", () -> songService.getAllSongs(2, "relevance", null, null));
+		assertRejected("INVALID_SORT", () -> songService.getSongsByGenre(Song.Genre.ROCK, 2, "relevance", "desc", null));
+		assertRejected("INVALID_SORT", () -> songService.getSongsByArtist(artist, 2, "RELEVANCE", null, null));
+	}
+
+	private static void assertRejected(String code, Runnable call) {
+		BusinessValidationException ex = assertThrows(BusinessValidationException.class, call::run);
+		assertEquals(400, ex.getHttpStatus());
+		assertTrue(ex.getErrorCode().endsWith(code), ex.getErrorCode());
+	}
+
+	private static String encode(byte[] bytes) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	private static List<String> titles(SongPageDto page) {
+		return page.getSongs().stream().map(SongDto::getTitle).toList();
+	}
+}
@@ -0,0 +1,45 @@
+package com.arpit.MusicApp.service.media;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandwidthSchedulerTests {
+
+	private final BandwidthScheduler scheduler = new BandwidthScheduler(true, Duration.ofSeconds(1), 1.0,
+			DataSize.ofBytes(0), DataSize.ofBytes(0), Duration.ofSeconds(60), 1);
+
+	private final MediaSource audio = new ByteArrayMediaSource(new byte[100_000], "audio/mpeg", "track.mp3",
+			LocalDateTime.of(2024, 1, 1, 12, 0));
+
+	@AfterEach
+	void shutdown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	void pacedSeekKeepsItsStartTime() {
+		SeekMediaSource seek = new SeekMediaSource(audio, new SeekPoint(40_000, 100_000, 12.5, new byte[0]));
+
+		MediaSource paced = scheduler.pace(seek, 16_000);
+
+		assertInstanceOf(PacedMediaSource.class, paced);
+		assertEquals(12.5, paced.startSeconds());
+		assertEquals(0, scheduler.pace(audio, 16_000).startSeconds());
+	}
+
+	@Test
+	void everyResponseHasABudgetOfItsOwn() {
+		PacedMediaSource first = (PacedMediaSource) scheduler.pace(audio, 16_000);
+		PacedMediaSource second = (PacedMediaSource) scheduler.pace(audio, 16_000);
+
+		assertEquals(0, first.reserve(16_000)); // the initial burst
+		assertTrue(first.reserve(16_000) > 0);
+		assertEquals(0, second.reserve(16_000));
+	}
+}
@@ -0,0 +1,48 @@
+package com.arpit.MusicApp.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * MediaSource backed by an in-memory byte array, for tests
+ */
+public class ByteArrayMediaSource implements MediaSource {
+
+    private final byte[] data;
+    private final String contentType;
+    private final String filename;
+    private final LocalDateTime lastModified;
+
+    public ByteArrayMediaSource(byte[] data, String contentType, String filename, LocalDateTime lastModified) {
+        this.data = data;
+        this.contentType = contentType;
+        this.filename = filename;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public long length() {
+        return data.length;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public String filename() {
+        return filename;
+    }
+
+    @Override
+    public LocalDateTime lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long count) throws IOException {
+        out.write(data, (int) offset, (int) count);
+    }
+}
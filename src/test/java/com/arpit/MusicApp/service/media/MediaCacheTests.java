@@ -0,0 +1,143 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.MediaKind;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaCacheTests {
+
+	private static final int SEGMENT = 4096;
+	private static final String DIGEST = "blob";
+
+	private final byte[] content = new byte[5 * SEGMENT / 2];
+
+	private final MediaCache cache = new MediaCache(true, DataSize.ofBytes(16 * SEGMENT), DataSize.ofBytes(SEGMENT), false);
+
+	MediaCacheTests() {
+		new Random(3).nextBytes(content);
+	}
+
+	@Test
+	void slicesAcrossSegmentsComeFromMemoryOnceLoaded() throws IOException {
+		InMemoryStore store = new InMemoryStore();
+
+		assertArrayEquals(slice(100, 9000), copy(store, 100, 9000));
+		assertEquals(3, store.reads.get());
+		assertArrayEquals(slice(SEGMENT - 10, 20), copy(store, SEGMENT - 10, 20));
+		assertArrayEquals(slice(content.length - 1, 1), copy(store, content.length - 1, 1));
+		assertEquals(3, store.reads.get());
+		assertEquals(3, cache.getStats().getSegments());
+	}
+
+	@Test
+	void shortReadIsNotCached() throws IOException {
+		InMemoryStore store = new InMemoryStore();
+		store.shortBy = 10;
+
+		IOException ex = assertThrows(IOException.class, () -> copy(store, 0, 100));
+		assertTrue(ex.getMessage().contains("ended 10 bytes early"), ex.getMessage());
+		assertEquals(0, cache.getStats().getSegments());
+
+		store.shortBy = 0;
+		assertArrayEquals(slice(0, 100), copy(store, 0, 100));
+		assertEquals(1, cache.getStats().getSegments());
+	}
+
+	@Test
+	void concurrentMissesShareOneLoad() throws Exception {
+		InMemoryStore store = new InMemoryStore();
+		store.entered = new CountDownLatch(1);
+		store.release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<byte[]> first = executor.submit(() -> copy(store, 10, 500));
+			assertTrue(store.entered.await(5, TimeUnit.SECONDS));
+			AtomicReference<Thread> waiter = new AtomicReference<>();
+			Future<byte[]> second = executor.submit(() -> {
+				waiter.set(Thread.currentThread());
+				return copy(store, 1000, 500);
+			});
+			// The second miss waits for the first load instead of reading the store itself
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while ((waiter.get() == null || waiter.get().getState() != Thread.State.WAITING)
+					&& System.nanoTime() < deadline) {
+				Thread.sleep(5);
+			}
+			store.release.countDown();
+
+			assertArrayEquals(slice(10, 500), first.get(5, TimeUnit.SECONDS));
+			assertArrayEquals(slice(1000, 500), second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, store.reads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private byte[] copy(MediaStore store, long offset, long count) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.copyTo(store, MediaKind.AUDIO, DIGEST, content.length, out, offset, count);
+		return out.toByteArray();
+	}
+
+	private byte[] slice(int offset, int count) {
+		return Arrays.copyOfRange(content, offset, offset + count);
+	}
+
+	/**
+	 * Store holding the test content, counting reads; it can end reads early
+	 * and hold the first read until released
+	 */
+	private class InMemoryStore implements MediaStore {
+
+		final AtomicInteger reads = new AtomicInteger();
+		volatile int shortBy;
+		CountDownLatch entered;
+		CountDownLatch release;
+
+		@Override
+		public void copyTo(MediaKind kind, String digest, OutputStream out, long offset, long count)
+				throws IOException {
+			reads.incrementAndGet();
+			if (entered != null) {
+				entered.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			out.write(content, (int) offset, (int) count - shortBy);
+		}
+
+		@Override
+		public long size(MediaKind kind, String digest) {
+			return content.length;
+		}
+
+		@Override
+		public void save(MediaKind kind, String digest, Path spooledFile) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void delete(MediaKind kind, String digest) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.arpit.MusicApp.service.media;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaStreamingServiceTests {
+
+	private final MediaStreamingService service = new MediaStreamingService();
+
+	private final byte[] data = "0123456789".getBytes();
+
+	private final MediaSource source = new ByteArrayMediaSource(
+			data, "audio/mpeg", "track.mp3", LocalDateTime.of(2024, 1, 1, 12, 0));
+
+	@Test
+	void resolveRangesCoalescesAndDropsUnsatisfiable() {
+		List<long[]> ranges = MediaStreamingService.resolveRanges(
+				HttpRange.parseRanges("bytes=5-6,0-1,2-3,20-30,-2"), 10);
+
+		assertEquals(3, ranges.size());
+		assertArrayEquals(new long[]{0, 3}, ranges.get(0));
+		assertArrayEquals(new long[]{5, 6}, ranges.get(1));
+		assertArrayEquals(new long[]{8, 9}, ranges.get(2));
+	}
+
+	@Test
+	void singleRangeReturnsPartialContent() throws Exception {
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, rangeHeaders("bytes=2-4"), "no-cache");
+
+		assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+		assertEquals("bytes 2-4/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+		assertEquals("234", body(response));
+	}
+
+	@Test
+	void unsatisfiableRangeReturns416() {
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, rangeHeaders("bytes=10-"), "no-cache");
+
+		assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+		assertEquals("bytes */10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void multipleRangesReturnMultipartBody() throws Exception {
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, rangeHeaders("bytes=0-0,9-9"), "no-cache");
+
+		assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+		assertTrue(response.getHeaders().getContentType().toString().startsWith("multipart/byteranges"));
+		String body = body(response);
+		assertEquals(response.getHeaders().getContentLength(), body.length());
+		assertTrue(body.contains("Content-Range: bytes 0-0/10"));
+		assertTrue(body.contains("Content-Range: bytes 9-9/10"));
+	}
+
+	@Test
+	void staleIfRangeReturnsWholeBody() throws Exception {
+		HttpHeaders headers = rangeHeaders("bytes=2-4");
+		headers.set(HttpHeaders.IF_RANGE, "\"some-other-version\"");
+
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, headers, "no-cache");
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("0123456789", body(response));
+	}
+
+	@Test
+	void currentIfModifiedSinceReturnsNotModified() {
+		HttpHeaders headers = rangeHeaders("bytes=2-4");
+		headers.setIfModifiedSince(lastModifiedMillis());
+
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, headers, "no-cache");
+
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertNull(response.getBody());
+	}
+
+	@Test
+	void olderIfModifiedSinceReturnsWholeBody() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfModifiedSince(lastModifiedMillis() - 1000);
+
+		ResponseEntity<StreamingResponseBody> response = service.stream(source, headers, "no-cache");
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("0123456789", body(response));
+	}
+
+	private long lastModifiedMillis() {
+		return source.lastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private static HttpHeaders rangeHeaders(String range) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RANGE, range);
+		return headers;
+	}
+
+	private static String body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		response.getBody().writeTo(out);
+		return out.toString();
+	}
+}
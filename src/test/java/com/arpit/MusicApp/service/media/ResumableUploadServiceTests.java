@@ -0,0 +1,206 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.dto.SongDto;
+import com.arpit.MusicApp.dto.UploadSessionDto;
+import com.arpit.MusicApp.dto.UploadSessionRequestDto;
+import com.arpit.MusicApp.exception.BusinessValidationException;
+import com.arpit.MusicApp.exception.MusicAppException;
+import com.arpit.MusicApp.exception.ResourceConflictException;
+import com.arpit.MusicApp.exception.ResourceNotFoundException;
+import com.arpit.MusicApp.exception.UnauthorizedAccessException;
+import com.arpit.MusicApp.service.FileStorageService;
+import com.arpit.MusicApp.service.SongService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ResumableUploadServiceTests {
+
+	private static final String ADMIN = "uploader";
+
+	@Autowired
+	private ResumableUploadService uploadService;
+
+	@Autowired
+	private SongService songService;
+
+	@Autowired
+	private FileStorageService fileStorageService;
+
+	private final List<String> sessions = new ArrayList<>();
+
+	private final List<Long> songs = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() throws IOException {
+		for (String id : sessions) {
+			try {
+				uploadService.abort(id, ADMIN);
+			} catch (ResourceNotFoundException ex) {
+				// Completed or discarded by the test
+			}
+		}
+		songs.forEach(songService::deleteSong);
+	}
+
+	@Test
+	void chunkAtTheWrongOffsetIsRejectedAndResumingContinues() throws IOException {
+		byte[] audio = wav(8000, 3000);
+		String id = create(audio.length, null, null);
+
+		append(id, 0, Arrays.copyOfRange(audio, 0, 1000));
+		for (long offset : new long[]{0, 999, 1001}) {
+			assertErrorCode("UPLOAD_OFFSET", assertThrows(ResourceConflictException.class,
+					() -> append(id, offset, Arrays.copyOfRange(audio, 1000, 2000))));
+		}
+		assertEquals(1000, uploadService.getSession(id, ADMIN).getOffset());
+
+		UploadSessionDto session = append(id, 1000, Arrays.copyOfRange(audio, 1000, audio.length));
+		assertEquals(audio.length, session.getOffset());
+		assertTrue(session.isComplete());
+	}
+
+	@Test
+	void chunkBeyondTheTotalSizeIsRejectedWithoutKeepingAnyOfIt() throws IOException {
+		String id = create(100, null, null);
+		append(id, 0, new byte[40]);
+
+		// Declared up front
+		assertErrorCode("UPLOAD_CHUNK", assertThrows(BusinessValidationException.class,
+				() -> uploadService.appendChunk(id, ADMIN, 40, 61, new ByteArrayInputStream(new byte[61]))));
+		// Found out while reading a body of unknown length
+		assertErrorCode("UPLOAD_CHUNK", assertThrows(BusinessValidationException.class,
+				() -> uploadService.appendChunk(id, ADMIN, 40, -1, new ByteArrayInputStream(new byte[100_000]))));
+
+		assertEquals(40, uploadService.getSession(id, ADMIN).getOffset());
+		assertEquals(100, append(id, 40, new byte[60]).getOffset());
+	}
+
+	@Test
+	void uploadsBelongToTheirCreator() throws IOException {
+		String id = create(10, null, null);
+
+		assertThrows(UnauthorizedAccessException.class, () -> uploadService.getSession(id, "someone-else"));
+		assertThrows(UnauthorizedAccessException.class,
+				() -> uploadService.appendChunk(id, "someone-else", 0, 10, new ByteArrayInputStream(new byte[10])));
+		assertEquals(0, uploadService.getSession(id, ADMIN).getOffset());
+	}
+
+	@Test
+	void completionCreatesTheSongAndDiscardsTheSession() throws IOException {
+		byte[] audio = wav(8000, 8000 * 5);
+		String id = create(audio.length, null, sha256(audio));
+
+		assertErrorCode("UPLOAD_INCOMPLETE", assertThrows(ResourceConflictException.class,
+				() -> uploadService.complete(id, ADMIN, null, null)));
+		append(id, 0, audio);
+		SongDto song = complete(id, null);
+
+		assertEquals("Resumed", song.getTitle());
+		assertEquals(5, song.getDuration());
+		assertThrows(ResourceNotFoundException.class, () -> uploadService.getSession(id, ADMIN));
+		assertNoSpoolFilesOf(id);
+	}
+
+	@Test
+	void failedCompletionKeepsTheUploadForARetryWithADuration() throws IOException {
+		// No byte rate, so the duration cannot be probed
+		byte[] audio = wav(0, 4000);
+		String id = create(audio.length, null, null);
+		append(id, 0, audio);
+
+		assertErrorCode("DURATION_REQUIRED", assertThrows(BusinessValidationException.class,
+				() -> uploadService.complete(id, ADMIN, null, null)));
+		UploadSessionDto session = uploadService.getSession(id, ADMIN);
+		assertTrue(session.isComplete());
+		assertEquals(audio.length, session.getOffset());
+
+		SongDto song = complete(id, 42);
+		assertEquals(42, song.getDuration());
+		assertNoSpoolFilesOf(id);
+	}
+
+	@Test
+	void checksumMismatchDiscardsTheUpload() throws IOException {
+		byte[] audio = wav(8000, 2000);
+		String id = create(audio.length, null, "0".repeat(64));
+		append(id, 0, audio);
+
+		assertErrorCode("UPLOAD_CHECKSUM", assertThrows(BusinessValidationException.class,
+				() -> uploadService.complete(id, ADMIN, null, null)));
+		assertThrows(ResourceNotFoundException.class, () -> uploadService.getSession(id, ADMIN));
+		assertNoSpoolFilesOf(id);
+	}
+
+	private String create(long totalSize, Integer duration, String sha256) {
+		UploadSessionRequestDto request = new UploadSessionRequestDto("Resumed", "Uploader", null, null, duration,
+				"resumed.wav", totalSize, sha256);
+		String id = uploadService.createSession(ADMIN, request).getId();
+		sessions.add(id);
+		return id;
+	}
+
+	private UploadSessionDto append(String id, long offset, byte[] chunk) throws IOException {
+		return uploadService.appendChunk(id, ADMIN, offset, chunk.length, new ByteArrayInputStream(chunk));
+	}
+
+	private SongDto complete(String id, Integer duration) throws IOException {
+		SongDto song = uploadService.complete(id, ADMIN, duration, null);
+		songs.add(song.getId());
+		return song;
+	}
+
+	private void assertNoSpoolFilesOf(String id) throws IOException {
+		try (Stream<Path> files = Files.list(fileStorageService.getSpoolLocation())) {
+			assertEquals(List.of(), files.filter(file -> file.getFileName().toString().contains(id)).toList());
+		}
+	}
+
+	private static void assertErrorCode(String code, MusicAppException ex) {
+		assertTrue(ex.getErrorCode().endsWith(code), ex.getErrorCode());
+	}
+
+	/**
+	 * 8-bit mono WAV of silence with the given byte rate, 0 for a header without one
+	 */
+	private static byte[] wav(int byteRate, int dataLength) {
+		ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+		wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataLength)
+				.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+		wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+				.putShort((short) 1).putShort((short) 1).putInt(byteRate).putInt(byteRate)
+				.putShort((short) 1).putShort((short) 8);
+		wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataLength);
+		while (wav.hasRemaining()) {
+			wav.put((byte) 0x80);
+		}
+		return wav.array();
+	}
+
+	private static String sha256(byte[] data) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.arpit.MusicApp.service.media;
+
+import com.arpit.MusicApp.entity.AudioSeekIndex;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeekIndexServiceTests {
+
+	// MPEG-1 Layer III at 44.1 kHz: 1152 samples per frame
+	private static final int SAMPLE_RATE = 44100;
+	private static final int SAMPLES_PER_FRAME = 1152;
+	private static final double FRAME_SECONDS = (double) SAMPLES_PER_FRAME / SAMPLE_RATE;
+	private static final int[] BITRATES = {32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+
+	private final Random random = new Random(7);
+
+	@Test
+	void vbrMp3PositionsResolveToTheirFrame() throws IOException {
+		// More frames than a few checkpoints, and a count that does not end on one
+		int frameCount = 5 * SeekIndexService.CHECKPOINT_INTERVAL + 17;
+		List<Long> frameOffsets = new ArrayList<>();
+		byte[] mp3 = vbrMp3(frameCount, frameOffsets);
+
+		AudioSeekIndex index = index(mp3);
+		assertEquals("MP3", index.getFormat());
+		assertEquals(frameCount, index.getFrameCount());
+		assertEquals(frameOffsets, Arrays.stream(SeekIndexService.frameOffsets(index)).boxed().toList());
+
+		SeekIndexService.SeekTable table = new SeekIndexService.SeekTable(index);
+		long end = frameOffsets.get(0) + index.getDataLength();
+		for (int frame = 0; frame < frameCount; frame++) {
+			// Start of the frame, and just before the next one
+			for (double seconds : new double[]{frame * FRAME_SECONDS + 1e-6, (frame + 1) * FRAME_SECONDS - 1e-6}) {
+				SeekPoint point = table.locate(seconds);
+				assertEquals(frameOffsets.get(frame), point.offset(), "at " + seconds);
+				assertEquals(frame * FRAME_SECONDS, point.startSeconds(), 1e-9);
+				assertEquals(end, point.end());
+				assertEquals(0, point.header().length);
+			}
+		}
+		assertEquals(mp3.length - 128, end, "the trailing ID3v1 tag is not audio");
+	}
+
+	@Test
+	void positionsOutsideTheAudioAreClamped() throws IOException {
+		List<Long> frameOffsets = new ArrayList<>();
+		SeekIndexService.SeekTable table = new SeekIndexService.SeekTable(index(vbrMp3(10, frameOffsets)));
+
+		assertEquals(frameOffsets.get(0), table.locate(-3).offset());
+		assertEquals(frameOffsets.get(9), table.locate(3600).offset());
+		assertEquals(9 * FRAME_SECONDS, table.locate(3600).startSeconds(), 1e-9);
+	}
+
+	@Test
+	void wavPositionsResolveToASampleBlockWithAFreshHeader() throws IOException {
+		// 16-bit stereo at 8 kHz: 4-byte blocks, with a chunk before the data to skip over
+		int sampleRate = 8000;
+		int blockAlign = 4;
+		byte[] samples = new byte[sampleRate * blockAlign * 3];
+		random.nextBytes(samples);
+		byte[] wav = wav(sampleRate, blockAlign, samples);
+		int dataOffset = wav.length - samples.length;
+
+		AudioSeekIndex index = index(wav);
+		assertEquals("WAV", index.getFormat());
+		assertEquals(3 * sampleRate, index.getFrameCount());
+		SeekIndexService.SeekTable table = new SeekIndexService.SeekTable(index);
+
+		for (double seconds : new double[]{0, 0.5, 1.25, 2.9999}) {
+			SeekPoint point = table.locate(seconds);
+			long block = (long) Math.floor(seconds * sampleRate);
+			assertEquals(dataOffset + block * blockAlign, point.offset());
+			assertEquals((double) block / sampleRate, point.startSeconds(), 1e-9);
+			assertEquals(wav.length, point.end());
+
+			// Header and the rest of the file make a WAV of their own that starts at the block
+			ByteArrayOutputStream cut = new ByteArrayOutputStream();
+			cut.write(point.header());
+			cut.write(wav, (int) point.offset(), (int) (point.end() - point.offset()));
+			AudioSeekIndex cutIndex = index(cut.toByteArray());
+			assertEquals(3 * sampleRate - block, cutIndex.getFrameCount());
+			assertEquals(point.header().length, cutIndex.getDataOffset());
+			assertArrayEquals(Arrays.copyOfRange(samples, (int) (block * blockAlign), samples.length),
+					Arrays.copyOfRange(cut.toByteArray(), point.header().length, cut.size()));
+		}
+		assertEquals(wav.length - blockAlign, table.locate(60).offset());
+	}
+
+	@Test
+	void otherContentHasNoIndex() throws IOException {
+		assertNull(index("just some text, not audio at all".getBytes(StandardCharsets.US_ASCII)));
+		assertNull(index(wav(0, 4, new byte[400])), "no sample rate");
+	}
+
+	private static AudioSeekIndex index(byte[] content) throws IOException {
+		return SeekIndexService.index(new BufferedInputStream(new ByteArrayInputStream(content)), content.length);
+	}
+
+	/**
+	 * An MP3 with an ID3v2 tag, a Xing frame, frames of random bitrates and a
+	 * trailing ID3v1 tag; the offset of every audio frame is added to frameOffsets
+	 */
+	private byte[] vbrMp3(int frameCount, List<Long> frameOffsets) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 1, 0});
+		out.write(new byte[128]);
+
+		byte[] xing = frame(128, false);
+		System.arraycopy("Xing".getBytes(StandardCharsets.US_ASCII), 0, xing, 4 + 32, 4);
+		out.write(xing);
+
+		for (int i = 0; i < frameCount; i++) {
+			frameOffsets.add((long) out.size());
+			out.write(frame(BITRATES[random.nextInt(BITRATES.length)], random.nextBoolean()));
+		}
+		byte[] id3v1 = new byte[128];
+		id3v1[0] = 'T';
+		id3v1[1] = 'A';
+		id3v1[2] = 'G';
+		out.write(id3v1);
+		return out.toByteArray();
+	}
+
+	/**
+	 * A stereo MPEG-1 Layer III frame at 44.1 kHz with a silent body
+	 */
+	private static byte[] frame(int kbps, boolean padding) {
+		int bitrateIndex = Arrays.binarySearch(BITRATES, kbps) + 1;
+		byte[] frame = new byte[144 * kbps * 1000 / SAMPLE_RATE + (padding ? 1 : 0)];
+		frame[0] = (byte) 0xFF;
+		frame[1] = (byte) 0xFB;
+		frame[2] = (byte) (bitrateIndex << 4 | (padding ? 0x02 : 0));
+		return frame;
+	}
+
+	/**
+	 * A WAV with a LIST chunk between the format and the samples
+	 */
+	private static byte[] wav(int sampleRate, int blockAlign, byte[] samples) {
+		byte[] list = "INFOISFT".getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer wav = ByteBuffer.allocate(12 + 24 + 8 + list.length + 8 + samples.length)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(wav.capacity() - 8)
+				.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+		wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+				.putShort((short) 1).putShort((short) (blockAlign / 2)).putInt(sampleRate)
+				.putInt(sampleRate * blockAlign).putShort((short) blockAlign).putShort((short) 16);
+		wav.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(list.length).put(list);
+		wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(samples.length).put(samples);
+		return wav.array();
+	}
+}
@@ -0,0 +1,202 @@
+package com.arpit.MusicApp.service.media;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipArchiveSourceTests {
+
+	private static final LocalDateTime MODIFIED = LocalDateTime.of(2024, 3, 1, 10, 30, 20);
+
+	private final byte[] first = "first track content".getBytes(StandardCharsets.UTF_8);
+
+	private final byte[] second = new byte[70_000];
+
+	{
+		for (int i = 0; i < second.length; i++) {
+			second[i] = (byte) (i * 31);
+		}
+	}
+
+	private final ZipArchiveSource archive = new ZipArchiveSource(List.of(
+			entry("01 - Artist - First.mp3", first),
+			entry("02 - Artist - Zweite Spur ä.mp3", second)), "Playlist.zip", MODIFIED);
+
+	@Test
+	void streamedArchiveReadsBackWithZipInputStream() throws Exception {
+		byte[] bytes = read(archive, 0, archive.length());
+		assertEquals(archive.length(), bytes.length);
+
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+			ZipEntry entry = zip.getNextEntry();
+			assertEquals("01 - Artist - First.mp3", entry.getName());
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(MODIFIED, entry.getTimeLocal());
+			assertArrayEquals(first, zip.readAllBytes());
+
+			entry = zip.getNextEntry();
+			assertEquals("02 - Artist - Zweite Spur ä.mp3", entry.getName());
+			assertArrayEquals(second, zip.readAllBytes());
+
+			assertNull(zip.getNextEntry());
+		}
+	}
+
+	@Test
+	void streamedArchiveReadsBackWithZipFile(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("playlist.zip");
+		Files.write(file, read(archive, 0, archive.length()));
+
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			assertEquals(2, zip.size());
+			ZipEntry entry = zip.getEntry("02 - Artist - Zweite Spur ä.mp3");
+			assertEquals(second.length, entry.getSize());
+			assertEquals(crc32(second), entry.getCrc());
+			try (var in = zip.getInputStream(entry)) {
+				assertArrayEquals(second, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	void rangedReadsMatchTheFullArchive() throws Exception {
+		byte[] full = read(archive, 0, archive.length());
+		long[][] ranges = {{0, 10}, {25, 40}, {50, 30_000}, {archive.length() - 100, 100}, {7, archive.length() - 7}};
+		for (long[] range : ranges) {
+			byte[] expected = Arrays.copyOfRange(full, (int) range[0], (int) (range[0] + range[1]));
+			assertArrayEquals(expected, read(archive, range[0], range[1]), "range at " + range[0]);
+		}
+	}
+
+	@Test
+	void interruptedDownloadResumesWithIfRange() throws Exception {
+		byte[] full = read(archive, 0, archive.length());
+		long resumeAt = 40_000;
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RANGE, "bytes=" + resumeAt + "-");
+		headers.set(HttpHeaders.IF_RANGE, archive.eTag());
+
+		ResponseEntity<StreamingResponseBody> response = new MediaStreamingService().stream(archive, headers, "no-cache");
+
+		assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		response.getBody().writeTo(out);
+		byte[] resumed = new byte[full.length];
+		System.arraycopy(full, 0, resumed, 0, (int) resumeAt);
+		System.arraycopy(out.toByteArray(), 0, resumed, (int) resumeAt, out.size());
+		assertArrayEquals(full, resumed);
+	}
+
+	@Test
+	void eTagFollowsTheLayout() {
+		ZipArchiveSource same = new ZipArchiveSource(List.of(
+				entry("01 - Artist - First.mp3", first),
+				entry("02 - Artist - Zweite Spur ä.mp3", second)), "Playlist.zip", MODIFIED);
+		ZipArchiveSource reordered = new ZipArchiveSource(List.of(
+				entry("02 - Artist - Zweite Spur ä.mp3", second),
+				entry("01 - Artist - First.mp3", first)), "Playlist.zip", MODIFIED);
+
+		assertEquals(archive.eTag(), same.eTag());
+		assertNotEquals(archive.eTag(), reordered.eTag());
+	}
+
+	@Test
+	void localHeaderBeyond4GiBNeedsZip64Version() throws Exception {
+		long largeSize = 0x1_0000_0010L;
+		MediaSource large = new ZeroMediaSource(largeSize);
+		ZipArchiveSource huge = new ZipArchiveSource(List.of(
+				new ZipArchiveSource.Entry("large.bin", large, 0, MODIFIED),
+				entry("small.mp3", first)), "huge.zip", MODIFIED);
+
+		long firstHeaderLength = 30 + "large.bin".length() + 20;
+		long secondHeaderOffset = firstHeaderLength + largeSize;
+		ByteBuffer firstHeader = header(huge, 0, 8);
+		ByteBuffer secondHeader = header(huge, secondHeaderOffset, 30);
+
+		assertEquals(0x04034b50, firstHeader.getInt(0));
+		assertEquals(45, firstHeader.getShort(4));
+		assertEquals(0x04034b50, secondHeader.getInt(0));
+		assertEquals(45, secondHeader.getShort(4));
+		assertEquals(first.length, secondHeader.getInt(18)); // sizes still fit
+		assertEquals(0, secondHeader.getShort(28)); // no extra field
+	}
+
+	private static ZipArchiveSource.Entry entry(String name, byte[] content) {
+		return new ZipArchiveSource.Entry(name, new ByteArrayMediaSource(content, "audio/mpeg", name, MODIFIED),
+				crc32(content), MODIFIED);
+	}
+
+	private static long crc32(byte[] content) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(content);
+		return crc32.getValue();
+	}
+
+	private static byte[] read(MediaSource source, long offset, long count) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		source.writeTo(out, offset, count);
+		return out.toByteArray();
+	}
+
+	private static ByteBuffer header(MediaSource source, long offset, int count) throws Exception {
+		return ByteBuffer.wrap(read(source, offset, count)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Large source of zeros, only ever read in small slices
+	 */
+	private static class ZeroMediaSource implements MediaSource {
+
+		private final long length;
+
+		ZeroMediaSource(long length) {
+			this.length = length;
+		}
+
+		@Override
+		public long length() {
+			return length;
+		}
+
+		@Override
+		public String contentType() {
+			return "application/octet-stream";
+		}
+
+		@Override
+		public String filename() {
+			return null;
+		}
+
+		@Override
+		public LocalDateTime lastModified() {
+			return null;
+		}
+
+		@Override
+		public void writeTo(OutputStream out, long offset, long count) {
+			throw new UnsupportedOperationException("Not read in these tests");
+		}
+	}
+}
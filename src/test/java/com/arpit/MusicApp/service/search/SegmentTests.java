@@ -0,0 +1,196 @@
+package com.arpit.MusicApp.service.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 0, 30, 250_000_000);
+
+	private final List<IndexedSong> songs = List.of(
+			new IndexedSong(3, "Bohemian Rhapsody", "Queen", "A Night at the Opera", CREATED),
+			new IndexedSong(7, "Killer Queen", "Queen", "Sheer Heart Attack", null),
+			new IndexedSong(12, "Dancing Queen", "ABBA", null, CREATED.plusDays(1)),
+			new IndexedSong(40, "Ça plane pour moi", "Plastic Bertrand", "An 1", CREATED));
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void writtenSegmentReopensAndAnswersQueries() throws IOException {
+		SegmentWriter.write(directory.resolve("segment-1.seg"), songs);
+		Segment segment = Segment.open(directory.resolve("segment-1.seg"));
+
+		assertEquals("segment-1.seg", segment.name());
+		assertEquals(4, segment.documentCount());
+		assertEquals(4, segment.liveCount());
+		for (int ordinal = 0; ordinal < songs.size(); ordinal++) {
+			assertEquals(songs.get(ordinal), segment.document(ordinal));
+			assertEquals(ordinal, segment.ordinalOf((int) songs.get(ordinal).id()));
+		}
+		assertEquals(-1, segment.ordinalOf(8));
+		assertEquals(2 + 2 + 2 + 4, segment.fieldTokenTotal(0));
+		assertEquals(4, segment.fieldLength(3, 0));
+		assertEquals(0, segment.fieldLength(2, 2));
+
+		assertEquals(List.of(3L, 7L, 12L), query(segment, "queen"));
+		assertEquals(List.of(7L), query(segment, "killer q"));
+		assertEquals(List.of(40L), query(segment, "ça pl"));
+		assertEquals(List.of(), query(segment, "queens"));
+		assertEquals(List.of(), query(segment, "zzz"));
+	}
+
+	@Test
+	void mergedSegmentKeepsOnlyLiveDocuments() throws IOException {
+		SegmentWriter.write(directory.resolve("segment-1.seg"), songs.subList(0, 2));
+		SegmentWriter.write(directory.resolve("segment-2.seg"), songs.subList(2, 4));
+		Segment first = Segment.open(directory.resolve("segment-1.seg"));
+		Segment second = Segment.open(directory.resolve("segment-2.seg"));
+		BitSet firstDeleted = new BitSet();
+		firstDeleted.set(1);
+
+		SegmentWriter.merge(directory.resolve("segment-3.seg"), List.of(first, second),
+				List.of(firstDeleted, new BitSet()));
+		Segment merged = Segment.open(directory.resolve("segment-3.seg"));
+
+		assertEquals(3, merged.documentCount());
+		assertEquals(List.of(songs.get(0), songs.get(2), songs.get(3)),
+				List.of(merged.document(0), merged.document(1), merged.document(2)));
+		assertEquals(List.of(3L, 12L), query(merged, "queen"));
+		assertEquals(first.fieldTokenTotal(1) + second.fieldTokenTotal(1) - 1, merged.fieldTokenTotal(1));
+	}
+
+	@Test
+	void manifestRoundTripRestoresDeletions() throws IOException {
+		SegmentWriter.write(directory.resolve("segment-1.seg"), songs);
+		Segment segment = Segment.open(directory.resolve("segment-1.seg"));
+		segment.delete(1);
+		LocalDateTime watermark = LocalDateTime.of(2024, 6, 2, 8, 15, 1, 5000);
+		new IndexManifest(2, watermark, List.of(
+				new IndexManifest.Entry(segment.name(), segment.deletions().toByteArray()))).write(directory);
+
+		IndexManifest manifest = IndexManifest.read(directory);
+		assertEquals(2, manifest.nextSegment());
+		assertEquals(watermark, manifest.watermark());
+		assertEquals(1, manifest.segments().size());
+		IndexManifest.Entry entry = manifest.segments().get(0);
+		Segment reopened = Segment.open(directory.resolve(entry.name()));
+		reopened.restoreDeletions(BitSet.valueOf(entry.deleted()));
+
+		assertEquals(3, reopened.liveCount());
+		assertFalse(reopened.isLive(1));
+		assertEquals(List.of(3L, 12L), query(reopened, "queen"));
+		assertFalse(Files.exists(directory.resolve(IndexManifest.FILE_NAME + ".tmp")));
+	}
+
+	@Test
+	void manifestWithoutWatermarkOrSegmentsRoundTrips() throws IOException {
+		assertNull(IndexManifest.read(directory));
+
+		new IndexManifest(1, null, List.of()).write(directory);
+		IndexManifest manifest = IndexManifest.read(directory);
+
+		assertEquals(1, manifest.nextSegment());
+		assertNull(manifest.watermark());
+		assertTrue(manifest.segments().isEmpty());
+	}
+
+	@Test
+	void corruptedManifestIsRejected() throws IOException {
+		new IndexManifest(5, LocalDateTime.of(2024, 6, 2, 8, 15), List.of(
+				new IndexManifest.Entry("segment-4.seg", new byte[]{1, 2}))).write(directory);
+		Path file = directory.resolve(IndexManifest.FILE_NAME);
+		byte[] bytes = Files.readAllBytes(file);
+
+		for (int position : new int[]{0, 9, bytes.length / 2, bytes.length - 1}) {
+			byte[] flipped = bytes.clone();
+			flipped[position] ^= 0x10;
+			Files.write(file, flipped);
+			IOException ex = assertThrows(IOException.class, () -> IndexManifest.read(directory));
+			assertTrue(ex.getMessage().startsWith("Checksum mismatch"), ex.getMessage());
+		}
+
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+		assertThrows(IOException.class, () -> IndexManifest.read(directory));
+
+		Files.write(file, new byte[3]);
+		IOException truncated = assertThrows(IOException.class, () -> IndexManifest.read(directory));
+		assertTrue(truncated.getMessage().startsWith("Truncated"), truncated.getMessage());
+	}
+
+	@Test
+	void manifestDeletionsBeyondTheSegmentAreRejected() throws IOException {
+		SegmentWriter.write(directory.resolve("segment-1.seg"), songs);
+		Segment segment = Segment.open(directory.resolve("segment-1.seg"));
+		BitSet deleted = new BitSet();
+		deleted.set(songs.size());
+
+		assertThrows(IOException.class, () -> segment.restoreDeletions(deleted));
+	}
+
+	@Test
+	void truncatedOrForeignSegmentIsRejected() throws IOException {
+		Path file = directory.resolve("segment-1.seg");
+		SegmentWriter.write(file, songs);
+		byte[] bytes = Files.readAllBytes(file);
+
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+		assertThrows(IOException.class, () -> Segment.open(file));
+
+		Files.write(file, Arrays.copyOf(bytes, Segment.HEADER_SIZE - 1));
+		assertThrows(IOException.class, () -> Segment.open(file));
+
+		byte[] otherVersion = bytes.clone();
+		otherVersion[7]++;
+		Files.write(file, otherVersion);
+		assertThrows(IOException.class, () -> Segment.open(file));
+	}
+
+	@Test
+	void songsOutOfIdOrderAreRefused() {
+		List<IndexedSong> unordered = new ArrayList<>(songs);
+		unordered.add(songs.get(0));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> SegmentWriter.write(directory.resolve("segment-1.seg"), unordered));
+	}
+
+	/**
+	 * Ids of live documents containing a query of at least three chars, found the
+	 * way the index does: intersect gram postings, then confirm against the text
+	 */
+	private static List<Long> query(Segment segment, String query) {
+		List<Integer> indexes = new ArrayList<>();
+		for (long gram : SearchText.queryGrams(query)) {
+			int index = segment.gramIndex(gram);
+			if (index < 0) {
+				return List.of();
+			}
+			indexes.add(index);
+		}
+		int[] candidates = segment.postings(indexes.get(0));
+		int count = candidates.length;
+		for (int i = 1; i < indexes.size(); i++) {
+			count = segment.retainAll(indexes.get(i), candidates, count);
+		}
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			if (segment.isLive(candidates[i])
+					&& SearchText.text(segment.document(candidates[i])).contains(query)) {
+				ids.add((long) segment.id(candidates[i]));
+			}
+		}
+		return ids;
+	}
+}
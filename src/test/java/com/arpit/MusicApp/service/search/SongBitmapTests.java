@@ -0,0 +1,248 @@
+package com.arpit.MusicApp.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongBitmapTests {
+
+	private static final int CHUNK = 1 << 16;
+
+	private final Random random = new Random(42);
+
+	@Test
+	void chunkCrossesTheArrayLimitBothWays() {
+		SongBitmap bitmap = new SongBitmap();
+		BitSet expected = new BitSet();
+		// Every other id of the second chunk, so the container fills up without being contiguous
+		for (int i = 0; i < SongBitmap.ARRAY_MAX; i++) {
+			add(bitmap, expected, CHUNK + 2 * i);
+		}
+		assertMatches(bitmap, expected);
+
+		add(bitmap, expected, CHUNK + 1);
+		add(bitmap, expected, CHUNK + 2 * SongBitmap.ARRAY_MAX + 1);
+		assertEquals(SongBitmap.ARRAY_MAX + 2, bitmap.cardinality());
+		assertMatches(bitmap, expected);
+
+		remove(bitmap, expected, CHUNK + 1);
+		assertEquals(SongBitmap.ARRAY_MAX + 1, bitmap.cardinality());
+		remove(bitmap, expected, CHUNK);
+		assertEquals(SongBitmap.ARRAY_MAX, bitmap.cardinality());
+		assertMatches(bitmap, expected);
+
+		remove(bitmap, expected, CHUNK + 2);
+		add(bitmap, expected, CHUNK + 3);
+		add(bitmap, expected, CHUNK + 5);
+		assertMatches(bitmap, expected);
+
+		for (int id = expected.nextSetBit(0); id >= 0; id = expected.nextSetBit(id + 1)) {
+			bitmap.remove(id);
+		}
+		assertTrue(bitmap.isEmpty());
+		assertEquals(0, bitmap.ascendingAfter(-1, 10).length);
+	}
+
+	@Test
+	void addingAndRemovingTwiceChangesNothing() {
+		SongBitmap bitmap = new SongBitmap();
+		bitmap.add(7);
+		bitmap.add(7);
+		bitmap.remove(8);
+		bitmap.remove(CHUNK * 3);
+
+		assertEquals(1, bitmap.cardinality());
+		assertTrue(bitmap.contains(7));
+		assertFalse(bitmap.contains(CHUNK + 7));
+	}
+
+	@Test
+	void setOperationsResultsCrossTheArrayLimit() {
+		// Two dense containers whose intersection holds exactly ARRAY_MAX ids, and one more
+		for (int shared : new int[]{SongBitmap.ARRAY_MAX, SongBitmap.ARRAY_MAX + 1}) {
+			SongBitmap left = new SongBitmap();
+			SongBitmap right = new SongBitmap();
+			BitSet leftExpected = new BitSet();
+			BitSet rightExpected = new BitSet();
+			for (int i = 0; i < shared; i++) {
+				add(left, leftExpected, 3 * i);
+				add(right, rightExpected, 3 * i);
+			}
+			for (int i = 0; i < 2000; i++) {
+				add(left, leftExpected, 3 * i + 1);
+				add(right, rightExpected, 3 * i + 2);
+			}
+
+			SongBitmap intersection = left.and(right);
+			BitSet intersectionExpected = and(leftExpected, rightExpected);
+			assertEquals(shared, intersection.cardinality());
+			assertMatches(intersection, intersectionExpected);
+			assertMatches(left.andNot(right), andNot(leftExpected, rightExpected));
+
+			// Results have containers of their own: growing them must not touch the operands
+			add(intersection, intersectionExpected, 3 * shared + 9);
+			assertMatches(intersection, intersectionExpected);
+			assertMatches(left, leftExpected);
+			assertMatches(right, rightExpected);
+		}
+	}
+
+	@Test
+	void setOperationsMatchBitSet() {
+		for (int round = 0; round < 50; round++) {
+			BitSet leftExpected = new BitSet();
+			BitSet rightExpected = new BitSet();
+			SongBitmap left = randomBitmap(leftExpected);
+			SongBitmap right = randomBitmap(rightExpected);
+			BitSet thirdExpected = new BitSet();
+			SongBitmap third = randomBitmap(thirdExpected);
+
+			assertMatches(left, leftExpected);
+			assertMatches(left.and(right), and(leftExpected, rightExpected));
+			assertMatches(left.andNot(right), andNot(leftExpected, rightExpected));
+			assertMatches(right.andNot(left), andNot(rightExpected, leftExpected));
+			BitSet union = (BitSet) leftExpected.clone();
+			union.or(rightExpected);
+			union.or(thirdExpected);
+			assertMatches(SongBitmap.orAll(List.of(left, right, third)), union);
+
+			// Operands are left as they were
+			assertMatches(left, leftExpected);
+			assertMatches(right, rightExpected);
+		}
+	}
+
+	@Test
+	void orOfNothingIsEmpty() {
+		assertTrue(SongBitmap.orAll(List.of()).isEmpty());
+		assertTrue(SongBitmap.orAll(List.of(new SongBitmap(), new SongBitmap())).isEmpty());
+	}
+
+	@Test
+	void pagesWalkAcrossChunksInBothDirections() {
+		for (int round = 0; round < 20; round++) {
+			BitSet expected = new BitSet();
+			SongBitmap bitmap = randomBitmap(expected);
+			int pageSize = 1 + random.nextInt(700);
+
+			List<Long> ascending = new ArrayList<>();
+			long after = -1;
+			long[] page;
+			do {
+				page = bitmap.ascendingAfter(after, pageSize);
+				for (long id : page) {
+					ascending.add(id);
+				}
+				if (page.length > 0) {
+					after = page[page.length - 1];
+				}
+			} while (page.length == pageSize);
+			assertEquals(expected.stream().mapToObj(id -> (long) id).toList(), ascending);
+
+			List<Long> descending = new ArrayList<>();
+			long before = Long.MAX_VALUE;
+			do {
+				page = bitmap.descendingBefore(before, pageSize);
+				for (long id : page) {
+					descending.add(id);
+				}
+				if (page.length > 0) {
+					before = page[page.length - 1];
+				}
+			} while (page.length == pageSize);
+			Collections.reverse(descending);
+			assertEquals(ascending, descending);
+		}
+	}
+
+	@Test
+	void pagesStartInsideAndBetweenChunks() {
+		SongBitmap bitmap = new SongBitmap();
+		for (int id : new int[]{0, 5, CHUNK - 1, 3 * CHUNK, 3 * CHUNK + 4, Integer.MAX_VALUE}) {
+			bitmap.add(id);
+		}
+
+		assertArrayEquals(new long[]{5, CHUNK - 1}, bitmap.ascendingAfter(0, 2));
+		assertArrayEquals(new long[]{3 * CHUNK, 3 * CHUNK + 4}, bitmap.ascendingAfter(CHUNK + 10, 2));
+		assertArrayEquals(new long[]{Integer.MAX_VALUE}, bitmap.ascendingAfter(3 * CHUNK + 4, 5));
+		assertArrayEquals(new long[0], bitmap.ascendingAfter(Integer.MAX_VALUE, 5));
+		assertArrayEquals(new long[0], bitmap.ascendingAfter(Long.MAX_VALUE - 1, 5));
+
+		assertArrayEquals(new long[]{Integer.MAX_VALUE, 3 * CHUNK + 4}, bitmap.descendingBefore(Long.MAX_VALUE, 2));
+		assertArrayEquals(new long[]{CHUNK - 1, 5}, bitmap.descendingBefore(2 * CHUNK, 2));
+		assertArrayEquals(new long[]{0}, bitmap.descendingBefore(5, 5));
+		assertArrayEquals(new long[0], bitmap.descendingBefore(0, 5));
+	}
+
+	/**
+	 * A bitmap over four chunks, each empty, sparse, dense, near the array limit or full
+	 */
+	private SongBitmap randomBitmap(BitSet expected) {
+		SongBitmap bitmap = new SongBitmap();
+		for (int chunk = 0; chunk < 4; chunk++) {
+			int count = switch (random.nextInt(5)) {
+				case 0 -> 0;
+				case 1 -> random.nextInt(50);
+				case 2 -> SongBitmap.ARRAY_MAX - 20 + random.nextInt(40);
+				case 3 -> 10_000 + random.nextInt(20_000);
+				default -> CHUNK;
+			};
+			if (count == CHUNK) {
+				for (int low = 0; low < CHUNK; low++) {
+					add(bitmap, expected, chunk * CHUNK + low);
+				}
+			} else {
+				for (int i = 0; i < count; i++) {
+					add(bitmap, expected, chunk * CHUNK + random.nextInt(CHUNK));
+				}
+			}
+		}
+		return bitmap;
+	}
+
+	private static void add(SongBitmap bitmap, BitSet expected, int id) {
+		bitmap.add(id);
+		expected.set(id);
+	}
+
+	private static void remove(SongBitmap bitmap, BitSet expected, int id) {
+		bitmap.remove(id);
+		expected.clear(id);
+	}
+
+	private static BitSet and(BitSet left, BitSet right) {
+		BitSet result = (BitSet) left.clone();
+		result.and(right);
+		return result;
+	}
+
+	private static BitSet andNot(BitSet left, BitSet right) {
+		BitSet result = (BitSet) left.clone();
+		result.andNot(right);
+		return result;
+	}
+
+	private static BitSet toBitSet(SongBitmap bitmap) {
+		BitSet bits = new BitSet();
+		for (long id : bitmap.ascendingAfter(-1, bitmap.cardinality() + 1)) {
+			bits.set((int) id);
+		}
+		return bits;
+	}
+
+	private void assertMatches(SongBitmap bitmap, BitSet expected) {
+		assertEquals(expected.cardinality(), bitmap.cardinality());
+		assertEquals(expected.isEmpty(), bitmap.isEmpty());
+		assertEquals(expected, toBitSet(bitmap));
+		for (int i = 0; i < 200; i++) {
+			int id = random.nextInt(4 * CHUNK);
+			assertEquals(expected.get(id), bitmap.contains(id), "contains " + id);
+		}
+	}
+}
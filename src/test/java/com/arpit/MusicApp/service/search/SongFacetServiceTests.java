@@ -0,0 +1,148 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.dto.FacetCountDto;
+import com.arpit.MusicApp.dto.SongFacetsDto;
+import com.arpit.MusicApp.entity.Song;
+import com.arpit.MusicApp.service.SongDeletedEvent;
+import com.arpit.MusicApp.service.SongSavedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongFacetServiceTests {
+
+	private final SongFacetService facets = new SongFacetService();
+
+	private final FixedSearchIndex searchIndex = new FixedSearchIndex();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(facets, "songSearchIndex", searchIndex);
+	}
+
+	@Test
+	void artistsAndAlbumsGroupIgnoringCaseAndWhitespace() {
+		save(1, Song.Genre.ROCK, "Queen", "A Night at the Opera");
+		save(2, Song.Genre.ROCK, " queen ", "a  night at the opera");
+		save(3, Song.Genre.POP, "QUEEN", null);
+		save(4, null, "   ", "Jazz");
+
+		SongFacetsDto all = facets.facets(null, 10);
+
+		assertEquals(4, all.getTotal());
+		assertEquals(List.of(count("ROCK", 2), count("POP", 1)), all.getGenres());
+		assertEquals(List.of(count("Queen", 3)), all.getArtists(), "blank artists are not counted");
+		assertEquals(List.of(count("A Night at the Opera", 2), count("Jazz", 1)), all.getAlbums());
+	}
+
+	@Test
+	void changesMoveSongsBetweenValues() {
+		save(1, Song.Genre.ROCK, "Queen", "Innuendo");
+		save(2, Song.Genre.ROCK, "Queen", "Innuendo");
+
+		save(2, Song.Genre.JAZZ, "Miles Davis", "Kind of Blue");
+		SongFacetsDto moved = facets.facets(null, 10);
+		assertEquals(2, moved.getTotal());
+		assertEquals(List.of(count("JAZZ", 1), count("ROCK", 1)), sortedByValue(moved.getGenres()));
+		assertEquals(List.of(count("Miles Davis", 1), count("Queen", 1)), moved.getArtists());
+
+		facets.onSongDeleted(new SongDeletedEvent(1L));
+		facets.onSongDeleted(new SongDeletedEvent(1L));
+		facets.onSongDeleted(new SongDeletedEvent(99L));
+		SongFacetsDto deleted = facets.facets(null, 10);
+		assertEquals(1, deleted.getTotal());
+		assertEquals(List.of(count("JAZZ", 1)), deleted.getGenres());
+		assertEquals(List.of(count("Miles Davis", 1)), deleted.getArtists());
+		assertEquals(List.of(count("Kind of Blue", 1)), deleted.getAlbums());
+	}
+
+	@Test
+	void valuesDroppedToZeroAreReusedWithTheirNewText() {
+		save(1, Song.Genre.ROCK, "Queen", null);
+		facets.onSongDeleted(new SongDeletedEvent(1L));
+		save(2, Song.Genre.ROCK, "Abba", null);
+		save(3, Song.Genre.ROCK, "ABBA", null);
+		save(4, Song.Genre.ROCK, "Queen", null);
+
+		assertEquals(List.of(count("Abba", 2), count("Queen", 1)), facets.facets(null, 10).getArtists());
+	}
+
+	@Test
+	void onlyTheMostCommonValuesAreReturnedTiesByText() {
+		String[] artists = {"e", "D", "c", "b", "a"};
+		long id = 1;
+		for (int i = 0; i < artists.length; i++) {
+			for (int songs = 0; songs <= i / 2; songs++) {
+				save(id++, Song.Genre.ROCK, artists[i], null);
+			}
+		}
+
+		// e: 1, D: 1, c: 2, b: 2, a: 3
+		assertEquals(List.of(count("a", 3), count("b", 2), count("c", 2)), facets.facets(null, 3).getArtists());
+		assertEquals(List.of(count("a", 3), count("b", 2), count("c", 2), count("D", 1), count("e", 1)),
+				facets.facets(null, 10).getArtists());
+	}
+
+	@Test
+	void queryCountsOnlyTheMatchesStillPresent() {
+		save(1, Song.Genre.ROCK, "Queen", "Innuendo");
+		save(2, Song.Genre.ROCK, "Queen", "Jazz");
+		save(3, Song.Genre.JAZZ, "Queen Latifah", null);
+		save(4, Song.Genre.POP, "ABBA", "Arrival");
+		save(5000, Song.Genre.POP, "Queen", "Jazz");
+		searchIndex.matches = List.of(match(1), match(3), match(5000), match(6));
+		facets.onSongDeleted(new SongDeletedEvent(3L));
+
+		SongFacetsDto found = facets.facets("queen", 10);
+
+		assertEquals(2, found.getTotal(), "song 3 was deleted, song 6 never counted");
+		assertEquals(List.of(count("POP", 1), count("ROCK", 1)), sortedByValue(found.getGenres()));
+		assertEquals(List.of(count("Queen", 2)), found.getArtists());
+		assertEquals(List.of(count("Innuendo", 1), count("Jazz", 1)), found.getAlbums());
+		assertEquals(4, facets.facets(" ", 10).getTotal(), "a blank query counts the catalogue");
+	}
+
+	private void save(long id, Song.Genre genre, String artist, String album) {
+		Song song = new Song();
+		song.setId(id);
+		song.setTitle("Song " + id);
+		song.setGenre(genre);
+		song.setArtist(artist);
+		song.setAlbum(album);
+		facets.onSongSaved(new SongSavedEvent(song));
+	}
+
+	private static IndexedSong match(long id) {
+		return new IndexedSong(id, "Song " + id, null, null, null);
+	}
+
+	private static FacetCountDto count(String value, int count) {
+		return new FacetCountDto(value, count);
+	}
+
+	private static List<FacetCountDto> sortedByValue(List<FacetCountDto> counts) {
+		return counts.stream().sorted((first, second) -> first.getValue().compareTo(second.getValue())).toList();
+	}
+
+	/**
+	 * Search index answering every query with the same matches
+	 */
+	private static class FixedSearchIndex extends SongSearchIndex {
+
+		List<IndexedSong> matches = List.of();
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public List<IndexedSong> search(String term) {
+			return matches;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.arpit.MusicApp.service.search;
+
+import com.arpit.MusicApp.entity.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongFilterParserTests {
+
+	private static final SongFilter ROCK = new SongFilter.GenreIs(Song.Genre.ROCK);
+	private static final SongFilter METAL = new SongFilter.GenreIs(Song.Genre.METAL);
+	private static final SongFilter AUDIO = new SongFilter.HasMedia(SongFilter.Media.AUDIO);
+	private static final SongFilter COVER = new SongFilter.HasMedia(SongFilter.Media.COVER);
+
+	@Test
+	void notBindsTighterThanAndThanOr() {
+		assertEquals(new SongFilter.Or(List.of(
+						new SongFilter.And(List.of(ROCK, new SongFilter.Not(AUDIO))),
+						COVER)),
+				SongFilter.parse("genre:rock AND NOT has:audio OR has:cover"));
+	}
+
+	@Test
+	void parenthesesAndAdjacentTermsGroup() {
+		assertEquals(new SongFilter.And(List.of(
+						new SongFilter.Or(List.of(ROCK, METAL)),
+						new SongFilter.DurationBetween(180, 300),
+						AUDIO)),
+				SongFilter.parse("(genre:ROCK or genre:METAL)duration:180-300 and has:AUDIO"));
+		assertEquals(SongFilter.parse("genre:ROCK,METAL"), SongFilter.parse("(genre:rock OR genre:metal)"));
+	}
+
+	@Test
+	void termsTakeTheirValueForms() {
+		assertEquals(new SongFilter.DurationBetween(200, 200), SongFilter.parse("duration:200"));
+		assertEquals(new SongFilter.DurationBetween(null, 90), SongFilter.parse("duration:-90"));
+		assertEquals(new SongFilter.DurationBetween(600, null), SongFilter.parse("DURATION:600-"));
+		assertEquals(new SongFilter.AddedInDecade(1990), SongFilter.parse("decade:1990s"));
+		assertEquals(new SongFilter.Not(new SongFilter.Not(COVER)), SongFilter.parse("NOT NOT has:cover"));
+	}
+
+	@Test
+	void malformedExpressionsAreRejectedWithAReason() {
+		assertRejected(null, "filter must not be empty");
+		assertRejected("  ", "filter must not be empty");
+		assertRejected("genre:rock AND", "filter ends where a term was expected");
+		assertRejected("NOT", "filter ends where a term was expected");
+		assertRejected("(genre:rock OR has:audio", "Missing ')' in filter");
+		assertRejected("genre:rock)", "Unexpected ')' in filter");
+		assertRejected("()", "Expected field:value in filter, got ')'");
+		assertRejected("rock", "Expected field:value in filter, got 'rock'");
+		assertRejected(":rock", "Expected field:value in filter, got ':rock'");
+		assertRejected("genre:", "Expected field:value in filter, got 'genre:'");
+		assertRejected("mood:happy", "Unknown filter field 'mood'; use genre, duration, has or decade");
+		assertRejected("genre:rock,polka", "Unknown genre 'polka' in filter");
+		assertRejected("has:lyrics", "has: takes audio or cover, got 'lyrics'");
+	}
+
+	@Test
+	void badDurationsAndDecadesAreRejected() {
+		for (String duration : List.of("-", "abc", "300-180", "-5-10", "1-2-3", "9999999999")) {
+			assertRejected("duration:" + duration,
+					"duration: takes seconds as min-max, min- or -max, got '" + duration + "'");
+		}
+		for (String decade : List.of("1995", "0", "10000", "nineties", "s")) {
+			assertRejected("decade:" + decade,
+					"decade: takes a year ending in 0 such as 1990, got '" + decade + "'");
+		}
+	}
+
+	@Test
+	void termCountIsLimited() {
+		String atLimit = String.join(" OR ", Collections.nCopies(SongFilter.MAX_TERMS, "has:audio"));
+		assertEquals(SongFilter.MAX_TERMS, ((SongFilter.Or) SongFilter.parse(atLimit)).filters().size());
+
+		assertRejected(atLimit + " OR has:cover", "filter may have at most " + SongFilter.MAX_TERMS + " terms");
+	}
+
+	private static void assertRejected(String expression, String message) {
+		IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+				() -> SongFilter.parse(expression), expression);
+		assertEquals(message, ex.getMessage());
+	}
+}
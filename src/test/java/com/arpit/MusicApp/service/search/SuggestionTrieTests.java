@@ -0,0 +1,162 @@
+package com.arpit.MusicApp.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTrieTests {
+
+	private final long[] weights = new long[200];
+
+	private final SuggestionTrie trie = new SuggestionTrie(id -> weights[id]);
+
+	// What the trie should hold: the keys of every suggestion id
+	private final Map<Integer, Set<String>> keys = new HashMap<>();
+
+	private final Random random = new Random(11);
+
+	@Test
+	void prefixesEndingInsideAnEdgeFindTheWholeSubtree() {
+		add("bohemian rhapsody", 0, 5);
+		add("bohemian", 1, 3);
+		add("bolero", 2, 9);
+
+		assertLookup("b", 2, 0, 1);
+		assertLookup("bo", 2, 0, 1);
+		assertLookup("boh", 0, 1);
+		assertLookup("bohemian", 0, 1);
+		assertLookup("bohemian ", 0);
+		assertLookup("bohemian rhapsody", 0);
+		assertLookup("bohemian rhapsodyx");
+		assertLookup("bolt");
+		assertLookup("x");
+		assertLookup("", 2, 0, 1);
+	}
+
+	@Test
+	void removingKeysFoldsEdgesBackTogether() {
+		add("queen", 0, 1);
+		add("queens of the stone age", 1, 2);
+		add("quiet riot", 2, 3);
+
+		remove("queen", 0);
+		assertLookup("que", 1);
+		assertLookup("queen", 1);
+		assertLookup("q", 2, 1);
+
+		remove("quiet riot", 2);
+		assertLookup("q", 1);
+		assertLookup("queens of", 1);
+
+		// A key that is not there, or only a prefix of one, changes nothing
+		trie.remove("queens", 1);
+		trie.remove("quiet riot", 2);
+		assertLookup("queens", 1);
+
+		remove("queens of the stone age", 1);
+		assertLookup("q");
+		assertLookup("");
+	}
+
+	@Test
+	void tiesGoToTheLowerIdAndListsStopAtTopK() {
+		for (int id = SuggestionTrie.TOP_K + 4; id >= 0; id--) {
+			add("song " + id, id, 7);
+		}
+
+		int[] expected = new int[SuggestionTrie.TOP_K];
+		Arrays.setAll(expected, i -> i);
+		assertArrayEquals(expected, trie.lookup("song"));
+
+		reweigh(SuggestionTrie.TOP_K + 3, 8);
+		assertEquals(SuggestionTrie.TOP_K + 3, trie.lookup("song")[0]);
+		reweigh(SuggestionTrie.TOP_K + 3, 1);
+		assertArrayEquals(expected, trie.lookup("song"));
+	}
+
+	@Test
+	void randomChangesMatchABruteForceLookup() {
+		String[] words = {"a", "ab", "abba", "abc", "b", "ba", "bad", "badge", "queen", "que", "rhapsody", "rock"};
+		for (int step = 0; step < 5000; step++) {
+			int id = random.nextInt(weights.length);
+			String key = words[random.nextInt(words.length)]
+					+ (random.nextBoolean() ? "" : " " + words[random.nextInt(words.length)]);
+			switch (random.nextInt(4)) {
+				case 0, 1 -> add(key, id, keys.containsKey(id) ? weights[id] : random.nextInt(50));
+				case 2 -> {
+					Set<String> held = keys.get(id);
+					if (held != null) {
+						remove(held.iterator().next(), id);
+					}
+				}
+				default -> {
+					if (keys.containsKey(id)) {
+						reweigh(id, random.nextInt(50));
+					}
+				}
+			}
+			if (step % 50 == 0) {
+				for (String word : words) {
+					for (int length = 0; length <= word.length(); length++) {
+						String prefix = word.substring(0, length);
+						assertArrayEquals(bruteForce(prefix), trie.lookup(prefix), "after step " + step + ": " + prefix);
+					}
+				}
+			}
+		}
+	}
+
+	private void add(String key, int id, long weight) {
+		weights[id] = weight;
+		keys.computeIfAbsent(id, ignored -> new HashSet<>()).add(key);
+		trie.add(key, id);
+	}
+
+	private void remove(String key, int id) {
+		keys.get(id).remove(key);
+		if (keys.get(id).isEmpty()) {
+			keys.remove(id);
+		}
+		trie.remove(key, id);
+	}
+
+	/**
+	 * Change a weight the way the owning service does: on every key of the suggestion
+	 */
+	private void reweigh(int id, long weight) {
+		boolean heavier = weight > weights[id];
+		weights[id] = weight;
+		for (String key : keys.get(id)) {
+			trie.reweigh(key, id, heavier);
+		}
+	}
+
+	private int[] bruteForce(String prefix) {
+		List<Integer> ids = new ArrayList<>();
+		keys.forEach((id, held) -> {
+			if (held.stream().anyMatch(key -> key.startsWith(prefix))) {
+				ids.add(id);
+			}
+		});
+		return ids.stream()
+				.sorted(Comparator.<Integer>comparingLong(id -> -weights[id]).thenComparing(id -> id))
+				.limit(SuggestionTrie.TOP_K)
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	private void assertLookup(String prefix, int... expected) {
+		assertArrayEquals(expected, trie.lookup(prefix), prefix);
+		assertArrayEquals(bruteForce(prefix), expected, "brute force for " + prefix);
+	}
+}
@@ -0,0 +1,92 @@
+package com.arpit.MusicApp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaUrlSignerTests {
+
+	private final MediaUrlSigner signer = new MediaUrlSigner("test-secret", Duration.ofHours(6), Duration.ofHours(1));
+
+	private final long future = Instant.now().getEpochSecond() + 3600;
+
+	@Test
+	void validSignatureIsAccepted() {
+		String url = signer.sign("/api/files/audio/11");
+		String query = url.substring(url.indexOf('?') + 1);
+
+		assertTrue(url.startsWith("/api/files/audio/11?"));
+		assertTrue(signer.verify("/api/files/audio/11", param(query, "expires"), param(query, "signature")));
+	}
+
+	@Test
+	void expiryIsRoundedUpToGranularity() {
+		long expires = signer.currentExpiry();
+
+		assertEquals(0, expires % 3600);
+		assertTrue(expires >= Instant.now().getEpochSecond() + Duration.ofHours(6).toSeconds());
+	}
+
+	@Test
+	void expiredSignatureIsRejected() {
+		long past = Instant.now().getEpochSecond() - 1;
+		String query = signer.signatureQuery("/api/files/audio/11", past);
+
+		assertFalse(signer.verify("/api/files/audio/11", param(query, "expires"), param(query, "signature")));
+	}
+
+	@Test
+	void tamperedSignatureIsRejected() {
+		String signature = param(signer.signatureQuery("/api/files/audio/11", future), "signature");
+		char last = signature.charAt(signature.length() - 1);
+		String tampered = signature.substring(0, signature.length() - 1) + (last == 'A' ? 'B' : 'A');
+
+		assertFalse(signer.verify("/api/files/audio/11", String.valueOf(future), tampered));
+		assertFalse(signer.verify("/api/files/audio/11", String.valueOf(future), ""));
+	}
+
+	@Test
+	void extendedExpiryIsRejected() {
+		String signature = param(signer.signatureQuery("/api/files/audio/11", future), "signature");
+
+		assertFalse(signer.verify("/api/files/audio/11", String.valueOf(future + 3600), signature));
+		assertFalse(signer.verify("/api/files/audio/11", "not-a-number", signature));
+		assertFalse(signer.verify("/api/files/audio/11", null, signature));
+	}
+
+	@Test
+	void signatureOfAnotherPathIsRejected() {
+		String signature = param(signer.signatureQuery("/api/files/audio/11", future), "signature");
+
+		assertFalse(signer.verify("/api/files/audio/12", String.valueOf(future), signature));
+		assertFalse(signer.verify("/api/files/cover/11", String.valueOf(future), signature));
+	}
+
+	@Test
+	void signatureFromAnotherSecretIsRejected() {
+		MediaUrlSigner other = new MediaUrlSigner("other-secret", Duration.ofHours(6), Duration.ofHours(1));
+		String signature = param(other.signatureQuery("/api/files/audio/11", future), "signature");
+
+		assertFalse(signer.verify("/api/files/audio/11", String.valueOf(future), signature));
+	}
+
+	@Test
+	void segmentsShareTheSignatureOfTheirDirectory() {
+		String signature = param(signer.signatureQuery("/api/files/segments/11/", future), "signature");
+
+		assertTrue(signer.verify("/api/files/segments/11/3.mp3", String.valueOf(future), signature));
+		assertFalse(signer.verify("/api/files/segments/12/3.mp3", String.valueOf(future), signature));
+	}
+
+	private static String param(String query, String name) {
+		for (String pair : query.split("&")) {
+			if (pair.startsWith(name + "=")) {
+				return pair.substring(name.length() + 1);
+			}
+		}
+		return null;
+	}
+}